@@ -0,0 +1,56 @@
+package com.gu.mediaservice.lib
+
+/**
+ * A vector held as primitive floats, with its magnitude worked out once, for
+ * scoring many vectors against the same one (the query embedding of a search)
+ * without boxing each component or walking the vector again for its norm.
+ *
+ * Embeddings are float32 from the model, so nothing is lost by holding them as
+ * floats; the dot product is accumulated as doubles.
+ */
+final class FloatVector(val values: Array[Float]) {
+  val length: Int = values.length
+  val magnitude: Double = math.sqrt(FloatVector.dotProduct(values, values))
+
+  // None where cosine similarity is undefined, as `VectorUtils.cosineSimilarity`
+  def cosineSimilarity(other: FloatVector): Option[Double] =
+    if (length != other.length) None
+    else {
+      val magnitudeProduct = magnitude * other.magnitude
+      if (magnitudeProduct == 0.0) None
+      else Some(FloatVector.dotProduct(values, other.values) / magnitudeProduct)
+    }
+}
+
+object FloatVector {
+  def apply(vector: Seq[Double]): FloatVector = {
+    val values = new Array[Float](vector.length)
+    var i = 0
+    vector.foreach { component =>
+      values(i) = component.toFloat
+      i += 1
+    }
+    new FloatVector(values)
+  }
+
+  // Four independent sums rather than one, so each multiply-add needn't wait on
+  // the last and the JIT can keep them in flight together. The arrays must be
+  // the same length.
+  private[lib] def dotProduct(a: Array[Float], b: Array[Float]): Double = {
+    var sum0, sum1, sum2, sum3 = 0.0
+    val unrolled = a.length & ~3
+    var i = 0
+    while (i < unrolled) {
+      sum0 += a(i).toDouble * b(i)
+      sum1 += a(i + 1).toDouble * b(i + 1)
+      sum2 += a(i + 2).toDouble * b(i + 2)
+      sum3 += a(i + 3).toDouble * b(i + 3)
+      i += 4
+    }
+    while (i < a.length) {
+      sum0 += a(i).toDouble * b(i)
+      i += 1
+    }
+    (sum0 + sum1) + (sum2 + sum3)
+  }
+}
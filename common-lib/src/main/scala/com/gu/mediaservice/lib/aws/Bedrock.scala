@@ -25,7 +25,7 @@ object Bedrock {
 }
 
 class Bedrock(config: CommonConfig)
-  extends AwsClientV2BuilderUtils {
+  extends AwsClientV2BuilderUtils with TextEmbeddings {
 
   // TODO: figure out what the more usual pattern for turning off localstack behaviour is
   override def awsLocalEndpointUri: Option[URI] = None
@@ -16,13 +16,28 @@ object EmbedderMessage {
   implicit val format: OFormat[EmbedderMessage] = Json.format[EmbedderMessage]
 }
 
-class Embedder(bedrock: Bedrock, sqs: SimpleSqsMessageConsumer)(implicit ec: ExecutionContext) extends GridLogging {
+// what Embedder needs of Bedrock, so that tests can stand in for it
+trait TextEmbeddings {
+  def createTextEmbedding(inputData: String)(implicit ec: ExecutionContext, logMarker: LogMarker): Future[List[Double]]
+}
+
+class Embedder(
+  bedrock: TextEmbeddings,
+  sqs: SimpleSqsMessageConsumer,
+  queryEmbeddingCache: Option[QueryEmbeddingCache] = None
+)(implicit ec: ExecutionContext) extends GridLogging {
 
   def createQueryEmbedding(query: String)(implicit logMarker: LogMarker): Future[List[Double]] = {
+    val normalisedQuery = Embedder.normaliseQuery(query)
+    queryEmbeddingCache match {
+      case Some(cache) => cache.getOrCreate(normalisedQuery)(query => createTextEmbedding(query))
+      case None => createTextEmbedding(normalisedQuery)
+    }
+  }
+
+  private def createTextEmbedding(query: String)(implicit logMarker: LogMarker): Future[List[Double]] = {
     logger.info(logMarker, s"Creating text embedding for query: $query")
-    for {
-      embedding <- bedrock.createTextEmbedding(query)
-    } yield embedding
+    bedrock.createTextEmbedding(query)
   }
 
   def queueImageToEmbed(message: EmbedderMessage)(implicit logMarker: LogMarker) = {
@@ -31,3 +46,8 @@ class Embedder(bedrock: Bedrock, sqs: SimpleSqsMessageConsumer)(implicit ec: Exe
     logger.info(logMarker, s"Queued image for embedding with message ID: ${result.messageId()}")
   }
 }
+
+object Embedder {
+  // so that "Dogs" and "dogs " share an embedding
+  def normaliseQuery(query: String): String = query.trim.replaceAll("\\s+", " ").toLowerCase
+}
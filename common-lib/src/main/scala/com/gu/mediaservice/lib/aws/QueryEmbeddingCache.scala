@@ -0,0 +1,162 @@
+package com.gu.mediaservice.lib.aws
+
+import com.github.blemale.scaffeine.{AsyncCache, Scaffeine}
+import com.gu.mediaservice.lib.logging.{GridLogging, LogMarker, MarkerMap, Stopwatch}
+import com.gu.mediaservice.lib.metrics.{CacheMetrics, Metric}
+import play.api.libs.json.{Json, OFormat}
+import software.amazon.awssdk.services.cloudwatch.model.Dimension
+
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.{Files, Path, StandardCopyOption}
+import java.security.MessageDigest
+import java.util.concurrent.atomic.AtomicLong
+import scala.concurrent.duration.{DurationInt, FiniteDuration}
+import scala.concurrent.{ExecutionContext, Future}
+import scala.jdk.CollectionConverters._
+import scala.util.{Try, Using}
+import scala.util.control.NonFatal
+
+/**
+ * The embeddings of recent search queries, so that someone typing, paging or
+ * refining the filters of the same search costs one Bedrock request rather
+ * than one each time. Requests for a query that's already being embedded
+ * share the one Bedrock request, and a failed request isn't kept.
+ *
+ * With a directory, embeddings are also written to disk, one file a query,
+ * so they outlive a restart. Entries on disk expire after the same TTL as
+ * those in memory; the TTL bounds how long we'd keep serving embeddings from
+ * a model we've since moved off. Expired files, and any a failed write left
+ * behind, are swept out of the directory at startup and then at most once an
+ * hour, when an embedding is written.
+ */
+class QueryEmbeddingCache(
+  maxSize: Int,
+  ttl: FiniteDuration,
+  directory: Option[Path],
+  hits: Metric[Long],
+  misses: Metric[Long],
+  latency: Metric[Long]
+)(implicit ec: ExecutionContext) extends GridLogging {
+  import QueryEmbeddingCache._
+
+  private val cache: AsyncCache[String, List[Double]] = Scaffeine()
+    .maximumSize(maxSize)
+    .expireAfterWrite(ttl)
+    .buildAsync[String, List[Double]]()
+
+  directory.foreach(Files.createDirectories(_))
+
+  private val lastSwept = new AtomicLong(0)
+  sweepIfDue()
+
+  def getOrCreate(query: String)(create: String => Future[List[Double]])(implicit logMarker: LogMarker): Future[List[Double]] =
+    CacheMetrics.getFuture(cache, query)(load(_, create))(
+      onHit = {
+        logger.info(logMarker, s"Query embedding cache hit query=$query")
+        hits.recordOne(1, List(MemoryStore))
+      },
+      // recorded by load, which knows whether it came from disk
+      onMiss = ()
+    )
+
+  private def load(query: String, create: String => Future[List[Double]])(implicit logMarker: LogMarker): Future[List[Double]] =
+    Future(directory.flatMap(read(_, query))).flatMap {
+      case Some(embedding) =>
+        logger.info(logMarker, s"Query embedding cache hit on disk query=$query")
+        hits.recordOne(1, List(DiskStore))
+        Future.successful(embedding)
+      case None =>
+        logger.info(logMarker, s"Query embedding cache miss query=$query")
+        misses.recordOne(1)
+        val stopwatch = Stopwatch.start
+        create(query).map { embedding =>
+          latency.recordOne(stopwatch.elapsed.toMillis)
+          directory.foreach(write(_, query, embedding))
+          sweepIfDue()
+          embedding
+        }
+    }
+
+  private def read(directory: Path, query: String)(implicit logMarker: LogMarker): Option[List[Double]] = {
+    val file = fileFor(directory, query)
+    try {
+      if (!Files.exists(file)) None
+      else if (Files.getLastModifiedTime(file).toMillis < System.currentTimeMillis() - ttl.toMillis) {
+        Files.deleteIfExists(file)
+        None
+      } else {
+        val cached = Json.parse(Files.readAllBytes(file)).as[CachedEmbedding]
+        // the file is named by a hash of the query, so check it's the same one
+        if (cached.query == query) Some(cached.embedding) else None
+      }
+    } catch {
+      case NonFatal(e) =>
+        logger.warn(logMarker, s"Could not read the query embedding cached in $file", e)
+        None
+    }
+  }
+
+  // written alongside and moved into place, so a reader never sees half a file
+  private def write(directory: Path, query: String, embedding: List[Double])(implicit logMarker: LogMarker): Unit = {
+    val file = fileFor(directory, query)
+    var temp: Option[Path] = None
+    try {
+      temp = Some(Files.createTempFile(directory, file.getFileName.toString, TempSuffix))
+      temp.foreach(Files.write(_, Json.toBytes(Json.toJson(CachedEmbedding(query, embedding)))))
+      temp.foreach(Files.move(_, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE))
+    } catch {
+      case NonFatal(e) => logger.warn(logMarker, s"Could not cache the query embedding in $file", e)
+    } finally {
+      // still there only if it wasn't moved into place
+      temp.foreach(deleteQuietly)
+    }
+  }
+
+  private def sweepIfDue(): Unit = directory.foreach { directory =>
+    val now = System.currentTimeMillis()
+    val last = lastSwept.get()
+    if (now - last >= SweepInterval.toMillis && lastSwept.compareAndSet(last, now))
+      Future(sweep(directory, now))
+  }
+
+  private def sweep(directory: Path, now: Long): Unit = {
+    implicit val logMarker: LogMarker = MarkerMap("directory" -> directory.toString)
+    try {
+      val swept = Using.resource(Files.list(directory)) { files =>
+        files.iterator.asScala.count(file => isSweepable(file, now) && deleteQuietly(file))
+      }
+      logger.info(logMarker, s"Swept $swept expired query embeddings out of $directory")
+    } catch {
+      case NonFatal(e) => logger.warn(logMarker, s"Could not sweep the query embeddings cached in $directory", e)
+    }
+  }
+
+  // expired embeddings, and temp files old enough that no write is still using them
+  private def isSweepable(file: Path, now: Long): Boolean = {
+    val name = file.getFileName.toString
+    val maxAge =
+      if (name.endsWith(TempSuffix)) Some(SweepInterval.toMillis)
+      else if (name.endsWith(".json")) Some(ttl.toMillis)
+      else None
+    // a file read or written since we listed it may have gone
+    maxAge.exists(age => Try(Files.getLastModifiedTime(file).toMillis < now - age).getOrElse(false))
+  }
+
+  private def deleteQuietly(file: Path): Boolean = Try(Files.deleteIfExists(file)).getOrElse(false)
+}
+
+object QueryEmbeddingCache {
+  private case class CachedEmbedding(query: String, embedding: List[Double])
+  private implicit val cachedEmbeddingFormat: OFormat[CachedEmbedding] = Json.format[CachedEmbedding]
+
+  val MemoryStore: Dimension = Dimension.builder().name("Store").value("Memory").build()
+  val DiskStore: Dimension = Dimension.builder().name("Store").value("Disk").build()
+
+  private val TempSuffix = ".tmp"
+  private val SweepInterval = 1.hour
+
+  private[aws] def fileFor(directory: Path, query: String): Path = {
+    val hash = MessageDigest.getInstance("SHA-256").digest(query.getBytes(UTF_8)).map("%02x".format(_)).mkString
+    directory.resolve(s"$hash.json")
+  }
+}
@@ -69,16 +69,17 @@ class S3(config: CommonConfig) extends GridLogging with ContentDisposition with
 
   lazy val client: AmazonS3 = S3Ops.buildS3Client(config)
 
-  def signUrl(bucket: Bucket, url: URI, image: Image, expiration: DateTime = cachableExpiration(), imageType: ImageFileType = Source): String = {
-    // get path and remove leading `/`
-    val key: Key = url.getPath.drop(1)
+  private lazy val urlSigner = new S3UrlSigner(client.getRegionName, () => config.awsCredentials.getCredentials)
 
-    val contentDisposition = getContentDisposition(image, imageType, config.shortenDownloadFilename)
+  def signUrl(bucket: Bucket, url: URI, image: Image, expiration: DateTime = cachableExpiration(), imageType: ImageFileType = Source): String =
+    signUrl(bucket, url, getContentDisposition(image, imageType, config.shortenDownloadFilename), expiration)
 
-    val headers = new ResponseHeaderOverrides().withContentDisposition(contentDisposition)
+  def signUrl(bucket: Bucket, url: URI, contentDisposition: String, expiration: DateTime): String = {
+    // get path and remove leading `/`
+    val key: Key = url.getPath.drop(1)
 
-    val request = new GeneratePresignedUrlRequest(bucket, key).withExpiration(expiration.toDate).withResponseHeaders(headers)
-    client.generatePresignedUrl(request).toExternalForm
+    // the client still says where the object is, which differs in dev
+    urlSigner.sign(client.getUrl(bucket, key), expiration, Map("response-content-disposition" -> contentDisposition))
   }
 
   def getObject(bucket: Bucket, url: URI): model.S3Object = {
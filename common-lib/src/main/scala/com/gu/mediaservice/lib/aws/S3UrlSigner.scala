@@ -0,0 +1,114 @@
+package com.gu.mediaservice.lib.aws
+
+import com.amazonaws.auth.{AWSCredentials, AWSSessionCredentials}
+import org.joda.time.{DateTime, DateTimeZone, Duration}
+
+import java.net.{URL, URLEncoder}
+import java.nio.charset.StandardCharsets.UTF_8
+import java.security.MessageDigest
+import java.util.concurrent.atomic.AtomicReference
+import javax.crypto.Mac
+import javax.crypto.spec.SecretKeySpec
+
+/**
+ * Presigns S3 GET urls with signature version 4, as the S3 client's presigner
+ * does, but derives the signing key and the rest of what's the same for every
+ * url once per expiry, rather than once per url.
+ *
+ * A url is signed as of `validity` before it expires, rather than as of now, so
+ * signing the same url for the same expiry gives the same url all through the
+ * window, which browsers and our own caches can keep.
+ */
+class S3UrlSigner(region: String, credentials: () => AWSCredentials, validity: Duration = Duration.standardMinutes(30)) {
+  import S3UrlSigner._
+
+  private val currentWindow = new AtomicReference[Option[Window]](None)
+
+  def sign(url: URL, expiration: DateTime, params: Map[String, String] = Map.empty): String =
+    window(expiration).sign(url, params)
+
+  // all the urls signed for an expiry share a window, so there's one of them at a time
+  def window(expiration: DateTime): Window = currentWindow.get() match {
+    case Some(window) if window.expiration.isEqual(expiration) => window
+    case _ =>
+      val window = new Window(expiration, signingTime(expiration), region, credentials())
+      currentWindow.set(Some(window))
+      window
+  }
+
+  // never in the future, or S3 would refuse the url until then
+  private def signingTime(expiration: DateTime): DateTime = {
+    val now = DateTime.now.withMillisOfSecond(0)
+    val signedAt = expiration.minus(validity)
+    if (signedAt.isAfter(now)) now else signedAt
+  }
+}
+
+object S3UrlSigner {
+  private val Algorithm = "AWS4-HMAC-SHA256"
+
+  class Window(val expiration: DateTime, signedAt: DateTime, region: String, credentials: AWSCredentials) {
+    private val utcSignedAt = signedAt.toDateTime(DateTimeZone.UTC)
+    private val dateStamp = utcSignedAt.toString("yyyyMMdd")
+    private val amzDate = utcSignedAt.toString("yyyyMMdd'T'HHmmss'Z'")
+    private val scope = s"$dateStamp/$region/s3/aws4_request"
+
+    private val signingKey = List(dateStamp, region, "s3", "aws4_request")
+      .foldLeft(s"AWS4${credentials.getAWSSecretKey}".getBytes(UTF_8))(hmacSha256)
+
+    private val windowParams: List[(String, String)] = List(
+      "X-Amz-Algorithm" -> Algorithm,
+      "X-Amz-Credential" -> s"${credentials.getAWSAccessKeyId}/$scope",
+      "X-Amz-Date" -> amzDate,
+      "X-Amz-Expires" -> ((expiration.getMillis - signedAt.getMillis) / 1000).toString,
+      "X-Amz-SignedHeaders" -> "host"
+    ) ++ (credentials match {
+      case session: AWSSessionCredentials => List("X-Amz-Security-Token" -> session.getSessionToken)
+      case _ => Nil
+    })
+
+    private val encodedWindowParams = windowParams.map { case (k, v) => encode(k) -> encode(v) }
+
+    def sign(url: URL, params: Map[String, String] = Map.empty): String = {
+      val host = if (url.getPort == -1 || url.getPort == url.getDefaultPort) url.getHost else s"${url.getHost}:${url.getPort}"
+      // as the S3 client makes it, with the key already encoded
+      val path = if (url.getPath.isEmpty) "/" else url.getPath
+      val query = (encodedWindowParams ++ params.map { case (k, v) => encode(k) -> encode(v) })
+        .sorted
+        .map { case (k, v) => s"$k=$v" }
+        .mkString("&")
+
+      val canonicalRequest = s"GET\n$path\n$query\nhost:$host\n\nhost\nUNSIGNED-PAYLOAD"
+      val stringToSign = s"$Algorithm\n$amzDate\n$scope\n${hex(sha256(canonicalRequest))}"
+      val signature = hex(hmacSha256(signingKey, stringToSign))
+
+      s"${url.getProtocol}://$host$path?$query&X-Amz-Signature=$signature"
+    }
+  }
+
+  // RFC 3986, as signature version 4 wants it
+  private def encode(s: String): String =
+    URLEncoder.encode(s, UTF_8.name).replace("+", "%20").replace("*", "%2A").replace("%7E", "~")
+
+  private val macs = ThreadLocal.withInitial[Mac](() => Mac.getInstance("HmacSHA256"))
+  private val digests = ThreadLocal.withInitial[MessageDigest](() => MessageDigest.getInstance("SHA-256"))
+
+  private def hmacSha256(key: Array[Byte], data: String): Array[Byte] = {
+    val mac = macs.get()
+    mac.init(new SecretKeySpec(key, "HmacSHA256"))
+    mac.doFinal(data.getBytes(UTF_8))
+  }
+
+  private def sha256(data: String): Array[Byte] = digests.get().digest(data.getBytes(UTF_8))
+
+  private val hexDigits = "0123456789abcdef".toCharArray
+
+  private def hex(bytes: Array[Byte]): String = {
+    val chars = new Array[Char](bytes.length * 2)
+    bytes.indices.foreach { i =>
+      chars(i * 2) = hexDigits((bytes(i) >> 4) & 0xf)
+      chars(i * 2 + 1) = hexDigits(bytes(i) & 0xf)
+    }
+    new String(chars)
+  }
+}
@@ -0,0 +1,23 @@
+package com.gu.mediaservice.lib.metrics
+
+import com.github.blemale.scaffeine.AsyncCache
+
+import scala.concurrent.Future
+
+object CacheMetrics {
+  /**
+   * The value for `key`, loaded with `load` unless the cache holds it or is
+   * already loading it. Calls `onHit` if the cache had it and `onMiss` if it
+   * had to be loaded, so the caller can record which.
+   */
+  def getFuture[K, V](cache: AsyncCache[K, V], key: K)(load: K => Future[V])(onHit: => Unit, onMiss: => Unit): Future[V] = {
+    // the cache runs this on the calling thread, and only if there's nothing to share
+    var loaded = false
+    val value = cache.getFuture(key, k => {
+      loaded = true
+      load(k)
+    })
+    if (loaded) onMiss else onHit
+    value
+  }
+}
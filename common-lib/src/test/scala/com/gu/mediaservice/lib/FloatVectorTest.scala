@@ -0,0 +1,67 @@
+package com.gu.mediaservice.lib
+
+import org.scalatest.Inspectors
+import org.scalatest.OptionValues
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+import org.scalacheck.Gen
+import VectorUtils.{firstBasisVector, vectorWithCosineSimilarity}
+
+
+class FloatVectorTest extends AnyFunSpec with Matchers with Inspectors with OptionValues {
+  // the components are rounded to floats
+  val tolerance = 1e-6
+
+  describe("magnitude") {
+    it ("should compute the magnitude of a vector") {
+      FloatVector(List(3.0, 4.0)).magnitude shouldBe 5.0
+    }
+
+    it ("should include the components past the last multiple of four") {
+      FloatVector(List(1.0, 1.0, 1.0, 1.0, 2.0, 2.0)).magnitude shouldBe math.sqrt(12.0)
+    }
+
+    it ("should return a magnitude of zero for a zero vector") {
+      FloatVector(List(0.0, 0.0, 0.0)).magnitude shouldBe 0.0
+    }
+  }
+
+  describe("cosineSimilarity") {
+    it ("should return a cosine similarity of 1 for parallel vectors") {
+      FloatVector(List(1.0, 2.0, 3.0)).cosineSimilarity(FloatVector(List(2.0, 4.0, 6.0))).value shouldBe 1.0 +- tolerance
+    }
+
+    it ("should return a cosine similarity of 0 for orthogonal vectors") {
+      FloatVector(List(1.0, 0.0)).cosineSimilarity(FloatVector(List(0.0, 1.0))).value shouldBe 0.0 +- tolerance
+    }
+
+    it ("should return a cosine similarity of -1 for opposite vectors") {
+      FloatVector(List(1.0, 2.0, 3.0)).cosineSimilarity(FloatVector(List(-1.0, -2.0, -3.0))).value shouldBe -1.0 +- tolerance
+    }
+
+    it ("should be undefined (None) when either vector has zero magnitude") {
+      FloatVector(List(0.0, 0.0, 0.0)).cosineSimilarity(FloatVector(List(1.0, 2.0, 3.0))) shouldBe None
+      FloatVector(List(1.0, 2.0, 3.0)).cosineSimilarity(FloatVector(List(0.0, 0.0, 0.0))) shouldBe None
+    }
+
+    it ("should be undefined (None) when the vectors differ in dimensionality") {
+      FloatVector(List(1.0, 2.0)).cosineSimilarity(FloatVector(List(1.0, 2.0, 3.0))) shouldBe None
+    }
+
+    it ("should agree with VectorUtils for vectors at known similarities") {
+      val query = FloatVector(firstBasisVector(256))
+      forAll((-100 to 100).map(_ / 100.0)) { s =>
+        query.cosineSimilarity(FloatVector(vectorWithCosineSimilarity(256, s))).value shouldBe s +- tolerance
+      }
+    }
+
+    it ("should agree with VectorUtils for random embeddings") {
+      val embeddingGen = Gen.listOfN(256, Gen.chooseNum(-0.1, 0.1))
+      val pairs = Gen.listOfN(100, Gen.zip(embeddingGen, embeddingGen)).sample.getOrElse(Nil)
+      pairs should not be empty
+      forAll(pairs) { case (a, b) =>
+        FloatVector(a).cosineSimilarity(FloatVector(b)).value shouldBe VectorUtils.cosineSimilarity(a, b).value +- tolerance
+      }
+    }
+  }
+}
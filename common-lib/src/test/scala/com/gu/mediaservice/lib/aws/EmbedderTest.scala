@@ -0,0 +1,164 @@
+package com.gu.mediaservice.lib.aws
+
+import com.gu.mediaservice.lib.logging.{LogMarker, MarkerMap}
+import com.gu.mediaservice.lib.metrics.RecordingCacheMetrics
+import org.scalatest.concurrent.{Eventually, ScalaFutures}
+import org.scalatest.funsuite.AnyFunSuiteLike
+import org.scalatest.matchers.should.Matchers.convertToAnyShouldWrapper
+import org.scalatest.time.{Millis, Span}
+import org.scalatestplus.mockito.MockitoSugar
+
+import java.nio.file.attribute.FileTime
+import java.nio.file.{Files, Path}
+import java.util.concurrent.atomic.AtomicInteger
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration.{DurationInt, FiniteDuration}
+import scala.concurrent.{ExecutionContext, Future, Promise}
+import scala.jdk.CollectionConverters._
+
+class EmbedderTest extends AnyFunSuiteLike with MockitoSugar with ScalaFutures with Eventually {
+
+  // the first embedding read or written as JSON can take a while
+  implicit override val patienceConfig: PatienceConfig = PatienceConfig(timeout = Span(5000, Millis), interval = Span(25, Millis))
+
+  implicit val logMarker: LogMarker = MarkerMap()
+
+  // stands in for Bedrock, counting the embeddings it's asked for
+  class StubBedrock(response: => Future[List[Double]] = Future.successful(List(0.1, 0.2, 0.3))) extends TextEmbeddings {
+    val requests = new AtomicInteger(0)
+    @volatile var queries = List.empty[String]
+    def createTextEmbedding(inputData: String)(implicit ec: ExecutionContext, logMarker: LogMarker): Future[List[Double]] = {
+      requests.incrementAndGet()
+      queries = queries :+ inputData
+      response
+    }
+  }
+
+  class Fixture(ttl: FiniteDuration = 1.hour, directory: Option[Path] = None) extends RecordingCacheMetrics {
+    val cache = new QueryEmbeddingCache(10, ttl, directory, hits, misses, latency)
+    def embedder(bedrock: TextEmbeddings) = new Embedder(bedrock, mock[SimpleSqsMessageConsumer], Some(cache))
+  }
+
+  test("normalise the query before embedding it") {
+    val bedrock = new StubBedrock()
+    new Embedder(bedrock, mock[SimpleSqsMessageConsumer]).createQueryEmbedding("  Dogs   in\tthe park ").futureValue
+    bedrock.queries shouldBe List("dogs in the park")
+  }
+
+  test("ask Bedrock for every query without a cache") {
+    val bedrock = new StubBedrock()
+    val embedder = new Embedder(bedrock, mock[SimpleSqsMessageConsumer])
+    embedder.createQueryEmbedding("dogs").futureValue
+    embedder.createQueryEmbedding("dogs").futureValue
+    bedrock.requests.get shouldBe 2
+  }
+
+  test("ask Bedrock once for the same query") {
+    val fixture = new Fixture
+    val bedrock = new StubBedrock()
+    val embedder = fixture.embedder(bedrock)
+
+    embedder.createQueryEmbedding("Dogs").futureValue shouldBe List(0.1, 0.2, 0.3)
+    embedder.createQueryEmbedding("dogs ").futureValue shouldBe List(0.1, 0.2, 0.3)
+    embedder.createQueryEmbedding("cats").futureValue
+
+    bedrock.requests.get shouldBe 2
+    fixture.hits.recorded shouldBe List(1L -> List(QueryEmbeddingCache.MemoryStore))
+    fixture.misses.values shouldBe List(1L, 1L)
+    fixture.latency.values.length shouldBe 2
+  }
+
+  test("share a Bedrock request that hasn't finished yet") {
+    val fixture = new Fixture
+    val response = Promise[List[Double]]()
+    val bedrock = new StubBedrock(response.future)
+    val embedder = fixture.embedder(bedrock)
+
+    val first = embedder.createQueryEmbedding("dogs")
+    val second = embedder.createQueryEmbedding("dogs")
+    response.success(List(1.0))
+
+    first.futureValue shouldBe List(1.0)
+    second.futureValue shouldBe List(1.0)
+    bedrock.requests.get shouldBe 1
+  }
+
+  test("not keep an embedding Bedrock failed to make") {
+    val fixture = new Fixture
+    val failing = new StubBedrock(Future.failed(new RuntimeException("Bedrock unavailable")))
+    fixture.embedder(failing).createQueryEmbedding("dogs").failed.futureValue.getMessage shouldBe "Bedrock unavailable"
+
+    // the cache drops the failed request once it has seen it fail
+    eventually {
+      fixture.embedder(new StubBedrock()).createQueryEmbedding("dogs").futureValue shouldBe List(0.1, 0.2, 0.3)
+    }
+  }
+
+  test("ask Bedrock again once the embedding has expired") {
+    val fixture = new Fixture(ttl = 100.millis)
+    val bedrock = new StubBedrock()
+    val embedder = fixture.embedder(bedrock)
+
+    embedder.createQueryEmbedding("dogs").futureValue
+    Thread.sleep(200)
+    embedder.createQueryEmbedding("dogs").futureValue
+    bedrock.requests.get shouldBe 2
+  }
+
+  test("keep embeddings on disk across restarts") {
+    val directory = Files.createTempDirectory("query-embeddings")
+    val before = new StubBedrock()
+    new Fixture(directory = Some(directory)).embedder(before).createQueryEmbedding("dogs").futureValue
+
+    val restarted = new Fixture(directory = Some(directory))
+    val after = new StubBedrock(Future.failed(new RuntimeException("should come from disk")))
+    restarted.embedder(after).createQueryEmbedding("dogs").futureValue shouldBe List(0.1, 0.2, 0.3)
+
+    after.requests.get shouldBe 0
+    restarted.hits.recorded shouldBe List(1L -> List(QueryEmbeddingCache.DiskStore))
+  }
+
+  test("not use an embedding on disk once it has expired") {
+    val directory = Files.createTempDirectory("query-embeddings")
+    new Fixture(ttl = 100.millis, directory = Some(directory)).embedder(new StubBedrock()).createQueryEmbedding("dogs").futureValue
+    Thread.sleep(200)
+
+    val bedrock = new StubBedrock(Future.successful(List(0.4)))
+    new Fixture(ttl = 100.millis, directory = Some(directory)).embedder(bedrock).createQueryEmbedding("dogs").futureValue shouldBe List(0.4)
+    bedrock.requests.get shouldBe 1
+  }
+
+  test("sweep expired embeddings off disk at startup") {
+    val directory = Files.createTempDirectory("query-embeddings")
+    def file(name: String, age: FiniteDuration): Path = {
+      val path = Files.write(directory.resolve(name), "{}".getBytes)
+      Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - age.toMillis))
+    }
+    val expired = file("expired.json", 2.hours)
+    val fresh = file("fresh.json", 1.minute)
+    val abandoned = file("abandoned.json123.tmp", 2.hours)
+    val writing = file("writing.json456.tmp", 1.second)
+    val other = file("README", 2.hours)
+
+    new Fixture(ttl = 1.hour, directory = Some(directory))
+
+    eventually {
+      Files.exists(expired) shouldBe false
+      Files.exists(abandoned) shouldBe false
+    }
+    Files.exists(fresh) shouldBe true
+    Files.exists(writing) shouldBe true
+    Files.exists(other) shouldBe true
+  }
+
+  test("not leave a temp file behind when it can't write an embedding to disk") {
+    val directory = Files.createTempDirectory("query-embeddings")
+    // a directory in the way of the file, which the move can't replace
+    val inTheWay = Files.createDirectory(QueryEmbeddingCache.fileFor(directory, "dogs"))
+    Files.write(inTheWay.resolve("file"), "x".getBytes)
+
+    new Fixture(directory = Some(directory)).embedder(new StubBedrock()).createQueryEmbedding("dogs").futureValue shouldBe List(0.1, 0.2, 0.3)
+
+    Files.list(directory).iterator.asScala.toList shouldBe List(inTheWay)
+  }
+}
@@ -0,0 +1,19 @@
+package com.gu.mediaservice.lib.metrics
+
+import software.amazon.awssdk.services.cloudwatch.model.Dimension
+
+// a metric that keeps what's recorded, for tests to look at
+class RecordingMetric extends Metric[Long] {
+  private var recordedValues = List.empty[(Long, List[Dimension])]
+  def recorded: List[(Long, List[Dimension])] = synchronized(recordedValues)
+  def values: List[Long] = recorded.map(_._1)
+  def recordOne(value: Long, dimensions: List[Dimension]): Unit = synchronized { recordedValues = recordedValues :+ (value -> dimensions) }
+  def recordMany(values: Seq[Long], dimensions: List[Dimension]): Unit = values.foreach(recordOne(_, dimensions))
+}
+
+// the hits, misses and latency a cache under test records
+trait RecordingCacheMetrics {
+  val hits = new RecordingMetric
+  val misses = new RecordingMetric
+  val latency = new RecordingMetric
+}
@@ -0,0 +1,78 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.io.File
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+
+import com.gu.typesafe.config.{Config, ConfigFactory}
+
+import scala.jdk.CollectionConverters._
+
+/**
+ * Compares a JMH JSON result file against a stored baseline and fails if any
+ * benchmark got slower by more than the threshold (10% by default), e.g.
+ *   sbt "config-benchmarks/runMain com.gu.typesafe.config.benchmarks.BaselineComparison
+ *        config-benchmarks/baselines/main.json target/config-benchmarks.json 10"
+ */
+object BaselineComparison {
+
+  case class Result(name: String, mode: String, score: Double, unit: String)
+
+  def main(args: Array[String]): Unit = args.toList match {
+    case baselineFile :: currentFile :: rest =>
+      val threshold = rest.headOption.map(_.toDouble).getOrElse(10.0)
+      val baseline = read(new File(baselineFile)).map(r => r.name -> r).toMap
+      val current = read(new File(currentFile))
+
+      val regressions = current.flatMap { result =>
+        baseline.get(result.name) match {
+          case None =>
+            println(f"${result.name}%-90s ${result.score}%12.3f ${result.unit} (no baseline)")
+            None
+          case Some(base) =>
+            val change = percentSlower(base, result)
+            println(f"${result.name}%-90s ${base.score}%12.3f -> ${result.score}%12.3f ${result.unit} ($change%+.1f%% slower)")
+            if (change > threshold) Some(result.name) else None
+        }
+      }
+
+      if (regressions.nonEmpty) {
+        println(s"${regressions.size} benchmark(s) regressed by more than $threshold%: ${regressions.mkString(", ")}")
+        sys.exit(1)
+      }
+
+    case _ =>
+      println("usage: BaselineComparison <baseline.json> <current.json> [threshold percent]")
+      sys.exit(2)
+  }
+
+  // throughput modes score ops per time, so a lower score is slower;
+  // the others score time per op
+  private def percentSlower(base: Result, current: Result): Double = {
+    val ratio =
+      if (base.mode == "thrpt") base.score / current.score
+      else current.score / base.score
+    (ratio - 1) * 100
+  }
+
+  // JMH writes its results as a JSON array, which the config parser will
+  // read for us once it's wrapped in an object
+  private def read(file: File): List[Result] = {
+    val json = new String(Files.readAllBytes(file.toPath), StandardCharsets.UTF_8)
+    ConfigFactory.parseString(s"results = $json").getConfigList("results").asScala.toList.map { result =>
+      val metric = result.getConfig("primaryMetric")
+      Result(
+        name = result.getString("benchmark") + params(result),
+        mode = result.getString("mode"),
+        score = metric.getDouble("score"),
+        unit = metric.getString("scoreUnit")
+      )
+    }
+  }
+
+  private def params(result: Config): String =
+    if (result.hasPath("params")) {
+      val params = result.getObject("params").unwrapped().asScala.toList.sortBy(_._1)
+      params.map { case (k, v) => s"$k=$v" }.mkString("(", ", ", ")")
+    } else ""
+}
@@ -0,0 +1,133 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.io.File
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path}
+
+/**
+ * Generates config trees shaped like ours: an application.conf that includes
+ * a handful of files, each with nested sections, substitutions, durations,
+ * memory sizes, lists and comments; a big shared file of many sections; plus
+ * plain JSON and properties documents, environments, and substitution chains
+ * of a given size.
+ */
+object ConfigFixtures {
+
+  def writeIncludeTree(settings: Int, includes: Int = 10): File = {
+    val dir = Files.createTempDirectory("config-benchmark")
+    dir.toFile.deleteOnExit()
+
+    val perFile = math.max(1, settings / includes)
+    val root = new StringBuilder
+    (0 until includes).foreach { i =>
+      root.append(s"""include "part-$i.conf"\n""")
+      write(dir.resolve(s"part-$i.conf"), section(s"part$i", perFile))
+    }
+    root.append("application.name = grid\n")
+    write(dir.resolve("application.conf"), root.toString)
+
+    dir.toFile
+  }
+
+  def section(name: String, settings: Int): String = {
+    val sb = new StringBuilder
+    sb.append(s"# settings for $name\n")
+    sb.append(s"$name {\n")
+    (0 until settings).foreach { i =>
+      sb.append(s"  # setting $i\n")
+      sb.append(s"""  string$i = "value $i"\n""")
+      sb.append(s"  ref$i = $${$name.string$i}\n")
+      sb.append(s"  timeout$i = ${i % 60 + 1} seconds\n")
+      sb.append(s"  size$i = ${i % 512 + 1}M\n")
+      sb.append(s"  list$i = [one, two, ${i}]\n")
+      sb.append(s"  nested$i { enabled = true, ratio = 0.$i }\n")
+    }
+    sb.append("}\n")
+    sb.toString
+  }
+
+  def writeSharedSections(sections: Int, settings: Int): File = {
+    val dir = Files.createTempDirectory("config-benchmark")
+    dir.toFile.deleteOnExit()
+    val path = dir.resolve("common.conf")
+    write(path, sharedSections(sections, settings))
+    path.toFile
+  }
+
+  // a big shared file, like common.conf, of sections with no substitutions
+  // in them, of which an application might only read a few
+  def sharedSections(sections: Int, settings: Int): String = {
+    val sb = new StringBuilder
+    (0 until sections).foreach { s =>
+      sb.append(s"# settings for section$s\n")
+      sb.append(s"section$s {\n")
+      (0 until settings).foreach { i =>
+        sb.append(s"  # setting $i\n")
+        sb.append(s"""  string$i = "value $i"\n""")
+        sb.append(s"  timeout$i = ${i % 60 + 1} seconds\n")
+        sb.append(s"  size$i = ${i % 512 + 1}M\n")
+        sb.append(s"  list$i = [one, two, ${i}]\n")
+        sb.append(s"  nested$i { enabled = true, ratio = 0.$i }\n")
+      }
+      sb.append("}\n")
+    }
+    sb.toString
+  }
+
+  def json(settings: Int): String = {
+    val sb = new StringBuilder
+    sb.append("{\n  \"items\": [\n")
+    (0 until settings).foreach { i =>
+      if (i > 0) sb.append(",\n")
+      sb.append(s"""    { "id": $i, "name": "item \\"$i\\"", "ratio": 0.$i, "enabled": true, "tags": ["one", "two"], "parent": null }""")
+    }
+    sb.append("\n  ]\n}\n")
+    sb.toString
+  }
+
+  def properties(settings: Int): String = {
+    val sb = new StringBuilder
+    (0 until settings).foreach { i =>
+      sb.append(s"# setting $i\n")
+      sb.append(s"section${i % 50}.string$i=value $i\n")
+      sb.append(s"section${i % 50}.nested$i.enabled=true\n")
+    }
+    sb.toString
+  }
+
+  // an environment like a container's: a few well-known variables and lots
+  // of injected service addresses and settings, plus dotted JVM-style
+  // properties sharing prefixes
+  def environment(variables: Int): java.util.Map[String, String] = {
+    val env = new java.util.HashMap[String, String]()
+    env.put("PATH", "/usr/local/sbin:/usr/local/bin:/usr/sbin:/usr/bin:/sbin:/bin")
+    env.put("HOME", "/home/grid")
+    env.put("LANG", "C.UTF-8")
+    env.put("JAVA_HOME", "/usr/lib/jvm/java-11-openjdk-amd64")
+    (0 until variables).foreach { i =>
+      i % 4 match {
+        case 0 => env.put(s"SERVICE_${i}_PORT_8080_TCP_ADDR", s"10.0.${i % 256}.${i % 200}")
+        case 1 => env.put(s"SERVICE_${i}_SERVICE_HOST", s"service-$i.grid.svc.cluster.local")
+        case 2 => env.put(s"grid.service$i.timeout", s"${i % 60 + 1} seconds")
+        case _ => env.put(s"grid.service${i % 20}.setting$i", s"value $i")
+      }
+    }
+    env
+  }
+
+  // a = start, a1 = ${a}-1, a2 = ${a1}-2, ... so resolving the last link
+  // has to walk the whole chain
+  def substitutionChain(depth: Int): String = {
+    val sb = new StringBuilder
+    sb.append("chain.a0 = start\n")
+    (1 to depth).foreach { i =>
+      sb.append(s"chain.a$i = $${chain.a${i - 1}}-$i\n")
+    }
+    sb.toString
+  }
+
+  private def write(path: Path, content: String): Unit = {
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8))
+    path.toFile.deleteOnExit()
+  }
+}
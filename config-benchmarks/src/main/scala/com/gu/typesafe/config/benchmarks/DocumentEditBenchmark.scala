@@ -0,0 +1,65 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.parser.{ConfigDocument, ConfigDocumentFactory}
+import org.openjdk.jmh.annotations._
+
+import scala.util.Random
+
+/**
+ * Scripted bulk edits to a big conf file through `ConfigDocument`: a few
+ * thousand values replaced across a shared file of many sections and the
+ * result rendered once, and the same number of settings removed and added.
+ * The cost of each edit should follow the size of the sections it touches,
+ * not of the whole document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class DocumentEditBenchmark {
+
+  @Param(Array("50", "200"))
+  var sections: Int = _
+
+  @Param(Array("20"))
+  var settings: Int = _
+
+  @Param(Array("5000"))
+  var edits: Int = _
+
+  var document: ConfigDocument = _
+  var paths: Array[String] = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    document = ConfigDocumentFactory.parseString(ConfigFixtures.sharedSections(sections, settings))
+    val random = new Random(42)
+    paths = Array.fill(edits)(s"section${random.nextInt(sections)}.string${random.nextInt(settings)}")
+  }
+
+  @Benchmark
+  def replaceValues(): String = {
+    var edited = document
+    var i = 0
+    while (i < paths.length) {
+      edited = edited.withValueText(paths(i), s""""edited $i"""")
+      i += 1
+    }
+    edited.render()
+  }
+
+  @Benchmark
+  def removeAndAdd(): String = {
+    var edited = document
+    var i = 0
+    while (i < paths.length) {
+      edited = if (i % 2 == 0) edited.withoutPath(paths(i)) else edited.withValueText(paths(i), "added")
+      i += 1
+    }
+    edited.render()
+  }
+}
@@ -0,0 +1,51 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{Config, ConfigFactory, ConfigValueFactory}
+import org.openjdk.jmh.annotations._
+
+/**
+ * Resolving again after a small edit to a config with one substitution per
+ * setting. The resolved config remembers what each substitution resolved to,
+ * so an edit derived from it only re-resolves what the edit can reach; the
+ * scratch case makes the same edit to a config that was never resolved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class IncrementalResolveBenchmark {
+
+  @Param(Array("1000", "5000"))
+  var settings: Int = _
+
+  var neverResolved: Config = _
+  var resolvedOnce: Config = _
+  var defaults: Config = _
+
+  private val edit = ConfigValueFactory.fromAnyRef("edited")
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    val text = ConfigFixtures.section("benchmark", settings)
+    neverResolved = ConfigFactory.parseString(text)
+    resolvedOnce = ConfigFactory.parseString(text)
+    resolvedOnce.resolve()
+    defaults = ConfigFactory.parseString("benchmark.extra = ${benchmark.string7}\nbenchmark.string7 = ignored\n")
+  }
+
+  @Benchmark
+  def editFromScratch(): Config =
+    neverResolved.withValue("benchmark.string7", edit).resolve()
+
+  @Benchmark
+  def editIncrementally(): Config =
+    resolvedOnce.withValue("benchmark.string7", edit).resolve()
+
+  @Benchmark
+  def fallbackIncrementally(): Config =
+    resolvedOnce.withFallback(defaults).resolve()
+}
@@ -0,0 +1,52 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.io.File
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{Config, ConfigFactory, ConfigParseOptions}
+import org.openjdk.jmh.annotations._
+
+/**
+ * Loading a big shared file of many sections and reading one setting from
+ * one of them, as a service does with common.conf, parsed as usual and with
+ * `ConfigParseOptions.setLazyObjects`; and what it costs to read the lot
+ * once parsing has been put off. Use `-prof gc` for the bytes allocated, and
+ * `LazyParseFootprint` for what stays reachable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class LazyParseBenchmark {
+
+  @Param(Array("50", "200"))
+  var sections: Int = _
+
+  @Param(Array("20"))
+  var settings: Int = _
+
+  var configFile: File = _
+
+  private val eager = ConfigParseOptions.defaults()
+  private val lazyObjects = ConfigParseOptions.defaults().setLazyObjects(true)
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    configFile = ConfigFixtures.writeSharedSections(sections, settings)
+  }
+
+  @Benchmark
+  def eagerReadOne(): Duration =
+    ConfigFactory.parseFile(configFile, eager).resolve().getDuration("section7.timeout3")
+
+  @Benchmark
+  def lazyReadOne(): Duration =
+    ConfigFactory.parseFile(configFile, lazyObjects).resolve().getDuration("section7.timeout3")
+
+  @Benchmark
+  def lazyReadAll(): Int =
+    ConfigFactory.parseFile(configFile, lazyObjects).resolve().entrySet().size()
+}
@@ -0,0 +1,50 @@
+package com.gu.typesafe.config.benchmarks
+
+import com.gu.typesafe.config.{ConfigFactory, ConfigParseOptions}
+
+/**
+ * How much heap a big shared file of many sections holds on to once one
+ * setting has been read from it, parsed as usual and with
+ * `ConfigParseOptions.setLazyObjects`. JMH measures time and allocation, not
+ * what stays reachable, so this is a plain main; run it with a fixed heap and
+ * a serial collector so the numbers settle, e.g.
+ *   sbt "config-benchmarks/runMain com.gu.typesafe.config.benchmarks.LazyParseFootprint 200 20"
+ */
+object LazyParseFootprint {
+
+  def main(args: Array[String]): Unit = {
+    val sections = args.headOption.map(_.toInt).getOrElse(200)
+    val settings = args.lift(1).map(_.toInt).getOrElse(20)
+
+    val file = ConfigFixtures.writeSharedSections(sections, settings)
+    val lazyObjects = ConfigParseOptions.defaults().setLazyObjects(true)
+    // load and warm up the parser so its classes aren't counted
+    ConfigFactory.parseFile(file).resolve().entrySet()
+    ConfigFactory.parseFile(file, lazyObjects).resolve().entrySet()
+
+    val beforeEager = usedHeap()
+    val eager = ConfigFactory.parseFile(file).resolve()
+    eager.getDuration("section7.timeout3")
+    val afterEager = usedHeap()
+
+    val lazyConfig = ConfigFactory.parseFile(file, lazyObjects).resolve()
+    lazyConfig.getDuration("section7.timeout3")
+    val afterLazy = usedHeap()
+
+    println(s"file bytes:        ${file.length()}")
+    println(s"retained (eager):  ${afterEager - beforeEager}")
+    println(s"retained (lazy):   ${afterLazy - afterEager}")
+
+    // keep both configs reachable until here
+    require(eager.root().size() == sections && lazyConfig.root().size() == sections)
+  }
+
+  private def usedHeap(): Long = {
+    (1 to 5).foreach { _ =>
+      System.gc()
+      Thread.sleep(50)
+    }
+    val runtime = Runtime.getRuntime
+    runtime.totalMemory() - runtime.freeMemory()
+  }
+}
@@ -0,0 +1,43 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.net.{URL, URLClassLoader}
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{Config, ConfigFactory}
+import org.openjdk.jmh.annotations._
+
+/**
+ * 32 threads reading the configs cached per class loader, as a multi-threaded
+ * test suite or a busy dev-mode server does. `sameLoader` is every thread
+ * asking for the same loader's config; `manyLoaders` spreads the threads
+ * over several loaders, which used to empty the cache on every switch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+@Threads(32)
+class LoaderCacheBenchmark {
+
+  var loaders: Array[ClassLoader] = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    loaders = Array.fill[ClassLoader](8)(new URLClassLoader(Array.empty[URL], getClass.getClassLoader))
+  }
+
+  @Benchmark
+  def sameLoader(): Config =
+    ConfigFactory.load(loaders(0))
+
+  @Benchmark
+  def sameLoaderReference(): Config =
+    ConfigFactory.defaultReference(loaders(0))
+
+  @Benchmark
+  def manyLoaders(): Config =
+    ConfigFactory.load(loaders(ThreadLocalRandom.current().nextInt(loaders.length)))
+}
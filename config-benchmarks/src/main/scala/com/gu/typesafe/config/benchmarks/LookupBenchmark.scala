@@ -0,0 +1,65 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{Config, ConfigFactory, ConfigUtil}
+import org.openjdk.jmh.annotations._
+
+/**
+ * Reading settings from an already resolved config, which is what services
+ * that read their config lazily pay on request paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class LookupBenchmark {
+
+  var config: Config = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    config = ConfigFactory.parseString(ConfigFixtures.section("benchmark", 1000)).resolve()
+    // warm the cache behind ConfigFactory.load() so cachedLoad measures hits
+    ConfigFactory.load()
+  }
+
+  @Benchmark
+  def getString(): String =
+    config.getString("benchmark.string500")
+
+  @Benchmark
+  def getSubstitutedString(): String =
+    config.getString("benchmark.ref500")
+
+  @Benchmark
+  def getDuration(): Duration =
+    config.getDuration("benchmark.timeout500")
+
+  @Benchmark
+  def getBytes(): java.lang.Long =
+    config.getBytes("benchmark.size500")
+
+  @Benchmark
+  def getStringList(): java.util.List[String] =
+    config.getStringList("benchmark.list500")
+
+  @Benchmark
+  def getNestedBoolean(): Boolean =
+    config.getBoolean("benchmark.nested500.enabled")
+
+  @Benchmark
+  def hasMissingPath(): Boolean =
+    config.hasPath("benchmark.missing.setting")
+
+  @Benchmark
+  def splitPath(): java.util.List[String] =
+    ConfigUtil.splitPath("benchmark.nested500.\"quoted.key\".enabled")
+
+  @Benchmark
+  def cachedLoad(): Config =
+    ConfigFactory.load()
+}
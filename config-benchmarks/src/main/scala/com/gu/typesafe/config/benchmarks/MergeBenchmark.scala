@@ -0,0 +1,38 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{Config, ConfigFactory}
+import org.openjdk.jmh.annotations._
+
+/**
+ * Stacking configs with `withFallback`, the way overrides, application.conf
+ * and reference.conf get layered, and then reading through the stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class MergeBenchmark {
+
+  @Param(Array("2", "10", "50"))
+  var layers: Int = _
+
+  var stack: Seq[Config] = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    // every layer sets the same keys, plus some of its own
+    stack = (0 until layers).map { i =>
+      ConfigFactory.parseString(
+        ConfigFixtures.section("benchmark", 100) + ConfigFixtures.section(s"layer$i", 20)
+      )
+    }
+  }
+
+  @Benchmark
+  def mergeAndResolve(): Config =
+    stack.reduce(_ withFallback _).resolve()
+}
@@ -0,0 +1,47 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{Config, ConfigFactory, ConfigParseOptions}
+import org.openjdk.jmh.annotations._
+
+/**
+ * Startup cost of a wide include tree, parsing the included files one after
+ * another against parsing them concurrently with
+ * `ConfigParseOptions.setParallelIncludes`.
+ *
+ * Like `SnapshotStartupBenchmark`, each fork measures a single cold call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.SingleShotTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+class ParallelIncludeBenchmark {
+
+  @Param(Array("10", "50"))
+  var includes: Int = _
+
+  @Param(Array("5000"))
+  var settings: Int = _
+
+  var configFile: File = _
+
+  private val serial = ConfigParseOptions.defaults()
+  private val parallel = ConfigParseOptions.defaults().setParallelIncludes(true)
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    configFile = new File(ConfigFixtures.writeIncludeTree(settings, includes), "application.conf")
+  }
+
+  @Benchmark
+  def parseSerially(): Config =
+    ConfigFactory.parseFile(configFile, serial).resolve()
+
+  @Benchmark
+  def parseInParallel(): Config =
+    ConfigFactory.parseFile(configFile, parallel).resolve()
+}
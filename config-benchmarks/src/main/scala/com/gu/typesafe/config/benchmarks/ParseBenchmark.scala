@@ -0,0 +1,42 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{ConfigFactory, ConfigObject, ConfigParseOptions, ConfigSyntax}
+import org.openjdk.jmh.annotations._
+
+/**
+ * Parsing a document of each syntax from a string, without resolving it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class ParseBenchmark {
+
+  @Param(Array("CONF", "JSON", "PROPERTIES"))
+  var syntax: String = _
+
+  @Param(Array("100", "2000"))
+  var settings: Int = _
+
+  var text: String = _
+  var options: ConfigParseOptions = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    val flavor = ConfigSyntax.valueOf(syntax)
+    text = flavor match {
+      case ConfigSyntax.CONF => ConfigFixtures.section("benchmark", settings)
+      case ConfigSyntax.JSON => ConfigFixtures.json(settings)
+      case ConfigSyntax.PROPERTIES => ConfigFixtures.properties(settings)
+    }
+    options = ConfigParseOptions.defaults().setSyntax(flavor)
+  }
+
+  @Benchmark
+  def parse(): ConfigObject =
+    ConfigFactory.parseString(text, options).root()
+}
@@ -0,0 +1,39 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{ConfigFactory, ConfigRenderOptions, ConfigValue}
+import org.openjdk.jmh.annotations._
+
+/**
+ * Rendering a resolved config with each of the commonly used option sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class RenderBenchmark {
+
+  @Param(Array("defaults", "concise", "formatted-json", "hocon-no-comments"))
+  var renderOptions: String = _
+
+  var root: ConfigValue = _
+  var options: ConfigRenderOptions = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    root = ConfigFactory.parseString(ConfigFixtures.section("benchmark", 1000)).resolve().root()
+    options = renderOptions match {
+      case "defaults" => ConfigRenderOptions.defaults()
+      case "concise" => ConfigRenderOptions.concise()
+      case "formatted-json" => ConfigRenderOptions.concise().setFormatted(true)
+      case "hocon-no-comments" => ConfigRenderOptions.defaults().setJson(false).setOriginComments(false).setComments(false)
+    }
+  }
+
+  @Benchmark
+  def render(): String =
+    root.render(options)
+}
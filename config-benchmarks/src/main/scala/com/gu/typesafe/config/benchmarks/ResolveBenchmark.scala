@@ -0,0 +1,39 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{Config, ConfigFactory}
+import org.openjdk.jmh.annotations._
+
+/**
+ * Resolving substitutions: a single chain where every link refers to the one
+ * before it, and a typical config where each setting has a short reference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class ResolveBenchmark {
+
+  @Param(Array("10", "100", "500"))
+  var depth: Int = _
+
+  var chain: Config = _
+  var section: Config = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    chain = ConfigFactory.parseString(ConfigFixtures.substitutionChain(depth))
+    section = ConfigFactory.parseString(ConfigFixtures.section("benchmark", depth))
+  }
+
+  @Benchmark
+  def resolveChain(): Config =
+    chain.resolve()
+
+  @Benchmark
+  def resolveSection(): Config =
+    section.resolve()
+}
@@ -0,0 +1,47 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{Config, ConfigFactory}
+import org.openjdk.jmh.annotations._
+
+/**
+ * What a freshly started instance pays to get its config: a cold parse and
+ * resolve of an include tree, against loading a compiled snapshot of it.
+ *
+ * Each fork measures a single call so the JIT is unwarmed for both. The
+ * snapshot is compiled during setup, which means the config classes
+ * themselves are already loaded when the measured call runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.SingleShotTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+class SnapshotStartupBenchmark {
+
+  @Param(Array("200", "5000"))
+  var settings: Int = _
+
+  var configFile: File = _
+  var snapshotFile: File = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    val dir = ConfigFixtures.writeIncludeTree(settings)
+    configFile = new File(dir, "application.conf")
+    snapshotFile = new File(dir, "application.snapshot")
+    snapshotFile.deleteOnExit()
+    ConfigFactory.parseFileWithSnapshot(configFile, snapshotFile)
+  }
+
+  @Benchmark
+  def parseAndResolve(): Config =
+    ConfigFactory.parseFile(configFile).resolve()
+
+  @Benchmark
+  def loadSnapshot(): Config =
+    ConfigFactory.parseFileWithSnapshot(configFile, snapshotFile)
+}
@@ -0,0 +1,53 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.io.OutputStream
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{ConfigFactory, ConfigRenderOptions, ConfigValue}
+import org.openjdk.jmh.annotations._
+
+/**
+ * Writing a very large config out, the way ConvertConfig and config dumps
+ * do: rendering to a string and writing that, against streaming straight to
+ * the output. Both write to a stream that discards everything, so this
+ * measures what rendering holds on to. Run with `-prof gc`:
+ * `gc.alloc.rate.norm` for the string version grows with the size of the
+ * output, while the streamed version's buffers stay the same size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class StreamingRenderBenchmark {
+
+  @Param(Array("10000", "50000"))
+  var settings: Int = _
+
+  @Param(Array("defaults", "hocon-no-comments"))
+  var renderOptions: String = _
+
+  var root: ConfigValue = _
+  var options: ConfigRenderOptions = _
+
+  private val out = OutputStream.nullOutputStream()
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    root = ConfigFactory.parseString(ConfigFixtures.section("benchmark", settings)).resolve().root()
+    options = renderOptions match {
+      case "defaults" => ConfigRenderOptions.defaults()
+      case "hocon-no-comments" => ConfigRenderOptions.defaults().setJson(false).setOriginComments(false).setComments(false)
+    }
+  }
+
+  @Benchmark
+  def renderToString(): Unit =
+    out.write(root.render(options).getBytes(StandardCharsets.UTF_8))
+
+  @Benchmark
+  def renderStreamed(): Unit =
+    root.renderUtf8(out, options)
+}
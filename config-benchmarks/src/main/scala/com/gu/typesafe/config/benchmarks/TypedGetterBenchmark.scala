@@ -0,0 +1,63 @@
+package com.gu.typesafe.config.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{Config, ConfigFactory, ConfigValueFactory}
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+
+/**
+ * Reading the same timeouts, sizes and lists over and over, as code that
+ * reads settings inside a loop does: from one resolved config, where the
+ * conversions are memoized after the first read; from a config just derived
+ * with `withValue` at some other path, which borrows them; and from a fresh
+ * `Config` over the same tree each time, which has to convert them all again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class TypedGetterBenchmark {
+
+  var config: Config = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    config = ConfigFactory.parseString(
+      """thumbnails {
+        |  timeout = 30 seconds
+        |  batch-size = 512M
+        |  hosts = [a.example.com, b.example.com, c.example.com]
+        |  backoff = [100ms, 1s, 5s]
+        |}
+        |""".stripMargin).resolve()
+    read(config, null)
+  }
+
+  private def read(c: Config, bh: Blackhole): Unit = {
+    val timeout = c.getDuration("thumbnails.timeout")
+    val batchSize = c.getBytes("thumbnails.batch-size")
+    val hosts = c.getStringList("thumbnails.hosts")
+    val backoff = c.getDurationList("thumbnails.backoff")
+    if (bh != null) {
+      bh.consume(timeout)
+      bh.consume(batchSize)
+      bh.consume(hosts)
+      bh.consume(backoff)
+    }
+  }
+
+  @Benchmark
+  def memoized(bh: Blackhole): Unit =
+    read(config, bh)
+
+  @Benchmark
+  def afterWithValue(bh: Blackhole): Unit =
+    read(config.withValue("thumbnails.enabled", ConfigValueFactory.fromAnyRef(true)), bh)
+
+  @Benchmark
+  def unmemoized(bh: Blackhole): Unit =
+    read(config.root().toConfig, bh)
+}
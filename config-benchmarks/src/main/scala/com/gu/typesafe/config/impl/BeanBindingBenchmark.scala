@@ -0,0 +1,89 @@
+package com.gu.typesafe.config.impl
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+
+import scala.beans.BeanProperty
+
+import com.gu.typesafe.config.{Config, ConfigBeanFactory, ConfigFactory}
+import org.openjdk.jmh.annotations._
+
+class EndpointBean {
+  @BeanProperty var host: String = _
+  @BeanProperty var port: Int = _
+}
+
+class ServiceBean {
+  @BeanProperty var name: String = _
+  @BeanProperty var enabled: Boolean = _
+  @BeanProperty var timeout: Duration = _
+  @BeanProperty var retries: Int = _
+  @BeanProperty var ratio: Double = _
+  @BeanProperty var tags: java.util.List[String] = _
+  @BeanProperty var primary: EndpointBean = _
+  @BeanProperty var fallbacks: java.util.List[EndpointBean] = _
+}
+
+/**
+ * Binding the same small bean, with a nested bean and a list of them, over
+ * and over, as happens for per-tenant or per-request settings: through
+ * ConfigBeanFactory's cached binder, through the reflective path it used to
+ * take every time, and copied by hand with the ordinary getters.
+ *
+ * This lives in the impl package to reach the reflective path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class BeanBindingBenchmark {
+
+  var config: Config = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    config = ConfigFactory.parseString(
+      """name = thumbnails
+        |enabled = true
+        |timeout = 30 seconds
+        |retries = 3
+        |ratio = 0.75
+        |tags = [images, grid]
+        |primary { host = "primary.example.com", port = 443 }
+        |fallbacks = [{ host = "a.example.com", port = 8443 }, { host = "b.example.com", port = 8443 }]
+        |""".stripMargin).resolve()
+  }
+
+  @Benchmark
+  def cachedBinder(): ServiceBean =
+    ConfigBeanFactory.create(config, classOf[ServiceBean])
+
+  @Benchmark
+  def reflective(): ServiceBean =
+    ConfigBeanImpl.createReflectively(config, classOf[ServiceBean])
+
+  private def endpoint(c: Config): EndpointBean = {
+    val e = new EndpointBean
+    e.setHost(c.getString("host"))
+    e.setPort(c.getInt("port"))
+    e
+  }
+
+  @Benchmark
+  def handWritten(): ServiceBean = {
+    val s = new ServiceBean
+    s.setName(config.getString("name"))
+    s.setEnabled(config.getBoolean("enabled"))
+    s.setTimeout(config.getDuration("timeout"))
+    s.setRetries(config.getInt("retries"))
+    s.setRatio(config.getDouble("ratio"))
+    s.setTags(config.getStringList("tags"))
+    s.setPrimary(endpoint(config.getConfig("primary")))
+    val fallbacks = new java.util.ArrayList[EndpointBean]()
+    config.getConfigList("fallbacks").forEach(c => fallbacks.add(endpoint(c)))
+    s.setFallbacks(fallbacks)
+    s
+  }
+}
@@ -0,0 +1,50 @@
+package com.gu.typesafe.config.impl
+
+import java.util.concurrent.{Callable, TimeUnit}
+
+import com.gu.typesafe.config.ConfigOrigin
+import com.gu.typesafe.config.benchmarks.ConfigFixtures
+import org.openjdk.jmh.annotations._
+
+/**
+ * Turning a flat source of a few hundred variables, as the environment or
+ * the system properties are on every `ConfigFactory.invalidateCaches()`, into
+ * a tree: built from scratch, and reloaded unchanged through the cache of the
+ * last tree built. The reload copies the source first, as reloading the
+ * system properties does.
+ *
+ * This lives in the impl package to reach the builder and its cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class FlatSourceBenchmark {
+
+  @Param(Array("100", "500"))
+  var variables: Int = _
+
+  val origin: ConfigOrigin = SimpleConfigOrigin.newSimple("env variables")
+
+  var environment: java.util.Map[String, String] = _
+  var cache: FlatSourceCache = _
+  var build: Callable[AbstractConfigObject] = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    environment = ConfigFixtures.environment(variables)
+    cache = new FlatSourceCache
+    build = () => PropertiesParser.fromStringMap(origin, environment)
+    cache.get(environment, build)
+  }
+
+  @Benchmark
+  def buildTree(): AbstractConfigObject =
+    PropertiesParser.fromStringMap(origin, environment)
+
+  @Benchmark
+  def reloadUnchanged(): AbstractConfigObject =
+    cache.get(new java.util.HashMap[String, String](environment), build)
+}
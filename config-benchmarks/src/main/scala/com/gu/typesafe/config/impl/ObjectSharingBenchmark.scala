@@ -0,0 +1,99 @@
+package com.gu.typesafe.config.impl
+
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{ConfigFactory, ConfigValueFactory}
+import com.gu.typesafe.config.benchmarks.ConfigFixtures
+import org.openjdk.jmh.annotations._
+
+/**
+ * Single-key updates and small-over-big merges of one wide object, through
+ * the trie-backed `SimpleConfigObject` and through copying its `HashMap` the
+ * way edits used to. Run with `-prof gc`: `gc.alloc.rate.norm` is the bytes
+ * each edit costs, and for the history benchmarks, which keep every version,
+ * it is also what the versions hold on to.
+ *
+ * This lives in the impl package to build objects from a copied map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class ObjectSharingBenchmark {
+
+  // settings in the section; the object has six keys per setting
+  @Param(Array("100", "1000"))
+  var settings: Int = _
+
+  val versions = 100
+
+  var wide: SimpleConfigObject = _
+  var overrides: SimpleConfigObject = _
+
+  private val edit = ConfigValueFactory.fromAnyRef("edited").asInstanceOf[AbstractConfigValue]
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    // edited once, as anything built by withValue or withFallback has been,
+    // so that it's no longer backed by the parser's HashMap
+    wide = section(ConfigFixtures.section("benchmark", settings))
+      .withValue("string0", ConfigValueFactory.fromAnyRef("setup"))
+    // twenty plain settings replacing ones in the wide object
+    overrides = section((0 until 20).map(i => s"benchmark.string${i * 2} = override$i").mkString("\n"))
+  }
+
+  private def section(text: String): SimpleConfigObject =
+    ConfigFactory.parseString(text).resolve().root().get("benchmark").asInstanceOf[SimpleConfigObject]
+
+  private def copied(obj: SimpleConfigObject, key: String, v: AbstractConfigValue): SimpleConfigObject = {
+    val map = new java.util.HashMap[String, AbstractConfigValue]()
+    obj.keySet().forEach(k => map.put(k, obj.get(k)))
+    map.put(key, v)
+    new SimpleConfigObject(obj.origin(), map)
+  }
+
+  @Benchmark
+  def withValueShared(): SimpleConfigObject =
+    wide.withValue("string7", edit)
+
+  @Benchmark
+  def withValueCopied(): SimpleConfigObject =
+    copied(wide, "string7", edit)
+
+  @Benchmark
+  def historyShared(): Array[SimpleConfigObject] = {
+    val history = new Array[SimpleConfigObject](versions)
+    var current = wide
+    (0 until versions).foreach { i =>
+      current = current.withValue(s"string$i", edit)
+      history(i) = current
+    }
+    history
+  }
+
+  @Benchmark
+  def historyCopied(): Array[SimpleConfigObject] = {
+    val history = new Array[SimpleConfigObject](versions)
+    var current = wide
+    (0 until versions).foreach { i =>
+      current = copied(current, s"string$i", edit)
+      history(i) = current
+    }
+    history
+  }
+
+  @Benchmark
+  def mergeShared(): AbstractConfigObject =
+    overrides.withFallback(wide)
+
+  @Benchmark
+  def mergeCopied(): AbstractConfigObject = {
+    // what mergedWithObject used to do for keys that don't need merging
+    val map = new java.util.HashMap[String, AbstractConfigValue]()
+    wide.keySet().forEach(k => map.put(k, wide.get(k)))
+    overrides.keySet().forEach(k => map.put(k, overrides.get(k)))
+    new SimpleConfigObject(AbstractConfigObject.mergeOrigins(overrides, wide), map)
+  }
+}
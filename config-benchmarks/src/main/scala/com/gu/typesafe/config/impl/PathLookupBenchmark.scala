@@ -0,0 +1,48 @@
+package com.gu.typesafe.config.impl
+
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{ConfigFactory, ConfigPath, ConfigUtil, ConfigValueType}
+import com.gu.typesafe.config.benchmarks.ConfigFixtures
+import org.openjdk.jmh.annotations._
+
+/**
+ * Lookups per second for one setting three ways: parsing the path expression
+ * on every call as the getters used to, through the getters' path cache, and
+ * with a path compiled up front. Run with `-prof gc` to see that the last two
+ * don't allocate.
+ *
+ * This lives in the impl package to reach the uncached lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class PathLookupBenchmark {
+
+  val expression = "benchmark.nested500.enabled"
+  val compiled: ConfigPath = ConfigUtil.compilePath(expression)
+
+  var config: SimpleConfig = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    config = ConfigFactory.parseString(ConfigFixtures.section("benchmark", 1000)).resolve().asInstanceOf[SimpleConfig]
+  }
+
+  @Benchmark
+  def parsedEveryTime(): Boolean = {
+    val path = Path.newPath(expression)
+    config.find(path, ConfigValueType.BOOLEAN, path).unwrapped().asInstanceOf[Boolean]
+  }
+
+  @Benchmark
+  def cachedExpression(): Boolean =
+    config.getBoolean(expression)
+
+  @Benchmark
+  def compiledPath(): Boolean =
+    config.getBoolean(compiled)
+}
@@ -0,0 +1,75 @@
+package com.gu.typesafe.config.impl
+
+import java.io.{BufferedReader, ByteArrayInputStream, InputStreamReader}
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.TimeUnit
+
+import com.gu.typesafe.config.{ConfigOrigin, ConfigSyntax}
+import com.gu.typesafe.config.benchmarks.ConfigFixtures
+import org.openjdk.jmh.annotations._
+
+/**
+ * Decoding and tokenizing a large input, through the Reader that every
+ * source used to go through and through the CharBuffer tokenizer that files
+ * now use. Throughput is reported in bytes of UTF-8 input by the `bytes`
+ * counter; add `-prof gc` for the allocation rate, e.g.
+ *   sbt "config-benchmarks/Jmh/run -prof gc TokenizerBenchmark"
+ *
+ * This lives in the impl package because the tokenizer is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class TokenizerBenchmark {
+
+  @Param(Array("CONF", "JSON"))
+  var syntax: String = _
+
+  var flavor: ConfigSyntax = _
+  var input: Array[Byte] = _
+  val origin: ConfigOrigin = SimpleConfigOrigin.newSimple("benchmark")
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    flavor = ConfigSyntax.valueOf(syntax)
+    val text =
+      if (flavor == ConfigSyntax.JSON) ConfigFixtures.json(50000)
+      else ConfigFixtures.section("benchmark", 20000)
+    input = text.getBytes(StandardCharsets.UTF_8)
+  }
+
+  @Benchmark
+  def reader(counter: TokenizerBytes): Int = {
+    val reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(input), StandardCharsets.UTF_8))
+    drain(Tokenizer.tokenize(origin, reader, flavor), counter)
+  }
+
+  @Benchmark
+  def buffer(counter: TokenizerBytes): Int = {
+    val chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(input))
+    drain(Tokenizer.tokenize(origin, chars, flavor), counter)
+  }
+
+  private def drain(tokens: java.util.Iterator[Token], counter: TokenizerBytes): Int = {
+    var count = 0
+    while (tokens.hasNext) {
+      tokens.next()
+      count += 1
+    }
+    counter.bytes += input.length
+    count
+  }
+}
+
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+@State(Scope.Thread)
+class TokenizerBytes {
+  var bytes: Long = 0
+
+  @Setup(Level.Iteration)
+  def reset(): Unit = bytes = 0
+}
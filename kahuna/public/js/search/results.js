@@ -593,7 +593,9 @@ results.controller('SearchResultsCtrl', [
                 hasCrops: $stateParams.hasCrops,
                 syndicationStatus: $stateParams.syndicationStatus,
                 persisted: $stateParams.persisted,
-                countAll
+                countAll,
+                // the grid never shows file metadata or embeddings
+                projection: 'grid-tile'
             }));
         }
 
@@ -42,7 +42,8 @@ mediaApi.factory('mediaApi',
                                  payType, uploadedBy, offset, length, orderBy,
                                  takenSince, takenUntil,
                                  modifiedSince, modifiedUntil, hasRightsAcquired, hasCrops,
-                                 syndicationStatus, countAll, persisted, useAISearch, vecWeight} = {}) {
+                                 syndicationStatus, countAll, persisted, useAISearch, vecWeight,
+                                 projection} = {}) {
         return root.follow('search', {
             q:          query,
             since:      since,
@@ -66,7 +67,8 @@ mediaApi.factory('mediaApi',
             countAll,
             persisted,
             useAISearch: maybeStringToBoolean(useAISearch),
-            vecWeight: vecWeight
+            vecWeight: vecWeight,
+            projection: projection
         }).get();
     }
 
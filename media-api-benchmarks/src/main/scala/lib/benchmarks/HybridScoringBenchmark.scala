@@ -0,0 +1,110 @@
+package lib.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import com.gu.mediaservice.lib.{FloatVector, VectorUtils}
+import com.gu.mediaservice.lib.logging.{LogMarker, MarkerMap}
+import com.gu.mediaservice.model.Image
+import com.sksamuel.elastic4s.requests.searches.SearchHit
+import lib.elasticsearch.{HybridResult, SourceWrapper}
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+import play.api.libs.json.Json
+
+import scala.util.Random
+
+/**
+ * Scoring and ranking the hits of a hybrid search: k lexical and k semantic
+ * hits, a quarter of them on both sides, each with a 256 dimension image
+ * embedding to score against the query's. With the embeddings as lists of
+ * boxed doubles and the ranking through boxed orderings, as media-api used
+ * to, and with the query unboxed into a `FloatVector` once and ranked by its
+ * primitive scores, as `HybridResult` does now.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class HybridScoringBenchmark {
+
+  @Param(Array("50", "200"))
+  var k: Int = _
+
+  @Param(Array("256"))
+  var dimensions: Int = _
+
+  implicit val logMarker: LogMarker = MarkerMap()
+
+  var queryEmbedding: List[Double] = _
+  var lexicalHits: List[SearchHit] = _
+  var semanticHits: List[SearchHit] = _
+  var images: Map[String, SourceWrapper[Image]] = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    val random = new Random(k)
+    queryEmbedding = List.fill(dimensions)(random.nextGaussian() * 0.05)
+
+    val ids = (0 until k * 7 / 4).map(i => s"image-$i")
+    images = ids.map { id =>
+      id -> SourceWrapper(Json.obj(), ImageFixtures.image(id, fileMetadataFields = 0, dimensions = dimensions), fromIndex = "images")
+    }.toMap
+    lexicalHits = ids.take(k).map(id => searchHit(id, score = random.nextFloat() * 20)).toList
+    semanticHits = ids.drop(k * 3 / 4).map(id => searchHit(id, score = random.nextFloat() * 20)).toList
+  }
+
+  private def searchHit(id: String, score: Float): SearchHit = SearchHit(
+    id = id,
+    index = "images",
+    version = 1L,
+    seqNo = 0L,
+    primaryTerm = 0L,
+    score = score,
+    parent = None,
+    shard = None,
+    node = None,
+    routing = None,
+    explanation = None,
+    sort = None,
+    _source = Map.empty,
+    fields = Map.empty,
+    _highlight = None,
+    inner_hits = Map.empty,
+    matchedQueries = None
+  )
+
+  private val resolveHit: SearchHit => Option[SourceWrapper[Image]] = hit => images.get(hit.id)
+
+  @Benchmark
+  def boxedScoring(blackhole: Blackhole): Unit = {
+    def score(hit: SearchHit) = resolveHit(hit).map { image =>
+      val semanticScore = image.instance.embedding
+        .flatMap(_.cohereEmbedV4)
+        .flatMap(e => VectorUtils.cosineSimilarity(e.image, queryEmbedding))
+        .getOrElse(HybridResult.CosineSimilarityTheoreticalMin)
+      HybridResult(hit.id, lexicalScore = hit.score, semanticScore = semanticScore, image = image)
+    }
+    val lexical = lexicalHits.flatMap(score)
+    val semantic = semanticHits.flatMap(score)
+
+    val distinctResults = (lexical ::: semantic).distinctBy(_.id)
+    val ranked = for {
+      maxLexicalScore <- distinctResults.map(_.lexicalScore).maxOption
+      maxSemanticScore <- distinctResults.map(_.semanticScore).maxOption
+    } yield distinctResults
+      .map(result => result -> HybridResult.fuseScores(result, maxLexicalScore, maxSemanticScore, vecWeight = 0.5))
+      .sortBy(_._2.fusedScore)(Ordering[Double].reverse)
+      .take(k)
+    blackhole.consume(ranked)
+  }
+
+  @Benchmark
+  def floatScoring(blackhole: Blackhole): Unit = {
+    val queryVector = FloatVector(queryEmbedding)
+    val lexical = lexicalHits.flatMap(HybridResult.resolveHitAndFillInSemanticScore(_, queryVector, resolveHit))
+    val semantic = semanticHits.flatMap(HybridResult.resolveHitAndFillInSemanticScore(_, queryVector, resolveHit))
+    blackhole.consume(HybridResult.fuseAndRank(lexical, semantic, vecWeight = 0.5, k = k))
+  }
+}
@@ -0,0 +1,58 @@
+package lib.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import com.gu.mediaservice.model.Image
+import lib.elasticsearch.ImageSourceDecoder
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+import play.api.libs.json.Json
+
+/**
+ * Decoding a page of search hits into images, by parsing each source into a
+ * JsValue tree and validating that, as media-api used to, and by streaming
+ * it through `ImageSourceDecoder`; with no field aliases, and with one into
+ * the file metadata so that some of it has to be kept as JSON. Use
+ * `-prof gc` for the bytes allocated per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class ImageDecodeBenchmark {
+
+  @Param(Array("200"))
+  var hits: Int = _
+
+  @Param(Array("300", "1500"))
+  var fileMetadataFields: Int = _
+
+  @Param(Array("none", "fileMetadata"))
+  var aliases: String = _
+
+  var sources: Vector[String] = _
+  var decoder: ImageSourceDecoder = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    sources = ImageFixtures.sources(hits, fileMetadataFields, dimensions = 256)
+    decoder = new ImageSourceDecoder(aliases match {
+      case "none" => Nil
+      case _ => Seq("fileMetadata.xmp.xmp:field2")
+    })
+  }
+
+  @Benchmark
+  def jsValueTree(blackhole: Blackhole): Unit =
+    sources.foreach { source =>
+      val json = Json.parse(source)
+      blackhole.consume(json)
+      blackhole.consume(json.validate[Image])
+    }
+
+  @Benchmark
+  def streaming(blackhole: Blackhole): Unit =
+    sources.foreach(source => blackhole.consume(decoder.decode(source)))
+}
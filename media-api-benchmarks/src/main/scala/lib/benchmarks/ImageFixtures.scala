@@ -0,0 +1,109 @@
+package lib.benchmarks
+
+import java.net.URI
+
+import com.gu.mediaservice.model._
+import com.gu.mediaservice.model.leases.LeasesByMedia
+import org.joda.time.DateTime
+import play.api.libs.json._
+
+/**
+ * Builds the `_source` of ES image documents shaped like ours: a photo from
+ * an agency with the usual metadata, a few hundred fields of file metadata,
+ * most of them in exif and xmp with some of the xmp nested or in lists, and
+ * an image embedding.
+ */
+object ImageFixtures {
+
+  def sources(count: Int, fileMetadataFields: Int, dimensions: Int): Vector[String] =
+    (0 until count).map(i => Json.stringify(Json.toJson(image(s"image-$i", fileMetadataFields, dimensions)))).toVector
+
+  def image(id: String, fileMetadataFields: Int, dimensions: Int): Image = {
+    val metadata = ImageMetadata(
+      dateTaken = Some(DateTime.parse("2024-06-01T14:03:27Z")),
+      description = Some(s"Supporters gather outside the stadium before the final, picture $id"),
+      credit = Some("Reuters"),
+      byline = Some("A Photographer"),
+      bylineTitle = Some("Staff photographer"),
+      title = Some(s"Football final $id"),
+      copyright = Some("Copyright 2024 Reuters"),
+      suppliersReference = Some(s"RC2$id"),
+      source = Some("Reuters"),
+      specialInstructions = Some("Editorial use only"),
+      keywords = Some(Set("sport", "football", "final", "supporters")),
+      city = Some("London"),
+      country = Some("United Kingdom"),
+      subjects = Some(List("sport")),
+      imageType = Some("Photograph")
+    )
+    val asset = Asset(
+      file = new URI(s"http://media-service-test-imagebucket.s3.amazonaws.com/$id"),
+      size = Some(8823451L),
+      mimeType = Some(Jpeg),
+      dimensions = Some(Dimensions(width = 5464, height = 3640))
+    )
+
+    Image(
+      id = id,
+      uploadTime = DateTime.parse("2024-06-01T14:20:00Z"),
+      uploadedBy = "reuters-feed",
+      softDeletedMetadata = None,
+      lastModified = Some(DateTime.parse("2024-06-01T14:25:00Z")),
+      identifiers = Map.empty,
+      uploadInfo = UploadInfo(filename = Some(s"$id.jpg")),
+      source = asset,
+      thumbnail = Some(asset.copy(size = Some(48211L), dimensions = Some(Dimensions(width = 256, height = 171)))),
+      optimisedPng = None,
+      fileMetadata = fileMetadata(fileMetadataFields),
+      userMetadata = None,
+      metadata = metadata,
+      originalMetadata = metadata,
+      usageRights = Agency("Reuters"),
+      originalUsageRights = Agency("Reuters"),
+      leases = LeasesByMedia.empty,
+      embedding = Some(Embedding(cohereEmbedV4 = Some(CohereV4Embedding(vector(id, dimensions)))))
+    )
+  }
+
+  // fields split across the directories in about the proportions of a
+  // camera jpeg that's been through an agency's desk
+  def fileMetadata(fields: Int): FileMetadata = {
+    def strings(prefix: String, count: Int) =
+      (0 until count).map(i => s"$prefix Field $i" -> s"value of $prefix field $i, 2024:06:01 14:03:27").toMap
+
+    FileMetadata(
+      iptc = strings("IPTC", fields / 10),
+      exif = strings("Exif", fields * 3 / 10),
+      exifSub = strings("ExifSub", fields / 10),
+      xmp = (0 until fields * 4 / 10).map { i =>
+        s"xmp:field$i" -> (i % 5 match {
+          case 0 => Json.arr("one", "two", s"three $i")
+          case 1 => Json.obj("stEvt:action" -> "saved", "stEvt:when" -> "2024-06-01T14:03:27Z", "stEvt:instanceID" -> s"xmp.iid:$i")
+          case _ => JsString(s"value of xmp field $i")
+        })
+      }.toMap,
+      icc = strings("ICC", fields / 10),
+      colourModel = Some("RGB"),
+      colourModelInformation = Map("hasAlpha" -> "false", "colorType" -> "TrueColor", "bitsPerSample" -> "8")
+    )
+  }
+
+  // what ES sends back for a source with these `_source` includes
+  def filterSource(source: String, includes: Seq[String]): String =
+    if (includes.isEmpty) source
+    else {
+      val json = Json.parse(source)
+      Json.stringify(includes.foldLeft(Json.obj()) { (filtered, include) =>
+        val path = include.split('.').toList
+        path.foldLeft(JsDefined(json): JsLookupResult)(_ \ _).toOption match {
+          case Some(value) => filtered.deepMerge(path.foldRight(value)((key, inner) => Json.obj(key -> inner)).as[JsObject])
+          case None => filtered
+        }
+      })
+    }
+
+  private def vector(id: String, dimensions: Int): List[Double] = {
+    val random = new scala.util.Random(id.hashCode)
+    List.fill(dimensions)(random.nextDouble() * 2 - 1)
+  }
+}
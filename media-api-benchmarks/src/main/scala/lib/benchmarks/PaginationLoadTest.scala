@@ -0,0 +1,131 @@
+package lib.benchmarks
+
+import com.gu.mediaservice.lib.elasticsearch.ElasticSearchClient
+import com.gu.mediaservice.model.FileMetadata
+import com.sksamuel.elastic4s.ElasticDsl._
+import com.sksamuel.elastic4s.requests.searches.SearchRequest
+import lib.elasticsearch.{SearchCursor, sorts}
+import org.joda.time.DateTime
+import org.testcontainers.elasticsearch.ElasticsearchContainer
+import play.api.libs.json.Json
+
+import scala.concurrent.Await
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
+import scala.jdk.CollectionConverters._
+
+/**
+ * Times fetching a page of images deep into a search, by offset and with a
+ * cursor, against an ES with tens of thousands of images in it. Uses the ES
+ * at ES_URL if it's set, and otherwise starts one in a container, as the
+ * media-api tests do:
+ *
+ *   sbt "media-api-benchmarks/runMain lib.benchmarks.PaginationLoadTest 60000 50"
+ *
+ * for 60,000 images and 50 timings of each page.
+ */
+object PaginationLoadTest {
+
+  private val pageLength = 50 // what the grid asks for
+  private val offsets = Seq(1000, 10000, 50000)
+
+  def main(args: Array[String]): Unit = {
+    val imageCount = args.headOption.map(_.toInt).getOrElse(60000)
+    val samples = args.lift(1).map(_.toInt).getOrElse(50)
+
+    val container = if (sys.env.contains("ES_URL")) None else Some(startContainer())
+    val es = new ElasticSearchClient {
+      override def url: String = sys.env.getOrElse("ES_URL", s"http://localhost:${container.get.getMappedPort(9200)}")
+      override def imagesCurrentAlias: String = "Images_Current"
+      override def imagesMigrationAlias: String = "Images_Migration"
+      override def shards: Int = 1
+      override def replicas: Int = 0
+      override def includeDenseVectorMappings: Boolean = false
+    }
+
+    try {
+      es.ensureIndexExistsAndAliasAssigned()
+      index(es, imageCount)
+
+      println(f"${"offset"}%8s ${"by offset p50"}%14s ${"p99"}%8s ${"by cursor p50"}%14s ${"p99"}%8s")
+      offsets.filter(_ + pageLength <= imageCount).foreach { offset =>
+        val cursor = cursorAt(es, offset)
+        val byOffset = time(es, samples, searchPage(es).from(offset))
+        val byCursor = time(es, samples, searchPage(es).searchAfter(cursor.searchAfter))
+
+        // both ways should find the same page
+        val first = ids(es, searchPage(es).from(offset))
+        if (ids(es, searchPage(es).searchAfter(cursor.searchAfter)) != first)
+          println(s"pages at $offset differ by offset and by cursor")
+
+        println(f"$offset%8d ${percentile(byOffset, 50)}%12.1fms ${percentile(byOffset, 99)}%6.1fms ${percentile(byCursor, 50)}%12.1fms ${percentile(byCursor, 99)}%6.1fms")
+      }
+    } finally {
+      es.client.close()
+      container.foreach(_.stop())
+    }
+  }
+
+  private def startContainer(): ElasticsearchContainer = {
+    val container = new ElasticsearchContainer("docker.elastic.co/elasticsearch/elasticsearch:8.18.3")
+      .withEnv(Map(
+        "xpack.security.enabled" -> "false",
+        "discovery.type" -> "single-node"
+      ).asJava)
+    container.start()
+    container
+  }
+
+  // small images, since how long paging takes is down to how many of them
+  // there are; some are uploaded at the same time, as happens with agency feeds
+  private def index(es: ElasticSearchClient, imageCount: Int): Unit = {
+    val start = DateTime.parse("2024-06-01T00:00:00Z")
+    (0 until imageCount).grouped(1000).foreach { batch =>
+      val requests = batch.map { i =>
+        val image = ImageFixtures.image(s"image-$i", fileMetadataFields = 0, dimensions = 0)
+          .copy(uploadTime = start.minusSeconds(i / 3), fileMetadata = FileMetadata(), embedding = None)
+        indexInto(es.initialImagesIndex).id(image.id).source(Json.stringify(Json.toJson(image)))
+      }
+      val response = Await.result(es.client.execute(bulk(requests)), 1.minute)
+      if (response.isError || response.result.errors) throw new RuntimeException(s"Failed to index images: ${response.error}")
+    }
+    Await.result(es.client.execute(refreshIndex(es.initialImagesIndex)), 1.minute)
+  }
+
+  // every image, newest first, as the grid shows them
+  private def searchPage(es: ElasticSearchClient): SearchRequest =
+    search(es.imagesCurrentAlias)
+      .query(matchAllQuery())
+      .trackTotalHits(true)
+      .size(pageLength)
+      .sortBy(sorts.withTiebreaker(sorts.createSort(None)))
+
+  // the cursor a client would have by following next links to the offset,
+  // walked to in big pages to save time
+  private def cursorAt(es: ElasticSearchClient, offset: Int): SearchCursor = {
+    val step = 1000
+    (step to offset by step).foldLeft(Option.empty[SearchCursor]) { (cursor, position) =>
+      val request = searchPage(es).size(step)
+      val hits = Await.result(es.client.execute(cursor.fold(request)(c => request.searchAfter(c.searchAfter))), 1.minute).result.hits.hits
+      Some(SearchCursor.after(position, None, hits.last.sort.get))
+    }.get
+  }
+
+  private def ids(es: ElasticSearchClient, request: SearchRequest): Seq[String] =
+    Await.result(es.client.execute(request), 1.minute).result.hits.hits.map(_.id).toSeq
+
+  // milliseconds for each request, after a few to warm up
+  private def time(es: ElasticSearchClient, samples: Int, request: SearchRequest): Seq[Double] = {
+    (0 until 5).foreach(_ => Await.result(es.client.execute(request), 1.minute))
+    (0 until samples).map { _ =>
+      val started = System.nanoTime()
+      Await.result(es.client.execute(request), 1.minute)
+      (System.nanoTime() - started) / 1e6
+    }
+  }
+
+  private def percentile(timings: Seq[Double], p: Int): Double = {
+    val sorted = timings.sorted
+    sorted(math.max(0, math.ceil(sorted.length * p / 100.0).toInt - 1))
+  }
+}
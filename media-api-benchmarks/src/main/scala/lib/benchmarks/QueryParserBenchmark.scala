@@ -0,0 +1,89 @@
+package lib.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import lib.MediaApiConfig
+import lib.elasticsearch.{MatchFields, QueryBuilder}
+import lib.querysyntax.Parser
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+
+/**
+ * Turning the `q` of a search into the ES query for it: parsing it with
+ * `QuerySyntax` and building the query from the conditions, as every search
+ * used to, and through the parse and query caches, for a query that's been
+ * searched before. Per query, over a corpus of the kinds of query people
+ * type into the search box.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class QueryParserBenchmark {
+
+  var config: MediaApiConfig = _
+  var matchFields: Seq[String] = _
+  var queryBuilder: QueryBuilder = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    val mediaApiConfig = SearchPage.config(Nil)
+    config = mediaApiConfig
+    matchFields = new MatchFields { def config: MediaApiConfig = mediaApiConfig }.matchFields
+    queryBuilder = new QueryBuilder(matchFields, () => Nil, config)
+    // as if each query has been searched once already
+    QueryParserBenchmark.corpus.foreach(q => queryBuilder.makeQuery(Parser.run(q)))
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(QueryParserBenchmark.CorpusSize)
+  def parse(blackhole: Blackhole): Unit =
+    QueryParserBenchmark.corpus.foreach(q => blackhole.consume(Parser.parse(q)))
+
+  // a builder that hasn't seen the queries, so builds each of them
+  @Benchmark
+  @OperationsPerInvocation(QueryParserBenchmark.CorpusSize)
+  def parseAndBuild(blackhole: Blackhole): Unit = {
+    val builder = new QueryBuilder(matchFields, () => Nil, config)
+    QueryParserBenchmark.corpus.foreach(q => blackhole.consume(builder.makeQuery(Parser.parse(q))))
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(QueryParserBenchmark.CorpusSize)
+  def cached(blackhole: Blackhole): Unit =
+    QueryParserBenchmark.corpus.foreach(q => blackhole.consume(queryBuilder.makeQuery(Parser.run(q))))
+}
+
+object QueryParserBenchmark {
+  final val CorpusSize = 24
+
+  val corpus: Vector[String] = Vector(
+    "cats",
+    "boris johnson",
+    "\"prime minister's questions\"",
+    "by:\"Christopher Thomond\"",
+    "credit:Reuters",
+    "credit:\"Getty Images\" football",
+    "#brexit",
+    "~\"Guardian/Sport\"",
+    "is:GNM-owned",
+    "is:agency-pick protest",
+    "-is:deleted election",
+    "has:crops",
+    "date:today",
+    "uploaded:yesterday",
+    "taken:2024-06-01 credit:PA",
+    "date:\"june 2024\"",
+    "@today by:Alicia",
+    "usages@status:published usages@platform:print",
+    "fileType:png",
+    "supplier:AP -credit:Alamy",
+    "label:\"front page\" category:staff-photographer",
+    "location:London city:Manchester",
+    "keyword:glastonbury -by:\"Hollie Adams\"",
+    "Stormzy headlines pyramid stage"
+  )
+  require(corpus.length == CorpusSize)
+}
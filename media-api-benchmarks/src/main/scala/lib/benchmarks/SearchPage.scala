@@ -0,0 +1,73 @@
+package lib.benchmarks
+
+import com.gu.mediaservice.lib.config.GridConfigResources
+import lib.elasticsearch.{ImageSourceDecoder, SearchProjection}
+import lib.{ImageResponse, MediaApiConfig}
+import play.api.Configuration
+import play.api.inject.ApplicationLifecycle
+import play.api.libs.json.Json
+
+import scala.concurrent.Future
+
+/**
+ * A page of search hits as ES sends them for a projection, and what media-api
+ * does with each of them before it's wrapped up in the response: decode the
+ * image and write it out with `ImageResponse.imageResponseWrites`.
+ */
+class SearchPage(hits: Int, fileMetadataFields: Int, projection: SearchProjection) {
+  // an alias into the file metadata, as most of our configs have
+  val aliasPaths = Seq("fileMetadata.xmp.xmp:field2")
+
+  val sources: Vector[String] = ImageFixtures.sources(hits, fileMetadataFields, dimensions = 256)
+    .map(ImageFixtures.filterSource(_, projection.sourceIncludes(aliasPaths)))
+
+  private val decoder = new ImageSourceDecoder(aliasPaths)
+  private val imageResponse = new ImageResponse(SearchPage.config(aliasPaths), null, null)
+
+  def sourceBytes: Long = sources.map(_.length.toLong).sum
+
+  // the bytes of image data written, which is most of the response
+  def write(): Long = sources.foldLeft(0L) { (bytes, source) =>
+    val (_, image) = decoder.decode(source, projection.omitted).get
+    val data = Json.toJsObject(image)(imageResponse.imageResponseWrites(image.id, expandFileMetaData = false, projection))
+    bytes + Json.stringify(data).length
+  }
+}
+
+object SearchPage {
+  def config(aliasPaths: Seq[String]): MediaApiConfig = new MediaApiConfig(resources(aliasPaths))
+
+  // the least config that MediaApiConfig starts with, as in media-api's tests
+  def resources(aliasPaths: Seq[String]): GridConfigResources = GridConfigResources(
+    Configuration.from(Map(
+      "es6.shards" -> 0,
+      "es6.replicas" -> 0,
+      "field.aliases" -> aliasPaths.zipWithIndex.map { case (path, i) =>
+        Map("elasticsearchPath" -> path, "alias" -> s"alias$i", "label" -> s"Alias $i", "displaySearchHint" -> false)
+      },
+      "usageRights" -> Map("applicable" -> List()),
+      "usageRightsConfigProvider" -> "com.gu.mediaservice.lib.config.RuntimeUsageRightsConfig"
+    ) ++ Seq(
+      "auth.keystore.bucket",
+      "persistence.identifier",
+      "thrall.kinesis.stream.name",
+      "thrall.kinesis.lowPriorityStream.name",
+      "domain.root",
+      "s3.config.bucket",
+      "s3.usagemail.bucket",
+      "quota.store.key",
+      "es.index.aliases.current",
+      "es.index.aliases.migration",
+      "es6.url",
+      "s3.image.bucket",
+      "s3.thumb.bucket",
+      "grid.stage",
+      "grid.appName"
+    ).map(_ -> "not used in benchmark").toMap),
+    null,
+    new ApplicationLifecycle {
+      override def addStopHook(hook: () => Future[_]): Unit = {}
+      override def stop(): Future[_] = Future.successful(())
+    }
+  )
+}
@@ -0,0 +1,50 @@
+package lib.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import lib.elasticsearch.SearchProjection
+import org.openjdk.jmh.annotations._
+
+/**
+ * Handling a full page of search hits with each search projection, from the
+ * `_source` ES sends to the image data written for the response. Sampled, so
+ * JMH reports percentiles as well as the mean; `SearchProjectionSizes` prints
+ * the bytes of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.SampleTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(2)
+class SearchProjectionBenchmark {
+
+  @Param(Array("200"))
+  var hits: Int = _
+
+  @Param(Array("full", "grid-tile"))
+  var projection: String = _
+
+  var page: SearchPage = _
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    page = new SearchPage(hits, fileMetadataFields = 300, SearchProjection.fromName(projection).get)
+  }
+
+  @Benchmark
+  def writePage(): Long = page.write()
+}
+
+// prints the bytes ES sends and media-api writes for a page of hits with each projection
+object SearchProjectionSizes {
+  def main(args: Array[String]): Unit = {
+    val hits = args.headOption.map(_.toInt).getOrElse(200)
+    val fileMetadataFields = args.lift(1).map(_.toInt).getOrElse(300)
+
+    SearchProjection.all.foreach { projection =>
+      val page = new SearchPage(hits, fileMetadataFields, projection)
+      println(f"${projection.name}%-10s source ${page.sourceBytes}%,12d bytes  response ${page.write()}%,12d bytes")
+    }
+  }
+}
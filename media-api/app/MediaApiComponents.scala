@@ -1,4 +1,4 @@
-import com.gu.mediaservice.lib.aws.{Bedrock, Embedder, S3, S3Vectors, SimpleSqsMessageConsumer, ThrallMessageSender}
+import com.gu.mediaservice.lib.aws.{Bedrock, Embedder, QueryEmbeddingCache, S3, S3Vectors, SimpleSqsMessageConsumer, ThrallMessageSender}
 import com.gu.mediaservice.lib.management.{ElasticSearchHealthCheck, InnerServiceStatusCheckController, Management}
 import com.gu.mediaservice.lib.metadata.SoftDeletedMetadataTable
 import com.gu.mediaservice.lib.play.GridComponents
@@ -8,6 +8,7 @@ import lib.elasticsearch.ElasticSearch
 import play.api.ApplicationLoader.Context
 import router.Routes
 
+import java.nio.file.Paths
 import scala.concurrent.Future
 
 class MediaApiComponents(context: Context) extends GridComponents(context, new MediaApiConfig(_)) {
@@ -25,11 +26,20 @@ class MediaApiComponents(context: Context) extends GridComponents(context, new M
 
   val elasticSearch = new ElasticSearch(config, mediaApiMetrics, config.esConfig, () => usageQuota.usageStore.overQuotaAgencies, actorSystem.scheduler)
   elasticSearch.ensureIndexExistsAndAliasAssigned()
+  applicationLifecycle.addStopHook(() => Future{elasticSearch.stopIndexGenerationUpdates()})
 
   val imageResponse = new ImageResponse(config, s3Client, usageQuota)
 
   val softDeletedMetadataTable = new SoftDeletedMetadataTable(config)
-  val embedder = new Embedder(new Bedrock(config), new SimpleSqsMessageConsumer(config.queueUrl, config))
+  val queryEmbeddingCache = new QueryEmbeddingCache(
+    config.aiSearchEmbeddingCacheMaxSize,
+    config.aiSearchEmbeddingCacheTtl,
+    config.aiSearchEmbeddingCacheDirectory.map(Paths.get(_)),
+    mediaApiMetrics.queryEmbeddingCacheHits,
+    mediaApiMetrics.queryEmbeddingCacheMisses,
+    mediaApiMetrics.queryEmbeddingLatency
+  )
+  val embedder = new Embedder(new Bedrock(config), new SimpleSqsMessageConsumer(config.queueUrl, config), Some(queryEmbeddingCache))
 
   val mediaApi = new MediaApi(auth, messageSender, softDeletedMetadataTable, elasticSearch, imageResponse, config, controllerComponents, s3Client, mediaApiMetrics, wsClient, authorisation, embedder)
   val suggestionController = new SuggestionController(auth, elasticSearch, controllerComponents)
@@ -1,6 +1,5 @@
 package controllers
 
-import com.github.blemale.scaffeine.{AsyncLoadingCache, Scaffeine}
 import com.google.common.net.HttpHeaders
 import com.gu.mediaservice.lib.argo._
 import com.gu.mediaservice.lib.argo.model.{Action, _}
@@ -53,15 +52,6 @@ class MediaApi(
   val services: Services = new Services(config.domainRoot, config.serviceHosts, Set.empty)
   val gridClient: GridClient = GridClient(services, services.apiBaseUri)(ws)
 
-  // Process-local cache keyed on normalised query text. Stores the Bedrock Future so that
-  // concurrent requests for the same query share a single in-flight Bedrock call, and
-  // subsequent requests within the TTL window skip Bedrock entirely.
-  private val embeddingCache: AsyncLoadingCache[String, List[Double]] = Scaffeine()
-    .maximumSize(config.aiSearchEmbeddingCacheMaxSize)
-    .buildAsyncFuture((normQuery: String) =>
-      embedder.createQueryEmbedding(normQuery)(MarkerMap())
-    )
-
   private val searchParamList = List(
     "q",
     "ids",
@@ -91,7 +81,9 @@ class MediaApi(
     "countAll",
     "persisted",
     "useAISearch",
-    "vecWeight"
+    "vecWeight",
+    "projection",
+    "cursor"
   ).mkString(",")
 
   private val searchLinkHref = s"${config.rootUri}/images{?$searchParamList}"
@@ -552,31 +544,34 @@ class MediaApi(
 
     val include = getIncludedFromParams(request)
 
+    val _searchParams = SearchParams(request)
+    val projection = _searchParams.projection.including(include)
+
     def hitToImageEntity(elasticId: String, image: SourceWrapper[Image]): EmbeddedEntity[JsValue] = {
       val writePermission = authorisation.isUploaderOrHasPermission(request.user, image.instance.uploadedBy, EditMetadata)
       val deletePermission = authorisation.isUploaderOrHasPermission(request.user, image.instance.uploadedBy, DeleteImagePermission)
       val deleteCropsOrUsagePermission = canUserDeleteCropsOrUsages(request.user)
 
       val (imageData, imageLinks, imageActions) =
-        imageResponse.create(elasticId, image, writePermission, deletePermission, deleteCropsOrUsagePermission, include, request.user.accessor.tier)
+        imageResponse.create(elasticId, image, writePermission, deletePermission, deleteCropsOrUsagePermission, include, request.user.accessor.tier, projection)
       val id = (imageData \ "id").as[String]
       val imageUri = URI.create(s"${config.rootUri}/images/$id")
       EmbeddedEntity(uri = imageUri, data = Some(imageData), imageLinks, imageActions)
     }
 
     def performSearchAndRespond(searchParams: SearchParams) = for {
-      SearchResults(hits, totalCount, extraCounts) <- elasticSearch.search(
+      SearchResults(hits, totalCount, extraCounts, nextCursor) <- elasticSearch.search(
         searchParams.copy(
           shouldFlagGraphicImages = shouldFlagGraphicImages,
+          projection = projection,
         )
       )
       imageEntities = hits map (hitToImageEntity _).tupled
       prevLink = getPrevLink(searchParams)
-      nextLink = getNextLink(searchParams, totalCount)
+      nextLink = getNextLink(searchParams, totalCount, nextCursor)
       links = List(prevLink, nextLink).flatten
     } yield respondCollection(imageEntities, Some(searchParams.offset), Some(totalCount), extraCounts, links)
 
-    val _searchParams = SearchParams(request)
     val hasDeletePermission = authorisation.isUploaderOrHasPermission(request.user, "", DeleteImagePermission)
     val canViewDeletedImages = _searchParams.query.contains("is:deleted") && !hasDeletePermission
 
@@ -688,17 +683,9 @@ class MediaApi(
               "aiSearchType" -> "hybrid"
             )
 
-            // Normalise key so that "Dogs" and "dogs " share a cache entry.
-            val cacheKey = semanticQuery.trim.toLowerCase
-            if (embeddingCache.getIfPresent(cacheKey).isDefined) {
-              logger.info(logMarker, s"AI search embedding cache hit query=$semanticQuery")
-            } else {
-              logger.info(logMarker, s"AI search embedding cache miss query=$semanticQuery")
-            }
-
-            // cache.get(key) is atomic: if two requests race on the same key, only one
-            // load fires and both callers receive the same Future.
-            val embeddingFuture = embeddingCache.get(cacheKey)
+            // The embedder keeps recent query embeddings, and shares the Bedrock
+            // request between concurrent searches for the same query.
+            val embeddingFuture = embedder.createQueryEmbedding(semanticQuery)
 
             val filterOpt = buildAiFilter(parts.filterConditions, params)
 
@@ -757,44 +744,67 @@ class MediaApi(
       } else {
         _searchParams
       }
-      SearchParams.validate(searchParams).fold(
-        // TODO: respondErrorCollection?
-        errors => Future.successful(respondError(UnprocessableEntity, InvalidUriParams.errorKey,
-          errors.map(_.message).mkString(", "))
-        ),
-        params => performSearchAndRespond(params)
+      SearchParams.validateCursor(searchParams).fold(
+        invalidCursor => Future.successful(respondError(BadRequest, "invalid-cursor", invalidCursor.message)),
+        _ => SearchParams.validate(searchParams).fold(
+          // TODO: respondErrorCollection?
+          errors => Future.successful(respondError(UnprocessableEntity, InvalidUriParams.errorKey,
+            errors.map(_.message).mkString(", "))
+          ),
+          params => performSearchAndRespond(params)
+        )
       )
     }
   }
 
+  // Shares the ES GET with anyone else asking for the image at the same time,
+  // so a response can miss a write that finished just before the request
+  // came in. Clients polling for their own edit to show up, as kahuna does,
+  // see it on their next poll.
   private def getImageResponseFromES(
     id: String, request: Authentication.Request[AnyContent]
   )(implicit logMarker: LogMarker): Future[Option[(Image, JsValue, List[Link], List[Action])]] = {
     val include = getIncludedFromParams(request)
 
-    elasticSearch.getImageWithSourceById(id) map {
+    elasticSearch.getImageWithSourceById(id) flatMap {
       case Some(source) if isVisibleToAccessor(request.user, source.instance) =>
         val writePermission = authorisation.isUploaderOrHasPermission(request.user, source.instance.uploadedBy, EditMetadata)
         val deleteImagePermission = authorisation.isUploaderOrHasPermission(request.user, source.instance.uploadedBy, DeleteImagePermission)
         val deleteCropsOrUsagePermission = canUserDeleteCropsOrUsages(request.user)
 
-        val (imageData, imageLinks, imageActions) = imageResponse.create(
-          id,
-          source,
-          writePermission,
-          deleteImagePermission,
-          deleteCropsOrUsagePermission,
-          include,
-          request.user.accessor.tier
-        )
-
-        Some((source.instance, imageData, imageLinks, imageActions))
+        val key = ImageResponseKey(id, include, request.user.accessor.tier, writePermission, deleteImagePermission, deleteCropsOrUsagePermission)
+        imageResponsesInFlight(key) {
+          Future(imageResponse.create(
+            id,
+            source,
+            writePermission,
+            deleteImagePermission,
+            deleteCropsOrUsagePermission,
+            include,
+            request.user.accessor.tier
+          ))
+        } map { case (imageData, imageLinks, imageActions) =>
+          Some((source.instance, imageData, imageLinks, imageActions))
+        }
 
-      case _ => None
+      case _ => Future.successful(None)
     }
   }
 
-  private def getSearchUrl(searchParams: SearchParams, updatedOffset: Int, length: Int): String = {
+  // An image response depends on who asks for it only through these, so everyone
+  // who agrees on them can share one, once each has been checked against the image
+  private case class ImageResponseKey(
+    id: String,
+    include: List[String],
+    tier: Tier,
+    writePermission: Boolean,
+    deleteImagePermission: Boolean,
+    deleteCropsOrUsagePermission: Boolean
+  )
+
+  private val imageResponsesInFlight = new SingleFlight[ImageResponseKey, (JsValue, List[Link], List[Action])]
+
+  private def getSearchUrl(searchParams: SearchParams, updatedOffset: Int, length: Int, cursor: Option[SearchCursor] = None): String = {
     // Enforce a toDate to exclude new images since the current request
     val toDate = searchParams.until.getOrElse(DateTime.now)
 
@@ -802,7 +812,7 @@ class MediaApi(
       "offset" -> updatedOffset.toString,
       "length" -> length.toString,
       "toDate" -> printDateTime(toDate)
-    )
+    ) ++ cursor.map(c => "cursor" -> c.encode)
 
     paramMap.foldLeft(UriTemplate()){ (acc, pair) => acc.expandAny(pair._1, pair._2)}.toString
   }
@@ -819,10 +829,12 @@ class MediaApi(
     }
   }
 
-  private def getNextLink(searchParams: SearchParams, totalCount: Long): Option[Link] = {
+  // the next page carries on from the cursor after this one, where there is
+  // one, which ES finds as quickly however deep it is
+  private def getNextLink(searchParams: SearchParams, totalCount: Long, nextCursor: Option[SearchCursor] = None): Option[Link] = {
     val nextOffset = searchParams.offset + searchParams.length
     if (nextOffset < totalCount) {
-      val nextUrl = getSearchUrl(searchParams, nextOffset, searchParams.length)
+      val nextUrl = getSearchUrl(searchParams, nextOffset, searchParams.length, nextCursor)
       Some(Link("next", nextUrl))
     } else {
       None
@@ -9,7 +9,7 @@ import com.gu.mediaservice.model._
 import com.gu.mediaservice.model.leases.{LeasesByMedia, MediaLease}
 import com.gu.mediaservice.model.usage._
 import lib.ImageResponse.extractAliasFieldValues
-import lib.elasticsearch.SourceWrapper
+import lib.elasticsearch.{SearchProjection, SourceWrapper}
 import lib.usagerights.CostCalculator
 import org.joda.time.DateTime
 import play.api.libs.functional.syntax._
@@ -25,6 +25,8 @@ class ImageResponse(config: MediaApiConfig, s3Client: S3, usageQuota: UsageQuota
 
   implicit val usageQuotas: UsageQuota = usageQuota
 
+  private val signedUrls = new SignedUrls(s3Client, config.signedUrlCacheMaxSize, config.shortenDownloadFilename)
+
   object Costing extends CostCalculator {
     override val freeSuppliers: List[String] = config.usageRightsConfig.freeSuppliers
     override val suppliersCollectionExcl: Map[String, List[String]] = config.usageRightsConfig.suppliersCollectionExcl
@@ -61,13 +63,14 @@ class ImageResponse(config: MediaApiConfig, s3Client: S3, usageQuota: UsageQuota
     withWritePermission: Boolean,
     withDeleteImagePermission: Boolean,
     withDeleteCropsOrUsagePermission: Boolean,
-    included: List[String] = List(), tier: Tier
+    included: List[String] = List(), tier: Tier,
+    projection: SearchProjection = SearchProjection.Full
   )(implicit logMarker: LogMarker): (JsValue, List[Link], List[Action]) = {
 
     val image = imageWrapper.instance
 
     val source = Try {
-      Json.toJsObject(image)(imageResponseWrites(image.id, included.contains("fileMetadata"))) ++ imageWrapper.fields
+      Json.toJsObject(image)(imageResponseWrites(image.id, included.contains("fileMetadata"), projection)) ++ imageWrapper.fields
     }.recoverWith {
       case e =>
         logger.error(logMarker, s"Failed to read ElasticSearch response $id into Image object: ${e.getMessage}")
@@ -78,11 +81,11 @@ class ImageResponse(config: MediaApiConfig, s3Client: S3, usageQuota: UsageQuota
 
     val fileUri = image.source.file
 
-    val imageUrl = s3Client.signUrl(config.imageBucket, fileUri, image, imageType = Source)
+    val imageUrl = signedUrls.sign(config.imageBucket, fileUri, image, Source)
     val pngUrl: Option[String] = pngFileUri
-      .map(s3Client.signUrl(config.imageBucket, _, image, imageType = OptimisedPng))
+      .map(signedUrls.sign(config.imageBucket, _, image, OptimisedPng))
 
-    def s3SignedThumbUrl = s3Client.signUrl(config.thumbBucket, fileUri, image, imageType = Thumbnail)
+    def s3SignedThumbUrl = signedUrls.sign(config.thumbBucket, fileUri, image, Thumbnail)
 
     val thumbUrl = config.cloudFrontDomainThumbBucket
       .map(domain => s"https://$domain${fileUri.getPath}")
@@ -320,7 +323,8 @@ class ImageResponse(config: MediaApiConfig, s3Client: S3, usageQuota: UsageQuota
 
   import play.api.libs.json.JodaWrites._
 
-  def imageResponseWrites(id: String, expandFileMetaData: Boolean): OWrites[Image] = {
+  // fields the projection omitted aren't written, except the file metadata's link
+  def imageResponseWrites(id: String, expandFileMetaData: Boolean, projection: SearchProjection = SearchProjection.Full): OWrites[Image] = {
     def writes[T](v: T)(implicit writer: Writes[T]): Option[JsValue] =
       Some(writer writes v)
 
@@ -350,7 +354,7 @@ class ImageResponse(config: MediaApiConfig, s3Client: S3, usageQuota: UsageQuota
         "collections" -> writes(image.collections.map(collectionsEntity(id, _))),
         "syndicationRights" -> writesOpt(image.syndicationRights),
         "userMetadataLastModified" -> writesOpt(image.userMetadataLastModified),
-        "embedding" -> writes(image.embedding),
+        "embedding" -> (if (projection.omits("embedding")) None else writes(image.embedding)),
       ).collect { case (key, Some(value)) => (key, value) })
     }
   }
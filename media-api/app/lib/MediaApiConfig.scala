@@ -6,10 +6,12 @@ import com.sksamuel.elastic4s.ElasticApi.{matchPhraseQuery, should}
 import com.sksamuel.elastic4s.ElasticDsl.matchQuery
 import com.sksamuel.elastic4s.requests.searches.queries.Query
 import com.sksamuel.elastic4s.requests.searches.queries.matches.MatchQuery
+import com.typesafe.config.ConfigMemorySize
 import org.joda.time.DateTime
 import scalaz.NonEmptyList
 
 import scala.collection.immutable
+import scala.concurrent.duration.{DurationInt, FiniteDuration}
 import scala.util.Try
 
 case class StoreConfig(
@@ -78,6 +80,19 @@ class MediaApiConfig(resources: GridConfigResources) extends CommonConfigWithEla
 
   val aiSearchResultLimit: Int = intOpt("ai.search.resultLimit").getOrElse(200)
   val aiSearchEmbeddingCacheMaxSize: Int = intOpt("ai.search.embeddingCache.maxSize").getOrElse(500)
+  val aiSearchEmbeddingCacheTtl: FiniteDuration = configuration.getOptional[FiniteDuration]("ai.search.embeddingCache.ttl").getOrElse(7.days)
+  // where to keep query embeddings across restarts, if anywhere
+  val aiSearchEmbeddingCacheDirectory: Option[String] = stringOpt("ai.search.embeddingCache.directory")
+
+  // about three urls an image
+  val signedUrlCacheMaxSize: Int = intOpt("s3.signedUrlCache.maxSize").getOrElse(10000)
+
+  // pages of results can be large, and vary in size with the page size, so
+  // what they may take up of the heap, estimated from their hits; counts are small
+  val searchCacheResultsMaxBytes: Long = configuration.getOptional[ConfigMemorySize]("search.cache.results.maxMemory")
+    .map(_.toBytes).getOrElse(64L * 1024 * 1024)
+  val searchCacheCountsMaxSize: Int = intOpt("search.cache.counts.maxSize").getOrElse(1000)
+  val searchCacheTtl: FiniteDuration = configuration.getOptional[FiniteDuration]("search.cache.ttl").getOrElse(10.seconds)
 
   val maybeAgencyPickQuery: Option[Query] = agencyPicksIngredients.map { ingredients =>
     filters.or(
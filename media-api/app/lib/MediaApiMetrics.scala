@@ -13,6 +13,16 @@ class MediaApiMetrics(config: MediaApiConfig, actorSystem: ActorSystem, applicat
 
   val searchQueries = new TimeMetric("ElasticSearch")
 
+  // the hit rate is hits / (hits + misses), with the same SearchType dimension as searchQueries
+  val searchCacheHits = new CountMetric("SearchCacheHits")
+  val searchCacheMisses = new CountMetric("SearchCacheMisses")
+  val searchCacheLatency = new TimeMetric("SearchCacheLatency")
+
+  // hits have a Store dimension of Memory or Disk; misses are Bedrock requests
+  val queryEmbeddingCacheHits = new CountMetric("QueryEmbeddingCacheHits")
+  val queryEmbeddingCacheMisses = new CountMetric("QueryEmbeddingCacheMisses")
+  val queryEmbeddingLatency = new TimeMetric("QueryEmbeddingLatency")
+
   def searchTypeDimension(value: String): Dimension =
     Dimension.builder().name("SearchType").value(value).build()
 
@@ -0,0 +1,31 @@
+package lib
+
+import com.github.blemale.scaffeine.{Cache, Scaffeine}
+import com.gu.mediaservice.lib.aws.S3
+import com.gu.mediaservice.model.{Image, ImageFileType}
+
+import java.net.URI
+
+/**
+ * The signed S3 urls in image responses. A url signed for an expiry is the
+ * same until the expiry moves on, so an image is signed for once per expiry
+ * however many pages of results it's on, rather than on every one.
+ */
+class SignedUrls(s3: S3, maxSize: Int, shortenDownloadFilename: Boolean) {
+
+  // the content disposition is signed into the url, and is made from the image
+  private case class SignedUrl(bucket: String, uri: URI, contentDisposition: String, expiration: Long)
+
+  private val cache: Cache[SignedUrl, String] = Scaffeine()
+    .maximumSize(maxSize)
+    .build[SignedUrl, String]()
+
+  def sign(bucket: String, uri: URI, image: Image, imageType: ImageFileType): String = {
+    val contentDisposition = s3.getContentDisposition(image, imageType, shortenDownloadFilename)
+    val expiration = s3.cachableExpiration()
+    cache.get(
+      SignedUrl(bucket, uri, contentDisposition, expiration.getMillis),
+      _ => s3.signUrl(bucket, uri, contentDisposition, expiration)
+    )
+  }
+}
@@ -0,0 +1,29 @@
+package lib
+
+import java.util.concurrent.ConcurrentHashMap
+import scala.concurrent.{ExecutionContext, Future, Promise}
+import scala.util.control.NonFatal
+
+/**
+ * Shares requests that are in flight: a request made while an identical one
+ * is still running gets the same Future rather than starting another, so a
+ * burst of the same request costs one. Nothing is kept once a request
+ * completes, so the next one starts afresh.
+ */
+class SingleFlight[K, V] {
+
+  private val inFlight = new ConcurrentHashMap[K, Future[V]]()
+
+  def apply(key: K)(request: => Future[V]): Future[V] = {
+    val promise = Promise[V]()
+    inFlight.putIfAbsent(key, promise.future) match {
+      case null =>
+        promise.completeWith(try request catch { case NonFatal(e) => Future.failed(e) })
+        promise.future.onComplete(_ => inFlight.remove(key, promise.future))(ExecutionContext.parasitic)
+        promise.future
+      case shared => shared
+    }
+  }
+
+  def size: Int = inFlight.size()
+}
@@ -1,7 +1,7 @@
 package lib.elasticsearch
 
 import org.apache.pekko.actor.Scheduler
-import com.gu.mediaservice.lib.ImageFields
+import com.gu.mediaservice.lib.{FloatVector, ImageFields}
 import com.gu.mediaservice.lib.argo.model.{ExtraCount, ExtraCountConfig, ExtraCounts}
 import com.gu.mediaservice.lib.elasticsearch.filters
 import com.gu.mediaservice.lib.auth.Authentication.Principal
@@ -25,7 +25,7 @@ import com.sksamuel.elastic4s.requests.searches.queries.matches.MultiMatchQueryB
 import com.sksamuel.elastic4s.requests.searches.queries.matches.{FieldWithOptionalBoost, MultiMatchQuery}
 import lib.elasticsearch.ResultSource.{Both, Lexical, Semantic}
 import lib.querysyntax.{HierarchyField, Match, Parser, Phrase}
-import lib.{MediaApiConfig, MediaApiMetrics, SupplierUsageSummary}
+import lib.{MediaApiConfig, MediaApiMetrics, SingleFlight, SupplierUsageSummary}
 import play.api.libs.json.{JsError, JsObject, JsSuccess, Json}
 import play.api.mvc.AnyContent
 import play.api.mvc.Security.AuthenticatedRequest
@@ -34,8 +34,9 @@ import scalaz.NonEmptyList
 import scalaz.syntax.std.list._
 
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicReference
 import scala.collection.immutable.ListMap
-import scala.concurrent.duration.FiniteDuration
+import scala.concurrent.duration.{DurationInt, FiniteDuration}
 import scala.concurrent.{ExecutionContext, Future}
 
 class ElasticSearch(
@@ -94,8 +95,71 @@ class ElasticSearch(
 
   val queryBuilder = new QueryBuilder(matchFields, overQuotaAgencies, config)
 
+  private val indexGenerationRef = new AtomicReference[Option[IndexGeneration]](None)
+
+  def indexGeneration: Option[IndexGeneration] = indexGenerationRef.get()
+
+  private def refreshIndexGeneration()(implicit ex: ExecutionContext): Unit = {
+    // not with executeAndLog, which would log every second
+    client.execute(indexStats(imagesCurrentAlias)).map { r =>
+      if (r.isSuccess) {
+        val stats = r.result.indices.values.map(_.total)
+        Some(IndexGeneration(
+          migrationStatus,
+          docs = stats.map(_.docs.count).sum,
+          deletedDocs = stats.map(_.docs.deleted).sum,
+          writes = stats.map(s => s.indexing.indexTotal + s.indexing.deleteTotal).sum
+        ))
+      } else {
+        logger.warn(s"Failed to get stats of $imagesCurrentAlias for the search caches: ${r.error}")
+        None
+      }
+    }.recover { case e =>
+      logger.warn(s"Failed to get stats of $imagesCurrentAlias for the search caches", e)
+      None
+    }.foreach(indexGenerationRef.set)
+  }
+
+  private val indexGenerationRefresher = {
+    import scala.concurrent.ExecutionContext.Implicits.global
+    scheduler.scheduleAtFixedRate(initialDelay = 0.seconds, interval = 1.second) { () => refreshIndexGeneration() }
+  }
+
+  def stopIndexGenerationUpdates(): Unit = indexGenerationRefresher.cancel()
+
+  private val searchResultsCache = new SearchCache[SearchParams, SearchResults](
+    config.searchCacheResultsMaxBytes,
+    config.searchCacheTtl,
+    () => indexGeneration,
+    mediaApiMetrics.searchCacheHits,
+    mediaApiMetrics.searchCacheMisses,
+    mediaApiMetrics.searchCacheLatency,
+    List(mediaApiMetrics.searchTypeDimension("results")),
+    weigh = estimatedSize
+  )
+
+  // each hit is kept as its source and as the image read from it, which
+  // takes up about as much again
+  private def estimatedSize(results: SearchResults): Int = {
+    val bytes = results.hits.foldLeft(1024L) { case (size, (_, hit)) =>
+      size + 2 * SearchCache.estimatedSize(hit.source) + SearchCache.estimatedSize(hit.fields)
+    }
+    math.min(bytes, Int.MaxValue).toInt
+  }
+
+  private val filterCountsCache = new SearchCache[String, (Long, ExtraCounts)](
+    config.searchCacheCountsMaxSize,
+    config.searchCacheTtl,
+    () => indexGeneration,
+    mediaApiMetrics.searchCacheHits,
+    mediaApiMetrics.searchCacheMisses,
+    mediaApiMetrics.searchCacheLatency,
+    List(mediaApiMetrics.searchTypeDimension("filter-counts"))
+  )
+
+  // callers act on what this returns, such as deleting the image, so it mustn't miss a write
   def getImageById(id: String)(implicit ex: ExecutionContext, logMarker: LogMarker): Future[Option[Image]] =
-    getImageWithSourceById(id).map(_.map(_.instance))
+    getImageWithSourceById(id, fresh = true).map(_.map(_.instance))
 
   private def migrationAwareGetter[T](
     id: String,
@@ -132,13 +196,24 @@ class ElasticSearch(
     }
   }}
 
-  def getImageWithSourceById(id: String)(implicit ex: ExecutionContext, logMarker: LogMarker): Future[Option[SourceWrapper[Image]]] = {
-    migrationAwareGetter(
+  // everyone looking at an image that's just been shared around asks for it at once
+  private val imageGetsInFlight = new SingleFlight[String, Option[SourceWrapper[Image]]]
+
+  /**
+   * The image with the given id. A GET for an image that's already being
+   * fetched shares that GET, unless `fresh`, so it gets the image as it was
+   * when the shared GET started: a write that finished after then, even one
+   * that finished before this was called, can be missing. Pass `fresh` to
+   * make a GET of its own, which sees every write finished before it's made.
+   */
+  def getImageWithSourceById(id: String, fresh: Boolean = false)(implicit ex: ExecutionContext, logMarker: LogMarker): Future[Option[SourceWrapper[Image]]] = {
+    def getImage = migrationAwareGetter(
       id,
       logMessagePart = "image",
       requestFromIndexName = indexName => get(indexName, id),
       resultTransformer = (result: GetResponse) => mapImageFrom(result.sourceAsString, id, result.index)
     )
+    if (fresh) getImage else imageGetsInFlight(id)(getImage)
   }
 
   def getImageUploaderById(id: String)(implicit ex: ExecutionContext, logMarker: LogMarker): Future[Option[String]] = {
@@ -152,7 +227,9 @@ class ElasticSearch(
 
   private val isPotentiallyGraphicFieldName = "isPotentiallyGraphic"
 
-  private def resolveHit(hit: SearchHit) = mapImageFrom(
+  private def resolveHit(hit: SearchHit) = resolveProjectedHit(SearchProjection.Full)(hit)
+
+  private def resolveProjectedHit(projection: SearchProjection)(hit: SearchHit) = mapImageFrom(
     hit.sourceAsString,
     hit.id,
     hit.index,
@@ -161,7 +238,8 @@ class ElasticSearch(
       case _ => Json.obj(
         isPotentiallyGraphicFieldName -> hit.fields.get(isPotentiallyGraphicFieldName).map(_.asInstanceOf[List[Boolean]].headOption)
       )
-    }
+    },
+    projection = projection
   )
 
   def lookupIds(ids: List[String], offset: Int, length: Int)(implicit ex: ExecutionContext, logMarker: LogMarker): Future[SearchResults] = {
@@ -300,8 +378,11 @@ class ElasticSearch(
       // Resolve each side to images and fill in the client-side semantic score.
       // We keep the two sides separate so that fuseAndRank can tag each result
       // with where it originally came from (lexical, semantic, or both).
-      val lexicalResults = lexicalHits.flatMap(resolveHitAndFillInSemanticScore(_, queryEmbedding, resolveHit))
-      val semanticResults = semanticHits.flatMap(resolveHitAndFillInSemanticScore(_, queryEmbedding, resolveHit))
+      // The query embedding is scored against every hit, so unbox it and work
+      // out its magnitude once.
+      val queryVector = FloatVector(queryEmbedding)
+      val lexicalResults = lexicalHits.flatMap(resolveHitAndFillInSemanticScore(_, queryVector, resolveHit))
+      val semanticResults = semanticHits.flatMap(resolveHitAndFillInSemanticScore(_, queryVector, resolveHit))
 
       val ranked = fuseAndRank(lexicalResults, semanticResults, vecWeight, k)
       val counts = ranked.groupBy(_.source).view.mapValues(_.size).toMap.withDefaultValue(0)
@@ -369,12 +450,20 @@ class ElasticSearch(
       .size(0)
       .aggregations(extraCountAggregations)
 
-    executeAndLog(withSearchQueryTimeout(searchRequest), "hybrid AI search filter count and ticker counts").map { r =>
-      (r.result.totalHits, extraCountsFrom(r.result.aggregations))
+    // the filter is built from a search's params, so the same search makes the same request
+    filterCountsCache.getOrSearch(searchRequest.show) {
+      executeAndLog(withSearchQueryTimeout(searchRequest), "hybrid AI search filter count and ticker counts").map { r =>
+        (r.result.totalHits, extraCountsFrom(r.result.aggregations))
+      }
     }
   }
 
-  def search(params: SearchParams)(implicit ex: ExecutionContext, request: AuthenticatedRequest[AnyContent, Principal], logMarker: LogMarker = MarkerMap()): Future[SearchResults] = {
+  def search(params: SearchParams)(implicit ex: ExecutionContext, request: AuthenticatedRequest[AnyContent, Principal], logMarker: LogMarker = MarkerMap()): Future[SearchResults] =
+    // the query is searched as it parses, so queries that differ only in spacing share results.
+    // The accessor's tier is one of the params, so each tier has its own.
+    searchResultsCache.getOrSearch(params.copy(query = None))(searchElasticSearch(params))
+
+  private def searchElasticSearch(params: SearchParams)(implicit ex: ExecutionContext, logMarker: LogMarker): Future[SearchResults] = {
     val query: Query = queryBuilder.makeQuery(params.structuredQuery)
 
     val filterOpt: Option[Query] = queryBuilder.buildFilterOpt(params, searchFilters, syndicationFilter)
@@ -415,24 +504,43 @@ class ElasticSearch(
       .storedFields("_source") // this needs to be explicit when using script fields
       .scriptfields(graphicImagesScriptFields)
       .aggregations(extraCountAggregations)
-      .from(params.offset)
       .size(params.length)
-      .sortBy(sort)
+      .sortBy(sorts.withTiebreaker(sort))
 
-    executeAndLog(searchRequest, "image search").
+    // a cursor carries on after the last hit of the page before, which
+    // saves ES collecting and sorting every hit up to the offset
+    val pagedSearchRequest = params.cursor match {
+      case Some(cursor) => searchRequest.searchAfter(cursor.searchAfter)
+      case None => searchRequest.from(params.offset)
+    }
+
+    // the script fields above still see the whole of the source
+    val sourceIncludes = params.projection.sourceIncludes(aliasPaths)
+    val projectedSearchRequest =
+      if (sourceIncludes.isEmpty) pagedSearchRequest
+      else pagedSearchRequest.sourceInclude(sourceIncludes)
+
+    executeAndLog(projectedSearchRequest, "image search").
       toMetric(Some(mediaApiMetrics.searchQueries), List(mediaApiMetrics.searchTypeDimension("results")))(_.result.took).map { r =>
-      logSearchQueryIfTimedOut(searchRequest, r.result)
-      val imageHits = r.result.hits.hits.map(resolveHit).toSeq.flatten.map(i => (i.instance.id, i))
+      logSearchQueryIfTimedOut(projectedSearchRequest, r.result)
+      val hits = r.result.hits.hits
+      val imageHits = hits.map(resolveProjectedHit(params.projection)).toSeq.flatten.map(i => (i.instance.id, i))
       // setting trackTotalHits to false means we don't get any hit count at all.
       // Requester has explicitly opted into not caring about the total hits, so give them what they want (nothing).
       SearchResults(
         hits = imageHits,
         total = if (trackTotalHits) r.result.totalHits else 0,
-        extraCounts = Some(extraCountsFrom(r.result.aggregations))
+        extraCounts = Some(extraCountsFrom(r.result.aggregations)),
+        nextCursor = hits.lastOption.flatMap(_.sort).map(SearchCursor.after(params.offset + hits.length, params.orderBy, _))
       )
     }
   }
 
+  // Their search clauses are parsed now rather than on the first search, and
+  // after that come from the parse cache, a day at a time in case one has a
+  // relative date.
+  aggregationsNameToSearchClauseMap.values.foreach(extraCount => Parser.run(extraCount.searchClause))
+
   // The aggregations used to compute the ticker count badges ("GNM-owned",
   // "agency picks" etc) shown above search results.
   private def extraCountAggregations = aggregationsNameToSearchClauseMap.map {
@@ -566,10 +674,19 @@ class ElasticSearch(
     withSearchQueryTimeout(searchRequest)
   }
 
-  private def mapImageFrom(sourceAsString: String, id: String, fromIndex: String, fields: JsObject = JsObject.empty) = {
-    val source = Json.parse(sourceAsString)
-    source.validate[Image] match {
-      case i: JsSuccess[Image] => Some(SourceWrapper(source, i.value, fromIndex, fields))
+  private val aliasPaths = config.fieldAliasConfigs.map(_.elasticsearchPath)
+
+  private val imageSourceDecoder = new ImageSourceDecoder(aliasPaths)
+
+  private def mapImageFrom(
+    sourceAsString: String,
+    id: String,
+    fromIndex: String,
+    fields: JsObject = JsObject.empty,
+    projection: SearchProjection = SearchProjection.Full
+  ) = {
+    imageSourceDecoder.decode(sourceAsString, projection.omitted) match {
+      case JsSuccess((source, image), _) => Some(SourceWrapper(source, image, fromIndex, fields))
       case e: JsError =>
         logger.error("Failed to parse image from source string " + id + ": " + e.toString)
         None
@@ -13,7 +13,12 @@ import scalaz.syntax.std.list._
 
 import scala.util.Try
 
-case class SearchResults(hits: Seq[(String, SourceWrapper[Image])], total: Long, extraCounts: Option[ExtraCounts])
+case class SearchResults(
+  hits: Seq[(String, SourceWrapper[Image])],
+  total: Long,
+  extraCounts: Option[ExtraCounts],
+  nextCursor: Option[SearchCursor] = None
+)
 
 case class AggregateSearchResults(results: Seq[BucketResult], total: Long)
 
@@ -156,7 +161,9 @@ case class SearchParams(
   printUsageFilters: Option[PrintUsageFilters] = None,
   shouldFlagGraphicImages: Boolean = false,
   useAISearch: Option[Boolean] = None,
-  vecWeight: Option[Double] = None
+  vecWeight: Option[Double] = None,
+  projection: SearchProjection = SearchProjection.Full,
+  cursor: Option[SearchCursor] = None
 ) {
   lazy val aiQueryParts: Either[AiQueryError, AiQueryParts] = AiQueryParts.from(structuredQuery)
 }
@@ -217,11 +224,14 @@ object SearchParams {
       )
     }
 
+    // a cursor says which offset its page starts at
+    val cursor = request.getQueryString("cursor") flatMap SearchCursor.decode
+
     SearchParams(
       query,
       structuredQuery,
       request.getQueryString("ids").map(_.split(",").toList),
-      request.getQueryString("offset") flatMap parseIntFromQuery getOrElse 0,
+      cursor.map(_.offset) orElse (request.getQueryString("offset") flatMap parseIntFromQuery) getOrElse 0,
       request.getQueryString("length") flatMap parseIntFromQuery getOrElse 10,
       request.getQueryString("orderBy") map readOrderBy,
       request.getQueryString("since") flatMap parseDateFromQuery,
@@ -251,6 +261,8 @@ object SearchParams {
       shouldFlagGraphicImages = false,
       request.getQueryString("useAISearch") flatMap parseBooleanFromQuery,
       request.getQueryString("vecWeight") flatMap parseBoundedDoubleFromQuery,
+      request.getQueryString("projection") flatMap SearchProjection.fromName getOrElse SearchProjection.Full,
+      cursor,
     )
   }
 
@@ -279,7 +291,8 @@ object SearchParams {
       "hasMetadata"       -> listToCommas(searchParams.hasMetadata),
       "persisted"         -> searchParams.persisted.map(_.toString),
       "usageStatus"       -> listToCommas(searchParams.usageStatus.map(_.toString)),
-      "usagePlatform"     -> listToCommas(searchParams.usagePlatform)
+      "usagePlatform"     -> listToCommas(searchParams.usagePlatform),
+      "projection"        -> Some(searchParams.projection).filter(_ != SearchProjection.Full).map(_.name)
     ).foldLeft(Map[String, String]()) {
       case (acc, (key, Some(value))) => acc + (key -> value)
       case (acc, (_,   None))        => acc
@@ -306,4 +319,11 @@ object SearchParams {
     if (searchParams.length > maxSize) Left(InvalidUriParams(s"length cannot exceed $maxSize")) else Right(searchParams)
   }
 
+  // a cursor's sort values are only good for a search in the order it came from
+  def validateCursor(searchParams: SearchParams): Either[InvalidUriParams, SearchParams] = searchParams.cursor match {
+    case Some(cursor) if cursor.orderBy != searchParams.orderBy =>
+      Left(InvalidUriParams(s"cursor is for results in ${cursor.orderBy.getOrElse("the default")} order, not ${searchParams.orderBy.getOrElse("the default")} order"))
+    case _ => Right(searchParams)
+  }
+
 }
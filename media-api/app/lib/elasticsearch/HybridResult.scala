@@ -1,6 +1,6 @@
 package lib.elasticsearch
 
-import com.gu.mediaservice.lib.VectorUtils
+import com.gu.mediaservice.lib.FloatVector
 import com.gu.mediaservice.lib.logging.{GridLogging, LogMarker}
 import com.gu.mediaservice.model.Image
 import com.sksamuel.elastic4s.requests.searches.SearchHit
@@ -48,7 +48,7 @@ object HybridResult extends GridLogging {
 
   def resolveHitAndFillInSemanticScore(
     hit: SearchHit,
-    queryEmbedding: List[Double],
+    queryEmbedding: FloatVector,
     resolveHit: SearchHit => Option[SourceWrapper[Image]]
   )(implicit logMarker: LogMarker): Option[HybridResult] =
     resolveHit(hit).map { image =>
@@ -60,7 +60,7 @@ object HybridResult extends GridLogging {
         // Note this is true cosine similarity from -1 to 1,
         // *not* the ES-normalised score, but when we normalise
         // later it will end up in the range 0-1.
-        .flatMap(e => VectorUtils.cosineSimilarity(e.image, queryEmbedding))
+        .flatMap(e => FloatVector(e.image).cosineSimilarity(queryEmbedding))
         // cosineSimilarity is None when there's no usable semantic signal (a
         // missing, mismatched, or zero-magnitude embedding), all of which fall
         // through to the theoretical min.
@@ -112,21 +112,32 @@ object HybridResult extends GridLogging {
     // A side benefit is that this also accounts for the rare case in which KNN
     // doesn't contain the true closest vector, and that true closest vector
     // happens to be among the lexical-only results.
-    (for {
-      maxLexicalScore <- distinctResults.map(_.lexicalScore).maxOption
-      maxSemanticScore <- distinctResults.map(_.semanticScore).maxOption
-    } yield {
-      distinctResults
-        .map { result =>
-          RankedResult(
-            result = result,
-            source = ResultSource.from(lexicalIds.contains(result.id), semanticIds.contains(result.id)),
-            score = fuseScores(result, maxLexicalScore, maxSemanticScore, vecWeight)
-          )
-        }
-        .sortBy(_.score.fusedScore)(Ordering[Double].reverse)
-        .take(k)
-    }).getOrElse(List())
+    if (distinctResults.isEmpty) List()
+    else {
+      var maxLexicalScore = Double.NegativeInfinity
+      var maxSemanticScore = Double.NegativeInfinity
+      distinctResults.foreach { result =>
+        if (result.lexicalScore > maxLexicalScore) maxLexicalScore = result.lexicalScore
+        if (result.semanticScore > maxSemanticScore) maxSemanticScore = result.semanticScore
+      }
+
+      val ranked = distinctResults.iterator.map { result =>
+        RankedResult(
+          result = result,
+          source = ResultSource.from(lexicalIds.contains(result.id), semanticIds.contains(result.id)),
+          score = fuseScores(result, maxLexicalScore, maxSemanticScore, vecWeight)
+        )
+      }.toArray
+      // stable, as sortBy is, so ties keep the order they came in
+      java.util.Arrays.sort(ranked, ByFusedScoreDescending)
+      ranked.iterator.take(k).toList
+    }
+  }
+
+  // Compares the primitive scores, where Ordering[Double] would box them
+  private object ByFusedScoreDescending extends java.util.Comparator[RankedResult] {
+    def compare(a: RankedResult, b: RankedResult): Int =
+      java.lang.Double.compare(b.score.fusedScore, a.score.fusedScore)
   }
 
   // Renders the full ranked output as an aligned table, ordered as given
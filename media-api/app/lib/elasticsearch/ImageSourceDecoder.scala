@@ -0,0 +1,307 @@
+package lib.elasticsearch
+
+import com.fasterxml.jackson.core.{JsonFactory, JsonParser, JsonToken}
+import com.gu.mediaservice.model.{CohereV3Embedding, CohereV4Embedding, Embedding, FileMetadata, Image}
+import play.api.libs.json._
+
+import java.math.MathContext
+import scala.collection.mutable.ListBuffer
+
+/**
+ * Reads an Image from the `_source` of an ES document as a stream of
+ * tokens, rather than parsing the whole document into a JsValue tree and
+ * validating that.
+ *
+ * `fileMetadata` and `embedding` are most of a document, so they're read
+ * straight into their model classes: there's never a tree of every
+ * metadata field, and the vector's numbers never become BigDecimals. The
+ * other fields are small and go through `Image.ImageReads` as before. If
+ * either of the big ones isn't shaped the way its Reads expects, its raw
+ * text is parsed and handed to those Reads instead, so the image, or the
+ * error, is the same as from `Json.parse(source).validate[Image]`.
+ *
+ * The JsObject returned with the image holds only the parts of the document
+ * that the alias paths reach, since that's all anything reads from the
+ * source once the image has been decoded.
+ *
+ * Fields a search projection omitted are left at their defaults in the
+ * image. ES may still have sent the parts of them along the alias paths,
+ * which are selected but not decoded.
+ */
+class ImageSourceDecoder(aliasPaths: Seq[String]) {
+  import ImageSourceDecoder._
+
+  // split the same way as in ImageResponse.extractAliasFieldValues
+  private val paths: List[List[String]] = aliasPaths.map(_.split('.').toList.filter(_.nonEmpty)).toList
+
+  def decode(source: String, omitted: Set[String] = Set.empty): JsResult[(JsObject, Image)] = {
+    val parser = factory.createParser(source)
+    try {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        // not an object, so not an image; let the usual Reads say why
+        Json.parse(source).validate[Image].map(image => (JsObject.empty, image))
+      } else {
+        val fields = ListBuffer.empty[(String, JsValue)]
+        val selected = ListBuffer.empty[(String, JsValue)]
+        var fileMetadata: Option[FileMetadata] = None
+        var embedding: Option[Option[Embedding]] = None
+
+        while (parser.nextToken() != JsonToken.END_OBJECT) {
+          val name = parser.currentName()
+          val below = paths.collect { case `name` :: rest => rest }
+          parser.nextToken()
+          name match {
+            case _ if omitted.contains(name) =>
+              if (below.nonEmpty)
+                select(parser, below).foreach(value => selected += name -> value)
+              else
+                parser.skipChildren()
+
+            case "fileMetadata" | "embedding" if parser.currentToken() == JsonToken.START_OBJECT =>
+              val start = parser.currentTokenLocation().getCharOffset().toInt
+              val decoded = name match {
+                case "fileMetadata" =>
+                  fileMetadata = readFileMetadata(parser)
+                  fileMetadata.isDefined
+                case _ =>
+                  embedding = readEmbedding(parser).map(Some(_))
+                  embedding.isDefined
+              }
+              val end = parser.currentTokenLocation().getCharOffset().toInt + 1
+              if (!decoded)
+                fields += name -> Json.parse(source.substring(start, end))
+              if (below.nonEmpty)
+                select(source.substring(start, end), below).foreach(value => selected += name -> value)
+
+            case _ =>
+              val value = readValue(parser)
+              fields += name -> value
+              if (below.nonEmpty)
+                selected += name -> value
+          }
+        }
+
+        JsObject(fields.toList).validate[Image].map { image =>
+          (JsObject(selected.toList), image.copy(
+            fileMetadata = fileMetadata.getOrElse(image.fileMetadata),
+            embedding = embedding.getOrElse(image.embedding)
+          ))
+        }
+      }
+    } finally {
+      parser.close()
+    }
+  }
+}
+
+object ImageSourceDecoder {
+  private val factory = new JsonFactory()
+
+  // what Json.parse reads numbers with
+  private val numberContext = MathContext.DECIMAL128
+
+  // Each of these reads the value the parser is at, leaving it at the
+  // value's last token. The ones returning an Option give None, having
+  // skipped the value, if it isn't what the model's Reads would accept.
+
+  private def readValue(parser: JsonParser): JsValue = parser.currentToken() match {
+    case JsonToken.START_OBJECT =>
+      val fields = ListBuffer.empty[(String, JsValue)]
+      while (parser.nextToken() != JsonToken.END_OBJECT) {
+        val name = parser.currentName()
+        parser.nextToken()
+        fields += name -> readValue(parser)
+      }
+      JsObject(fields.toList)
+    case JsonToken.START_ARRAY =>
+      val values = Vector.newBuilder[JsValue]
+      while (parser.nextToken() != JsonToken.END_ARRAY)
+        values += readValue(parser)
+      JsArray(values.result())
+    case JsonToken.VALUE_STRING => JsString(parser.getText())
+    case JsonToken.VALUE_NUMBER_INT | JsonToken.VALUE_NUMBER_FLOAT => JsNumber(BigDecimal(parser.getText(), numberContext))
+    case JsonToken.VALUE_TRUE => JsTrue
+    case JsonToken.VALUE_FALSE => JsFalse
+    case JsonToken.VALUE_NULL => JsNull
+    case token => throw new IllegalStateException(s"Unexpected $token reading image source")
+  }
+
+  private def readStringMap(parser: JsonParser): Option[Map[String, String]] =
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren()
+      None
+    } else {
+      val values = Map.newBuilder[String, String]
+      var allStrings = true
+      while (parser.nextToken() != JsonToken.END_OBJECT) {
+        val name = parser.currentName()
+        if (parser.nextToken() == JsonToken.VALUE_STRING) {
+          values += name -> parser.getText()
+        } else {
+          allStrings = false
+          parser.skipChildren()
+        }
+      }
+      if (allStrings) Some(values.result()) else None
+    }
+
+  private def readNullableStringMap(parser: JsonParser): Option[Map[String, String]] =
+    if (parser.currentToken() == JsonToken.VALUE_NULL) Some(Map.empty) else readStringMap(parser)
+
+  private def readValueMap(parser: JsonParser): Option[Map[String, JsValue]] =
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren()
+      None
+    } else {
+      val values = Map.newBuilder[String, JsValue]
+      while (parser.nextToken() != JsonToken.END_OBJECT) {
+        val name = parser.currentName()
+        parser.nextToken()
+        values += name -> readValue(parser)
+      }
+      Some(values.result())
+    }
+
+  private def readNullableString(parser: JsonParser): Option[Option[String]] = parser.currentToken() match {
+    case JsonToken.VALUE_STRING => Some(Some(parser.getText()))
+    case JsonToken.VALUE_NULL => Some(None)
+    case _ =>
+      parser.skipChildren()
+      None
+  }
+
+  // as FileMetadata.ImageMetadataReads would read it
+  private def readFileMetadata(parser: JsonParser): Option[FileMetadata] = {
+    var iptc: Option[Map[String, String]] = None
+    var exif: Option[Map[String, String]] = None
+    var exifSub: Option[Map[String, String]] = None
+    var xmp: Option[Map[String, JsValue]] = None
+    var icc: Option[Map[String, String]] = Some(Map.empty)
+    var getty: Option[Map[String, String]] = Some(Map.empty)
+    var colourModel: Option[Option[String]] = Some(None)
+    var colourModelInformation: Option[Map[String, String]] = Some(Map.empty)
+
+    while (parser.nextToken() != JsonToken.END_OBJECT) {
+      val name = parser.currentName()
+      parser.nextToken()
+      name match {
+        case "iptc" => iptc = readStringMap(parser)
+        case "exif" => exif = readStringMap(parser)
+        case "exifSub" => exifSub = readStringMap(parser)
+        case "xmp" => xmp = readValueMap(parser)
+        case "icc" => icc = readNullableStringMap(parser)
+        case "getty" => getty = readNullableStringMap(parser)
+        case "colourModel" => colourModel = readNullableString(parser)
+        case "colourModelInformation" => colourModelInformation = readNullableStringMap(parser)
+        case _ => parser.skipChildren()
+      }
+    }
+
+    for {
+      iptcValues <- iptc
+      exifValues <- exif
+      exifSubValues <- exifSub
+      xmpValues <- xmp
+      iccValues <- icc
+      gettyValues <- getty
+      colourModelValue <- colourModel
+      colourModelInformationValues <- colourModelInformation
+    } yield FileMetadata(
+      iptc = iptcValues,
+      exif = exifValues,
+      exifSub = exifSubValues,
+      xmp = xmpValues,
+      icc = iccValues,
+      getty = gettyValues,
+      colourModel = colourModelValue,
+      colourModelInformation = colourModelInformationValues
+    )
+  }
+
+  // as Embedding.format would read it
+  private def readEmbedding(parser: JsonParser): Option[Embedding] = {
+    var cohereEmbedEnglishV3: Option[Option[List[Double]]] = Some(None)
+    var cohereEmbedV4: Option[Option[List[Double]]] = Some(None)
+
+    while (parser.nextToken() != JsonToken.END_OBJECT) {
+      val name = parser.currentName()
+      parser.nextToken()
+      name match {
+        case "cohereEmbedEnglishV3" => cohereEmbedEnglishV3 = readNullableVector(parser)
+        case "cohereEmbedV4" => cohereEmbedV4 = readNullableVector(parser)
+        case _ => parser.skipChildren()
+      }
+    }
+
+    for {
+      v3 <- cohereEmbedEnglishV3
+      v4 <- cohereEmbedV4
+    } yield Embedding(
+      cohereEmbedEnglishV3 = v3.map(CohereV3Embedding(_)),
+      cohereEmbedV4 = v4.map(CohereV4Embedding(_))
+    )
+  }
+
+  // the `image` vector of a CohereV3Embedding or CohereV4Embedding
+  private def readNullableVector(parser: JsonParser): Option[Option[List[Double]]] = parser.currentToken() match {
+    case JsonToken.VALUE_NULL => Some(None)
+    case JsonToken.START_OBJECT =>
+      var image: Option[List[Double]] = None
+      while (parser.nextToken() != JsonToken.END_OBJECT) {
+        val name = parser.currentName()
+        parser.nextToken()
+        if (name == "image") image = readDoubles(parser) else parser.skipChildren()
+      }
+      image.map(Some(_))
+    case _ =>
+      parser.skipChildren()
+      None
+  }
+
+  private def readDoubles(parser: JsonParser): Option[List[Double]] =
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren()
+      None
+    } else {
+      val values = List.newBuilder[Double]
+      var allNumbers = true
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        if (parser.currentToken().isNumeric()) {
+          values += parser.getDoubleValue()
+        } else {
+          allNumbers = false
+          parser.skipChildren()
+        }
+      }
+      if (allNumbers) Some(values.result()) else None
+    }
+
+  // the parts of a JSON value that lie along the paths, or None if none of them are there
+  private def select(json: String, paths: List[List[String]]): Option[JsValue] = {
+    val parser = factory.createParser(json)
+    try {
+      parser.nextToken()
+      select(parser, paths)
+    } finally {
+      parser.close()
+    }
+  }
+
+  private def select(parser: JsonParser, paths: List[List[String]]): Option[JsValue] =
+    if (paths.contains(Nil)) {
+      Some(readValue(parser))
+    } else if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren()
+      None
+    } else {
+      val selected = ListBuffer.empty[(String, JsValue)]
+      while (parser.nextToken() != JsonToken.END_OBJECT) {
+        val name = parser.currentName()
+        val below = paths.collect { case `name` :: rest => rest }
+        parser.nextToken()
+        if (below.isEmpty) parser.skipChildren()
+        else select(parser, below).foreach(value => selected += name -> value)
+      }
+      if (selected.isEmpty) None else Some(JsObject(selected.toList))
+    }
+}
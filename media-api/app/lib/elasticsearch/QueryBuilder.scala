@@ -1,5 +1,6 @@
 package lib.elasticsearch
 
+import com.github.blemale.scaffeine.{Cache, Scaffeine}
 import com.gu.mediaservice.lib.ImageFields
 import com.gu.mediaservice.lib.elasticsearch.filters
 import com.gu.mediaservice.lib.formatting.printDateTime
@@ -17,6 +18,13 @@ import scalaz.syntax.std.list._
 
 class QueryBuilder(matchFields: Seq[String], overQuotaAgencies: () => List[Agency], config: MediaApiConfig) extends ImageFields with GridLogging {
 
+  // The queries built for recent conditions. Everything else they're built
+  // from is config, but is:under-quota depends on which agencies are over
+  // quota now, so that's part of the key.
+  private val builtQueries: Cache[(List[Condition], List[Agency]), Query] = Scaffeine()
+    .maximumSize(10000)
+    .build[(List[Condition], List[Agency]), Query]()
+
   def resolveFieldPath(field: String): String = {
     config.fieldAliasConfigs.find(_.alias == field) match {
       case Some(x) => x.elasticsearchPath
@@ -89,7 +97,10 @@ class QueryBuilder(matchFields: Seq[String], overQuotaAgencies: () => List[Agenc
       matchNoneQuery()
   }
 
-  def makeQuery(conditions: List[Condition]) = conditions match {
+  def makeQuery(conditions: List[Condition]): Query =
+    builtQueries.get((conditions, overQuotaAgencies()), _ => buildQuery(conditions))
+
+  private def buildQuery(conditions: List[Condition]): Query = conditions match {
     case Nil => matchAllQuery()
     case condList => {
 
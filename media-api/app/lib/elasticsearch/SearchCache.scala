@@ -0,0 +1,86 @@
+package lib.elasticsearch
+
+import com.github.blemale.scaffeine.{AsyncCache, Scaffeine}
+import com.gu.mediaservice.lib.elasticsearch.MigrationStatus
+import com.gu.mediaservice.lib.logging.Stopwatch
+import com.gu.mediaservice.lib.metrics.{CacheMetrics, Metric}
+import lib.SingleFlight
+import play.api.libs.json.{JsArray, JsObject, JsString, JsValue}
+import software.amazon.awssdk.services.cloudwatch.model.Dimension
+
+import scala.concurrent.duration.FiniteDuration
+import scala.concurrent.{ExecutionContext, Future}
+
+/**
+ * What the searched indices held when it was last looked at, so a result
+ * searched at one generation can be served again for as long as the
+ * generation is the same. Document counts alone can miss a write, such as an
+ * update whose deleted copy has since been merged away, so the generation
+ * also counts every document indexed or deleted, which moves on every write.
+ *
+ * A write moves the generation as soon as it's indexed, which can be up to
+ * a refresh interval before searches see it. A search made in that window
+ * is kept at the new generation without the write, until the next write or
+ * the TTL.
+ */
+case class IndexGeneration(migrationStatus: MigrationStatus, docs: Long, deletedDocs: Long, writes: Long)
+
+/**
+ * Recent search results, kept for a short time so that a burst of the same
+ * search, such as every open grid polling the default view, costs one ES
+ * request. Searches made at the same time share the one request.
+ *
+ * Results are kept against the index generation they were searched at, so a
+ * write to the index stops them being served, and the TTL bounds how stale a
+ * result can get if a write is missed. With no generation to go on, nothing
+ * is kept, but searches made at the same time still share one request.
+ *
+ * The cache keeps results up to a total weight of `maxWeight`, each result
+ * weighing what `weigh` makes of it: by default one, so that `maxWeight` is
+ * a number of results, or an estimate of its size in bytes, for results that
+ * vary a lot in size.
+ */
+class SearchCache[K, V](
+  maxWeight: Long,
+  ttl: FiniteDuration,
+  generation: () => Option[IndexGeneration],
+  hits: Metric[Long],
+  misses: Metric[Long],
+  latency: Metric[Long],
+  dimensions: List[Dimension] = Nil,
+  weigh: V => Int = (_: V) => 1
+) {
+
+  private val cache: AsyncCache[(IndexGeneration, K), V] = Scaffeine()
+    .maximumWeight(maxWeight)
+    .weigher[(IndexGeneration, K), V]((_, results) => weigh(results))
+    .expireAfterWrite(ttl)
+    .buildAsync[(IndexGeneration, K), V]()
+
+  private val inFlight = new SingleFlight[K, V]
+
+  def getOrSearch(key: K)(search: => Future[V])(implicit ex: ExecutionContext): Future[V] = generation() match {
+    case None => inFlight(key)(search)
+    case Some(indexGeneration) =>
+      val stopwatch = Stopwatch.start
+      val results = CacheMetrics.getFuture(cache, (indexGeneration, key))(_ => search)(
+        onHit = hits.recordOne(1, dimensions),
+        onMiss = misses.recordOne(1, dimensions)
+      )
+      results.foreach(_ => latency.recordOne(stopwatch.elapsed.toMillis, dimensions))
+      results
+  }
+}
+
+object SearchCache {
+  /**
+   * Roughly how many bytes a parsed JSON document takes up on the heap: a
+   * few words for each value, and two bytes a character for strings and keys.
+   */
+  def estimatedSize(json: JsValue): Long = json match {
+    case JsString(value) => 40 + 2L * value.length
+    case JsArray(values) => values.foldLeft(32L)(_ + estimatedSize(_))
+    case obj: JsObject => obj.value.foldLeft(48L) { case (size, (key, value)) => size + 32 + 2L * key.length + estimatedSize(value) }
+    case _ => 16
+  }
+}
@@ -0,0 +1,58 @@
+package lib.elasticsearch
+
+import play.api.libs.json._
+
+import java.nio.charset.StandardCharsets
+import java.util.Base64
+import scala.util.Try
+
+/**
+ * Where a page of search results starts: the sort values of the last hit on
+ * the page before, which ES searches after, and the page's offset. The
+ * cursor also carries the `orderBy` of the search it came from, since sort
+ * values only mean anything to a search sorted the same way.
+ *
+ * ES pages by offset by collecting and sorting `offset + length` hits on every
+ * shard, so that gets slower the deeper the page. Searching after the last
+ * hit costs the same on every page. Clients get a cursor in the `next` link
+ * and pass it back as it is, so they don't need to know what's in it.
+ */
+case class SearchCursor(offset: Int, orderBy: Option[String], after: List[JsValue]) {
+
+  def searchAfter: Seq[Any] = after.map {
+    case JsNumber(n) if n.isValidLong => n.toLongExact
+    case JsNumber(n) => n.toDouble
+    case JsString(s) => s
+    case JsBoolean(b) => b
+    case _ => null
+  }
+
+  def encode: String = Base64.getUrlEncoder.withoutPadding.encodeToString(
+    Json.stringify(Json.obj("offset" -> offset, "orderBy" -> orderBy, "after" -> after)).getBytes(StandardCharsets.UTF_8)
+  )
+}
+
+object SearchCursor {
+
+  // the cursor for the page after one of hits, from the sort values of its last hit
+  def after(offset: Int, orderBy: Option[String], sortValues: Seq[AnyRef]): SearchCursor =
+    SearchCursor(offset, orderBy, sortValues.map(toJson).toList)
+
+  def decode(cursor: String): Option[SearchCursor] = Try {
+    val json = Json.parse(Base64.getUrlDecoder.decode(cursor))
+    // null for the default order, but there must be one
+    val orderBy = (json \ "orderBy").get match {
+      case JsNull => None
+      case value => Some(value.as[String])
+    }
+    SearchCursor((json \ "offset").as[Int], orderBy, (json \ "after").as[List[JsValue]])
+  }.toOption.filter(cursor => cursor.offset >= 0 && cursor.after.nonEmpty)
+
+  private def toJson(value: AnyRef): JsValue = value match {
+    case null => JsNull
+    case s: String => JsString(s)
+    case b: java.lang.Boolean => JsBoolean(b)
+    case n: java.lang.Number => JsNumber(BigDecimal(n.toString))
+    case other => JsString(other.toString)
+  }
+}
@@ -0,0 +1,67 @@
+package lib.elasticsearch
+
+/**
+ * How much of each image a search brings back from ES and writes into its
+ * response, chosen with the `projection` parameter of an image search.
+ *
+ * `full` is the whole image. `grid-tile` is everything the grid view shows,
+ * which leaves out the file metadata and the embedding: most of a document,
+ * and never displayed on a results page. Whatever the configured field aliases
+ * point at is still fetched, so aliases keep their values.
+ */
+case class SearchProjection(name: String, omitted: Set[String]) {
+  def omits(field: String): Boolean = omitted.contains(field)
+
+  // fields asked for with `include`, such as fileMetadata, are brought back
+  def including(fields: List[String]): SearchProjection = copy(omitted = omitted -- fields)
+
+  /**
+   * The `_source` includes for a search, or Nil for all of it. ES always drops
+   * what an exclude matches, even under an include, so the omitted fields are
+   * left out by listing everything else, and then any alias path that isn't
+   * under one of those: beneath an omitted field, or at a top level field the
+   * image doesn't read, such as usagesPlatform.
+   */
+  def sourceIncludes(aliasPaths: Seq[String]): Seq[String] =
+    if (omitted.isEmpty) Nil
+    else {
+      val included = SearchProjection.imageFields.filterNot(omits)
+      included ++ aliasPaths.filterNot(path => included.contains(path.takeWhile(_ != '.'))).distinct
+    }
+}
+
+object SearchProjection {
+  val Full = SearchProjection("full", Set.empty)
+  val GridTile = SearchProjection("grid-tile", Set("fileMetadata", "embedding"))
+
+  val all = List(Full, GridTile)
+
+  def fromName(name: String): Option[SearchProjection] = all.find(_.name == name)
+
+  // the top level fields of an image document that Image.ImageReads reads
+  val imageFields: Seq[String] = Seq(
+    "id",
+    "uploadTime",
+    "uploadedBy",
+    "softDeletedMetadata",
+    "lastModified",
+    "identifiers",
+    "uploadInfo",
+    "source",
+    "thumbnail",
+    "optimisedPng",
+    "fileMetadata",
+    "userMetadata",
+    "metadata",
+    "originalMetadata",
+    "usageRights",
+    "originalUsageRights",
+    "exports",
+    "usages",
+    "leases",
+    "collections",
+    "syndicationRights",
+    "userMetadataLastModified",
+    "embedding"
+  )
+}
@@ -2,5 +2,8 @@ package lib.elasticsearch
 
 import play.api.libs.json.{JsObject, JsValue}
 
-/** A simple case class that carries the original ES source data with the deserialised instance */
+/**
+ * A simple case class that carries the ES source data with the deserialised instance. Only the
+ * parts of the source that are read back, along the field alias paths, need be in `source`.
+ */
 case class SourceWrapper[T](source: JsValue, instance: T, fromIndex: String, fields: JsObject = JsObject.empty)
@@ -6,6 +6,7 @@ import com.sksamuel.elastic4s.requests.searches.sort.{Sort, SortOrder}
 object sorts {
 
   private val UploadTimeDescending: Sort = fieldSort("uploadTime").order(SortOrder.DESC)
+  private val IdAscending: Sort = fieldSort("id").order(SortOrder.ASC)
   private val HasDescFieldPrefix = "-(.+)".r
   // extensible list of sort field replacements
   private val SortReplacements = List(
@@ -16,6 +17,10 @@ object sorts {
     sortBy.fold(Seq(UploadTimeDescending))(parseSortBy)
   }
 
+  // Orders hits that sort the same by id, so that every hit has its own sort
+  // values and searching after the last of a page starts exactly where it left off
+  def withTiebreaker(sort: Seq[Sort]): Seq[Sort] = sort :+ IdAscending
+
   // This is a special case in the elastic1 code which does not fit well as it also effects the query criteria
   def dateAddedToCollectionDescending: Seq[Sort] = Seq(fieldSort("collections.actionData.date").order(SortOrder.DESC))
 
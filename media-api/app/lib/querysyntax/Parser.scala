@@ -1,24 +1,46 @@
 package lib.querysyntax
 
+import com.github.blemale.scaffeine.{Cache, Scaffeine}
+import org.joda.time.DateTime
+
+import scala.concurrent.duration.DurationInt
+
 object Parser {
 
+  // The queries of recent searches, which come round again as people page
+  // through and refine them. "date:today" means something else tomorrow, so
+  // a query is kept against the day it was parsed on.
+  private val parsedQueries: Cache[(DateTime, String), List[Condition]] = Scaffeine()
+    .maximumSize(10000)
+    .expireAfterWrite(1.day)
+    .build[(DateTime, String), List[Condition]]()
+
   private val thingsToHideByDefault = List(
     "is:deleted",
     "usages@status:replaced"
   )
 
   def run(input: String): List[Condition] = {
+    val today = DateTime.now.withTimeAtStartOfDay
+    parsedQueries.get((today, input), _ => run(input, today))
+  }
+
+  private def run(input: String, today: DateTime): List[Condition] = {
     normalise(
       parse(
         thingsToHideByDefault.fold(input)((input, thingToHide) =>
           if(input.contains(thingToHide)) input
           else input.concat(s" -$thingToHide").trim
-        ))
+        ),
+        today
+      )
     )
   }
 
-  def parse(input: String): List[Condition] =
-    new QuerySyntax(input.trim).Query.run().map(_.toList) getOrElse List()
+  def parse(input: String): List[Condition] = parse(input, DateTime.now.withTimeAtStartOfDay)
+
+  private def parse(input: String, today: DateTime): List[Condition] =
+    new QuerySyntax(input.trim, today).Query.run().map(_.toList) getOrElse List()
 
   // Post-hoc normalisation that are harder to do via the PEG grammar
   def normalise(conditions: List[Condition]): List[Condition] = conditions match {
@@ -7,11 +7,11 @@ import org.parboiled2._
 
 case class InvalidQuery(message: String) extends Exception(message)
 
-class QuerySyntax(val input: ParserInput) extends Parser with ImageFields {
+// `today` is what relative dates like "yesterday" are relative to
+class QuerySyntax(val input: ParserInput, val today: DateTime = DateTime.now.withTimeAtStartOfDay) extends Parser with ImageFields {
 
   val beginningOfTime = new DateTime(0L)
 
-  def today = DateTime.now.withTimeAtStartOfDay
   def tomorrow = today.plusDays(1)
   def yesterday = today.minusDays(1)
 
@@ -0,0 +1,85 @@
+package lib
+
+import org.scalatest.concurrent.{Eventually, ScalaFutures}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{CountDownLatch, Executors}
+import scala.concurrent.{ExecutionContext, Future, Promise}
+
+class SingleFlightTest extends AnyFunSpec with Matchers with ScalaFutures with Eventually {
+
+  // stands in for ES, counting the gets it's asked for and answering when told to
+  class CountingGetter {
+    val gets = new AtomicInteger(0)
+    private val response = Promise[String]()
+    def get(id: String): Future[String] = {
+      gets.incrementAndGet()
+      response.future.map(r => s"$r $id")(ExecutionContext.parasitic)
+    }
+    def respond(): Unit = response.success("image")
+  }
+
+  describe("SingleFlight") {
+    it("should make one request for concurrent identical requests") {
+      val flights = new SingleFlight[String, String]
+      val es = new CountingGetter
+      val clients = 50
+      val pool = Executors.newFixedThreadPool(clients)
+      implicit val ec: ExecutionContext = ExecutionContext.fromExecutor(pool)
+
+      try {
+        val start = new CountDownLatch(1)
+        val waiting = new AtomicInteger(0)
+        val requests = (1 to clients).map { _ =>
+          Future {
+            start.await()
+            val image = flights("viral-image")(es.get("viral-image"))
+            waiting.incrementAndGet()
+            image
+          }.flatten
+        }
+        start.countDown()
+
+        eventually(waiting.get shouldBe clients)
+        es.respond()
+
+        Future.sequence(requests).futureValue shouldBe Seq.fill(clients)("image viral-image")
+        es.gets.get shouldBe 1
+        flights.size shouldBe 0
+      } finally {
+        pool.shutdown()
+      }
+    }
+
+    it("should make separate requests for different keys") {
+      val flights = new SingleFlight[String, String]
+      val es = new CountingGetter
+
+      val first = flights("image-1")(es.get("image-1"))
+      val second = flights("image-2")(es.get("image-2"))
+      es.respond()
+
+      first.futureValue shouldBe "image image-1"
+      second.futureValue shouldBe "image image-2"
+      es.gets.get shouldBe 2
+    }
+
+    it("should make a new request once the one in flight has completed") {
+      val flights = new SingleFlight[String, String]
+      val gets = new AtomicInteger(0)
+
+      flights("image")(Future.successful(gets.incrementAndGet().toString)).futureValue shouldBe "1"
+      flights("image")(Future.successful(gets.incrementAndGet().toString)).futureValue shouldBe "2"
+    }
+
+    it("should share a failure, then make a new request") {
+      val flights = new SingleFlight[String, String]
+
+      flights("image")(throw new RuntimeException("ES unavailable")).failed.futureValue.getMessage shouldBe "ES unavailable"
+      flights("image")(Future.successful("image")).futureValue shouldBe "image"
+      flights.size shouldBe 0
+    }
+  }
+}
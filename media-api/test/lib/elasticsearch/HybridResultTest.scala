@@ -1,5 +1,6 @@
 package lib.elasticsearch
 
+import com.gu.mediaservice.lib.FloatVector
 import com.gu.mediaservice.lib.logging.{LogMarker, MarkerMap}
 import com.gu.mediaservice.model.{CohereV4Embedding, Embedding, Handout, Image}
 import com.sksamuel.elastic4s.requests.searches.SearchHit
@@ -63,7 +64,7 @@ class HybridResultTest extends AnyFunSpec with Matchers with OptionValues with T
     it("returns None when the hit cannot be resolved to an image") {
       val result = resolveHitAndFillInSemanticScore(
         searchHit("img-1", score = 3.0f),
-        queryEmbedding = List(1.0, 0.0),
+        queryEmbedding = FloatVector(List(1.0, 0.0)),
         resolveHit = resolveToNothing
       )
       result should be(None)
@@ -73,7 +74,7 @@ class HybridResultTest extends AnyFunSpec with Matchers with OptionValues with T
       val image = imageWithEmbedding("img-1", embedding = Some(List(1.0, 0.0)))
       val result = resolveHitAndFillInSemanticScore(
         searchHit("img-1", score = 4.2f),
-        queryEmbedding = List(1.0, 0.0),
+        queryEmbedding = FloatVector(List(1.0, 0.0)),
         resolveHit = resolveTo(image)
       ).value
 
@@ -86,7 +87,7 @@ class HybridResultTest extends AnyFunSpec with Matchers with OptionValues with T
       val image = imageWithEmbedding("img-1", embedding = Some(List(0.0, 1.0)))
       val result = resolveHitAndFillInSemanticScore(
         searchHit("img-1", score = 1.0f),
-        queryEmbedding = List(1.0, 0.0),
+        queryEmbedding = FloatVector(List(1.0, 0.0)),
         resolveHit = resolveTo(image)
       ).value
 
@@ -97,7 +98,7 @@ class HybridResultTest extends AnyFunSpec with Matchers with OptionValues with T
       val image = imageWithEmbedding("img-1", embedding = Some(List(3.0, 4.0)))
       val result = resolveHitAndFillInSemanticScore(
         searchHit("img-1", score = 1.0f),
-        queryEmbedding = List(6.0, 8.0),
+        queryEmbedding = FloatVector(List(6.0, 8.0)),
         resolveHit = resolveTo(image)
       ).value
 
@@ -108,7 +109,7 @@ class HybridResultTest extends AnyFunSpec with Matchers with OptionValues with T
       val image = imageWithEmbedding("img-1", embedding = Some(List(-1.0, 0.0)))
       val result = resolveHitAndFillInSemanticScore(
         searchHit("img-1", score = 1.0f),
-        queryEmbedding = List(1.0, 0.0),
+        queryEmbedding = FloatVector(List(1.0, 0.0)),
         resolveHit = resolveTo(image)
       ).value
 
@@ -119,7 +120,7 @@ class HybridResultTest extends AnyFunSpec with Matchers with OptionValues with T
       val image = imageWithEmbedding("img-1", embedding = None)
       val result = resolveHitAndFillInSemanticScore(
         searchHit("img-1", score = 1.0f),
-        queryEmbedding = List(1.0, 0.0),
+        queryEmbedding = FloatVector(List(1.0, 0.0)),
         resolveHit = resolveTo(image)
       ).value
 
@@ -130,7 +131,7 @@ class HybridResultTest extends AnyFunSpec with Matchers with OptionValues with T
       val image = imageWithEmbedding("img-1", embedding = Some(List(0.0, 0.0)))
       val result = resolveHitAndFillInSemanticScore(
         searchHit("img-1", score = 1.0f),
-        queryEmbedding = List(1.0, 0.0),
+        queryEmbedding = FloatVector(List(1.0, 0.0)),
         resolveHit = resolveTo(image)
       ).value
 
@@ -281,6 +282,18 @@ class HybridResultTest extends AnyFunSpec with Matchers with OptionValues with T
       ranked.map(_.result.id) should be(List("high-semantic", "mid-semantic", "low-semantic"))
     }
 
+    it("keeps results with the same fused score in the order they came in") {
+      val lexical = List(
+        hybridResult("first", lexicalScore = 5.0, semanticScore = 0.0),
+        hybridResult("top", lexicalScore = 10.0, semanticScore = 0.0),
+        hybridResult("second", lexicalScore = 5.0, semanticScore = 0.0)
+      )
+
+      val ranked = fuseAndRank(lexical, semanticResults = List(), vecWeight = 0.0, k = 3)
+
+      ranked.map(_.result.id) should be(List("top", "first", "second"))
+    }
+
     it("only returns the top k results") {
       val lexical = List(
         hybridResult("a", lexicalScore = 1.0, semanticScore = 1.0),
@@ -0,0 +1,94 @@
+package lib.elasticsearch
+
+import com.gu.mediaservice.model.{FileMetadata, Handout, Image}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+import play.api.libs.json._
+
+class ImageSourceDecoderTest extends AnyFunSpec with Matchers with Fixtures {
+
+  private val fileMetadata = FileMetadata(
+    iptc = Map("Caption/Abstract" -> "A caption", "By-line" -> "A photographer"),
+    exif = Map("Make" -> "Canon", "Model" -> "Canon EOS R5"),
+    exifSub = Map("Date/Time Original Composite" -> "2021-12-21T11:22:33Z"),
+    xmp = Map(
+      "org:ProgrammeMaker" -> JsString("A programme maker"),
+      "aux:Lens" -> JsString("RF24-70mm F2.8 L IS USM"),
+      "dc:subject" -> Json.arr("one", "two"),
+      "xmpMM:History" -> Json.arr(Json.obj("stEvt:action" -> "saved", "stEvt:changed" -> JsNull))
+    ),
+    icc = Map("Profile Description" -> "sRGB IEC61966-2.1"),
+    colourModel = Some("RGB")
+  )
+
+  private val image = createImage("decoded", Handout(), fileMetadata = Some(fileMetadata), vector = Some(List(0.125, -0.5, 1.0)))
+
+  private def sourceOf(json: JsObject) = Json.stringify(json)
+
+  private val source = sourceOf(Json.toJson(image).as[JsObject])
+
+  private val decoder = new ImageSourceDecoder(Nil)
+
+  describe("ImageSourceDecoder") {
+    it("should decode an image the same as the image Reads do") {
+      val (_, decoded) = decoder.decode(source).get
+      decoded shouldEqual Json.parse(source).as[Image]
+      decoded.fileMetadata shouldEqual fileMetadata
+      decoded.embedding.flatMap(_.cohereEmbedV4).map(_.image) shouldEqual Some(List(0.125, -0.5, 1.0))
+    }
+
+    it("should default missing or null file metadata like the image Reads do") {
+      val json = Json.toJson(image).as[JsObject]
+      val (_, withoutFileMetadata) = decoder.decode(sourceOf(json - "fileMetadata")).get
+      withoutFileMetadata.fileMetadata shouldEqual FileMetadata()
+      val (_, withNullFileMetadata) = decoder.decode(sourceOf(json + ("fileMetadata" -> JsNull))).get
+      withNullFileMetadata.fileMetadata shouldEqual FileMetadata()
+    }
+
+    it("should fail the same way as the image Reads on file metadata they don't accept") {
+      val json = Json.toJson(image).as[JsObject]
+      val badIptc = sourceOf(json.deepMerge(Json.obj("fileMetadata" -> Json.obj("iptc" -> Json.obj("Urgency" -> 5)))))
+      val noExif = sourceOf(json + ("fileMetadata" -> ((json \ "fileMetadata").as[JsObject] - "exif")))
+
+      Seq(badIptc, noExif).foreach { bad =>
+        decoder.decode(bad) shouldBe a[JsError]
+        decoder.decode(bad) shouldEqual Json.parse(bad).validate[Image].map(i => (JsObject.empty, i))
+      }
+    }
+
+    it("should decode embeddings with integer values and fields it doesn't know") {
+      val json = Json.toJson(image).as[JsObject] + ("embedding" -> Json.obj(
+        "cohereEmbedV4" -> Json.obj("image" -> Json.arr(1, 2, 0.5), "model" -> "embed-v4.0"),
+        "cohereEmbedEnglishV3" -> JsNull
+      ))
+      val (_, decoded) = decoder.decode(sourceOf(json)).get
+      decoded.embedding shouldEqual Json.parse(sourceOf(json)).as[Image].embedding
+      decoded.embedding.flatMap(_.cohereEmbedV4).map(_.image) shouldEqual Some(List(1.0, 2.0, 0.5))
+    }
+
+    it("should keep only what the alias paths reach from the source") {
+      val aliased = new ImageSourceDecoder(Seq("fileMetadata.xmp.org:ProgrammeMaker", "uploadedBy", "fileMetadata.xmp.missing"))
+      val (selected, decoded) = aliased.decode(source).get
+
+      decoded shouldEqual Json.parse(source).as[Image]
+      (selected \ "fileMetadata" \ "xmp" \ "org:ProgrammeMaker").as[String] shouldEqual "A programme maker"
+      (selected \ "uploadedBy").as[String] shouldEqual testUser
+      (selected \ "fileMetadata" \ "xmp" \ "aux:Lens").toOption shouldBe None
+      (selected \ "fileMetadata" \ "iptc").toOption shouldBe None
+      (selected \ "metadata").toOption shouldBe None
+    }
+
+    it("should leave out omitted fields, keeping what the alias paths reach from them") {
+      // as ES sends it for the grid-tile projection, with only the alias paths in fileMetadata
+      val projected = Json.toJson(image).as[JsObject] - "embedding" +
+        ("fileMetadata" -> Json.obj("xmp" -> Json.obj("org:ProgrammeMaker" -> "A programme maker")))
+      val aliased = new ImageSourceDecoder(Seq("fileMetadata.xmp.org:ProgrammeMaker"))
+      val (selected, decoded) = aliased.decode(sourceOf(projected), SearchProjection.GridTile.omitted).get
+
+      decoded shouldEqual Json.parse(sourceOf(projected - "fileMetadata")).as[Image]
+      decoded.fileMetadata shouldEqual FileMetadata()
+      decoded.embedding shouldBe None
+      (selected \ "fileMetadata" \ "xmp" \ "org:ProgrammeMaker").as[String] shouldEqual "A programme maker"
+    }
+  }
+}
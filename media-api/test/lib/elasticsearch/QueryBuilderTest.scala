@@ -262,6 +262,18 @@ class QueryBuilderTest extends AnyFunSpec with Matchers with ConditionFixtures w
       val expected = overQuotaAgencies.map(_.supplier)
       notQuery.values shouldEqual expected
     }
+
+    it("should build the under quota query for the agencies over quota now, having built it before") {
+      var overQuotaAgencies = List.empty[Agency]
+      val qBuilder = new QueryBuilder(matchFields, () => overQuotaAgencies, mediaApiConfig)
+      qBuilder.makeQuery(List(isUnderQuotaCondition)).asInstanceOf[BoolQuery].must.head shouldBe ElasticDsl.matchAllQuery()
+
+      overQuotaAgencies = List(Agency("AP"))
+      val query = qBuilder.makeQuery(List(isUnderQuotaCondition)).asInstanceOf[BoolQuery]
+
+      val notQuery = query.must.head.asInstanceOf[BoolQuery].not.head.asInstanceOf[TermsQuery[String]]
+      notQuery.values shouldEqual List("AP")
+    }
   }
 
   describe("get elasticsearch path") {
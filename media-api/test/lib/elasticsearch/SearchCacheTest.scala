@@ -0,0 +1,137 @@
+package lib.elasticsearch
+
+import com.gu.mediaservice.lib.elasticsearch.NotRunning
+import com.gu.mediaservice.lib.metrics.RecordingCacheMetrics
+import org.scalatest.concurrent.{Eventually, ScalaFutures}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+import play.api.libs.json.Json
+
+import java.util.concurrent.atomic.AtomicInteger
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration.DurationInt
+import scala.concurrent.{Future, Promise}
+
+class SearchCacheTest extends AnyFunSpec with Matchers with ScalaFutures with Eventually {
+
+  class Fixture(
+    initialGeneration: Option[IndexGeneration] = Some(IndexGeneration(NotRunning, 100, 0, 100)),
+    weigh: String => Int = _ => 1
+  ) extends RecordingCacheMetrics {
+    @volatile var generation: Option[IndexGeneration] = initialGeneration
+    val cache = new SearchCache[String, String](10, 1.minute, () => generation, hits, misses, latency, weigh = weigh)
+
+    val searches = new AtomicInteger(0)
+    def search(key: String): Future[String] = cache.getOrSearch(key) {
+      Future.successful(s"$key ${searches.incrementAndGet()}")
+    }
+  }
+
+  describe("SearchCache") {
+    it("should search once for the same key") {
+      val fixture = new Fixture
+      import fixture._
+
+      search("uploadTime desc").futureValue shouldBe "uploadTime desc 1"
+      search("uploadTime desc").futureValue shouldBe "uploadTime desc 1"
+      search("uploadTime asc").futureValue shouldBe "uploadTime asc 2"
+
+      searches.get shouldBe 2
+      hits.values shouldBe List(1)
+      misses.values shouldBe List(1, 1)
+      // recorded once the results are in, after they're handed back
+      eventually { latency.values should have length 3 }
+    }
+
+    it("should share a search that hasn't finished yet") {
+      val fixture = new Fixture
+      import fixture._
+      val results = Promise[String]()
+
+      val first = cache.getOrSearch("q") { searches.incrementAndGet(); results.future }
+      val second = cache.getOrSearch("q") { searches.incrementAndGet(); results.future }
+      results.success("shared")
+
+      first.futureValue shouldBe "shared"
+      second.futureValue shouldBe "shared"
+      searches.get shouldBe 1
+    }
+
+    it("should search again once the index has changed") {
+      val fixture = new Fixture
+      import fixture._
+
+      search("q").futureValue shouldBe "q 1"
+      generation = Some(IndexGeneration(NotRunning, 100, 1, 101))
+      search("q").futureValue shouldBe "q 2"
+      search("q").futureValue shouldBe "q 2"
+    }
+
+    it("should search again after a write that leaves the document counts as they were") {
+      val fixture = new Fixture
+      import fixture._
+
+      search("q").futureValue shouldBe "q 1"
+      // an update, once the copy it replaced has been merged away
+      generation = Some(IndexGeneration(NotRunning, 100, 0, 101))
+      search("q").futureValue shouldBe "q 2"
+    }
+
+    it("should always search when it doesn't know what the index holds") {
+      val fixture = new Fixture(initialGeneration = None)
+      import fixture._
+
+      search("q").futureValue shouldBe "q 1"
+      search("q").futureValue shouldBe "q 2"
+      hits.values shouldBe Nil
+      misses.values shouldBe Nil
+    }
+
+    it("should share a search that hasn't finished yet when it doesn't know what the index holds") {
+      val fixture = new Fixture(initialGeneration = None)
+      import fixture._
+      val results = Promise[String]()
+
+      val first = cache.getOrSearch("q") { searches.incrementAndGet(); results.future }
+      val second = cache.getOrSearch("q") { searches.incrementAndGet(); results.future }
+      results.success("shared")
+
+      first.futureValue shouldBe "shared"
+      second.futureValue shouldBe "shared"
+      searches.get shouldBe 1
+    }
+
+    it("should not keep a search that failed") {
+      val fixture = new Fixture
+      import fixture._
+
+      cache.getOrSearch("q")(Future.failed(new RuntimeException("ES unavailable"))).failed.futureValue.getMessage shouldBe "ES unavailable"
+      // the cache drops the failed search once it has seen it fail
+      eventually { search("q").futureValue shouldBe "q 1" }
+    }
+
+    it("should keep no more results than they weigh in total") {
+      val fixture = new Fixture(weigh = _ => 6)
+      import fixture._
+
+      search("a").futureValue
+      search("b").futureValue
+      // two results weighing 12 in all don't both fit in 10
+      eventually {
+        search("a").futureValue
+        search("b").futureValue
+        searches.get should be > 2
+      }
+    }
+  }
+
+  describe("estimatedSize") {
+    it("should grow with the document") {
+      val small = Json.obj("id" -> "a", "tags" -> Json.arr("x"))
+      val large = Json.obj("id" -> "a", "tags" -> Json.arr("x", "y"), "description" -> ("z" * 1000))
+
+      SearchCache.estimatedSize(small) should be > 0L
+      SearchCache.estimatedSize(large) should be > SearchCache.estimatedSize(small) + 2000
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package lib.elasticsearch
+
+import com.gu.mediaservice.lib.auth.Internal
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+class SearchCursorTest extends AnyFunSpec with Matchers {
+
+  // as elastic4s reads them from a hit's sort values
+  private val sortValues: Seq[AnyRef] = Seq(java.lang.Long.valueOf(1718722800000L), "image-id", java.lang.Double.valueOf(0.5), java.lang.Boolean.TRUE, null)
+
+  describe("SearchCursor") {
+    it("should read back what it encodes") {
+      val cursor = SearchCursor.after(10050, Some("-taken"), sortValues)
+
+      SearchCursor.decode(cursor.encode) shouldBe Some(cursor)
+    }
+
+    it("should search after the sort values of the hit it was made from") {
+      val cursor = SearchCursor.decode(SearchCursor.after(10050, Some("-taken"), sortValues).encode).get
+
+      cursor.offset shouldBe 10050
+      cursor.searchAfter shouldBe Seq(1718722800000L, "image-id", 0.5, true, null)
+    }
+
+    it("should keep long sort values exact") {
+      val cursor = SearchCursor.after(0, None, Seq(java.lang.Long.valueOf(Long.MinValue), java.lang.Long.valueOf(Long.MaxValue)))
+
+      SearchCursor.decode(cursor.encode).get.searchAfter shouldBe Seq(Long.MinValue, Long.MaxValue)
+    }
+
+    it("should be safe to put in a url") {
+      SearchCursor.after(10050, Some("-taken"), sortValues).encode should fullyMatch regex "[A-Za-z0-9_-]+"
+    }
+
+    it("should not decode something that isn't a cursor") {
+      SearchCursor.decode("not a cursor") shouldBe None
+      SearchCursor.decode("") shouldBe None
+      SearchCursor.decode(SearchCursor(10, None, Nil).encode) shouldBe None
+      SearchCursor.decode(SearchCursor(-10, None, List(play.api.libs.json.JsString("id"))).encode) shouldBe None
+    }
+
+    it("should keep the order of the search it came from") {
+      SearchCursor.decode(SearchCursor.after(10, Some("-taken"), sortValues).encode).get.orderBy shouldBe Some("-taken")
+      SearchCursor.decode(SearchCursor.after(10, None, sortValues).encode).get.orderBy shouldBe None
+    }
+
+    it("should not decode a cursor that doesn't say what order it's for") {
+      val withoutOrder = java.util.Base64.getUrlEncoder.withoutPadding.encodeToString("""{"offset":10,"after":["id"]}""".getBytes)
+      SearchCursor.decode(withoutOrder) shouldBe None
+    }
+
+    it("should only be good for a search in the same order") {
+      val cursor = SearchCursor.after(10, Some("-taken"), sortValues)
+
+      SearchParams.validateCursor(SearchParams(tier = Internal, orderBy = Some("-taken"), cursor = Some(cursor))) shouldBe a[Right[_, _]]
+      SearchParams.validateCursor(SearchParams(tier = Internal, orderBy = None, cursor = Some(cursor))) shouldBe a[Left[_, _]]
+      SearchParams.validateCursor(SearchParams(tier = Internal, orderBy = Some("uploadTime"), cursor = Some(cursor))) shouldBe a[Left[_, _]]
+      SearchParams.validateCursor(SearchParams(tier = Internal, orderBy = Some("uploadTime"))) shouldBe a[Right[_, _]]
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package lib.elasticsearch
+
+import com.gu.mediaservice.model.{FileMetadata, Handout}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+import play.api.libs.json.{JsObject, Json}
+
+class SearchProjectionTest extends AnyFunSpec with Matchers with Fixtures {
+
+  private val aliasPaths = Seq("fileMetadata.xmp.org:ProgrammeMaker", "fileMetadata.iptc.Caption Writer/Editor", "metadata.credit")
+
+  describe("SearchProjection") {
+    it("should list every top level field an image is written with") {
+      val image = createImage("projected", Handout(), fileMetadata = Some(FileMetadata()), vector = Some(List(1.0)))
+        .copy(lastModified = Some(org.joda.time.DateTime.now()), userMetadataLastModified = Some(org.joda.time.DateTime.now()))
+      val written = Json.toJson(image).as[JsObject].keys
+
+      written.diff(SearchProjection.imageFields.toSet) shouldBe empty
+    }
+
+    it("should not filter the source for the full projection") {
+      SearchProjection.Full.sourceIncludes(aliasPaths) shouldBe empty
+    }
+
+    it("should include everything but the omitted fields, and the alias paths beneath them, for the grid tile projection") {
+      val includes = SearchProjection.GridTile.sourceIncludes(aliasPaths)
+
+      includes should contain allOf ("id", "metadata", "usageRights", "leases", "usages")
+      includes should not contain "fileMetadata"
+      includes should not contain "embedding"
+      includes should contain allOf ("fileMetadata.xmp.org:ProgrammeMaker", "fileMetadata.iptc.Caption Writer/Editor")
+      includes should not contain "metadata.credit"
+    }
+
+    it("should include alias paths at top level fields an image isn't read with, for the grid tile projection") {
+      val includes = SearchProjection.GridTile.sourceIncludes(aliasPaths ++ Seq("usagesPlatform", "esInfo.migration.migratedTo"))
+
+      includes should contain allOf ("usagesPlatform", "esInfo.migration.migratedTo")
+      includes.count(_ == "usagesPlatform") shouldBe 1
+    }
+
+    it("should bring back fields that are asked for with include") {
+      val projection = SearchProjection.GridTile.including(List("fileMetadata"))
+
+      projection.omits("fileMetadata") shouldBe false
+      projection.omits("embedding") shouldBe true
+      projection.sourceIncludes(Nil) should contain ("fileMetadata")
+    }
+
+    it("should find projections by name") {
+      SearchProjection.fromName("grid-tile") shouldBe Some(SearchProjection.GridTile)
+      SearchProjection.fromName("full") shouldBe Some(SearchProjection.Full)
+      SearchProjection.fromName("thumbnail") shouldBe None
+    }
+  }
+}
@@ -242,6 +242,21 @@ class ParserTest extends AnyFunSpec with Matchers with BeforeAndAfter with Image
         )
       }
 
+      it("should match today as the day it is now, having parsed it on an earlier day") {
+        Parser.run("date:today")
+        DateTimeUtils.setCurrentMillisFixed(new DateTime("2000-01-03T03:04:05Z").getMillis)
+
+        Parser.run("date:today") should be (List(
+          Match(uploadTimeField,
+            DateRange(
+              new DateTime("2000-01-03T00:00:00.000Z"),
+              new DateTime("2000-01-03T23:59:59.999Z")
+            )
+          ),
+          ) ++ standardNegations
+        )
+      }
+
       // TODO: date:"last week"
       // TODO: date:last.week
       // TODO: date:last.three.hours
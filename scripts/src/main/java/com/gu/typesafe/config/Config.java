@@ -1070,6 +1070,128 @@ public interface Config extends com.gu.typesafe.config.ConfigMergeable {
      */
     List<Duration> getDurationList(String path);
 
+    /**
+     * Like {@link #hasPath(String)}, but with a path compiled by
+     * {@link ConfigUtil#compilePath}, so the path expression isn't parsed again.
+     *
+     * @param path
+     *            a compiled path
+     * @return true if a non-null value is present at the path
+     */
+    boolean hasPath(ConfigPath path);
+
+    /**
+     * Like {@link #getValue(String)}, but with a path compiled by
+     * {@link ConfigUtil#compilePath}, so the path expression isn't parsed again.
+     *
+     * @param path
+     *            a compiled path
+     * @return the value at the requested path
+     */
+    com.gu.typesafe.config.ConfigValue getValue(ConfigPath path);
+
+    /**
+     * Like {@link #getBoolean(String)}, but with a path compiled by
+     * {@link ConfigUtil#compilePath}, so the path expression isn't parsed again.
+     *
+     * @param path
+     *            a compiled path
+     * @return the boolean value at the requested path
+     */
+    boolean getBoolean(ConfigPath path);
+
+    /**
+     * Like {@link #getInt(String)}, but with a path compiled by
+     * {@link ConfigUtil#compilePath}, so the path expression isn't parsed again.
+     *
+     * @param path
+     *            a compiled path
+     * @return the 32-bit integer value at the requested path
+     */
+    int getInt(ConfigPath path);
+
+    /**
+     * Like {@link #getLong(String)}, but with a path compiled by
+     * {@link ConfigUtil#compilePath}, so the path expression isn't parsed again.
+     *
+     * @param path
+     *            a compiled path
+     * @return the 64-bit long value at the requested path
+     */
+    long getLong(ConfigPath path);
+
+    /**
+     * Like {@link #getDouble(String)}, but with a path compiled by
+     * {@link ConfigUtil#compilePath}, so the path expression isn't parsed again.
+     *
+     * @param path
+     *            a compiled path
+     * @return the floating-point value at the requested path
+     */
+    double getDouble(ConfigPath path);
+
+    /**
+     * Like {@link #getString(String)}, but with a path compiled by
+     * {@link ConfigUtil#compilePath}, so the path expression isn't parsed again.
+     *
+     * @param path
+     *            a compiled path
+     * @return the string value at the requested path
+     */
+    String getString(ConfigPath path);
+
+    /**
+     * Like {@link #getConfig(String)}, but with a path compiled by
+     * {@link ConfigUtil#compilePath}, so the path expression isn't parsed again.
+     *
+     * @param path
+     *            a compiled path
+     * @return the nested {@code Config} value at the requested path
+     */
+    Config getConfig(ConfigPath path);
+
+    /**
+     * Like {@link #getBytes(String)}, but with a path compiled by
+     * {@link ConfigUtil#compilePath}, so the path expression isn't parsed again.
+     *
+     * @param path
+     *            a compiled path
+     * @return the value at the requested path, in bytes
+     */
+    Long getBytes(ConfigPath path);
+
+    /**
+     * Like {@link #getDuration(String, TimeUnit)}, but with a path compiled by
+     * {@link ConfigUtil#compilePath}, so the path expression isn't parsed again.
+     *
+     * @param path
+     *            a compiled path
+     * @param unit
+     *            convert the return value to this time unit
+     * @return the duration value at the requested path, in the given TimeUnit
+     */
+    long getDuration(ConfigPath path, TimeUnit unit);
+
+    /**
+     * Like {@link #getDuration(String)}, but with a path compiled by
+     * {@link ConfigUtil#compilePath}, so the path expression isn't parsed again.
+     *
+     * @param path
+     *            a compiled path
+     * @return the duration value at the requested path
+     */
+    Duration getDuration(ConfigPath path);
+
+    /**
+     * Like {@link #getStringList(String)}, but with a path compiled by
+     * {@link ConfigUtil#compilePath}, so the path expression isn't parsed again.
+     *
+     * @param path
+     *            a compiled path
+     * @return the list at the path
+     */
+    List<String> getStringList(ConfigPath path);
+
     /**
      * Clone the config with only the given path (and its children) retained;
      * all sibling paths are removed.
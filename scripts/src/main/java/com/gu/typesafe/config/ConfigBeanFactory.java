@@ -30,6 +30,10 @@ public class ConfigBeanFactory {
      * camel case.  So the key <code>foo-bar</code> becomes JavaBean
      * setter <code>setFooBar</code>.
      *
+     * How to fill in each class is worked out the first time it's
+     * used and then remembered, so creating many beans of the same
+     * class costs little more than calling the getters yourself.
+     *
      * @since 1.3.0
      *
      * @param config source of config information
@@ -806,6 +806,95 @@ public final class ConfigFactory {
         return parseFile(file, ConfigParseOptions.defaults());
     }
 
+    /**
+     * Parses and resolves a file like
+     * {@code parseFile(file, parseOptions).resolve(resolveOptions)}, but keeps a
+     * compiled binary snapshot of the result in <code>snapshotFile</code> so
+     * that later calls can load it without parsing or resolving anything.
+     *
+     * <p>
+     * The snapshot remembers every file and URL read while parsing (including
+     * through includes) along with a hash of its contents, and when resolving
+     * with the system environment, a hash of the environment too. It is also
+     * only used for the same file (by canonical path) and the same syntax,
+     * origin description, allowMissing and class loader. If any of those
+     * have changed, or the snapshot is missing or unreadable, this
+     * falls back to a normal parse and resolve and rewrites the snapshot.
+     * Failing to write the snapshot is not an error. With a custom includer
+     * or resolver the snapshot is never used, since there is no way to know
+     * what they depend on.
+     *
+     * @param file
+     *       the file to parse
+     * @param parseOptions
+     *       parse options to control how the file is interpreted
+     * @param snapshotFile
+     *       where to read and write the compiled snapshot
+     * @param resolveOptions
+     *       options to use when resolving
+     * @return the parsed and resolved configuration
+     * @throws ConfigException on IO, parse or resolve errors
+     */
+    public static Config parseFileWithSnapshot(File file, ConfigParseOptions parseOptions, File snapshotFile,
+            ConfigResolveOptions resolveOptions) {
+        return ConfigImpl.parseFileWithSnapshot(file, parseOptions, snapshotFile, resolveOptions);
+    }
+
+    /**
+     * Like {@link #parseFileWithSnapshot(File,ConfigParseOptions,File,ConfigResolveOptions)}
+     * but always uses default parse and resolve options.
+     *
+     * @param file
+     *       the file to parse
+     * @param snapshotFile
+     *       where to read and write the compiled snapshot
+     * @return the parsed and resolved configuration
+     * @throws ConfigException on IO, parse or resolve errors
+     */
+    public static Config parseFileWithSnapshot(File file, File snapshotFile) {
+        return parseFileWithSnapshot(file, ConfigParseOptions.defaults(), snapshotFile,
+                ConfigResolveOptions.defaults());
+    }
+
+    /**
+     * Parses and resolves a file like
+     * {@code parseFile(file, parseOptions).resolve(resolveOptions)}, then keeps
+     * watching it and everything it includes, parsing and resolving again on
+     * a background thread whenever one of those files changes. See
+     * {@link ReloadingConfig} for how changes are published.
+     *
+     * <p>
+     * Only files are watched; includes of URLs and classpath resources are
+     * read again on each reload but don't trigger one. Close the returned
+     * handle to stop watching.
+     *
+     * @param file
+     *       the file to parse
+     * @param parseOptions
+     *       parse options to control how the file is interpreted
+     * @param resolveOptions
+     *       options to use when resolving
+     * @return a handle on the current config
+     * @throws ConfigException on IO, parse or resolve errors in the first load
+     */
+    public static ReloadingConfig parseFileReloading(File file, ConfigParseOptions parseOptions,
+            ConfigResolveOptions resolveOptions) {
+        return ConfigImpl.parseFileReloading(file, parseOptions, resolveOptions);
+    }
+
+    /**
+     * Like {@link #parseFileReloading(File,ConfigParseOptions,ConfigResolveOptions)}
+     * but always uses default parse and resolve options.
+     *
+     * @param file
+     *       the file to parse
+     * @return a handle on the current config
+     * @throws ConfigException on IO, parse or resolve errors in the first load
+     */
+    public static ReloadingConfig parseFileReloading(File file) {
+        return parseFileReloading(file, ConfigParseOptions.defaults(), ConfigResolveOptions.defaults());
+    }
+
     /**
      * Parses a file with a flexible extension. If the <code>fileBasename</code>
      * already ends in a known extension, this method parses it according to
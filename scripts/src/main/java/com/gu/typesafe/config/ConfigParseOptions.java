@@ -28,14 +28,19 @@ public final class ConfigParseOptions {
     final boolean allowMissing;
     final com.gu.typesafe.config.ConfigIncluder includer;
     final ClassLoader classLoader;
+    final boolean parallelIncludes;
+    final boolean lazyObjects;
 
     private ConfigParseOptions(com.gu.typesafe.config.ConfigSyntax syntax, String originDescription, boolean allowMissing,
-                               com.gu.typesafe.config.ConfigIncluder includer, ClassLoader classLoader) {
+                               com.gu.typesafe.config.ConfigIncluder includer, ClassLoader classLoader,
+                               boolean parallelIncludes, boolean lazyObjects) {
         this.syntax = syntax;
         this.originDescription = originDescription;
         this.allowMissing = allowMissing;
         this.includer = includer;
         this.classLoader = classLoader;
+        this.parallelIncludes = parallelIncludes;
+        this.lazyObjects = lazyObjects;
     }
 
     /**
@@ -45,7 +50,7 @@ public final class ConfigParseOptions {
      * @return the default parse options
      */
     public static ConfigParseOptions defaults() {
-        return new ConfigParseOptions(null, null, true, null, null);
+        return new ConfigParseOptions(null, null, true, null, null, false, false);
     }
 
     /**
@@ -61,7 +66,7 @@ public final class ConfigParseOptions {
             return this;
         else
             return new ConfigParseOptions(syntax, this.originDescription, this.allowMissing,
-                    this.includer, this.classLoader);
+                    this.includer, this.classLoader, this.parallelIncludes, this.lazyObjects);
     }
 
     /**
@@ -103,7 +108,7 @@ public final class ConfigParseOptions {
             return this;
         else
             return new ConfigParseOptions(this.syntax, originDescription, this.allowMissing,
-                    this.includer, this.classLoader);
+                    this.includer, this.classLoader, this.parallelIncludes, this.lazyObjects);
     }
 
     /**
@@ -136,7 +141,7 @@ public final class ConfigParseOptions {
             return this;
         else
             return new ConfigParseOptions(this.syntax, this.originDescription, allowMissing,
-                    this.includer, this.classLoader);
+                    this.includer, this.classLoader, this.parallelIncludes, this.lazyObjects);
     }
 
     /**
@@ -159,7 +164,7 @@ public final class ConfigParseOptions {
             return this;
         else
             return new ConfigParseOptions(this.syntax, this.originDescription, this.allowMissing,
-                    includer, this.classLoader);
+                    includer, this.classLoader, this.parallelIncludes, this.lazyObjects);
     }
 
     /**
@@ -223,7 +228,7 @@ public final class ConfigParseOptions {
             return this;
         else
             return new ConfigParseOptions(this.syntax, this.originDescription, this.allowMissing,
-                    this.includer, loader);
+                    this.includer, loader, this.parallelIncludes, this.lazyObjects);
     }
 
     /**
@@ -239,4 +244,80 @@ public final class ConfigParseOptions {
         else
             return this.classLoader;
     }
+
+    /**
+     * Set whether the includes in an object are parsed concurrently, on the
+     * common {@link java.util.concurrent.ForkJoinPool}, rather than one after
+     * another. Off by default. This only pays off for files with several
+     * includes that are slow to read, such as a wide tree of included files
+     * on slow storage or includes of URLs.
+     *
+     * <p>
+     * The result is the same either way: included objects are still merged in
+     * the order the include statements appear, errors are reported for the
+     * first failing include in that order, and the limit on include nesting
+     * still applies across threads. A custom {@link ConfigIncluder} must be
+     * safe to call from several threads at once to use this. The class loader
+     * used for classpath includes is the one these options have when parsing
+     * starts, even if it's left unset.
+     *
+     * @param parallelIncludes
+     *            true to parse sibling includes concurrently
+     * @return options with parallel includes set
+     */
+    public ConfigParseOptions setParallelIncludes(boolean parallelIncludes) {
+        if (this.parallelIncludes == parallelIncludes)
+            return this;
+        else
+            return new ConfigParseOptions(this.syntax, this.originDescription, this.allowMissing,
+                    this.includer, this.classLoader, parallelIncludes, this.lazyObjects);
+    }
+
+    /**
+     * Gets whether sibling includes are parsed concurrently.
+     *
+     * @return true if includes are parsed concurrently
+     */
+    public boolean getParallelIncludes() {
+        return parallelIncludes;
+    }
+
+    /**
+     * Set whether large objects are parsed only when first read. Off by
+     * default. With this on, a first quick pass over the text notes where
+     * each object value starts and ends, and an object is only tokenized and
+     * built when something looks inside it; until then it holds on to the
+     * text. This pays off for a big shared file of which each application
+     * only reads a few sections.
+     *
+     * <p>
+     * Only objects of a few hundred characters or more, containing no
+     * substitutions, includes or {@code +=}, are put off, so the resolved
+     * config is the same either way. The difference is that a syntax error
+     * inside one of those objects is thrown when the object is first read
+     * rather than when the file is parsed, so read the whole config once
+     * (for example with {@link Config#entrySet}) if errors must come up at
+     * startup. This has no effect on properties files, or on parsing to a
+     * {@link com.gu.typesafe.config.parser.ConfigDocument}.
+     *
+     * @param lazyObjects
+     *            true to put off parsing large objects until they're read
+     * @return options with lazy objects set
+     */
+    public ConfigParseOptions setLazyObjects(boolean lazyObjects) {
+        if (this.lazyObjects == lazyObjects)
+            return this;
+        else
+            return new ConfigParseOptions(this.syntax, this.originDescription, this.allowMissing,
+                    this.includer, this.classLoader, this.parallelIncludes, lazyObjects);
+    }
+
+    /**
+     * Gets whether large objects are parsed only when first read.
+     *
+     * @return true if parsing of large objects is put off
+     */
+    public boolean getLazyObjects() {
+        return lazyObjects;
+    }
 }
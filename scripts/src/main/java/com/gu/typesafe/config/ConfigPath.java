@@ -0,0 +1,40 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config;
+
+import java.util.List;
+
+/**
+ * A path expression that has already been parsed, obtained with
+ * {@link ConfigUtil#compilePath}. Looking a setting up with a
+ * <code>ConfigPath</code> skips parsing the expression, so it's worth
+ * compiling paths that are read over and over (for example on every request)
+ * once, and keeping them in a constant.
+ *
+ * <p>
+ * A <code>ConfigPath</code> is immutable and can be used with any
+ * {@link Config}, from any thread.
+ *
+ * <p>
+ * <em>Do not implement this interface</em>; it should only be implemented by
+ * the config library. Arbitrary implementations will not work because the
+ * library internals assume a specific concrete implementation.
+ */
+public interface ConfigPath {
+    /**
+     * The path expression this was compiled from, which is also what error
+     * messages about lookups with this path will show.
+     *
+     * @return the path expression
+     */
+    String expression();
+
+    /**
+     * The individual keys in the path, unquoted, as
+     * {@link ConfigUtil#splitPath} would return them.
+     *
+     * @return the keys in the path
+     */
+    List<String> elements();
+}
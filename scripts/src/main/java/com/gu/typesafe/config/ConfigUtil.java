@@ -80,4 +80,21 @@ public final class ConfigUtil {
     public static List<String> splitPath(String path) {
         return ConfigImplUtil.splitPath(path);
     }
+
+    /**
+     * Parses a path expression once, so that it can be used for any number of
+     * lookups on any {@link Config} without being parsed again.
+     * <p>
+     * See the overview documentation for {@link Config} for more detail on path
+     * expressions vs. keys.
+     *
+     * @param path
+     *            a path expression
+     * @return the compiled path
+     * @throws ConfigException
+     *             if the path expression is invalid
+     */
+    public static ConfigPath compilePath(String path) {
+        return ConfigImplUtil.compilePath(path);
+    }
 }
@@ -84,6 +84,45 @@ public interface ConfigValue extends com.gu.typesafe.config.ConfigMergeable {
      */
     String render(ConfigRenderOptions options);
 
+    /**
+     * Renders the config value to an {@link Appendable}, such as a
+     * {@link java.io.Writer}, exactly as {@link #render(ConfigRenderOptions)}
+     * would, but without building the whole rendering in memory first: output
+     * is passed on in small chunks as it's produced. Use this for configs too
+     * big to comfortably hold a second copy of as a string.
+     *
+     * <p>
+     * The destination is not flushed or closed.
+     *
+     * @param out
+     *            where to write the rendering
+     * @param options
+     *            the rendering options
+     * @throws java.io.IOException
+     *             if the destination throws one; some of the rendering may
+     *             already have been written
+     */
+    void render(Appendable out, ConfigRenderOptions options) throws java.io.IOException;
+
+    /**
+     * Renders the config value to an {@link java.io.OutputStream} as UTF-8,
+     * the same way as {@link #render(Appendable, ConfigRenderOptions)}. This
+     * has its own name because a {@link java.io.PrintStream} is both an
+     * {@code OutputStream} and an {@code Appendable}.
+     *
+     * <p>
+     * The stream is flushed when the rendering is complete, but not closed.
+     *
+     * @param out
+     *            where to write the rendering
+     * @param options
+     *            the rendering options
+     * @throws java.io.IOException
+     *             if the stream throws one; some of the rendering may already
+     *             have been written
+     */
+    void renderUtf8(java.io.OutputStream out, ConfigRenderOptions options) throws java.io.IOException;
+
     @Override
     ConfigValue withFallback(ConfigMergeable other);
 
@@ -0,0 +1,100 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config;
+
+/**
+ * A config file that is parsed and resolved again whenever it, or any file it
+ * includes, changes on disk. Obtained with
+ * {@link ConfigFactory#parseFileReloading(java.io.File)}.
+ *
+ * <p>
+ * Files are watched with the platform's {@link java.nio.file.WatchService}
+ * and reloaded on a background daemon thread, so nothing on a request path
+ * ever parses or waits for a lock: {@link #current()} is a single volatile
+ * read of the latest resolved {@link Config}, which is immutable as usual.
+ * If a changed file doesn't parse or resolve (for example because an editor
+ * has only written half of it) the previous config stays current and the
+ * next change is tried again.
+ *
+ * <p>
+ * Listeners are called on the reload thread, after the new config has become
+ * current, and only when the part of the config they subscribed to has a
+ * different value. A listener should swap in whatever state it derives from
+ * the config and return quickly, since reloads wait for it.
+ *
+ * <p>
+ * <em>Do not implement this interface</em>; it should only be implemented by
+ * the config library. Arbitrary implementations will not work because the
+ * library internals assume a specific concrete implementation.
+ */
+public interface ReloadingConfig extends AutoCloseable {
+    /**
+     * Called with the new config when a watched part of it changes.
+     */
+    interface Listener {
+        /**
+         * @param config
+         *            the config that has just become current
+         */
+        void configChanged(Config config);
+    }
+
+    /**
+     * Returned by the subscribe methods; closing it stops the listener from
+     * being called.
+     */
+    interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * The most recently loaded config.
+     *
+     * @return the current config, already resolved
+     */
+    Config current();
+
+    /**
+     * Calls the listener whenever the value at the path changes, including
+     * when it appears or goes away.
+     *
+     * @param path
+     *            path expression of the setting or object to watch
+     * @param listener
+     *            what to call
+     * @return a subscription to close when the listener is no longer needed
+     * @throws ConfigException.BadPath
+     *             if the path expression is invalid
+     */
+    Subscription subscribe(String path, Listener listener);
+
+    /**
+     * Calls the listener whenever anything in the config changes.
+     *
+     * @param listener
+     *            what to call
+     * @return a subscription to close when the listener is no longer needed
+     */
+    Subscription subscribe(Listener listener);
+
+    /**
+     * Parses and resolves the file again now, on the calling thread, whether
+     * or not anything has been seen to change, and notifies listeners as
+     * usual. Unlike a reload triggered by the watcher, a failure is thrown
+     * rather than ignored, though the previous config still stays current.
+     *
+     * @return the config that is current afterwards
+     * @throws ConfigException
+     *             on IO, parse or resolve errors
+     */
+    Config reload();
+
+    /**
+     * Stops watching the files. The last config loaded stays current, and no
+     * listeners are called after this returns.
+     */
+    @Override
+    void close();
+}
@@ -9,12 +9,20 @@ import java.util.Collection;
 
 abstract class AbstractConfigNode implements ConfigNode {
     abstract Collection<Token> tokens();
+
+    // Appends the text of this node's tokens. Nodes with children override
+    // this to append each child's in turn, so rendering a document streams
+    // through the tree rather than first gathering every token into a list
+    // at each level.
+    void render(StringBuilder sb) {
+        for (Token t : tokens()) {
+            sb.append(t.tokenText());
+        }
+    }
+
     final public String render() {
         StringBuilder origText = new StringBuilder();
-        Iterable<Token> tokens = tokens();
-        for (Token t : tokens) {
-            origText.append(t.tokenText());
-        }
+        render(origText);
         return origText.toString();
     }
 
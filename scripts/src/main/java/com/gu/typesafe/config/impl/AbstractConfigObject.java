@@ -183,7 +183,7 @@ abstract class AbstractConfigObject extends com.gu.typesafe.config.impl.Abstract
     public abstract com.gu.typesafe.config.impl.AbstractConfigValue get(Object key);
 
     @Override
-    protected abstract void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options);
+    protected abstract void render(RenderWriter sb, int indent, boolean atRoot, ConfigRenderOptions options);
 
     private static UnsupportedOperationException weAreImmutable(String method) {
         return new UnsupportedOperationException("ConfigObject is immutable, you can't call Map."
@@ -4,6 +4,12 @@
  */
 package com.gu.typesafe.config.impl;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -310,11 +316,12 @@ abstract class AbstractConfigValue implements com.gu.typesafe.config.ConfigValue
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        render(sb, 0, true /* atRoot */, null /* atKey */, com.gu.typesafe.config.ConfigRenderOptions.concise());
+        render(new RenderWriter(sb), 0, true /* atRoot */, null /* atKey */,
+                com.gu.typesafe.config.ConfigRenderOptions.concise());
         return getClass().getSimpleName() + "(" + sb.toString() + ")";
     }
 
-    protected static void indent(StringBuilder sb, int indent, com.gu.typesafe.config.ConfigRenderOptions options) {
+    protected static void indent(RenderWriter sb, int indent, com.gu.typesafe.config.ConfigRenderOptions options) {
         if (options.getFormatted()) {
             int remaining = indent;
             while (remaining > 0) {
@@ -324,7 +331,7 @@ abstract class AbstractConfigValue implements com.gu.typesafe.config.ConfigValue
         }
     }
 
-    protected void render(StringBuilder sb, int indent, boolean atRoot, String atKey, com.gu.typesafe.config.ConfigRenderOptions options) {
+    protected void render(RenderWriter sb, int indent, boolean atRoot, String atKey, com.gu.typesafe.config.ConfigRenderOptions options) {
         if (atKey != null) {
             String renderedKey;
             if (options.getJson())
@@ -355,7 +362,7 @@ abstract class AbstractConfigValue implements com.gu.typesafe.config.ConfigValue
         render(sb, indent, atRoot, options);
     }
 
-    protected void render(StringBuilder sb, int indent, boolean atRoot, com.gu.typesafe.config.ConfigRenderOptions options) {
+    protected void render(RenderWriter sb, int indent, boolean atRoot, com.gu.typesafe.config.ConfigRenderOptions options) {
         Object u = unwrapped();
         sb.append(u.toString());
     }
@@ -368,10 +375,29 @@ abstract class AbstractConfigValue implements com.gu.typesafe.config.ConfigValue
     @Override
     public final String render(ConfigRenderOptions options) {
         StringBuilder sb = new StringBuilder();
-        render(sb, 0, true, null, options);
+        render(new RenderWriter(sb), 0, true, null, options);
         return sb.toString();
     }
 
+    @Override
+    public final void render(Appendable out, ConfigRenderOptions options) throws IOException {
+        RenderWriter writer = new RenderWriter(out);
+        try {
+            render(writer, 0, true, null, options);
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public final void renderUtf8(OutputStream out, ConfigRenderOptions options) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        render(writer, options);
+        // flushes what the encoder is holding, but leaves the stream open
+        writer.flush();
+    }
+
     // toString() is a debugging-oriented string but this is defined
     // to create a string that would parse back to the value in JSON.
     // It only works for primitive values (that would be a single token)
@@ -0,0 +1,340 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.gu.typesafe.config.Config;
+import com.gu.typesafe.config.ConfigException;
+import com.gu.typesafe.config.ConfigList;
+import com.gu.typesafe.config.ConfigMemorySize;
+import com.gu.typesafe.config.ConfigObject;
+import com.gu.typesafe.config.ConfigValue;
+import com.gu.typesafe.config.ConfigValueType;
+
+/**
+ * How to fill in one JavaBean class from a config, worked out once per class:
+ * which properties it has, which are optional, what type each should be
+ * validated as, which getter converts each one and a method handle for each
+ * setter. Binding a config is then a pass over its keys and one getter and
+ * setter call per property.
+ *
+ * <p>
+ * Binders are cached per class with a ClassValue, so they don't keep bean
+ * classes (or their class loaders) alive. Binding reports problems in the
+ * same order and with the same exceptions as
+ * {@link ConfigBeanImpl#createReflectively}; anything we can't work out up
+ * front, such as an unsupported property type, is only reported if the
+ * config actually sets that property.
+ */
+final class BeanBinder<T> {
+
+    private static final ClassValue<BeanBinder<?>> binders = new ClassValue<BeanBinder<?>>() {
+        @Override
+        protected BeanBinder<?> computeValue(Class<?> clazz) {
+            return new BeanBinder<Object>(clazz);
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    static <T> BeanBinder<T> forClass(Class<T> clazz) {
+        return (BeanBinder<T>) binders.get(clazz);
+    }
+
+    // converts the config setting to the property's type
+    private interface Getter {
+        Object get(Config config, String key);
+    }
+
+    private static final class Property {
+        final String name;
+        final Path path; // the name as a key, for validation problems
+        final ConfigValueType expectedType; // null if not validated
+        final boolean optional;
+        final Getter getter;
+        // (Object, Object)void; null if the setter isn't accessible
+        final MethodHandle setter;
+        final IllegalAccessException inaccessible;
+
+        Property(String name, ConfigValueType expectedType, boolean optional, Getter getter, MethodHandle setter,
+                IllegalAccessException inaccessible) {
+            this.name = name;
+            this.path = Path.newKey(name);
+            this.expectedType = expectedType;
+            this.optional = optional;
+            this.getter = getter;
+            this.setter = setter;
+            this.inaccessible = inaccessible;
+        }
+    }
+
+    final private Class<T> clazz;
+    // in the order the Introspector gave them
+    final private Property[] properties;
+    final private Map<String, Integer> indexByName;
+    // () Object; null if the class can't be instantiated, with the reason
+    final private MethodHandle constructor;
+    final private ConfigException.BadBean constructorProblem;
+
+    @SuppressWarnings("unchecked")
+    private BeanBinder(Class<?> beanClass) {
+        this.clazz = (Class<T>) beanClass;
+
+        BeanInfo beanInfo;
+        try {
+            beanInfo = Introspector.getBeanInfo(clazz);
+        } catch (IntrospectionException e) {
+            throw new ConfigException.BadBean("Could not get bean information for class " + clazz.getName(), e);
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType setterType = MethodType.methodType(void.class, Object.class, Object.class);
+        List<Property> props = new ArrayList<Property>();
+        for (PropertyDescriptor beanProp : beanInfo.getPropertyDescriptors()) {
+            if (beanProp.getReadMethod() == null || beanProp.getWriteMethod() == null)
+                continue;
+            Method setter = beanProp.getWriteMethod();
+            MethodHandle handle = null;
+            IllegalAccessException inaccessible = null;
+            try {
+                handle = lookup.unreflect(setter).asType(setterType);
+            } catch (IllegalAccessException e) {
+                inaccessible = e;
+            }
+            props.add(new Property(beanProp.getName(),
+                    ConfigBeanImpl.getValueTypeOrNull(setter.getParameterTypes()[0]),
+                    ConfigBeanImpl.isOptionalProperty(clazz, beanProp),
+                    getter(clazz, setter.getGenericParameterTypes()[0], setter.getParameterTypes()[0]), handle,
+                    inaccessible));
+        }
+        this.properties = props.toArray(new Property[props.size()]);
+        this.indexByName = new HashMap<String, Integer>();
+        for (int i = 0; i < properties.length; ++i)
+            indexByName.put(properties[i].name, i);
+
+        MethodHandle ctor = null;
+        ConfigException.BadBean problem = null;
+        if (Modifier.isAbstract(clazz.getModifiers()) || clazz.isPrimitive() || clazz.isArray()) {
+            problem = noConstructor(new InstantiationException(clazz.getName()));
+        } else {
+            try {
+                ctor = lookup.findConstructor(clazz, MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(Object.class));
+            } catch (NoSuchMethodException e) {
+                // the same as Class.newInstance() reports it
+                problem = noConstructor((Exception) new InstantiationException(clazz.getName()).initCause(e));
+            } catch (IllegalAccessException e) {
+                problem = notAccessible(e);
+            }
+        }
+        this.constructor = ctor;
+        this.constructorProblem = problem;
+    }
+
+    private ConfigException.BadBean noConstructor(Exception cause) {
+        return new ConfigException.BadBean(clazz.getName()
+                + " needs a public no-args constructor to be used as a bean", cause);
+    }
+
+    private ConfigException.BadBean notAccessible(IllegalAccessException cause) {
+        return new ConfigException.BadBean(clazz.getName()
+                + " getters and setters are not accessible, they must be for use as a bean", cause);
+    }
+
+    T bind(Config config) {
+        AbstractConfigObject root = ((SimpleConfig) config).root();
+        if (root.resolveStatus() != ResolveStatus.RESOLVED)
+            throw new ConfigException.NotResolved(
+                    "need to Config#resolve() a config before using it to initialize a bean, see the API docs for Config#resolve()");
+
+        // the key each property comes from. If a setting is in there both as
+        // some hyphen name and the camel name, the camel one wins.
+        String[] keys = new String[properties.length];
+        AbstractConfigValue[] values = new AbstractConfigValue[properties.length];
+        for (String key : root.keySet()) {
+            String camelName = key.indexOf('-') < 0 ? key : ConfigImplUtil.toCamelCase(key);
+            Integer i = indexByName.get(camelName);
+            if (i == null || (keys[i] != null && !key.equals(camelName)))
+                continue;
+            keys[i] = key;
+            values[i] = root.get(key);
+        }
+
+        // Try to throw all validation issues at once (this does not
+        // comprehensively find every issue, but it should find common ones).
+        List<ConfigException.ValidationProblem> problems = null;
+        for (int i = 0; i < properties.length; ++i) {
+            Property p = properties[i];
+            if (p.expectedType == null || (values[i] == null && p.optional))
+                continue;
+            if (problems == null)
+                problems = new ArrayList<ConfigException.ValidationProblem>();
+            Path path = keys[i] == null || keys[i].equals(p.name) ? p.path : Path.newKey(keys[i]);
+            if (values[i] != null)
+                SimpleConfig.checkValid(path, p.expectedType, values[i], problems);
+            else
+                SimpleConfig.addMissing(problems, p.expectedType, path, config.origin());
+        }
+        if (problems != null && !problems.isEmpty())
+            throw new ConfigException.ValidationFailed(problems);
+
+        T bean = newInstance();
+        for (int i = 0; i < properties.length; ++i) {
+            Property p = properties[i];
+            if (keys[i] == null) {
+                if (p.optional)
+                    continue;
+                throw new ConfigException.Missing(p.name);
+            }
+            Object value = p.getter.get(config, keys[i]);
+            if (p.setter == null)
+                throw notAccessible(p.inaccessible);
+            try {
+                p.setter.invokeExact((Object) bean, value);
+            } catch (Throwable t) {
+                throw new ConfigException.BadBean("Calling bean method on " + clazz.getName()
+                        + " caused an exception", new InvocationTargetException(t));
+            }
+        }
+        return bean;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newInstance() {
+        if (constructor == null)
+            throw constructorProblem;
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw noConstructor(new InstantiationException(t.toString()));
+        }
+    }
+
+    // the conversions ConfigBeanImpl.getValue makes, picked once
+    private static Getter getter(final Class<?> beanClass, final Type parameterType, final Class<?> parameterClass) {
+        if (parameterClass == Boolean.class || parameterClass == boolean.class) {
+            return (config, key) -> config.getBoolean(key);
+        } else if (parameterClass == Integer.class || parameterClass == int.class) {
+            return (config, key) -> config.getInt(key);
+        } else if (parameterClass == Double.class || parameterClass == double.class) {
+            return (config, key) -> config.getDouble(key);
+        } else if (parameterClass == Long.class || parameterClass == long.class) {
+            return (config, key) -> config.getLong(key);
+        } else if (parameterClass == String.class) {
+            return (config, key) -> config.getString(key);
+        } else if (parameterClass == Duration.class) {
+            return (config, key) -> config.getDuration(key);
+        } else if (parameterClass == ConfigMemorySize.class) {
+            return (config, key) -> config.getMemorySize(key);
+        } else if (parameterClass == Object.class) {
+            return (config, key) -> config.getAnyRef(key);
+        } else if (parameterClass == Config.class) {
+            return (config, key) -> config.getConfig(key);
+        } else if (parameterClass == ConfigObject.class) {
+            return (config, key) -> config.getObject(key);
+        } else if (parameterClass == ConfigValue.class) {
+            return (config, key) -> config.getValue(key);
+        } else if (parameterClass == ConfigList.class) {
+            return (config, key) -> config.getList(key);
+        } else if (parameterClass.isEnum()) {
+            return enumGetter(parameterClass);
+        } else if (parameterClass == Map.class && parameterType instanceof ParameterizedType) {
+            Type[] typeArgs = ((ParameterizedType) parameterType).getActualTypeArguments();
+            if (typeArgs[0] == String.class && typeArgs[1] == Object.class)
+                return (config, key) -> config.getObject(key).unwrapped();
+        } else if ((parameterClass == List.class || parameterClass == Set.class)
+                && parameterType instanceof ParameterizedType) {
+            Type elementType = ((ParameterizedType) parameterType).getActualTypeArguments()[0];
+            final Getter list = listGetter(elementType);
+            if (list != null && parameterClass == Set.class)
+                return (config, key) -> new HashSet<Object>((List<?>) list.get(config, key));
+            else if (list != null)
+                return list;
+        } else if (parameterClass != List.class && parameterClass != Set.class && parameterClass != Map.class
+                && ConfigBeanImpl.hasAtLeastOneBeanProperty(parameterClass)) {
+            return (config, key) -> forClass(parameterClass).bind(config.getConfig(key));
+        }
+
+        // anything else fails, or does something odd, the same way it always
+        // has, if and when the config sets the property
+        return (config, key) -> ConfigBeanImpl.getValue(beanClass, parameterType, parameterClass, config, key);
+    }
+
+    // null if ConfigBeanImpl.getListValue should handle it
+    private static Getter listGetter(Type elementType) {
+        if (elementType == Boolean.class) {
+            return (config, key) -> config.getBooleanList(key);
+        } else if (elementType == Integer.class) {
+            return (config, key) -> config.getIntList(key);
+        } else if (elementType == Double.class) {
+            return (config, key) -> config.getDoubleList(key);
+        } else if (elementType == Long.class) {
+            return (config, key) -> config.getLongList(key);
+        } else if (elementType == String.class) {
+            return (config, key) -> config.getStringList(key);
+        } else if (elementType == Duration.class) {
+            return (config, key) -> config.getDurationList(key);
+        } else if (elementType == ConfigMemorySize.class) {
+            return (config, key) -> config.getMemorySizeList(key);
+        } else if (elementType == Object.class) {
+            return (config, key) -> config.getAnyRefList(key);
+        } else if (elementType == Config.class) {
+            return (config, key) -> config.getConfigList(key);
+        } else if (elementType == ConfigObject.class) {
+            return (config, key) -> config.getObjectList(key);
+        } else if (elementType == ConfigValue.class) {
+            return (config, key) -> config.getList(key);
+        } else if (!(elementType instanceof Class)) {
+            return null;
+        }
+
+        final Class<?> elementClass = (Class<?>) elementType;
+        if (elementClass.isEnum()) {
+            return enumListGetter(elementClass);
+        } else if (ConfigBeanImpl.hasAtLeastOneBeanProperty(elementClass)) {
+            return (config, key) -> {
+                BeanBinder<?> binder = forClass(elementClass);
+                List<Object> beans = new ArrayList<Object>();
+                for (Config member : config.getConfigList(key))
+                    beans.add(binder.bind(member));
+                return beans;
+            };
+        } else {
+            return null;
+        }
+    }
+
+    // the enum's own type isn't known here, only that it is one
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Getter enumGetter(Class<?> enumClass) {
+        return (config, key) -> config.getEnum((Class<Enum>) enumClass, key);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Getter enumListGetter(Class<?> enumClass) {
+        return (config, key) -> config.getEnumList((Class<Enum>) enumClass, key);
+    }
+}
@@ -35,6 +35,13 @@ public class ConfigBeanImpl {
      * @return the bean instance
      */
     public static <T> T createInternal(com.gu.typesafe.config.Config config, Class<T> clazz) {
+        return BeanBinder.forClass(clazz).bind(config);
+    }
+
+    // Introspects and reflects on every call; kept as the reference
+    // behaviour for BeanBinder, which reuses its conversions for anything
+    // unusual, and to benchmark against.
+    static <T> T createReflectively(com.gu.typesafe.config.Config config, Class<T> clazz) {
         if (((com.gu.typesafe.config.impl.SimpleConfig)config).root().resolveStatus() != ResolveStatus.RESOLVED)
             throw new com.gu.typesafe.config.ConfigException.NotResolved(
                     "need to Config#resolve() a config before using it to initialize a bean, see the API docs for Config#resolve()");
@@ -136,7 +143,7 @@ public class ConfigBeanImpl {
     // setting. So, instead, we only support a limited number of
     // types plus you can always use Object, ConfigValue, Config,
     // ConfigObject, etc.  as an escape hatch.
-    private static Object getValue(Class<?> beanClass, Type parameterType, Class<?> parameterClass, com.gu.typesafe.config.Config config,
+    static Object getValue(Class<?> beanClass, Type parameterType, Class<?> parameterClass, com.gu.typesafe.config.Config config,
             String configPropName) {
         if (parameterClass == Boolean.class || parameterClass == boolean.class) {
             return config.getBoolean(configPropName);
@@ -230,7 +237,7 @@ public class ConfigBeanImpl {
     }
 
     // null if we can't easily say; this is heuristic/best-effort
-    private static com.gu.typesafe.config.ConfigValueType getValueTypeOrNull(Class<?> parameterClass) {
+    static com.gu.typesafe.config.ConfigValueType getValueTypeOrNull(Class<?> parameterClass) {
         if (parameterClass == Boolean.class || parameterClass == boolean.class) {
             return com.gu.typesafe.config.ConfigValueType.BOOLEAN;
         } else if (parameterClass == Integer.class || parameterClass == int.class) {
@@ -260,7 +267,7 @@ public class ConfigBeanImpl {
         }
     }
 
-    private static boolean hasAtLeastOneBeanProperty(Class<?> clazz) {
+    static boolean hasAtLeastOneBeanProperty(Class<?> clazz) {
         BeanInfo beanInfo = null;
         try {
             beanInfo = Introspector.getBeanInfo(clazz);
@@ -277,7 +284,7 @@ public class ConfigBeanImpl {
         return false;
     }
 
-    private static boolean isOptionalProperty(Class beanClass, PropertyDescriptor beanProp) {
+    static boolean isOptionalProperty(Class beanClass, PropertyDescriptor beanProp) {
         Field field = getField(beanClass, beanProp.getName());
         return field != null ? field.getAnnotationsByType(com.gu.typesafe.config.Optional.class).length > 0 : beanProp.getReadMethod().getAnnotationsByType(Optional.class).length > 0;
     }
@@ -81,6 +81,10 @@ final class ConfigConcatenation extends com.gu.typesafe.config.impl.AbstractConf
         return Collections.singleton(this);
     }
 
+    List<com.gu.typesafe.config.impl.AbstractConfigValue> pieces() {
+        return pieces;
+    }
+
     private static boolean isIgnoredWhitespace(com.gu.typesafe.config.impl.AbstractConfigValue value) {
         return (value instanceof ConfigString) && !((ConfigString)value).wasQuoted();
     }
@@ -285,7 +289,7 @@ final class ConfigConcatenation extends com.gu.typesafe.config.impl.AbstractConf
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderWriter sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         for (com.gu.typesafe.config.impl.AbstractConfigValue p : pieces) {
             p.render(sb, indent, atRoot, options);
         }
@@ -266,17 +266,17 @@ final class ConfigDelayedMerge extends com.gu.typesafe.config.impl.AbstractConfi
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, String atKey, ConfigRenderOptions options) {
+    protected void render(RenderWriter sb, int indent, boolean atRoot, String atKey, ConfigRenderOptions options) {
         render(stack, sb, indent, atRoot, atKey, options);
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderWriter sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         render(sb, indent, atRoot, null, options);
     }
 
     // static method also used by ConfigDelayedMergeObject.
-    static void render(List<com.gu.typesafe.config.impl.AbstractConfigValue> stack, StringBuilder sb, int indent, boolean atRoot, String atKey,
+    static void render(List<com.gu.typesafe.config.impl.AbstractConfigValue> stack, RenderWriter sb, int indent, boolean atRoot, String atKey,
                        ConfigRenderOptions options) {
         boolean commentMerge = options.getComments();
         if (commentMerge) {
@@ -294,7 +294,15 @@ final class ConfigDelayedMerge extends com.gu.typesafe.config.impl.AbstractConfi
         Collections.reverse(reversed);
 
         int i = 0;
+        boolean first = true;
         for (com.gu.typesafe.config.impl.AbstractConfigValue v : reversed) {
+            // separate from the previous value before starting this one
+            if (!first) {
+                sb.append(",");
+                if (options.getFormatted())
+                    sb.append('\n');
+            }
+            first = false;
             if (commentMerge) {
                 indent(sb, indent, options);
                 if (atKey != null) {
@@ -324,16 +332,9 @@ final class ConfigDelayedMerge extends com.gu.typesafe.config.impl.AbstractConfi
                     sb.append(":");
             }
             v.render(sb, indent, atRoot, options);
-            sb.append(",");
-            if (options.getFormatted())
-                sb.append('\n');
-        }
-        // chop comma or newline
-        sb.setLength(sb.length() - 1);
-        if (options.getFormatted()) {
-            sb.setLength(sb.length() - 1); // also chop comma
-            sb.append("\n"); // put a newline back
         }
+        if (options.getFormatted())
+            sb.append("\n");
         if (commentMerge) {
             indent(sb, indent, options);
             sb.append("# ) end of unresolved merge\n");
@@ -183,12 +183,12 @@ final class ConfigDelayedMergeObject extends AbstractConfigObject implements com
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, String atKey, ConfigRenderOptions options) {
+    protected void render(RenderWriter sb, int indent, boolean atRoot, String atKey, ConfigRenderOptions options) {
         ConfigDelayedMerge.render(stack, sb, indent, atRoot, atKey, options);
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderWriter sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         render(sb, indent, atRoot, null, options);
     }
 
@@ -4,6 +4,8 @@
 package com.gu.typesafe.config.impl;
 
 import java.io.File;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.time.Duration;
@@ -15,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.gu.typesafe.config.*;
 import com.gu.typesafe.config.ConfigMemorySize;
@@ -26,63 +29,243 @@ import com.gu.typesafe.config.ConfigMemorySize;
 public class ConfigImpl {
     private static final String ENV_VAR_OVERRIDE_PREFIX = "CONFIG_FORCE_";
 
+    // Caches configs per class loader, such as the result of
+    // ConfigFactory.load(). Loaders are held weakly, so a discarded loader
+    // (for example after a Play dev-mode reload) takes its configs with it.
+    //
+    // Each config is computed once even when many threads ask for it at
+    // the same time, and computing one key never blocks lookups of another.
+    // An entry that read the system properties while it was being computed
+    // is dropped once they are reloaded; other entries are kept.
     private static class LoaderCache {
-        private com.gu.typesafe.config.Config currentSystemProperties;
-        private WeakReference<ClassLoader> currentLoader;
-        private Map<String, com.gu.typesafe.config.Config> cache;
+        // a weak reference to a class loader that compares by the identity
+        // of the loader
+        private static final class LoaderKey extends WeakReference<ClassLoader> {
+            final private int hash;
+
+            LoaderKey(ClassLoader loader, ReferenceQueue<ClassLoader> queue) {
+                super(loader, queue);
+                this.hash = System.identityHashCode(loader);
+            }
 
-        LoaderCache() {
-            this.currentSystemProperties = null;
-            this.currentLoader = new WeakReference<ClassLoader>(null);
-            this.cache = new HashMap<String, com.gu.typesafe.config.Config>();
-        }
+            @Override
+            public boolean equals(Object other) {
+                if (this == other)
+                    return true;
+                if (!(other instanceof LoaderKey))
+                    return false;
+                ClassLoader loader = get();
+                return loader != null && loader == ((LoaderKey) other).get();
+            }
 
-        // for now, caching as long as the loader remains the same,
-        // drop entire cache if it changes.
-        synchronized com.gu.typesafe.config.Config getOrElseUpdate(ClassLoader loader, String key, Callable<com.gu.typesafe.config.Config> updater) {
-            if (loader != currentLoader.get()) {
-                // reset the cache if we start using a different loader
-                cache.clear();
-                currentLoader = new WeakReference<ClassLoader>(loader);
+            @Override
+            public int hashCode() {
+                return hash;
             }
+        }
 
-            com.gu.typesafe.config.Config systemProperties = systemPropertiesAsConfig();
-            if (systemProperties != currentSystemProperties) {
-                cache.clear();
-                currentSystemProperties = systemProperties;
+        private static final class Entry {
+            final private Callable<com.gu.typesafe.config.Config> updater;
+            final private Thread owner;
+            // the system properties read while computing this entry, or
+            // null if it didn't read them
+            private volatile com.gu.typesafe.config.Config systemProperties;
+            // written before done, so reading done first publishes them
+            private com.gu.typesafe.config.Config config;
+            private RuntimeException failure;
+            private volatile boolean done;
+
+            Entry(Callable<com.gu.typesafe.config.Config> updater) {
+                this.updater = updater;
+                this.owner = Thread.currentThread();
             }
 
-            com.gu.typesafe.config.Config config = cache.get(key);
-            if (config == null) {
+            void compute() {
+                com.gu.typesafe.config.Config result = null;
+                RuntimeException error = null;
                 try {
-                    config = updater.call();
+                    result = updater.call();
+                    if (result == null)
+                        error = new com.gu.typesafe.config.ConfigException.BugOrBroken("null config from cache updater");
                 } catch (RuntimeException e) {
-                    throw e; // this will include ConfigException
+                    error = e; // this will include ConfigException
                 } catch (Exception e) {
-                    throw new com.gu.typesafe.config.ConfigException.Generic(e.getMessage(), e);
+                    error = new com.gu.typesafe.config.ConfigException.Generic(e.getMessage(), e);
+                }
+                synchronized (this) {
+                    config = result;
+                    failure = error;
+                    done = true;
+                    notifyAll();
+                }
+            }
+
+            com.gu.typesafe.config.Config await(String key) {
+                if (!done) {
+                    if (owner == Thread.currentThread())
+                        throw new com.gu.typesafe.config.ConfigException.BugOrBroken(
+                                "cached config '" + key + "' depends on itself");
+                    waitUntilDone();
+                }
+                if (failure != null)
+                    throw failure;
+                return config;
+            }
+
+            private synchronized void waitUntilDone() {
+                boolean interrupted = false;
+                while (!done) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted)
+                    Thread.currentThread().interrupt();
+            }
+
+            boolean isStale() {
+                com.gu.typesafe.config.Config read = systemProperties;
+                return read != null && read != systemPropertiesAsConfigObject().toConfig();
+            }
+
+            void readSystemProperties(com.gu.typesafe.config.Config read) {
+                if (systemProperties == null)
+                    systemProperties = read;
+            }
+        }
+
+        // the loader most recently looked up and its entries; almost
+        // every lookup is for the same loader as the one before
+        private static final class LastLoader {
+            final WeakReference<ClassLoader> loader;
+            final ConcurrentHashMap<String, Entry> entries;
+
+            LastLoader(ClassLoader loader, ConcurrentHashMap<String, Entry> entries) {
+                this.loader = new WeakReference<ClassLoader>(loader);
+                this.entries = entries;
+            }
+        }
+
+        final private ConcurrentHashMap<LoaderKey, ConcurrentHashMap<String, Entry>> loaders;
+        private volatile LastLoader lastLoader;
+        // a null loader can't be weakly referenced, and never goes away
+        final private ConcurrentHashMap<String, Entry> nullLoaderEntries;
+        final private ReferenceQueue<ClassLoader> collectedLoaders;
+        // the entry this thread is computing, if any
+        final private ThreadLocal<Entry> computing;
+
+        LoaderCache() {
+            this.loaders = new ConcurrentHashMap<LoaderKey, ConcurrentHashMap<String, Entry>>();
+            this.nullLoaderEntries = new ConcurrentHashMap<String, Entry>();
+            this.collectedLoaders = new ReferenceQueue<ClassLoader>();
+            this.computing = new ThreadLocal<Entry>();
+            this.lastLoader = new LastLoader(null, null);
+        }
+
+        com.gu.typesafe.config.Config getOrElseUpdate(ClassLoader loader, String key, Callable<com.gu.typesafe.config.Config> updater) {
+            ConcurrentHashMap<String, Entry> entries = entriesFor(loader);
+
+            Entry entry;
+            com.gu.typesafe.config.Config config;
+            do {
+                entry = entries.get(key);
+                if (entry != null && entry.isStale()) {
+                    entries.remove(key, entry);
+                    entry = null;
                 }
-                if (config == null)
-                    throw new com.gu.typesafe.config.ConfigException.BugOrBroken("null config from cache updater");
-                cache.put(key, config);
+                if (entry == null) {
+                    Entry created = new Entry(updater);
+                    entry = entries.putIfAbsent(key, created);
+                    if (entry == null) {
+                        entry = created;
+                        compute(entries, key, entry);
+                    }
+                }
+                config = entry.await(key);
+                // an entry still being computed may not have said yet that
+                // it read the system properties; if it read them from before
+                // a reload that we came after, compute it again
+            } while (entry.isStale());
+
+            // if we're computing another entry from this one, that one
+            // depends on whatever this one read
+            com.gu.typesafe.config.Config systemProperties = entry.systemProperties;
+            if (systemProperties != null) {
+                Entry dependent = computing.get();
+                if (dependent != null)
+                    dependent.readSystemProperties(systemProperties);
             }
 
             return config;
         }
+
+        void readSystemProperties(com.gu.typesafe.config.Config systemProperties) {
+            Entry entry = computing.get();
+            if (entry != null)
+                entry.readSystemProperties(systemProperties);
+        }
+
+        private void compute(ConcurrentHashMap<String, Entry> entries, String key, Entry entry) {
+            Entry outer = computing.get();
+            computing.set(entry);
+            try {
+                entry.compute();
+            } finally {
+                if (outer != null)
+                    computing.set(outer);
+                else
+                    computing.remove();
+            }
+            // don't cache failures; the next caller tries again
+            if (entry.failure != null)
+                entries.remove(key, entry);
+        }
+
+        private ConcurrentHashMap<String, Entry> entriesFor(ClassLoader loader) {
+            if (loader == null)
+                return nullLoaderEntries;
+
+            LastLoader last = lastLoader;
+            if (last.loader.get() == loader)
+                return last.entries;
+
+            expungeCollectedLoaders();
+            ConcurrentHashMap<String, Entry> entries = loaders.get(new LoaderKey(loader, null));
+            if (entries == null) {
+                ConcurrentHashMap<String, Entry> created = new ConcurrentHashMap<String, Entry>();
+                entries = loaders.putIfAbsent(new LoaderKey(loader, collectedLoaders), created);
+                if (entries == null)
+                    entries = created;
+            }
+            lastLoader = new LastLoader(loader, entries);
+            return entries;
+        }
+
+        private void expungeCollectedLoaders() {
+            Reference<? extends ClassLoader> collected;
+            while ((collected = collectedLoaders.poll()) != null) {
+                loaders.remove(collected);
+            }
+        }
     }
 
     private static class LoaderCacheHolder {
         static final LoaderCache cache = new LoaderCache();
     }
 
-    public static com.gu.typesafe.config.Config computeCachedConfig(ClassLoader loader, String key,
-                                                                    Callable<com.gu.typesafe.config.Config> updater) {
-        LoaderCache cache;
+    private static LoaderCache loaderCache() {
         try {
-            cache = LoaderCacheHolder.cache;
+            return LoaderCacheHolder.cache;
         } catch (ExceptionInInitializerError e) {
             throw ConfigImplUtil.extractInitializerError(e);
         }
-        return cache.getOrElseUpdate(loader, key, updater);
+    }
+
+    public static com.gu.typesafe.config.Config computeCachedConfig(ClassLoader loader, String key,
+                                                                    Callable<com.gu.typesafe.config.Config> updater) {
+        return loaderCache().getOrElseUpdate(loader, key, updater);
     }
 
 
@@ -130,6 +313,16 @@ public class ConfigImpl {
         return SimpleIncluder.fromBasename(source, basename.getPath(), baseOptions);
     }
 
+    public static com.gu.typesafe.config.Config parseFileWithSnapshot(File file, com.gu.typesafe.config.ConfigParseOptions parseOptions,
+                                                                      File snapshotFile, com.gu.typesafe.config.ConfigResolveOptions resolveOptions) {
+        return ConfigSnapshot.load(file, parseOptions, snapshotFile, resolveOptions);
+    }
+
+    public static com.gu.typesafe.config.ReloadingConfig parseFileReloading(File file, com.gu.typesafe.config.ConfigParseOptions parseOptions,
+                                                                            com.gu.typesafe.config.ConfigResolveOptions resolveOptions) {
+        return new SimpleReloadingConfig(file, parseOptions, resolveOptions);
+    }
+
     static AbstractConfigObject emptyObject(String originDescription) {
         com.gu.typesafe.config.ConfigOrigin origin = originDescription != null ? SimpleConfigOrigin
                 .newSimple(originDescription) : null;
@@ -305,9 +498,20 @@ public class ConfigImpl {
         return systemPropertiesCopy;
     }
 
+    // the trees last built from each flat source
+    private static final FlatSourceCache systemPropertiesTrees = new FlatSourceCache();
+    private static final FlatSourceCache envVariablesTrees = new FlatSourceCache();
+    private static final FlatSourceCache envVariablesOverridesTrees = new FlatSourceCache();
+
     private static AbstractConfigObject loadSystemProperties() {
-        return (AbstractConfigObject) com.gu.typesafe.config.impl.Parseable.newProperties(getSystemProperties(),
-                com.gu.typesafe.config.ConfigParseOptions.defaults().setOriginDescription("system properties")).parse();
+        final Properties systemProperties = getSystemProperties();
+        return systemPropertiesTrees.get(systemProperties, new Callable<AbstractConfigObject>() {
+            @Override
+            public AbstractConfigObject call() {
+                return (AbstractConfigObject) com.gu.typesafe.config.impl.Parseable.newProperties(systemProperties,
+                        com.gu.typesafe.config.ConfigParseOptions.defaults().setOriginDescription("system properties")).parse();
+            }
+        });
     }
 
     private static class SystemPropertiesHolder {
@@ -324,7 +528,9 @@ public class ConfigImpl {
     }
 
     public static com.gu.typesafe.config.Config systemPropertiesAsConfig() {
-        return systemPropertiesAsConfigObject().toConfig();
+        com.gu.typesafe.config.Config systemProperties = systemPropertiesAsConfigObject().toConfig();
+        loaderCache().readSystemProperties(systemProperties);
+        return systemProperties;
     }
 
     public static void reloadSystemPropertiesConfig() {
@@ -334,7 +540,13 @@ public class ConfigImpl {
     }
 
     private static AbstractConfigObject loadEnvVariables() {
-        return PropertiesParser.fromStringMap(newSimpleOrigin("env variables"), System.getenv());
+        final Map<String, String> env = System.getenv();
+        return envVariablesTrees.get(env, new Callable<AbstractConfigObject>() {
+            @Override
+            public AbstractConfigObject call() {
+                return PropertiesParser.fromStringMap(newSimpleOrigin("env variables"), env);
+            }
+        });
     }
 
     private static class EnvVariablesHolder {
@@ -363,7 +575,7 @@ public class ConfigImpl {
 
     private static AbstractConfigObject loadEnvVariablesOverrides() {
         Map<String, String> env = new HashMap(System.getenv());
-        Map<String, String> result = new HashMap();
+        final Map<String, String> result = new HashMap();
 
         for (String key : env.keySet()) {
             if (key.startsWith(ENV_VAR_OVERRIDE_PREFIX)) {
@@ -371,7 +583,12 @@ public class ConfigImpl {
             }
         }
 
-        return PropertiesParser.fromStringMap(newSimpleOrigin("env variables overrides"), result);
+        return envVariablesOverridesTrees.get(result, new Callable<AbstractConfigObject>() {
+            @Override
+            public AbstractConfigObject call() {
+                return PropertiesParser.fromStringMap(newSimpleOrigin("env variables overrides"), result);
+            }
+        });
     }
 
     private static class EnvVariablesOverridesHolder {
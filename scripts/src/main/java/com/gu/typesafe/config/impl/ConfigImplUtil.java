@@ -212,6 +212,10 @@ final public class ConfigImplUtil {
         return elements;
     }
 
+    public static com.gu.typesafe.config.ConfigPath compilePath(String path) {
+        return new SimpleConfigPath(Path.newPath(path), path);
+    }
+
     public static com.gu.typesafe.config.ConfigOrigin readOrigin(ObjectInputStream in) throws IOException {
         return com.gu.typesafe.config.impl.SerializedConfigValue.readOrigin(in, null);
     }
@@ -25,6 +25,13 @@ abstract class ConfigNodeComplexValue extends AbstractConfigNodeValue {
         return tokens;
     }
 
+    @Override
+    void render(StringBuilder sb) {
+        for (AbstractConfigNode child : children) {
+            child.render(sb);
+        }
+    }
+
     protected ConfigNodeComplexValue indentText(AbstractConfigNode indentation) {
         ArrayList<AbstractConfigNode> childrenCopy = new ArrayList<AbstractConfigNode>(children);
         for (int i = 0; i < childrenCopy.size(); i++) {
@@ -25,11 +25,24 @@ final class ConfigNodeField extends com.gu.typesafe.config.impl.AbstractConfigNo
         return tokens;
     }
 
+    @Override
+    void render(StringBuilder sb) {
+        for (com.gu.typesafe.config.impl.AbstractConfigNode child : children) {
+            child.render(sb);
+        }
+    }
+
     public ConfigNodeField replaceValue(com.gu.typesafe.config.impl.AbstractConfigNodeValue newValue) {
         ArrayList<com.gu.typesafe.config.impl.AbstractConfigNode> childrenCopy = new ArrayList<com.gu.typesafe.config.impl.AbstractConfigNode>(children);
         for (int i = 0; i < childrenCopy.size(); i++) {
             if (childrenCopy.get(i) instanceof com.gu.typesafe.config.impl.AbstractConfigNodeValue) {
                 childrenCopy.set(i, newValue);
+                // only an object can follow its key without a separator, as
+                // in `a { b = 1 }`
+                if (separator() == null && !(newValue instanceof ConfigNodeObject)) {
+                    childrenCopy.add(i, new com.gu.typesafe.config.impl.ConfigNodeSingleToken(com.gu.typesafe.config.impl.Tokens.newIgnoredWhitespace(null, " ")));
+                    childrenCopy.add(i, new com.gu.typesafe.config.impl.ConfigNodeSingleToken(com.gu.typesafe.config.impl.Tokens.COLON));
+                }
                 return new ConfigNodeField(childrenCopy);
             }
         }
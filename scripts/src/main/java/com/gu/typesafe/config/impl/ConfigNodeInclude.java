@@ -27,6 +27,13 @@ final class ConfigNodeInclude extends com.gu.typesafe.config.impl.AbstractConfig
         return tokens;
     }
 
+    @Override
+    void render(StringBuilder sb) {
+        for (com.gu.typesafe.config.impl.AbstractConfigNode child : children) {
+            child.render(sb);
+        }
+    }
+
     protected ConfigIncludeKind kind() {
         return kind;
     }
@@ -4,10 +4,27 @@ import com.gu.typesafe.config.ConfigSyntax;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 final class ConfigNodeObject extends com.gu.typesafe.config.impl.ConfigNodeComplexValue {
+    private static final int[] NO_FIELDS = new int[0];
+
+    // The indices of the fields among the children, by the first element of
+    // their key, built the first time an edit needs them. Every field an edit
+    // can change shares the first element of the edited path, so an edit only
+    // has to look at those rather than at every field in a wide object. An
+    // edit that only replaces values moves nothing, and hands this on to the
+    // object it makes, so a run of them on the same object builds it once.
+    private volatile Map<String, int[]> fieldsByFirstKey;
+
     ConfigNodeObject(Collection<AbstractConfigNode> children) {
+        this(children, null);
+    }
+
+    private ConfigNodeObject(Collection<AbstractConfigNode> children, Map<String, int[]> fieldsByFirstKey) {
         super(children);
+        this.fieldsByFirstKey = fieldsByFirstKey;
     }
 
     @Override
@@ -15,20 +32,51 @@ final class ConfigNodeObject extends com.gu.typesafe.config.impl.ConfigNodeCompl
         return new ConfigNodeObject(nodes);
     }
 
+    private Map<String, int[]> fieldsByFirstKey() {
+        Map<String, int[]> index = fieldsByFirstKey;
+        if (index == null) {
+            Map<String, ArrayList<Integer>> positions = new HashMap<String, ArrayList<Integer>>();
+            for (int i = 0; i < children.size(); i++) {
+                if (children.get(i) instanceof ConfigNodeField) {
+                    String first = ((ConfigNodeField) children.get(i)).path().value().first();
+                    ArrayList<Integer> forKey = positions.get(first);
+                    if (forKey == null) {
+                        forKey = new ArrayList<Integer>(1);
+                        positions.put(first, forKey);
+                    }
+                    forKey.add(i);
+                }
+            }
+            index = new HashMap<String, int[]>(positions.size() * 2);
+            for (Map.Entry<String, ArrayList<Integer>> entry : positions.entrySet()) {
+                int[] indices = new int[entry.getValue().size()];
+                for (int i = 0; i < indices.length; i++)
+                    indices[i] = entry.getValue().get(i);
+                index.put(entry.getKey(), indices);
+            }
+            fieldsByFirstKey = index;
+        }
+        return index;
+    }
+
+    // the indices of the fields whose key starts with first, in order
+    private int[] fieldsStartingWith(String first) {
+        int[] indices = fieldsByFirstKey().get(first);
+        return indices != null ? indices : NO_FIELDS;
+    }
+
     public boolean hasValue(Path desiredPath) {
-        for (AbstractConfigNode node : children) {
-            if (node instanceof ConfigNodeField) {
-                ConfigNodeField field = (ConfigNodeField) node;
-                Path key = field.path().value();
-                if (key.equals(desiredPath) || key.startsWith(desiredPath)) {
-                    return true;
-                } else if (desiredPath.startsWith(key)) {
-                    if (field.value() instanceof ConfigNodeObject) {
-                        ConfigNodeObject obj = (ConfigNodeObject) field.value();
-                        Path remainingPath = desiredPath.subPath(key.length());
-                        if (obj.hasValue(remainingPath)) {
-                            return true;
-                        }
+        for (int i : fieldsStartingWith(desiredPath.first())) {
+            ConfigNodeField field = (ConfigNodeField) children.get(i);
+            Path key = field.path().value();
+            if (key.equals(desiredPath) || key.startsWith(desiredPath)) {
+                return true;
+            } else if (desiredPath.startsWith(key)) {
+                if (field.value() instanceof ConfigNodeObject) {
+                    ConfigNodeObject obj = (ConfigNodeObject) field.value();
+                    Path remainingPath = desiredPath.subPath(key.length());
+                    if (obj.hasValue(remainingPath)) {
+                        return true;
                     }
                 }
             }
@@ -41,12 +89,27 @@ final class ConfigNodeObject extends com.gu.typesafe.config.impl.ConfigNodeCompl
         boolean seenNonMatching = false;
         // Copy the value so we can change it to null but not modify the original parameter
         com.gu.typesafe.config.impl.AbstractConfigNodeValue valueCopy = value;
+        Map<String, int[]> index = fieldsByFirstKey();
+        int[] candidates = fieldsStartingWith(desiredPath.first());
+        int next = candidates.length - 1;
+        boolean removed = false;
         for (int i = childrenCopy.size() - 1; i >= 0; i--) {
+            // Past the trailing commas nothing changes but the fields whose key
+            // starts like the path, so go straight to the next of those. Only
+            // children from i on have been removed, so their indices still hold.
+            if (seenNonMatching) {
+                while (next >= 0 && candidates[next] > i)
+                    next--;
+                if (next < 0)
+                    break;
+                i = candidates[next];
+            }
             if (childrenCopy.get(i) instanceof com.gu.typesafe.config.impl.ConfigNodeSingleToken) {
                 Token t = ((com.gu.typesafe.config.impl.ConfigNodeSingleToken) childrenCopy.get(i)).token();
                 // Ensure that, when we are removing settings in JSON, we don't end up with a trailing comma
                 if (flavor == com.gu.typesafe.config.ConfigSyntax.JSON && !seenNonMatching && t == com.gu.typesafe.config.impl.Tokens.COMMA) {
                     childrenCopy.remove(i);
+                    removed = true;
                 }
                 continue;
             } else if (!(childrenCopy.get(i) instanceof ConfigNodeField)) {
@@ -58,6 +121,7 @@ final class ConfigNodeObject extends com.gu.typesafe.config.impl.ConfigNodeCompl
             // Delete all multi-element paths that start with the desired path, since technically they are duplicates
             if ((valueCopy == null && key.equals(desiredPath))|| (key.startsWith(desiredPath) && !key.equals(desiredPath))) {
                 childrenCopy.remove(i);
+                removed = true;
                 // Remove any whitespace or commas after the deleted setting
                 for (int j = i; j < childrenCopy.size(); j++) {
                     if (childrenCopy.get(j) instanceof com.gu.typesafe.config.impl.ConfigNodeSingleToken) {
@@ -89,14 +153,17 @@ final class ConfigNodeObject extends com.gu.typesafe.config.impl.ConfigNodeCompl
                 if (node.value() instanceof ConfigNodeObject) {
                     Path remainingPath = desiredPath.subPath(key.length());
                     childrenCopy.set(i, node.replaceValue(((ConfigNodeObject) node.value()).changeValueOnPath(remainingPath, valueCopy, flavor)));
-                    if (valueCopy != null && !node.equals(super.children.get(i)))
+                    // node is still the child at i, as only children after it have been
+                    // removed or replaced so far; comparing them by identity rather than
+                    // by their renders keeps each edit from walking the whole subtree
+                    if (valueCopy != null && node != super.children.get(i))
                         valueCopy = null;
                 }
             } else {
                 seenNonMatching = true;
             }
         }
-        return new ConfigNodeObject(childrenCopy);
+        return removed ? new ConfigNodeObject(childrenCopy) : new ConfigNodeObject(childrenCopy, index);
     }
 
     public ConfigNodeObject setValueOnPath(String desiredPath, com.gu.typesafe.config.impl.AbstractConfigNodeValue value) {
@@ -180,10 +247,9 @@ final class ConfigNodeObject extends com.gu.typesafe.config.impl.ConfigNodeCompl
 
         // If the path is of length greater than one, see if the value needs to be added further down
         if (path.length() > 1) {
-            for (int i = super.children.size() - 1; i >= 0; i--) {
-                if (!(super.children.get(i) instanceof ConfigNodeField)) {
-                    continue;
-                }
+            int[] candidates = fieldsStartingWith(path.first());
+            for (int c = candidates.length - 1; c >= 0; c--) {
+                int i = candidates[c];
                 ConfigNodeField node = (ConfigNodeField) super.children.get(i);
                 Path key = node.path().value();
                 if (path.startsWith(key) && node.value() instanceof ConfigNodeObject) {
@@ -20,6 +20,11 @@ final class ConfigNodeSimpleValue extends AbstractConfigNodeValue {
         return Collections.singletonList(token);
     }
 
+    @Override
+    void render(StringBuilder sb) {
+        sb.append(token.tokenText());
+    }
+
     protected Token token() { return token; }
 
     protected com.gu.typesafe.config.impl.AbstractConfigValue value() {
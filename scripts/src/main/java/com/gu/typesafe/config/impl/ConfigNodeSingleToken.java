@@ -17,5 +17,10 @@ class ConfigNodeSingleToken extends AbstractConfigNode {
         return Collections.singletonList(token);
     }
 
+    @Override
+    void render(StringBuilder sb) {
+        sb.append(token.tokenText());
+    }
+
     protected Token token() { return token; }
 }
@@ -42,7 +42,7 @@ final class ConfigNull extends com.gu.typesafe.config.impl.AbstractConfigValue i
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderWriter sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         sb.append("null");
     }
 
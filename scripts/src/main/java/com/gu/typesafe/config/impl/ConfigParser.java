@@ -9,10 +9,12 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.RecursiveAction;
 
 import com.gu.typesafe.config.ConfigException;
 
@@ -20,11 +22,92 @@ final class ConfigParser {
     static com.gu.typesafe.config.impl.AbstractConfigValue parse(com.gu.typesafe.config.impl.ConfigNodeRoot document,
                                                                  com.gu.typesafe.config.ConfigOrigin origin, com.gu.typesafe.config.ConfigParseOptions options,
                                                                  com.gu.typesafe.config.ConfigIncludeContext includeContext) {
+        return parse(document, origin, options, includeContext, 1);
+    }
+
+    // for a document tokenized from a piece of a larger text which starts on
+    // firstLine of it
+    static com.gu.typesafe.config.impl.AbstractConfigValue parse(com.gu.typesafe.config.impl.ConfigNodeRoot document,
+                                                                 com.gu.typesafe.config.ConfigOrigin origin, com.gu.typesafe.config.ConfigParseOptions options,
+                                                                 com.gu.typesafe.config.ConfigIncludeContext includeContext, int firstLine) {
         ParseContext context = new ParseContext(options.getSyntax(), origin, document,
-                com.gu.typesafe.config.impl.SimpleIncluder.makeFull(options.getIncluder()), includeContext);
+                com.gu.typesafe.config.impl.SimpleIncluder.makeFull(options.getIncluder()), includeContext,
+                options.getParallelIncludes(), firstLine);
         return context.parse();
     }
 
+    static private com.gu.typesafe.config.impl.AbstractConfigObject include(com.gu.typesafe.config.impl.FullIncluder includer,
+                                                                          com.gu.typesafe.config.ConfigIncludeContext cic,
+                                                                          com.gu.typesafe.config.impl.ConfigNodeInclude n, URL url) {
+        switch (n.kind()) {
+            case URL:
+                return (com.gu.typesafe.config.impl.AbstractConfigObject) includer.includeURL(cic, url);
+
+            case FILE:
+                return (com.gu.typesafe.config.impl.AbstractConfigObject) includer.includeFile(cic,
+                        new File(n.name()));
+
+            case CLASSPATH:
+                return (com.gu.typesafe.config.impl.AbstractConfigObject) includer.includeResources(cic, n.name());
+
+            case HEURISTIC:
+                return (com.gu.typesafe.config.impl.AbstractConfigObject) includer
+                        .include(cic, n.name());
+
+            default:
+                throw new com.gu.typesafe.config.ConfigException.BugOrBroken("should not be reached");
+        }
+    }
+
+    // an include being parsed on the fork-join pool. Failures are kept
+    // and rethrown as they were, rather than through join(), which may wrap
+    // them in a copy.
+    static private final class IncludeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final private com.gu.typesafe.config.impl.FullIncluder includer;
+        final private com.gu.typesafe.config.ConfigIncludeContext cic;
+        final private com.gu.typesafe.config.impl.ConfigNodeInclude node;
+        final private URL url;
+        final private Parseable.ParseState state;
+        private com.gu.typesafe.config.impl.AbstractConfigObject result;
+        private Throwable failure;
+
+        IncludeTask(com.gu.typesafe.config.impl.FullIncluder includer, com.gu.typesafe.config.ConfigIncludeContext cic,
+                    com.gu.typesafe.config.impl.ConfigNodeInclude node, URL url, Parseable.ParseState state) {
+            this.includer = includer;
+            this.cic = cic;
+            this.node = node;
+            this.url = url;
+            this.state = state;
+        }
+
+        @Override
+        protected void compute() {
+            // a pool thread may run this while it waits for another include,
+            // so put back whatever state it had
+            Parseable.ParseState previous = Parseable.adoptParseState(state);
+            try {
+                result = include(includer, cic, node, url);
+            } catch (RuntimeException e) {
+                failure = e;
+            } catch (Error e) {
+                failure = e;
+            } finally {
+                Parseable.restoreParseState(previous);
+            }
+        }
+
+        com.gu.typesafe.config.impl.AbstractConfigObject result() {
+            join();
+            if (failure instanceof RuntimeException)
+                throw (RuntimeException) failure;
+            else if (failure instanceof Error)
+                throw (Error) failure;
+            return result;
+        }
+    }
+
     static private final class ParseContext {
         private int lineNumber;
         final private com.gu.typesafe.config.impl.ConfigNodeRoot document;
@@ -33,6 +116,7 @@ final class ConfigParser {
         final private com.gu.typesafe.config.ConfigSyntax flavor;
         final private com.gu.typesafe.config.ConfigOrigin baseOrigin;
         final private LinkedList<Path> pathStack;
+        final private boolean parallelIncludes;
 
         // the number of lists we are inside; this is used to detect the "cannot
         // generate a reference to a list element" problem, and once we fix that
@@ -40,8 +124,9 @@ final class ConfigParser {
         int arrayCount;
 
         ParseContext(com.gu.typesafe.config.ConfigSyntax flavor, com.gu.typesafe.config.ConfigOrigin origin, com.gu.typesafe.config.impl.ConfigNodeRoot document,
-                     com.gu.typesafe.config.impl.FullIncluder includer, com.gu.typesafe.config.ConfigIncludeContext includeContext) {
-            lineNumber = 1;
+                     com.gu.typesafe.config.impl.FullIncluder includer, com.gu.typesafe.config.ConfigIncludeContext includeContext,
+                     boolean parallelIncludes, int firstLine) {
+            lineNumber = firstLine;
             this.document = document;
             this.flavor = flavor;
             this.baseOrigin = origin;
@@ -49,6 +134,7 @@ final class ConfigParser {
             this.includeContext = includeContext;
             this.pathStack = new LinkedList<Path>();
             this.arrayCount = 0;
+            this.parallelIncludes = parallelIncludes;
         }
 
         // merge a bunch of adjacent values into one
@@ -156,38 +242,60 @@ final class ConfigParser {
             return o;
         }
 
-        private void parseInclude(Map<String, com.gu.typesafe.config.impl.AbstractConfigValue> values, com.gu.typesafe.config.impl.ConfigNodeInclude n) {
-            boolean isRequired = n.isRequired();
-            com.gu.typesafe.config.ConfigIncludeContext cic = includeContext.setParseOptions(includeContext.parseOptions().setAllowMissing(!isRequired));
-
-            com.gu.typesafe.config.impl.AbstractConfigObject obj;
-            switch (n.kind()) {
-                case URL:
-                    URL url;
-                    try {
-                        url = new URL(n.name());
-                    } catch (MalformedURLException e) {
-                        throw parseError("include url() specifies an invalid URL: " + n.name(), e);
-                    }
-                    obj = (com.gu.typesafe.config.impl.AbstractConfigObject) includer.includeURL(cic, url);
-                    break;
-
-                case FILE:
-                    obj = (com.gu.typesafe.config.impl.AbstractConfigObject) includer.includeFile(cic,
-                            new File(n.name()));
-                    break;
+        private com.gu.typesafe.config.ConfigIncludeContext includeContext(com.gu.typesafe.config.impl.ConfigNodeInclude n) {
+            return includeContext.setParseOptions(includeContext.parseOptions().setAllowMissing(!n.isRequired()));
+        }
 
-                case CLASSPATH:
-                    obj = (com.gu.typesafe.config.impl.AbstractConfigObject) includer.includeResources(cic, n.name());
-                    break;
+        // null if the include isn't of a URL
+        private URL includeURL(com.gu.typesafe.config.impl.ConfigNodeInclude n) throws MalformedURLException {
+            return n.kind() == com.gu.typesafe.config.impl.ConfigIncludeKind.URL ? new URL(n.name()) : null;
+        }
 
-                case HEURISTIC:
-                    obj = (com.gu.typesafe.config.impl.AbstractConfigObject) includer
-                            .include(cic, n.name());
-                    break;
+        // starts every include among the nodes on the fork-join pool, if
+        // there's more than one; returns null otherwise
+        private Map<com.gu.typesafe.config.impl.ConfigNodeInclude, IncludeTask> startIncludes(List<com.gu.typesafe.config.impl.AbstractConfigNode> nodes) {
+            List<com.gu.typesafe.config.impl.ConfigNodeInclude> includes = new ArrayList<com.gu.typesafe.config.impl.ConfigNodeInclude>();
+            for (com.gu.typesafe.config.impl.AbstractConfigNode node : nodes) {
+                if (node instanceof com.gu.typesafe.config.impl.ConfigNodeInclude)
+                    includes.add((com.gu.typesafe.config.impl.ConfigNodeInclude) node);
+            }
+            if (includes.size() < 2)
+                return null;
+
+            Parseable.ParseState state = Parseable.captureParseState();
+            Map<com.gu.typesafe.config.impl.ConfigNodeInclude, IncludeTask> started = new IdentityHashMap<com.gu.typesafe.config.impl.ConfigNodeInclude, IncludeTask>();
+            for (com.gu.typesafe.config.impl.ConfigNodeInclude n : includes) {
+                URL url;
+                try {
+                    url = includeURL(n);
+                } catch (MalformedURLException e) {
+                    // reported when we get to it, as if we'd parsed in order
+                    continue;
+                }
+                com.gu.typesafe.config.ConfigIncludeContext cic = includeContext(n);
+                // pin down the class loader, since the pool's threads won't
+                // have our context class loader
+                cic = cic.setParseOptions(cic.parseOptions().setClassLoader(cic.parseOptions().getClassLoader()));
+                IncludeTask task = new IncludeTask(includer, cic, n, url, state);
+                task.fork();
+                started.put(n, task);
+            }
+            return started;
+        }
 
-                default:
-                    throw new com.gu.typesafe.config.ConfigException.BugOrBroken("should not be reached");
+        private void parseInclude(Map<String, com.gu.typesafe.config.impl.AbstractConfigValue> values, com.gu.typesafe.config.impl.ConfigNodeInclude n,
+                                  IncludeTask started) {
+            com.gu.typesafe.config.impl.AbstractConfigObject obj;
+            if (started != null) {
+                obj = started.result();
+            } else {
+                URL url;
+                try {
+                    url = includeURL(n);
+                } catch (MalformedURLException e) {
+                    throw parseError("include url() specifies an invalid URL: " + n.name(), e);
+                }
+                obj = include(includer, includeContext(n), n, url);
             }
 
             // we really should make this work, but for now throwing an
@@ -220,6 +328,11 @@ final class ConfigParser {
             boolean lastWasNewline = false;
 
             ArrayList<com.gu.typesafe.config.impl.AbstractConfigNode> nodes = new ArrayList<com.gu.typesafe.config.impl.AbstractConfigNode>(n.children());
+            // the includes are still merged in order below, this only gets
+            // them read and parsed in the meantime
+            Map<com.gu.typesafe.config.impl.ConfigNodeInclude, IncludeTask> startedIncludes = null;
+            if (parallelIncludes && flavor != com.gu.typesafe.config.ConfigSyntax.JSON)
+                startedIncludes = startIncludes(nodes);
             List<String> comments = new ArrayList<String>();
             for (int i = 0; i < nodes.size(); i++) {
                 com.gu.typesafe.config.impl.AbstractConfigNode node = nodes.get(i);
@@ -234,7 +347,8 @@ final class ConfigParser {
                     }
                     lastWasNewline = true;
                 } else if (flavor != com.gu.typesafe.config.ConfigSyntax.JSON && node instanceof com.gu.typesafe.config.impl.ConfigNodeInclude) {
-                    parseInclude(values, (com.gu.typesafe.config.impl.ConfigNodeInclude)node);
+                    parseInclude(values, (com.gu.typesafe.config.impl.ConfigNodeInclude) node,
+                            startedIncludes != null ? startedIncludes.get(node) : null);
                     lastWasNewline = false;
                 } else if (node instanceof com.gu.typesafe.config.impl.ConfigNodeField) {
                     lastWasNewline = false;
@@ -151,11 +151,15 @@ final class ConfigReference extends com.gu.typesafe.config.impl.AbstractConfigVa
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderWriter sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         sb.append(expr.toString());
     }
 
     com.gu.typesafe.config.impl.SubstitutionExpression expression() {
         return expr;
     }
+
+    int prefixLength() {
+        return prefixLength;
+    }
 }
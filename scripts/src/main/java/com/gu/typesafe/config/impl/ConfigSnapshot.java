@@ -0,0 +1,393 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.gu.typesafe.config.ConfigException;
+import com.gu.typesafe.config.ConfigParseOptions;
+import com.gu.typesafe.config.ConfigResolveOptions;
+
+/**
+ * A compiled snapshot of a parsed and resolved config, stored in a binary file
+ * next to (or anywhere away from) its sources so that later loads can skip
+ * tokenizing, parsing and resolving altogether.
+ *
+ * <p>
+ * The snapshot records every file and URL that was read while parsing
+ * (including through includes, and including optional includes that were
+ * missing) together with a hash of its content. A snapshot is only used if all
+ * of those hashes still match; otherwise we fall back to a normal parse and
+ * resolve, and rewrite the snapshot. Values are stored with the
+ * {@link SerializedConfigValue} encoding, with origins kept in a table so that
+ * error messages from a snapshot config still point at the original files.
+ *
+ * <p>
+ * A snapshot is also only used for the file it was written for, with the same
+ * syntax, origin description, allowMissing and class loader, and with the
+ * same choice of resolving against the system environment (and the same
+ * environment, if so). Files are identified by their canonical paths, so a
+ * snapshot doesn't depend on the working directory, and a file reached
+ * through a symlink that now points elsewhere counts as changed.
+ *
+ * <p>
+ * Only the default includer and resolver are supported, since we can't tell
+ * what a custom one depends on; with anything else we always parse.
+ */
+final class ConfigSnapshot {
+    // "GCFS"
+    private static final int MAGIC = 0x47434653;
+    private static final int VERSION = 2;
+
+    private static final ConfigResolveOptions DEFAULT_RESOLVE_OPTIONS = ConfigResolveOptions.defaults();
+
+    enum SourceKind {
+        FILE, URL
+    }
+
+    // the files and URLs a parse depended on, in the order they were read;
+    // includes may be read on several threads at once
+    static final class Sources {
+        final private Map<String, SourceKind> locations = new LinkedHashMap<String, SourceKind>();
+
+        synchronized void add(SourceKind kind, String location) {
+            if (!locations.containsKey(location))
+                locations.put(location, kind);
+        }
+
+        synchronized List<File> files() {
+            List<File> files = new ArrayList<File>();
+            for (Map.Entry<String, SourceKind> e : locations.entrySet()) {
+                if (e.getValue() == SourceKind.FILE)
+                    files.add(new File(e.getKey()));
+            }
+            return files;
+        }
+    }
+
+    private ConfigSnapshot() {
+    }
+
+    static SimpleConfig load(File file, ConfigParseOptions parseOptions, File snapshotFile,
+            ConfigResolveOptions resolveOptions) {
+        Parseable source = Parseable.newFile(file, parseOptions);
+        if (parseOptions.getIncluder() != null || resolveOptions.getResolver() != DEFAULT_RESOLVE_OPTIONS.getResolver()) {
+            trace("Not using snapshot " + snapshotFile + " because of a custom includer or resolver");
+            return compile(source, file, parseOptions, resolveOptions, null);
+        }
+
+        try {
+            AbstractConfigObject root = read(snapshotFile, file, parseOptions, resolveOptions);
+            if (root != null) {
+                trace("Loaded config from snapshot " + snapshotFile);
+                return root.toConfig();
+            }
+        } catch (IOException e) {
+            trace("Ignoring unreadable snapshot " + snapshotFile + ": " + e.getMessage());
+        } catch (ConfigException e) {
+            trace("Ignoring broken snapshot " + snapshotFile + ": " + e.getMessage());
+        }
+
+        return compile(source, file, parseOptions, resolveOptions, snapshotFile);
+    }
+
+    private static SimpleConfig compile(Parseable source, File file, ConfigParseOptions parseOptions,
+            ConfigResolveOptions resolveOptions, File snapshotFile) {
+        Sources sources = new Sources();
+        Sources previous = Parseable.recordSources(sources);
+        SimpleConfig resolved;
+        try {
+            resolved = (SimpleConfig) source.parse().toConfig().resolve(resolveOptions);
+        } finally {
+            Parseable.recordSources(previous);
+        }
+
+        if (snapshotFile != null) {
+            if (resolved.isResolved()) {
+                try {
+                    write(snapshotFile, resolved.root(), sources, file, parseOptions, resolveOptions);
+                    trace("Wrote config snapshot " + snapshotFile + " from " + sources.locations.size() + " sources");
+                } catch (IOException e) {
+                    // the snapshot is only a cache, so failing to write it
+                    // shouldn't fail the load
+                    trace("Could not write config snapshot " + snapshotFile + ": " + e.getMessage());
+                }
+            } else {
+                trace("Not writing snapshot " + snapshotFile + " for a config with unresolved substitutions");
+            }
+        }
+        return resolved;
+    }
+
+    // returns null if the snapshot is missing or out of date
+    private static AbstractConfigObject read(File snapshotFile, File file, ConfigParseOptions parseOptions,
+            ConfigResolveOptions resolveOptions) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            trace("No config snapshot at " + snapshotFile);
+            return null;
+        }
+
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+        if (in.readInt() != MAGIC)
+            throw new IOException("not a config snapshot");
+        int version = in.readInt();
+        if (version != VERSION) {
+            trace("Config snapshot " + snapshotFile + " has version " + version + ", expected " + VERSION);
+            return null;
+        }
+
+        if (!Arrays.equals(readDigest(in), optionsDigest(file, parseOptions, resolveOptions))) {
+            trace("Config snapshot " + snapshotFile + " was written for another file or with different options");
+            return null;
+        }
+        if (resolveOptions.getUseSystemEnvironment() && !Arrays.equals(readDigest(in), environmentDigest())) {
+            trace("Environment has changed since config snapshot " + snapshotFile + " was written");
+            return null;
+        }
+
+        int sourceCount = in.readInt();
+        for (int i = 0; i < sourceCount; ++i) {
+            int kindOrdinal = in.readUnsignedByte();
+            if (kindOrdinal >= SourceKind.values().length)
+                throw new IOException("Unknown snapshot source kind: " + kindOrdinal);
+            SourceKind kind = SourceKind.values()[kindOrdinal];
+            String location = in.readUTF();
+            if (kind == SourceKind.FILE && !in.readUTF().equals(canonicalPath(location))) {
+                trace("Source " + location + " is now a different file than when config snapshot " + snapshotFile
+                        + " was written");
+                return null;
+            }
+            byte[] digest = in.readBoolean() ? readDigest(in) : null;
+            if (!Arrays.equals(digest, sourceDigest(kind, location))) {
+                trace("Source " + location + " has changed since config snapshot " + snapshotFile + " was written");
+                return null;
+            }
+        }
+
+        return SerializedConfigValue.readSnapshot(in);
+    }
+
+    private static void write(File snapshotFile, AbstractConfigObject root, Sources sources, File file,
+            ConfigParseOptions parseOptions, ConfigResolveOptions resolveOptions) throws IOException {
+        java.nio.file.Path target = snapshotFile.toPath().toAbsolutePath();
+        java.nio.file.Path dir = target.getParent();
+        Files.createDirectories(dir);
+
+        // write beside the target then rename, so a concurrently starting
+        // process never maps a half-written snapshot
+        java.nio.file.Path tmp = Files.createTempFile(dir, snapshotFile.getName(), ".tmp");
+        try {
+            try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                DataOutputStream out = new DataOutputStream(stream);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+
+                writeDigest(out, optionsDigest(file, parseOptions, resolveOptions));
+                if (resolveOptions.getUseSystemEnvironment())
+                    writeDigest(out, environmentDigest());
+
+                out.writeInt(sources.locations.size());
+                for (Map.Entry<String, SourceKind> e : sources.locations.entrySet()) {
+                    // files were recorded with the paths they were parsed by,
+                    // which may be relative to the working directory
+                    String location = e.getValue() == SourceKind.FILE ? new File(e.getKey()).getAbsolutePath()
+                            : e.getKey();
+                    out.writeByte(e.getValue().ordinal());
+                    out.writeUTF(location);
+                    if (e.getValue() == SourceKind.FILE)
+                        out.writeUTF(canonicalPath(location));
+                    byte[] digest = sourceDigest(e.getValue(), location);
+                    out.writeBoolean(digest != null);
+                    if (digest != null)
+                        writeDigest(out, digest);
+                }
+
+                SerializedConfigValue.writeSnapshot(out, root);
+                out.flush();
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static byte[] readDigest(DataInputStream in) throws IOException {
+        byte[] digest = new byte[in.readUnsignedByte()];
+        in.readFully(digest);
+        return digest;
+    }
+
+    private static void writeDigest(DataOutputStream out, byte[] digest) throws IOException {
+        out.writeByte(digest.length);
+        out.write(digest);
+    }
+
+    // null if the source doesn't exist, which is a valid state for optional
+    // includes
+    private static byte[] sourceDigest(SourceKind kind, String location) {
+        try {
+            switch (kind) {
+            case FILE:
+                File file = new File(location);
+                if (!file.isFile())
+                    return null;
+                return digest(Files.readAllBytes(file.toPath()));
+            case URL:
+                try (InputStream stream = new URL(location).openStream()) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    byte[] chunk = new byte[8192];
+                    int n;
+                    while ((n = stream.read(chunk)) > 0) {
+                        bytes.write(chunk, 0, n);
+                    }
+                    return digest(bytes.toByteArray());
+                }
+            }
+        } catch (IOException e) {
+            trace("Could not read snapshot source " + location + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static String canonicalPath(String location) {
+        File file = new File(location);
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    // everything besides the sources that decides what parsing and resolving
+    // produce; the includer and resolver are always the defaults here
+    private static byte[] optionsDigest(File file, ConfigParseOptions parseOptions,
+            ConfigResolveOptions resolveOptions) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(canonicalPath(file.getPath())).append('\0');
+        sb.append(parseOptions.getSyntax()).append('\0');
+        sb.append(parseOptions.getOriginDescription()).append('\0');
+        sb.append(parseOptions.getAllowMissing()).append('\0');
+        sb.append(resolveOptions.getUseSystemEnvironment()).append('\0');
+        describeClassLoader(sb, parseOptions.getClassLoader());
+        return digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // what a class loader can find resources in, in a form that's the same
+    // from one run to the next where we can tell: URL class loaders by their
+    // URLs and the application class loader by the class path. Any other
+    // loader could be looking anywhere, so it only matches itself.
+    private static void describeClassLoader(StringBuilder sb, ClassLoader loader) {
+        for (ClassLoader l = loader; l != null; l = l.getParent()) {
+            sb.append(l.getClass().getName());
+            if (l instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) l).getURLs()) {
+                    sb.append(' ');
+                    sb.append(url.toExternalForm());
+                }
+            } else if (l == ClassLoader.getSystemClassLoader()) {
+                sb.append(' ');
+                sb.append(System.getProperty("java.class.path"));
+            } else if (l != ClassLoader.getPlatformClassLoader()) {
+                sb.append('@');
+                sb.append(System.identityHashCode(l));
+            }
+            sb.append('\0');
+        }
+    }
+
+    // resolving with the system environment can substitute any variable, so
+    // we have to treat the whole environment as an input
+    private static byte[] environmentDigest() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : new TreeMap<String, String>(System.getenv()).entrySet()) {
+            sb.append(e.getKey());
+            sb.append('=');
+            sb.append(e.getValue());
+            sb.append('\0');
+        }
+        return digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] digest(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new ConfigException.BugOrBroken("Java runtime does not support SHA-256", e);
+        }
+    }
+
+    private static void trace(String message) {
+        if (ConfigImpl.traceLoadsEnabled())
+            ConfigImpl.trace(message);
+    }
+
+    // DataInputStream over a mapped file, so reading a snapshot doesn't copy
+    // it onto the heap first
+    private static final class ByteBufferInputStream extends InputStream {
+        final private ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining())
+                return -1;
+            int n = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
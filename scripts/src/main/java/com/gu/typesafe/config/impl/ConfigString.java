@@ -79,7 +79,7 @@ abstract class ConfigString extends com.gu.typesafe.config.impl.AbstractConfigVa
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderWriter sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         String rendered;
         if (options.getJson())
             rendered = ConfigImplUtil.renderJsonString(value);
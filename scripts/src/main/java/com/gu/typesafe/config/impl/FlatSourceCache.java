@@ -0,0 +1,55 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * The tree last built from a flat source, the system properties or the
+ * environment, along with what it was built from, so that reloading the
+ * source after ConfigFactory.invalidateCaches() only builds a tree again if
+ * something in it has changed; usually nothing has, and the environment
+ * can't.
+ */
+final class FlatSourceCache {
+
+    static final private class Built {
+        // the contents' Map.hashCode(), which costs next to nothing as the
+        // strings' hashes are cached; a cheap way to tell most changes
+        final int fingerprint;
+        final Map<?, ?> contents;
+        final AbstractConfigObject tree;
+
+        Built(int fingerprint, Map<?, ?> contents, AbstractConfigObject tree) {
+            this.fingerprint = fingerprint;
+            this.contents = contents;
+            this.tree = tree;
+        }
+    }
+
+    private volatile Built last;
+
+    // the tree for contents, which mustn't change afterwards; a new object
+    // every time, even around the same tree, since the loader cache tells
+    // that the system properties were reloaded by their identity
+    AbstractConfigObject get(Map<?, ?> contents, Callable<AbstractConfigObject> build) {
+        int fingerprint = contents.hashCode();
+        Built built = last;
+        if (built != null && built.fingerprint == fingerprint
+                && (built.contents == contents || built.contents.equals(contents)))
+            return built.tree.newCopy(built.tree.origin());
+
+        AbstractConfigObject tree;
+        try {
+            tree = build.call();
+        } catch (RuntimeException e) {
+            throw e; // this will include ConfigException
+        } catch (Exception e) {
+            throw new com.gu.typesafe.config.ConfigException.Generic(e.getMessage(), e);
+        }
+        last = new Built(fingerprint, contents, tree);
+        return tree;
+    }
+}
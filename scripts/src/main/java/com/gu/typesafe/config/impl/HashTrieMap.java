@@ -0,0 +1,444 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable hash array mapped trie. {@link #plus} and {@link #minus}
+ * return a new map that shares everything but the path to the changed key
+ * with this one, so updating one key of a big map costs a few small array
+ * copies rather than a copy of the whole map.
+ *
+ * <p>
+ * Each level of the trie uses five bits of the key's hash to pick one of up
+ * to 32 children, with a bitmap saying which are present so the arrays only
+ * have room for those. Keys whose hashes collide entirely share a collision
+ * node at the bottom. Nothing is ever modified after it's been built, so a
+ * map can be read from any thread.
+ *
+ * <p>
+ * Iteration order is by hash, and differs from HashMap's.
+ */
+final class HashTrieMap<K, V> extends AbstractMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final HashTrieMap<?, ?> EMPTY = new HashTrieMap<Object, Object>(null, 0);
+
+    final private Node root; // null if empty
+    final private int size;
+
+    private HashTrieMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> HashTrieMap<K, V> empty() {
+        return (HashTrieMap<K, V>) EMPTY;
+    }
+
+    static <K, V> HashTrieMap<K, V> copyOf(Map<K, V> map) {
+        if (map instanceof HashTrieMap)
+            return (HashTrieMap<K, V>) map;
+        if (map.isEmpty())
+            return empty();
+
+        // build the nodes directly rather than by repeated plus(), which
+        // would copy the path to every key as it went
+        int n = map.size();
+        Object[] keys = new Object[n];
+        Object[] values = new Object[n];
+        int[] hashes = new int[n];
+        int i = 0;
+        for (Map.Entry<K, V> e : map.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null)
+                throw new com.gu.typesafe.config.ConfigException.BugOrBroken("HashTrieMap can't hold nulls");
+            keys[i] = e.getKey();
+            values[i] = e.getValue();
+            hashes[i] = hash(e.getKey());
+            i += 1;
+        }
+        int[] indices = new int[n];
+        for (i = 0; i < n; ++i)
+            indices[i] = i;
+        return new HashTrieMap<K, V>(build(0, keys, values, hashes, indices, n), n);
+    }
+
+    // a node for the first count entries of indices, which all agree on the
+    // hash bits below shift
+    private static Node build(int shift, Object[] keys, Object[] values, int[] hashes, int[] indices, int count) {
+        if (shift >= 32)
+            return collision(keys, values, hashes, indices, count);
+
+        int[] bucketSizes = new int[1 << BITS];
+        int bitmap = 0;
+        for (int i = 0; i < count; ++i) {
+            int chunk = (hashes[indices[i]] >>> shift) & MASK;
+            bucketSizes[chunk] += 1;
+            bitmap |= 1 << chunk;
+        }
+        if (Integer.bitCount(bitmap) == 1 && count > 1 && allSameHash(hashes, indices, count))
+            return collision(keys, values, hashes, indices, count);
+
+        Object[] slots = new Object[2 * Integer.bitCount(bitmap)];
+        int slot = 0;
+        for (int chunk = 0; chunk < bucketSizes.length; ++chunk) {
+            int size = bucketSizes[chunk];
+            if (size == 0)
+                continue;
+            if (size == 1) {
+                for (int i = 0; i < count; ++i) {
+                    int index = indices[i];
+                    if (((hashes[index] >>> shift) & MASK) == chunk) {
+                        slots[slot] = keys[index];
+                        slots[slot + 1] = values[index];
+                        break;
+                    }
+                }
+            } else {
+                int[] bucket = new int[size];
+                int j = 0;
+                for (int i = 0; i < count; ++i) {
+                    if (((hashes[indices[i]] >>> shift) & MASK) == chunk)
+                        bucket[j++] = indices[i];
+                }
+                slots[slot + 1] = build(shift + BITS, keys, values, hashes, bucket, size);
+            }
+            slot += 2;
+        }
+        return new BitmapNode(bitmap, slots);
+    }
+
+    private static boolean allSameHash(int[] hashes, int[] indices, int count) {
+        for (int i = 1; i < count; ++i) {
+            if (hashes[indices[i]] != hashes[indices[0]])
+                return false;
+        }
+        return true;
+    }
+
+    private static Node collision(Object[] keys, Object[] values, int[] hashes, int[] indices, int count) {
+        Object[] slots = new Object[2 * count];
+        for (int i = 0; i < count; ++i) {
+            slots[2 * i] = keys[indices[i]];
+            slots[2 * i + 1] = values[indices[i]];
+        }
+        return new CollisionNode(hashes[indices[0]], slots);
+    }
+
+    // spread the high bits down, the same way HashMap does, since the low
+    // bits pick the first levels
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (root == null || key == null)
+            return null;
+        @SuppressWarnings("unchecked")
+        V v = (V) root.find(0, hash(key), key);
+        return v;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return a map with the key mapped to the value; this map if it already
+     *         was
+     */
+    HashTrieMap<K, V> plus(K key, V value) {
+        if (key == null || value == null)
+            throw new com.gu.typesafe.config.ConfigException.BugOrBroken("HashTrieMap can't hold nulls");
+        Node from = root != null ? root : BitmapNode.EMPTY;
+        boolean[] added = new boolean[1];
+        Node updated = from.plus(0, hash(key), key, value, added);
+        if (updated == root)
+            return this;
+        return new HashTrieMap<K, V>(updated, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @return a map without the key; this map if it didn't have it
+     */
+    HashTrieMap<K, V> minus(Object key) {
+        if (root == null || !containsKey(key))
+            return this;
+        return new HashTrieMap<K, V>(root.minus(0, hash(key), key), size - 1);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator<K, V>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private abstract static class Node {
+        // the value, or null
+        abstract Object find(int shift, int hash, Object key);
+
+        // sets added[0] if the key wasn't there before
+        abstract Node plus(int shift, int hash, Object key, Object value, boolean[] added);
+
+        // null if that leaves the node empty; only called when the key is
+        // present
+        abstract Node minus(int shift, int hash, Object key);
+
+        // keys and values, or null and a child node, in pairs
+        abstract Object[] slots();
+    }
+
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final private int bitmap;
+        final private Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        Object[] slots() {
+            return slots;
+        }
+
+        private static int bit(int shift, int hash) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int bit = bit(shift, hash);
+            if ((bitmap & bit) == 0)
+                return null;
+            int i = 2 * index(bit);
+            Object k = slots[i];
+            if (k == null)
+                return ((Node) slots[i + 1]).find(shift + BITS, hash, key);
+            return key.equals(k) ? slots[i + 1] : null;
+        }
+
+        @Override
+        Node plus(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bit(shift, hash);
+            int i = 2 * index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Object[] copy = new Object[slots.length + 2];
+                System.arraycopy(slots, 0, copy, 0, i);
+                copy[i] = key;
+                copy[i + 1] = value;
+                System.arraycopy(slots, i, copy, i + 2, slots.length - i);
+                return new BitmapNode(bitmap | bit, copy);
+            }
+
+            Object k = slots[i];
+            Object v = slots[i + 1];
+            if (k == null) {
+                Node child = ((Node) v).plus(shift + BITS, hash, key, value, added);
+                return child == v ? this : with(i, null, child);
+            } else if (key.equals(k)) {
+                return v == value ? this : with(i, k, value);
+            } else {
+                added[0] = true;
+                return with(i, null, pair(shift + BITS, hash(k), k, v, hash, key, value));
+            }
+        }
+
+        @Override
+        Node minus(int shift, int hash, Object key) {
+            int bit = bit(shift, hash);
+            int i = 2 * index(bit);
+            Object k = slots[i];
+            if (k == null) {
+                Node child = ((Node) slots[i + 1]).minus(shift + BITS, hash, key);
+                if (child != null)
+                    return with(i, null, child);
+            }
+            if (bitmap == bit)
+                return null;
+            Object[] copy = new Object[slots.length - 2];
+            System.arraycopy(slots, 0, copy, 0, i);
+            System.arraycopy(slots, i + 2, copy, i, slots.length - i - 2);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        private BitmapNode with(int i, Object key, Object value) {
+            Object[] copy = slots.clone();
+            copy[i] = key;
+            copy[i + 1] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private static Node pair(int shift, int hash1, Object key1, Object value1, int hash2, Object key2,
+                Object value2) {
+            if (hash1 == hash2)
+                return new CollisionNode(hash1, new Object[] { key1, value1, key2, value2 });
+            boolean[] ignored = new boolean[1];
+            return EMPTY.plus(shift, hash1, key1, value1, ignored).plus(shift, hash2, key2, value2, ignored);
+        }
+    }
+
+    // keys with exactly the same hash
+    private static final class CollisionNode extends Node {
+        final private int hash;
+        final private Object[] slots;
+
+        CollisionNode(int hash, Object[] slots) {
+            this.hash = hash;
+            this.slots = slots;
+        }
+
+        @Override
+        Object[] slots() {
+            return slots;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < slots.length; i += 2) {
+                if (key.equals(slots[i]))
+                    return i;
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            if (hash != this.hash)
+                return null;
+            int i = indexOf(key);
+            return i < 0 ? null : slots[i + 1];
+        }
+
+        @Override
+        Node plus(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // the new key differs from us somewhere at or below this
+                // level, so push us down a level
+                Node wrapped = new BitmapNode(1 << ((this.hash >>> shift) & MASK), new Object[] { null, this });
+                return wrapped.plus(shift, hash, key, value, added);
+            }
+            int i = indexOf(key);
+            if (i >= 0) {
+                if (slots[i + 1] == value)
+                    return this;
+                Object[] copy = slots.clone();
+                copy[i + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+            added[0] = true;
+            Object[] copy = new Object[slots.length + 2];
+            System.arraycopy(slots, 0, copy, 0, slots.length);
+            copy[slots.length] = key;
+            copy[slots.length + 1] = value;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Node minus(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            if (slots.length == 2)
+                return null;
+            Object[] copy = new Object[slots.length - 2];
+            System.arraycopy(slots, 0, copy, 0, i);
+            System.arraycopy(slots, i + 2, copy, i, slots.length - i - 2);
+            return new CollisionNode(hash, copy);
+        }
+    }
+
+    // depth first, with a stack of the nodes we're part way through
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        // deep enough for 32-bit hashes plus a collision node
+        final private Object[][] stack = new Object[8][];
+        final private int[] positions = new int[8];
+        private int depth = -1;
+        private Map.Entry<K, V> next;
+
+        EntryIterator(Node root) {
+            if (root != null) {
+                depth = 0;
+                stack[0] = root.slots();
+                positions[0] = 0;
+            }
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] slots = stack[depth];
+                int i = positions[depth];
+                if (i >= slots.length) {
+                    depth -= 1;
+                    continue;
+                }
+                positions[depth] = i + 2;
+                if (slots[i] == null) {
+                    depth += 1;
+                    stack[depth] = ((Node) slots[i + 1]).slots();
+                    positions[depth] = 0;
+                } else {
+                    next = new AbstractMap.SimpleImmutableEntry<K, V>((K) slots[i], (V) slots[i + 1]);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == null)
+                throw new NoSuchElementException();
+            Map.Entry<K, V> result = next;
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("HashTrieMap is immutable");
+        }
+    }
+}
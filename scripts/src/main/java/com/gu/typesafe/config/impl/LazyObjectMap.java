@@ -0,0 +1,121 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.gu.typesafe.config.ConfigException;
+import com.gu.typesafe.config.ConfigIncludeContext;
+import com.gu.typesafe.config.ConfigOrigin;
+import com.gu.typesafe.config.ConfigParseOptions;
+
+/**
+ * The fields of an object that LazyParser put off parsing, which are parsed
+ * from the object's text the first time anything asks for them. Once parsed
+ * the text is let go, so the file it came from can be collected once all of
+ * its objects have been read.
+ */
+final class LazyObjectMap extends AbstractMap<String, AbstractConfigValue> {
+
+    // null once parsed
+    private char[] text;
+    final private int start;
+    final private int end;
+    final private int firstLine;
+    final private int parserLine;
+    final private ConfigOrigin origin;
+    final private ConfigParseOptions options;
+    final private ConfigIncludeContext includeContext;
+
+    private volatile Map<String, AbstractConfigValue> parsed;
+
+    LazyObjectMap(char[] text, int start, int end, int firstLine, int parserLine, ConfigOrigin origin,
+                  ConfigParseOptions options, ConfigIncludeContext includeContext) {
+        this.text = text;
+        this.start = start;
+        this.end = end;
+        this.firstLine = firstLine;
+        this.parserLine = parserLine;
+        this.origin = origin;
+        this.options = options;
+        this.includeContext = includeContext;
+    }
+
+    private Map<String, AbstractConfigValue> parsed() {
+        Map<String, AbstractConfigValue> m = parsed;
+        if (m == null) {
+            synchronized (this) {
+                m = parsed;
+                if (m == null) {
+                    m = parse();
+                    parsed = m;
+                    text = null;
+                }
+            }
+        }
+        return m;
+    }
+
+    private Map<String, AbstractConfigValue> parse() {
+        if (ConfigImpl.traceLoadsEnabled())
+            ConfigImpl.trace("Parsing object put off at line " + firstLine + " of " + origin.description());
+
+        AbstractConfigValue v = LazyParser.parse(text, start, end, firstLine, parserLine, origin, options,
+                includeContext);
+        // the scan only puts off objects with nothing to resolve
+        if (!(v instanceof AbstractConfigObject) || v.resolveStatus() != ResolveStatus.RESOLVED)
+            throw new ConfigException.BugOrBroken("object put off at line " + firstLine + " of "
+                    + origin.description() + " parsed to " + v);
+
+        AbstractConfigObject object = (AbstractConfigObject) v;
+        Map<String, AbstractConfigValue> m = new HashMap<String, AbstractConfigValue>();
+        for (String key : object.keySet())
+            m.put(key, object.get(key));
+        return m;
+    }
+
+    @Override
+    public AbstractConfigValue get(Object key) {
+        return parsed().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return parsed().containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return parsed().containsValue(value);
+    }
+
+    @Override
+    public int size() {
+        return parsed().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return parsed().isEmpty();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return parsed().keySet();
+    }
+
+    @Override
+    public Collection<AbstractConfigValue> values() {
+        return parsed().values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, AbstractConfigValue>> entrySet() {
+        return parsed().entrySet();
+    }
+}
@@ -0,0 +1,410 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.gu.typesafe.config.ConfigException;
+import com.gu.typesafe.config.ConfigIncludeContext;
+import com.gu.typesafe.config.ConfigOrigin;
+import com.gu.typesafe.config.ConfigParseOptions;
+import com.gu.typesafe.config.ConfigSyntax;
+
+/**
+ * Parses an object leaving its larger object values as unparsed text, for
+ * ConfigParseOptions.setLazyObjects. A quick scan of the text, which only
+ * tracks strings, comments and bracket depth, finds the fields whose value
+ * is a single object; the text is then parsed as usual with the insides of
+ * those objects blanked out, and each empty object is swapped for one which
+ * parses its own text the first time it's looked into (and does the same
+ * for the objects inside it).
+ *
+ * <p>
+ * Only objects which are sure to come out the same are put off: ones whose
+ * key isn't set anywhere else in the object, with no substitutions,
+ * includes or += anywhere inside, since those are what would make the value
+ * depend on anything outside its own text. Whenever the scan sees something
+ * it doesn't follow, such as an include in the object itself, it gives up
+ * and the whole text is parsed the ordinary way, which is also what reports
+ * any errors.
+ */
+final class LazyParser {
+
+    // objects shorter than this are parsed straight away; putting them off
+    // would cost about as much as it saves
+    static final int MIN_LAZY_CHARS = 256;
+
+    private LazyParser() {
+    }
+
+    // parses text[start, end), which starts on firstLine of its origin; the
+    // text must not change for as long as the result is in use. ConfigParser
+    // doesn't count the newlines inside multi-line strings, so the line it
+    // gives objects can be behind the one the tokenizer gives values; to
+    // match a parse of the whole text, parserLine is where its count would
+    // be at the start.
+    static AbstractConfigValue parse(char[] text, int start, int end, int firstLine, int parserLine,
+                                     ConfigOrigin origin, ConfigParseOptions options,
+                                     ConfigIncludeContext includeContext) {
+        List<Section> sections = new Scanner(text, start, end, options.getSyntax()).sections();
+        if (sections == null || sections.isEmpty())
+            return parseEagerly(CharBuffer.wrap(text, start, end - start), firstLine, parserLine, origin,
+                    options, includeContext);
+
+        // the text with each deferred object's braces left empty but for its
+        // newlines, so everything else keeps its line number (the scan
+        // doesn't put off objects with multi-line strings, so both counts)
+        char[] skeleton = new char[end - start];
+        int length = 0;
+        int from = start;
+        int line = firstLine;
+        for (Section section : sections) {
+            for (int i = from; i <= section.open; i++) {
+                if (text[i] == '\n')
+                    line += 1;
+                skeleton[length++] = text[i];
+            }
+            section.line = line;
+            for (int i = section.open + 1; i < section.close; i++) {
+                if (text[i] == '\n') {
+                    line += 1;
+                    skeleton[length++] = '\n';
+                }
+            }
+            from = section.close;
+        }
+        System.arraycopy(text, from, skeleton, length, end - from);
+        length += end - from;
+
+        AbstractConfigValue parsed = parseEagerly(CharBuffer.wrap(skeleton, 0, length), firstLine, parserLine,
+                origin, options, includeContext);
+        if (!(parsed instanceof AbstractConfigObject))
+            throw new ConfigException.BugOrBroken("lazy parse of an object gave " + parsed);
+
+        AbstractConfigObject object = (AbstractConfigObject) parsed;
+        for (Section section : sections) {
+            AbstractConfigValue empty = object.get(section.key);
+            // the scan should have made sure of this, but if it was fooled
+            // the text can still be parsed properly
+            if (!(empty instanceof SimpleConfigObject) || !((SimpleConfigObject) empty).isEmpty())
+                return parseEagerly(CharBuffer.wrap(text, start, end - start), firstLine, parserLine, origin,
+                        options, includeContext);
+
+            LazyObjectMap map = new LazyObjectMap(text, section.open, section.close + 1, section.line,
+                    empty.origin().lineNumber(), origin, options, includeContext);
+            object = object.withValue(section.key, SimpleConfigObject.lazy(empty.origin(), map));
+        }
+        return object;
+    }
+
+    private static AbstractConfigValue parseEagerly(CharBuffer text, int firstLine, int parserLine, ConfigOrigin origin,
+                                                    ConfigParseOptions options, ConfigIncludeContext includeContext) {
+        Iterator<Token> tokens = Tokenizer.tokenize(origin, text, options.getSyntax(), firstLine);
+        ConfigNodeRoot document = ConfigDocumentParser.parse(tokens, origin, options);
+        return ConfigParser.parse(document, origin, options, includeContext, parserLine);
+    }
+
+    // a field whose object value can be put off; open and close are the
+    // offsets of its braces
+    static final private class Section {
+        final String key;
+        final int open;
+        final int close;
+        int line;
+
+        Section(String key, int open, int close) {
+            this.key = key;
+            this.open = open;
+            this.close = close;
+        }
+    }
+
+    static final private class Scanner {
+        final private char[] text;
+        final private int end;
+        final private ConfigSyntax flavor;
+        private int pos;
+
+        // set by readKey
+        private boolean dotted;
+        // set by skipObject
+        private boolean selfContained;
+
+        Scanner(char[] text, int start, int end, ConfigSyntax flavor) {
+            this.text = text;
+            this.pos = start;
+            this.end = end;
+            this.flavor = flavor;
+        }
+
+        // the fields of the object which can be put off, in order, or null
+        // if the text isn't simple enough to tell
+        List<Section> sections() {
+            skipWhitespaceAndComments(true);
+            boolean braced = pos < end && text[pos] == '{';
+            if (braced)
+                pos += 1;
+            else if (flavor == ConfigSyntax.JSON)
+                return null;
+
+            List<Section> candidates = new ArrayList<Section>();
+            Map<String, Integer> keyCounts = new HashMap<String, Integer>();
+            while (true) {
+                skipWhitespaceAndComments(true);
+                if (pos < end && text[pos] == ',') {
+                    pos += 1;
+                    continue;
+                }
+                if (pos >= end) {
+                    if (braced)
+                        return null;
+                    break;
+                }
+                if (text[pos] == '}') {
+                    if (!braced)
+                        return null;
+                    pos += 1;
+                    skipWhitespaceAndComments(true);
+                    if (pos < end)
+                        return null;
+                    break;
+                }
+
+                String key = readKey();
+                if (key == null)
+                    return null;
+                Integer count = keyCounts.get(key);
+                keyCounts.put(key, count == null ? 1 : count + 1);
+
+                skipWhitespaceAndComments(false);
+                boolean plusEquals = false;
+                if (pos < end && (text[pos] == '=' || text[pos] == ':')) {
+                    pos += 1;
+                } else if (pos + 1 < end && text[pos] == '+' && text[pos + 1] == '=') {
+                    plusEquals = true;
+                    pos += 2;
+                } else if (pos >= end || text[pos] != '{') {
+                    return null;
+                }
+                skipWhitespaceAndComments(false);
+
+                if (pos < end && text[pos] == '{' && !plusEquals && !dotted) {
+                    int open = pos;
+                    if (!skipObject())
+                        return null;
+                    int close = pos - 1;
+                    if (fieldEnds(braced)) {
+                        if (selfContained && close - open >= MIN_LAZY_CHARS)
+                            candidates.add(new Section(key, open, close));
+                        continue;
+                    }
+                }
+                if (!skipValue())
+                    return null;
+            }
+
+            List<Section> sections = new ArrayList<Section>(candidates.size());
+            for (Section candidate : candidates) {
+                if (keyCounts.get(candidate.key) == 1)
+                    sections.add(candidate);
+            }
+            return sections;
+        }
+
+        // the first element of the key, or null if it isn't a plain one
+        private String readKey() {
+            dotted = false;
+            String first = null;
+            while (true) {
+                String element;
+                if (pos < end && text[pos] == '"') {
+                    int from = pos + 1;
+                    int to = from;
+                    while (to < end && text[to] != '"') {
+                        if (text[to] == '\\' || text[to] == '\n')
+                            return null;
+                        to += 1;
+                    }
+                    if (to >= end || to == from)
+                        return null;
+                    element = new String(text, from, to - from);
+                    pos = to + 1;
+                } else {
+                    int from = pos;
+                    while (pos < end && isKeyChar(text[pos]))
+                        pos += 1;
+                    if (pos == from)
+                        return null;
+                    element = new String(text, from, pos - from);
+                }
+                if (first == null)
+                    first = element;
+                if (pos < end && text[pos] == '.') {
+                    dotted = true;
+                    pos += 1;
+                } else {
+                    return first;
+                }
+            }
+        }
+
+        private static boolean isKeyChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+        }
+
+        // from an open brace to just past its close brace; false if it's
+        // never closed. Notes whether the object stands on its own.
+        private boolean skipObject() {
+            selfContained = true;
+            StringBuilder open = new StringBuilder();
+            while (pos < end) {
+                char c = text[pos];
+                if (c == '"') {
+                    if (regionIs("\"\"\""))
+                        selfContained = false;
+                    if (!skipString())
+                        return false;
+                    continue;
+                } else if (startsComment()) {
+                    if (flavor == ConfigSyntax.JSON)
+                        selfContained = false;
+                    skipComment();
+                    continue;
+                } else if (c == '{' || c == '[') {
+                    open.append(c);
+                } else if (c == '}' || c == ']') {
+                    if (!closes(open, c))
+                        return false;
+                    if (open.length() == 0) {
+                        pos += 1;
+                        return true;
+                    }
+                } else if (c == '$' && pos + 1 < end && text[pos + 1] == '{') {
+                    selfContained = false;
+                } else if (c == '+' && pos + 1 < end && text[pos + 1] == '=') {
+                    selfContained = false;
+                } else if (c == 'i' && regionIs("include")) {
+                    selfContained = false;
+                }
+                pos += 1;
+            }
+            return false;
+        }
+
+        // whether nothing but a comment follows on the line, or a comma
+        private boolean fieldEnds(boolean braced) {
+            skipWhitespaceAndComments(false);
+            return pos >= end || text[pos] == '\n' || text[pos] == ',' || (braced && text[pos] == '}');
+        }
+
+        // to the end of a field's value: a newline or comma outside of any
+        // brackets, or the close brace of the object. False if the brackets
+        // don't match or a string isn't closed.
+        private boolean skipValue() {
+            StringBuilder open = new StringBuilder();
+            while (pos < end) {
+                char c = text[pos];
+                if (c == '"') {
+                    if (!skipString())
+                        return false;
+                    continue;
+                } else if (startsComment()) {
+                    skipComment();
+                    continue;
+                } else if (c == '{' || c == '[') {
+                    open.append(c);
+                } else if (c == '}' || c == ']') {
+                    if (open.length() == 0)
+                        return c == '}';
+                    if (!closes(open, c))
+                        return false;
+                } else if (open.length() == 0 && (c == '\n' || c == ',')) {
+                    return true;
+                }
+                pos += 1;
+            }
+            return open.length() == 0;
+        }
+
+        // pops the bracket c closes, if it's the innermost one open
+        private static boolean closes(StringBuilder open, char c) {
+            if (open.length() == 0 || open.charAt(open.length() - 1) != (c == '}' ? '{' : '['))
+                return false;
+            open.setLength(open.length() - 1);
+            return true;
+        }
+
+        // from an opening quote to just past the closing one
+        private boolean skipString() {
+            if (regionIs("\"\"\"")) {
+                pos += 3;
+                while (pos < end) {
+                    if (regionIs("\"\"\"")) {
+                        // a triple-quoted string ends at the last of a run
+                        // of quotes
+                        while (pos < end && text[pos] == '"')
+                            pos += 1;
+                        return true;
+                    }
+                    pos += 1;
+                }
+                return false;
+            }
+            pos += 1;
+            while (pos < end) {
+                char c = text[pos];
+                if (c == '\\') {
+                    pos += 2;
+                    continue;
+                } else if (c == '"') {
+                    pos += 1;
+                    return true;
+                } else if (c == '\n') {
+                    return false;
+                }
+                pos += 1;
+            }
+            return false;
+        }
+
+        private boolean startsComment() {
+            return text[pos] == '#' || (text[pos] == '/' && pos + 1 < end && text[pos + 1] == '/');
+        }
+
+        // to the newline which ends the comment
+        private void skipComment() {
+            while (pos < end && text[pos] != '\n')
+                pos += 1;
+        }
+
+        private void skipWhitespaceAndComments(boolean newlines) {
+            while (pos < end) {
+                char c = text[pos];
+                if (c == '\n' ? !newlines : !ConfigImplUtil.isWhitespace(c)) {
+                    if (startsComment())
+                        skipComment();
+                    else
+                        return;
+                } else {
+                    pos += 1;
+                }
+            }
+        }
+
+        private boolean regionIs(String s) {
+            if (pos + s.length() > end)
+                return false;
+            for (int i = 0; i < s.length(); i++) {
+                if (text[pos + i] != s.charAt(i))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
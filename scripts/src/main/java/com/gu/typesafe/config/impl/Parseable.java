@@ -4,6 +4,7 @@
 package com.gu.typesafe.config.impl;
 
 import java.io.BufferedReader;
+import java.io.CharArrayWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -19,6 +20,10 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import com.gu.typesafe.config.ConfigParseOptions;
@@ -54,6 +59,11 @@ public abstract class Parseable implements com.gu.typesafe.config.ConfigParseabl
 
     private static final int MAX_INCLUDE_DEPTH = 50;
 
+    // set while a ConfigSnapshot is being compiled on this thread, so that
+    // every file and URL we read (including through includes) is recorded as
+    // one of the snapshot's sources
+    private static final ThreadLocal<ConfigSnapshot.Sources> sourceRecorder = new ThreadLocal<ConfigSnapshot.Sources>();
+
     protected Parseable() {
     }
 
@@ -105,6 +115,57 @@ public abstract class Parseable implements com.gu.typesafe.config.ConfigParseabl
         }
     }
 
+    static ConfigSnapshot.Sources recordSources(ConfigSnapshot.Sources sources) {
+        ConfigSnapshot.Sources previous = sourceRecorder.get();
+        if (sources != null)
+            sourceRecorder.set(sources);
+        else
+            sourceRecorder.remove();
+        return previous;
+    }
+
+    // what a parse on this thread has going on: the include stack and the
+    // source recorder. Includes parsed on another thread (see
+    // ConfigParseOptions.setParallelIncludes) take it with them, so that the
+    // nesting limit and source recording work the same as on one thread.
+    static final class ParseState {
+        final private LinkedList<Parseable> stack;
+        final private ConfigSnapshot.Sources sources;
+
+        private ParseState(LinkedList<Parseable> stack, ConfigSnapshot.Sources sources) {
+            this.stack = stack;
+            this.sources = sources;
+        }
+    }
+
+    static ParseState captureParseState() {
+        return new ParseState(new LinkedList<Parseable>(parseStack.get()), sourceRecorder.get());
+    }
+
+    // returns the state this thread had before, to pass to restoreParseState
+    static ParseState adoptParseState(ParseState state) {
+        ParseState previous = new ParseState(parseStack.get(), sourceRecorder.get());
+        parseStack.set(new LinkedList<Parseable>(state.stack));
+        recordSources(state.sources);
+        return previous;
+    }
+
+    static void restoreParseState(ParseState previous) {
+        if (previous.stack.isEmpty())
+            parseStack.remove();
+        else
+            parseStack.set(previous.stack);
+        recordSources(previous.sources);
+    }
+
+    // called before opening the input, so that a missing optional include
+    // is recorded too and its later appearance invalidates the snapshot
+    private static void recordSource(ConfigSnapshot.SourceKind kind, String location) {
+        ConfigSnapshot.Sources sources = sourceRecorder.get();
+        if (sources != null)
+            sources.add(kind, location);
+    }
+
     com.gu.typesafe.config.ConfigSyntax guessSyntax() {
         return null;
     }
@@ -257,6 +318,11 @@ public abstract class Parseable implements com.gu.typesafe.config.ConfigParseabl
                                                                           com.gu.typesafe.config.ConfigParseOptions finalOptions) throws IOException {
         if (finalOptions.getSyntax() == com.gu.typesafe.config.ConfigSyntax.PROPERTIES) {
             return PropertiesParser.parse(reader, origin);
+        } else if (finalOptions.getLazyObjects()) {
+            // the objects put off keep the text to parse later
+            CharArrayWriter text = new CharArrayWriter();
+            reader.transferTo(text);
+            return rawParseValue(CharBuffer.wrap(text.toCharArray()), origin, finalOptions);
         } else {
             Iterator<Token> tokens = Tokenizer.tokenize(origin, reader, finalOptions.getSyntax());
             ConfigNodeRoot document = ConfigDocumentParser.parse(tokens, origin, finalOptions);
@@ -264,6 +330,21 @@ public abstract class Parseable implements com.gu.typesafe.config.ConfigParseabl
         }
     }
 
+    // the same for text that's already in memory, which must not change
+    // while the value is in use
+    final com.gu.typesafe.config.impl.AbstractConfigValue rawParseValue(CharBuffer chars, com.gu.typesafe.config.ConfigOrigin origin,
+                                                                        com.gu.typesafe.config.ConfigParseOptions finalOptions) {
+        if (finalOptions.getLazyObjects() && chars.hasArray()) {
+            int start = chars.arrayOffset() + chars.position();
+            return LazyParser.parse(chars.array(), start, start + chars.remaining(), 1, 1, origin, finalOptions,
+                    includeContext());
+        } else {
+            Iterator<Token> tokens = Tokenizer.tokenize(origin, chars, finalOptions.getSyntax());
+            ConfigNodeRoot document = ConfigDocumentParser.parse(tokens, origin, finalOptions);
+            return ConfigParser.parse(document, origin, finalOptions, includeContext());
+        }
+    }
+
     // this is parseDocument without post-processing the IOException or handling
     // options.getAllowMissing()
     protected com.gu.typesafe.config.parser.ConfigDocument rawParseDocument(com.gu.typesafe.config.ConfigOrigin origin, com.gu.typesafe.config.ConfigParseOptions finalOptions)
@@ -522,6 +603,7 @@ public abstract class Parseable implements com.gu.typesafe.config.ConfigParseabl
             try {
                 if (ConfigImpl.traceLoadsEnabled())
                     trace("Loading config from a URL: " + input.toExternalForm());
+                recordSource(ConfigSnapshot.SourceKind.URL, input.toExternalForm());
                 URLConnection connection = input.openConnection();
 
                 // allow server to serve multiple types from one URL
@@ -626,10 +708,37 @@ public abstract class Parseable implements com.gu.typesafe.config.ConfigParseabl
         protected Reader reader() throws IOException {
             if (ConfigImpl.traceLoadsEnabled())
                 trace("Loading config from a file: " + input);
+            recordSource(ConfigSnapshot.SourceKind.FILE, input.getPath());
             InputStream stream = new FileInputStream(input);
             return readerFromStream(stream);
         }
 
+        // Values are tokenized straight out of the mapped file rather than
+        // through reader(). Documents keep using the reader, since their
+        // tokens live as long as the document and would pin the whole file.
+        @Override
+        protected com.gu.typesafe.config.impl.AbstractConfigValue rawParseValue(com.gu.typesafe.config.ConfigOrigin origin,
+                com.gu.typesafe.config.ConfigParseOptions finalOptions) throws IOException {
+            if (finalOptions.getSyntax() == com.gu.typesafe.config.ConfigSyntax.PROPERTIES)
+                return super.rawParseValue(origin, finalOptions);
+
+            return rawParseValue(chars(), origin, finalOptions);
+        }
+
+        private CharBuffer chars() throws IOException {
+            if (ConfigImpl.traceLoadsEnabled())
+                trace("Loading config from a file: " + input);
+            recordSource(ConfigSnapshot.SourceKind.FILE, input.getPath());
+            try (FileInputStream stream = new FileInputStream(input);
+                    FileChannel channel = stream.getChannel()) {
+                // replaces malformed input the same way the reader does
+                return StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                        .decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+
         @Override
         com.gu.typesafe.config.ConfigSyntax guessSyntax() {
             return ConfigImplUtil.syntaxFromExtension(input.getName());
@@ -651,6 +760,8 @@ public abstract class Parseable implements com.gu.typesafe.config.ConfigParseabl
                 return newFile(sibling, options().setOriginDescription(null));
             } else {
                 trace(sibling + " does not exist, so trying it as a classpath resource");
+                // if it turns up later, we want it to win over the classpath
+                recordSource(ConfigSnapshot.SourceKind.FILE, sibling.getPath());
                 return super.relativeTo(filename);
             }
         }
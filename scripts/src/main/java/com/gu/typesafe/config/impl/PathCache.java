@@ -0,0 +1,37 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed paths for the path expressions passed to the Config getters, so that
+ * reading the same setting over and over only parses its path once. Paths are
+ * immutable, so one parsed path can be shared by every caller.
+ *
+ * <p>
+ * The cache is bounded: when it fills up it is emptied and starts again, so
+ * an application that builds path expressions on the fly can't grow it
+ * forever, while the handful of paths read on hot paths quickly come back.
+ * Invalid expressions are never cached.
+ */
+final class PathCache {
+    private static final int MAX_SIZE = 4096;
+
+    private static final ConcurrentHashMap<String, Path> paths = new ConcurrentHashMap<String, Path>();
+
+    private PathCache() {
+    }
+
+    static Path get(String expression) {
+        Path path = paths.get(expression);
+        if (path == null) {
+            path = Path.newPath(expression);
+            if (paths.size() >= MAX_SIZE)
+                paths.clear();
+            paths.put(expression, path);
+        }
+        return path;
+    }
+}
@@ -60,20 +60,56 @@ final class PropertiesParser {
     }
 
     private static <K, V> AbstractConfigObject fromEntrySet(com.gu.typesafe.config.ConfigOrigin origin, Set<Map.Entry<K, V>> entries) {
-        final Map<Path, Object> pathMap = getPathMap(entries);
-        return fromPathMap(origin, pathMap, true /* from properties */);
-    }
-
-    private static <K, V> Map<Path, Object> getPathMap(Set<Map.Entry<K, V>> entries) {
-        Map<Path, Object> pathMap = new HashMap<Path, Object>();
+        Scope root = new Scope();
         for (Map.Entry<K, V> entry : entries) {
             Object key = entry.getKey();
-            if (key instanceof String) {
-                Path path = pathFromPropertyKey((String) key);
-                pathMap.put(path, entry.getValue());
+            if (key instanceof String)
+                root.put((String) key, entry.getValue());
+        }
+        return root.toObject(origin);
+    }
+
+    // One object of the tree being built from flat keys, filled in a key at
+    // a time by walking the dots in it, so that keys sharing a prefix share
+    // its scopes and no Path is made. Gives the same tree fromPathMap does:
+    // a key that is also the prefix of another becomes an object (objects
+    // "win"), and non-string values are dropped.
+    static final private class Scope {
+        // a String value or a Scope
+        final private Map<String, Object> children = new HashMap<String, Object>();
+
+        void put(String key, Object value) {
+            Scope scope = this;
+            int start = 0;
+            int dot;
+            while ((dot = key.indexOf('.', start)) >= 0) {
+                scope = scope.child(key.substring(start, dot));
+                start = dot + 1;
+            }
+            String last = start == 0 ? key : key.substring(start);
+            if (value instanceof String && !(scope.children.get(last) instanceof Scope))
+                scope.children.put(last, value);
+        }
+
+        private Scope child(String name) {
+            Object existing = children.get(name);
+            if (existing instanceof Scope)
+                return (Scope) existing;
+            Scope scope = new Scope();
+            children.put(name, scope);
+            return scope;
+        }
+
+        AbstractConfigObject toObject(ConfigOrigin origin) {
+            Map<String, AbstractConfigValue> values = new HashMap<String, AbstractConfigValue>(children.size() * 4 / 3 + 1);
+            for (Map.Entry<String, Object> child : children.entrySet()) {
+                Object v = child.getValue();
+                values.put(child.getKey(), v instanceof Scope ? ((Scope) v).toObject(origin)
+                        : new com.gu.typesafe.config.impl.ConfigString.Quoted(origin, (String) v));
             }
+            return new com.gu.typesafe.config.impl.SimpleConfigObject(origin, values, ResolveStatus.RESOLVED,
+                    false /* ignoresFallbacks */);
         }
-        return pathMap;
     }
 
     static AbstractConfigObject fromStringMap(com.gu.typesafe.config.ConfigOrigin origin, Map<String, String> stringMap) {
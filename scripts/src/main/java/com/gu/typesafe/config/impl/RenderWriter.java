@@ -0,0 +1,92 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Where render() output goes. Rendering to a string appends straight to a
+ * StringBuilder; rendering to an Appendable goes through a fixed-size buffer
+ * that is handed on whenever it fills up, so however big the config is, no
+ * more than the buffer is held at once.
+ *
+ * <p>
+ * The renderers only ever append, never take back what they've written, so
+ * that anything written can be passed on straight away.
+ */
+final class RenderWriter {
+    private static final int BUFFER_SIZE = 8192;
+
+    // exactly one of these is set
+    final private StringBuilder sb;
+    final private Appendable out;
+
+    final private char[] buffer;
+    private int used = 0;
+
+    RenderWriter(StringBuilder sb) {
+        this.sb = sb;
+        this.out = null;
+        this.buffer = null;
+    }
+
+    RenderWriter(Appendable out) {
+        this.sb = null;
+        this.out = out;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    RenderWriter append(String s) {
+        if (sb != null) {
+            sb.append(s);
+        } else {
+            int start = 0;
+            int length = s.length();
+            while (start < length) {
+                if (used == buffer.length)
+                    flush();
+                int n = Math.min(length - start, buffer.length - used);
+                s.getChars(start, start + n, buffer, used);
+                used += n;
+                start += n;
+            }
+        }
+        return this;
+    }
+
+    RenderWriter append(char c) {
+        if (sb != null) {
+            sb.append(c);
+        } else {
+            if (used == buffer.length)
+                flush();
+            buffer[used] = c;
+            used += 1;
+        }
+        return this;
+    }
+
+    /**
+     * Passes on whatever is buffered. The renderers can't throw IOException,
+     * so a failure to write is thrown as an UncheckedIOException, which the
+     * public render methods unwrap.
+     */
+    void flush() {
+        if (out == null || used == 0)
+            return;
+        try {
+            if (out instanceof Writer)
+                ((Writer) out).write(buffer, 0, used);
+            else if (out instanceof StringBuilder)
+                ((StringBuilder) out).append(buffer, 0, used);
+            else
+                out.append(java.nio.CharBuffer.wrap(buffer, 0, used));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        used = 0;
+    }
+}
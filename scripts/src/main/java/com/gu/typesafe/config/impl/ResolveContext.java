@@ -45,9 +45,13 @@ final class ResolveContext {
     }
 
     ResolveContext(ConfigResolveOptions options, Path restrictToChild) {
+        this(new ResolveMemos(), options, restrictToChild);
+    }
+
+    ResolveContext(ResolveMemos memos, ConfigResolveOptions options, Path restrictToChild) {
         // LinkedHashSet keeps the traversal order which is at least useful
         // in error messages if nothing else
-        this(new ResolveMemos(), options, restrictToChild, new ArrayList<com.gu.typesafe.config.impl.AbstractConfigValue>(), newCycleMarkers());
+        this(memos, options, restrictToChild, new ArrayList<com.gu.typesafe.config.impl.AbstractConfigValue>(), newCycleMarkers());
         if (ConfigImpl.traceSubstitutionsEnabled())
             ConfigImpl.trace(depth(), "ResolveContext restrict to child " + restrictToChild);
     }
@@ -140,6 +144,11 @@ final class ResolveContext {
 
     com.gu.typesafe.config.impl.ResolveResult<? extends com.gu.typesafe.config.impl.AbstractConfigValue> resolve(com.gu.typesafe.config.impl.AbstractConfigValue original, ResolveSource source)
             throws NotPossibleToResolve {
+        // nothing to do, and not worth a memo; this is most of the values
+        // in a tree being re-resolved after an edit
+        if (original.resolveStatus() == ResolveStatus.RESOLVED)
+            return com.gu.typesafe.config.impl.ResolveResult.make(this, original);
+
         if (ConfigImpl.traceSubstitutionsEnabled())
             ConfigImpl
                     .trace(depth(), "resolving " + original + " restrictToChild=" + restrictToChild + " in " + source);
@@ -228,8 +237,14 @@ final class ResolveContext {
 
     static com.gu.typesafe.config.impl.AbstractConfigValue resolve(com.gu.typesafe.config.impl.AbstractConfigValue value, AbstractConfigObject root,
                                                                    ConfigResolveOptions options) {
+        return resolve(value, root, options, new ResolveMemos());
+    }
+
+    // memos may already know how some values resolve, see ResolveLineage
+    static com.gu.typesafe.config.impl.AbstractConfigValue resolve(com.gu.typesafe.config.impl.AbstractConfigValue value, AbstractConfigObject root,
+                                                                   ConfigResolveOptions options, ResolveMemos memos) {
         ResolveSource source = new ResolveSource(root);
-        ResolveContext context = new ResolveContext(options, null /* restrictToChild */);
+        ResolveContext context = new ResolveContext(memos, options, null /* restrictToChild */);
 
         try {
             return context.resolve(value, source).value;
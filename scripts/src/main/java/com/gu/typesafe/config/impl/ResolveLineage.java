@@ -0,0 +1,143 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.gu.typesafe.config.ConfigResolveOptions;
+import com.gu.typesafe.config.ConfigValue;
+
+/**
+ * How an unresolved config was derived, by withValue(), withoutPath() or
+ * withFallback(), from another unresolved config that has already been
+ * resolved. Resolving the derived config then only re-resolves the
+ * substitutions the edits could have affected, and takes everything else from
+ * the earlier resolve.
+ *
+ * <p>
+ * Only the earlier resolve is kept, not the chain of configs in between, so
+ * a config built up by a series of edits holds on to one extra tree at most.
+ */
+final class ResolveLineage {
+
+    // an unresolved tree and what it resolved to
+    private static final class Base {
+        final AbstractConfigObject unresolved;
+        final ConfigResolveOptions options;
+        final AbstractConfigObject resolved;
+        // worked out the first time something derived from this is resolved
+        private volatile SubstitutionGraph graph;
+        private volatile boolean reusable = true;
+
+        Base(AbstractConfigObject unresolved, ConfigResolveOptions options, AbstractConfigObject resolved) {
+            this.unresolved = unresolved;
+            this.options = options;
+            this.resolved = resolved;
+        }
+
+        // null if the earlier resolve can't be reused
+        SubstitutionGraph graph() {
+            SubstitutionGraph g = graph;
+            if (g == null && reusable) {
+                g = SubstitutionGraph.build((SimpleConfigObject) unresolved, resolved);
+                if (g == null)
+                    reusable = false;
+                graph = g;
+            }
+            return g;
+        }
+    }
+
+    private static final class Change {
+        final Path path;
+        final Change next;
+
+        Change(Path path, Change next) {
+            this.path = path;
+            this.next = next;
+        }
+    }
+
+    final private Base base;
+    // most recent first; null if nothing has changed
+    final private Change changes;
+
+    private ResolveLineage(Base base, Change changes) {
+        this.base = base;
+        this.changes = changes;
+    }
+
+    // returns null if configs derived from this resolve can't build on it
+    static ResolveLineage resolved(AbstractConfigObject unresolved, ConfigResolveOptions options,
+            AbstractConfigObject resolved) {
+        if (!(unresolved instanceof SimpleConfigObject) || resolved.resolveStatus() != ResolveStatus.RESOLVED)
+            return null;
+        return new ResolveLineage(new Base(unresolved, options, resolved), null);
+    }
+
+    ResolveLineage withChange(Path path) {
+        return new ResolveLineage(base, new Change(path, changes));
+    }
+
+    // returns null if we can't tell what the fallback changed
+    ResolveLineage withFallback(AbstractConfigObject root, ConfigValue fallback) {
+        if (!(root instanceof SimpleConfigObject) || !(fallback instanceof SimpleConfigObject))
+            return null;
+        List<Path> changed = new ArrayList<Path>();
+        fallbackChanges((SimpleConfigObject) root, (SimpleConfigObject) fallback, null, changed);
+        Change c = changes;
+        for (Path path : changed)
+            c = new Change(path, c);
+        return new ResolveLineage(base, c);
+    }
+
+    // a fallback can only change what's missing from, unresolved in or an
+    // object in the config it's merged into
+    private static void fallbackChanges(SimpleConfigObject obj, SimpleConfigObject fallback, Path prefix,
+            List<Path> changed) {
+        if (obj.ignoresFallbacks())
+            return;
+        for (String key : fallback.keySet()) {
+            Path path = prefix == null ? Path.newKey(key) : Path.newKey(key).prepend(prefix);
+            AbstractConfigValue existing = obj.attemptPeekWithPartialResolve(key);
+            AbstractConfigValue incoming = fallback.attemptPeekWithPartialResolve(key);
+            if (existing == null) {
+                changed.add(path);
+            } else if (existing instanceof SimpleConfigObject && incoming instanceof SimpleConfigObject) {
+                fallbackChanges((SimpleConfigObject) existing, (SimpleConfigObject) incoming, path, changed);
+            } else if (existing instanceof AbstractConfigObject
+                    || existing.resolveStatus() != ResolveStatus.RESOLVED) {
+                changed.add(path);
+            }
+        }
+    }
+
+    /**
+     * Resolves root, which must have been derived from the base tree by the
+     * recorded changes, reusing whatever the changes can't have affected.
+     * Returns null if the earlier resolve can't be used, in which case the
+     * caller should resolve from scratch.
+     */
+    AbstractConfigObject resolve(AbstractConfigObject root, ConfigResolveOptions options) {
+        if (options.getUseSystemEnvironment() != base.options.getUseSystemEnvironment()
+                || options.getAllowUnresolved() != base.options.getAllowUnresolved()
+                || options.getResolver() != base.options.getResolver())
+            return null;
+        SubstitutionGraph graph = base.graph();
+        if (graph == null)
+            return null;
+
+        List<Path> changed = new ArrayList<Path>();
+        for (Change c = changes; c != null; c = c.next)
+            changed.add(c.path);
+
+        Map<MemoKey, AbstractConfigValue> known = graph.resolutionsUnaffectedBy(changed);
+        if (ConfigImpl.traceSubstitutionsEnabled())
+            ConfigImpl.trace("re-resolving after " + changed.size() + " changes, reusing " + known.size()
+                    + " resolved substitutions");
+        return (AbstractConfigObject) ResolveContext.resolve(root, root, options, new ResolveMemos(known));
+    }
+}
@@ -1,5 +1,8 @@
 package com.gu.typesafe.config.impl;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * This exists because we have to memoize resolved substitutions as we go
  * through the config tree; otherwise we could end up creating multiple copies
@@ -9,20 +12,30 @@ final class ResolveMemos {
     // note that we can resolve things to undefined (represented as Java null,
     // rather than ConfigNull) so this map can have null values.
     final private BadMap<MemoKey, com.gu.typesafe.config.impl.AbstractConfigValue> memos;
+    // resolutions carried over from an earlier resolve (see ResolveLineage);
+    // never modified, so every copy shares it
+    final private Map<MemoKey, com.gu.typesafe.config.impl.AbstractConfigValue> known;
 
-    private ResolveMemos(BadMap<MemoKey, com.gu.typesafe.config.impl.AbstractConfigValue> memos) {
+    private ResolveMemos(BadMap<MemoKey, com.gu.typesafe.config.impl.AbstractConfigValue> memos,
+            Map<MemoKey, com.gu.typesafe.config.impl.AbstractConfigValue> known) {
         this.memos = memos;
+        this.known = known;
     }
 
     ResolveMemos() {
-        this(new BadMap<>());
+        this(Collections.<MemoKey, com.gu.typesafe.config.impl.AbstractConfigValue> emptyMap());
+    }
+
+    ResolveMemos(Map<MemoKey, com.gu.typesafe.config.impl.AbstractConfigValue> known) {
+        this(new BadMap<>(), known);
     }
 
     com.gu.typesafe.config.impl.AbstractConfigValue get(MemoKey key) {
-        return memos.get(key);
+        com.gu.typesafe.config.impl.AbstractConfigValue v = memos.get(key);
+        return v != null ? v : known.get(key);
     }
 
     ResolveMemos put(MemoKey key, com.gu.typesafe.config.impl.AbstractConfigValue value) {
-        return new ResolveMemos(memos.copyingPut(key, value));
+        return new ResolveMemos(memos.copyingPut(key, value), known);
     }
 }
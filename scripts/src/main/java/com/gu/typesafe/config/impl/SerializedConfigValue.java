@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -286,6 +287,29 @@ class SerializedConfigValue extends com.gu.typesafe.config.impl.AbstractConfigVa
         SerializedValueType st = SerializedValueType.forValue(value);
         out.writeByte(st.ordinal());
         switch (st) {
+        case LIST:
+            com.gu.typesafe.config.ConfigList list = (ConfigList) value;
+            out.writeInt(list.size());
+            for (com.gu.typesafe.config.ConfigValue v : list) {
+                writeValue(out, v, (SimpleConfigOrigin) list.origin());
+            }
+            break;
+        case OBJECT:
+            com.gu.typesafe.config.ConfigObject obj = (ConfigObject) value;
+            out.writeInt(obj.size());
+            for (Map.Entry<String, com.gu.typesafe.config.ConfigValue> e : obj.entrySet()) {
+                out.writeUTF(e.getKey());
+                writeValue(out, e.getValue(), (SimpleConfigOrigin) obj.origin());
+            }
+            break;
+        default:
+            writeScalarData(out, st, value);
+        }
+    }
+
+    private static void writeScalarData(DataOutput out, SerializedValueType st, com.gu.typesafe.config.ConfigValue value)
+            throws IOException {
+        switch (st) {
         case BOOLEAN:
             out.writeBoolean(((ConfigBoolean) value).unwrapped());
             break;
@@ -307,21 +331,8 @@ class SerializedConfigValue extends com.gu.typesafe.config.impl.AbstractConfigVa
         case STRING:
             out.writeUTF(((ConfigString) value).unwrapped());
             break;
-        case LIST:
-            com.gu.typesafe.config.ConfigList list = (ConfigList) value;
-            out.writeInt(list.size());
-            for (com.gu.typesafe.config.ConfigValue v : list) {
-                writeValue(out, v, (SimpleConfigOrigin) list.origin());
-            }
-            break;
-        case OBJECT:
-            com.gu.typesafe.config.ConfigObject obj = (ConfigObject) value;
-            out.writeInt(obj.size());
-            for (Map.Entry<String, com.gu.typesafe.config.ConfigValue> e : obj.entrySet()) {
-                out.writeUTF(e.getKey());
-                writeValue(out, e.getValue(), (SimpleConfigOrigin) obj.origin());
-            }
-            break;
+        default:
+            throw new IOException("Not a scalar value type: " + st);
         }
     }
 
@@ -332,6 +343,31 @@ class SerializedConfigValue extends com.gu.typesafe.config.impl.AbstractConfigVa
         if (st == null)
             throw new IOException("Unknown serialized value type: " + stb);
         switch (st) {
+        case LIST:
+            int listSize = in.readInt();
+            List<com.gu.typesafe.config.impl.AbstractConfigValue> list = new ArrayList<com.gu.typesafe.config.impl.AbstractConfigValue>(listSize);
+            for (int i = 0; i < listSize; ++i) {
+                com.gu.typesafe.config.impl.AbstractConfigValue v = readValue(in, origin);
+                list.add(v);
+            }
+            return new SimpleConfigList(origin, list);
+        case OBJECT:
+            int mapSize = in.readInt();
+            Map<String, com.gu.typesafe.config.impl.AbstractConfigValue> map = new HashMap<String, com.gu.typesafe.config.impl.AbstractConfigValue>(mapSize);
+            for (int i = 0; i < mapSize; ++i) {
+                String key = in.readUTF();
+                com.gu.typesafe.config.impl.AbstractConfigValue v = readValue(in, origin);
+                map.put(key, v);
+            }
+            return new SimpleConfigObject(origin, map);
+        default:
+            return readScalarData(in, st, origin);
+        }
+    }
+
+    private static com.gu.typesafe.config.impl.AbstractConfigValue readScalarData(DataInput in, SerializedValueType st,
+            SimpleConfigOrigin origin) throws IOException {
+        switch (st) {
         case BOOLEAN:
             return new ConfigBoolean(origin, in.readBoolean());
         case NULL:
@@ -350,25 +386,9 @@ class SerializedConfigValue extends com.gu.typesafe.config.impl.AbstractConfigVa
             return new ConfigDouble(origin, vd, sd);
         case STRING:
             return new ConfigString.Quoted(origin, in.readUTF());
-        case LIST:
-            int listSize = in.readInt();
-            List<com.gu.typesafe.config.impl.AbstractConfigValue> list = new ArrayList<com.gu.typesafe.config.impl.AbstractConfigValue>(listSize);
-            for (int i = 0; i < listSize; ++i) {
-                com.gu.typesafe.config.impl.AbstractConfigValue v = readValue(in, origin);
-                list.add(v);
-            }
-            return new SimpleConfigList(origin, list);
-        case OBJECT:
-            int mapSize = in.readInt();
-            Map<String, com.gu.typesafe.config.impl.AbstractConfigValue> map = new HashMap<String, com.gu.typesafe.config.impl.AbstractConfigValue>(mapSize);
-            for (int i = 0; i < mapSize; ++i) {
-                String key = in.readUTF();
-                com.gu.typesafe.config.impl.AbstractConfigValue v = readValue(in, origin);
-                map.put(key, v);
-            }
-            return new SimpleConfigObject(origin, map);
+        default:
+            throw new IOException("Unhandled serialized value type: " + st);
         }
-        throw new IOException("Unhandled serialized value type: " + st);
     }
 
     private static void writeValue(DataOutput out, ConfigValue value, SimpleConfigOrigin baseOrigin)
@@ -410,6 +430,125 @@ class SerializedConfigValue extends com.gu.typesafe.config.impl.AbstractConfigVa
         }
     }
 
+    // Compiled snapshots (see ConfigSnapshot) store every distinct origin once,
+    // in a table where each entry is delta-encoded against the previous one,
+    // and values refer to their origin by index into that table. Most values
+    // in a file differ from their neighbours only in line number, so this is
+    // much smaller than repeating an origin delta per value.
+    static void writeSnapshot(DataOutput out, AbstractConfigObject root) throws IOException {
+        if (root.resolveStatus() != ResolveStatus.RESOLVED)
+            throw new NotSerializableException(
+                    "tried to snapshot a value with unresolved substitutions, need to Config#resolve() first");
+        Map<SimpleConfigOrigin, Integer> index = new IdentityHashMap<SimpleConfigOrigin, Integer>();
+        List<SimpleConfigOrigin> table = new ArrayList<SimpleConfigOrigin>();
+        collectOrigins(root, index, new HashMap<Map<SerializedField, Object>, Integer>(), table);
+
+        out.writeInt(table.size());
+        SimpleConfigOrigin previous = null;
+        for (SimpleConfigOrigin origin : table) {
+            writeOrigin(out, origin, previous);
+            previous = origin;
+        }
+        writeSnapshotValue(out, root, index);
+    }
+
+    static AbstractConfigObject readSnapshot(DataInput in) throws IOException {
+        int tableSize = in.readInt();
+        SimpleConfigOrigin[] table = new SimpleConfigOrigin[tableSize];
+        SimpleConfigOrigin previous = null;
+        for (int i = 0; i < tableSize; ++i) {
+            table[i] = readOrigin(in, previous);
+            previous = table[i];
+        }
+        com.gu.typesafe.config.impl.AbstractConfigValue root = readSnapshotValue(in, table);
+        if (!(root instanceof AbstractConfigObject))
+            throw new IOException("Snapshot root is not an object: " + root.valueType());
+        return (AbstractConfigObject) root;
+    }
+
+    // origins compare equal ignoring their comments, so dedupe on the full
+    // field map instead; the identity map avoids recomputing it per value
+    private static void collectOrigins(com.gu.typesafe.config.ConfigValue value,
+            Map<SimpleConfigOrigin, Integer> index, Map<Map<SerializedField, Object>, Integer> byFields,
+            List<SimpleConfigOrigin> table) {
+        SimpleConfigOrigin origin = (SimpleConfigOrigin) value.origin();
+        if (origin != null && !index.containsKey(origin)) {
+            Map<SerializedField, Object> fields = origin.toFields();
+            Integer i = byFields.get(fields);
+            if (i == null) {
+                i = table.size();
+                table.add(origin);
+                byFields.put(fields, i);
+            }
+            index.put(origin, i);
+        }
+        if (value instanceof com.gu.typesafe.config.ConfigList) {
+            for (com.gu.typesafe.config.ConfigValue v : (com.gu.typesafe.config.ConfigList) value)
+                collectOrigins(v, index, byFields, table);
+        } else if (value instanceof com.gu.typesafe.config.ConfigObject) {
+            for (com.gu.typesafe.config.ConfigValue v : ((com.gu.typesafe.config.ConfigObject) value).values())
+                collectOrigins(v, index, byFields, table);
+        }
+    }
+
+    private static void writeSnapshotValue(DataOutput out, com.gu.typesafe.config.ConfigValue value,
+            Map<SimpleConfigOrigin, Integer> index) throws IOException {
+        SerializedValueType st = SerializedValueType.forValue(value);
+        out.writeByte(st.ordinal());
+        Integer origin = index.get((SimpleConfigOrigin) value.origin());
+        out.writeInt(origin != null ? origin : -1);
+        switch (st) {
+        case LIST:
+            com.gu.typesafe.config.ConfigList list = (ConfigList) value;
+            out.writeInt(list.size());
+            for (com.gu.typesafe.config.ConfigValue v : list) {
+                writeSnapshotValue(out, v, index);
+            }
+            break;
+        case OBJECT:
+            com.gu.typesafe.config.ConfigObject obj = (ConfigObject) value;
+            out.writeInt(obj.size());
+            for (Map.Entry<String, com.gu.typesafe.config.ConfigValue> e : obj.entrySet()) {
+                out.writeUTF(e.getKey());
+                writeSnapshotValue(out, e.getValue(), index);
+            }
+            break;
+        default:
+            writeScalarData(out, st, value);
+        }
+    }
+
+    private static com.gu.typesafe.config.impl.AbstractConfigValue readSnapshotValue(DataInput in,
+            SimpleConfigOrigin[] table) throws IOException {
+        int stb = in.readUnsignedByte();
+        SerializedValueType st = SerializedValueType.forInt(stb);
+        if (st == null)
+            throw new IOException("Unknown serialized value type: " + stb);
+        int originIndex = in.readInt();
+        if (originIndex >= table.length)
+            throw new IOException("Origin index " + originIndex + " out of range");
+        SimpleConfigOrigin origin = originIndex >= 0 ? table[originIndex] : null;
+        switch (st) {
+        case LIST:
+            int listSize = in.readInt();
+            List<com.gu.typesafe.config.impl.AbstractConfigValue> list = new ArrayList<com.gu.typesafe.config.impl.AbstractConfigValue>(listSize);
+            for (int i = 0; i < listSize; ++i) {
+                list.add(readSnapshotValue(in, table));
+            }
+            return new SimpleConfigList(origin, list);
+        case OBJECT:
+            int mapSize = in.readInt();
+            Map<String, com.gu.typesafe.config.impl.AbstractConfigValue> map = new HashMap<String, com.gu.typesafe.config.impl.AbstractConfigValue>(mapSize * 2);
+            for (int i = 0; i < mapSize; ++i) {
+                String key = in.readUTF();
+                map.put(key, readSnapshotValue(in, table));
+            }
+            return new SimpleConfigObject(origin, map);
+        default:
+            return readScalarData(in, st, origin);
+        }
+    }
+
     private static void writeField(DataOutput out, FieldOut field) throws IOException {
         byte[] bytes = field.bytes.toByteArray();
         out.writeByte(field.code.ordinal());
@@ -35,9 +35,86 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
     private static final long serialVersionUID = 1L;
 
     final private AbstractConfigObject object;
+    // how this was derived from an earlier resolved config; null if it
+    // wasn't, or if this config is already resolved
+    final private transient ResolveLineage lineage;
+    // set once this unresolved config has been resolved, so configs derived
+    // from it can build on that
+    private transient volatile ResolveLineage resolution;
+    // typed values already read from this config, if it's resolved; made on
+    // first use, and two threads racing to make it just means one table's
+    // entries are lost
+    private transient volatile TypedValueCache conversions;
 
     SimpleConfig(AbstractConfigObject object) {
+        this(object, null);
+    }
+
+    private SimpleConfig(AbstractConfigObject object, ResolveLineage lineage) {
         this.object = object;
+        this.lineage = object.resolveStatus() == ResolveStatus.RESOLVED ? null : lineage;
+    }
+
+    // a config that differs from this one only at changed
+    private SimpleConfig derived(AbstractConfigObject changedObject, Path changed) {
+        ResolveLineage from = lineage();
+        SimpleConfig derived = new SimpleConfig(changedObject, from != null ? from.withChange(changed) : null);
+        TypedValueCache c = conversions;
+        if (c != null && changedObject.resolveStatus() == ResolveStatus.RESOLVED)
+            derived.conversions = c.derive(changed);
+        return derived;
+    }
+
+    private TypedValueCache conversions() {
+        TypedValueCache c = conversions;
+        if (c == null && object.resolveStatus() == ResolveStatus.RESOLVED) {
+            c = new TypedValueCache();
+            conversions = c;
+        }
+        return c;
+    }
+
+    // a getter's conversion of the value at parsedPath, which the caller
+    // wrote as path
+    private interface Conversion<T> {
+        T convert(SimpleConfig config, Path parsedPath, String path);
+    }
+
+    private <T> T memoized(TypedValueCache.Kind kind, String path, Conversion<T> conversion) {
+        return memoized(kind, null, path, conversion);
+    }
+
+    // a compiled path is already parsed, so its conversions never parse it
+    private <T> T memoized(TypedValueCache.Kind kind, com.gu.typesafe.config.ConfigPath path, Conversion<T> conversion) {
+        SimpleConfigPath compiled = (SimpleConfigPath) path;
+        return memoized(kind, compiled.path(), compiled.expression(), conversion);
+    }
+
+    // only a resolved config is memoized; an unresolved one throws from the
+    // getters anyway. Failed conversions aren't remembered, so they throw
+    // afresh every time. A compiled path shares its entries with its
+    // expression; parsedPath is null if the path hasn't been parsed yet.
+    @SuppressWarnings("unchecked")
+    private <T> T memoized(TypedValueCache.Kind kind, Path parsedPath, String path, Conversion<T> conversion) {
+        TypedValueCache c = conversions();
+        T value = c != null ? (T) c.get(kind, path, parsedPath) : null;
+        if (value == null) {
+            value = conversion.convert(this, parsedPath != null ? parsedPath : PathCache.get(path), path);
+            if (c != null)
+                c.put(kind, path, value);
+        }
+        return value;
+    }
+
+    // the memoized list is never handed out, only copies of it, since callers
+    // have always been free to change the list they get
+    private <T> List<T> memoizedList(TypedValueCache.Kind kind, String path, Conversion<List<T>> conversion) {
+        return new ArrayList<T>(memoized(kind, path, conversion));
+    }
+
+    private <T> List<T> memoizedList(TypedValueCache.Kind kind, com.gu.typesafe.config.ConfigPath path,
+            Conversion<List<T>> conversion) {
+        return new ArrayList<T>(memoized(kind, path, conversion));
     }
 
     @Override
@@ -57,7 +134,20 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
 
     @Override
     public SimpleConfig resolve(com.gu.typesafe.config.ConfigResolveOptions options) {
-        return resolveWith(this, options);
+        if (object.resolveStatus() == ResolveStatus.RESOLVED)
+            return this;
+
+        AbstractConfigObject resolved = lineage != null ? lineage.resolve(object, options) : null;
+        if (resolved == null)
+            resolved = (AbstractConfigObject) ResolveContext.resolve(object, object, options);
+        resolution = ResolveLineage.resolved(object, options, resolved);
+        return new SimpleConfig(resolved);
+    }
+
+    // the lineage of a config derived from this one
+    private ResolveLineage lineage() {
+        ResolveLineage r = resolution;
+        return r != null ? r : lineage;
     }
 
     @Override
@@ -76,7 +166,10 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
     }
 
     private com.gu.typesafe.config.ConfigValue hasPathPeek(String pathExpression) {
-        Path path = Path.newPath(pathExpression);
+        return hasPathPeek(PathCache.get(pathExpression));
+    }
+
+    private com.gu.typesafe.config.ConfigValue hasPathPeek(Path path) {
         com.gu.typesafe.config.ConfigValue peeked;
         try {
             peeked = object.peekPath(path);
@@ -157,6 +250,17 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
             return v;
     }
 
+    // the object at key, if that's what's there; doesn't allocate, since this
+    // is every step but the last of every lookup
+    static private AbstractConfigObject peekObject(AbstractConfigObject self, String key) {
+        try {
+            com.gu.typesafe.config.impl.AbstractConfigValue v = self.attemptPeekWithPartialResolve(key);
+            return v instanceof AbstractConfigObject ? (AbstractConfigObject) v : null;
+        } catch (com.gu.typesafe.config.ConfigException.NotResolved e) {
+            return null;
+        }
+    }
+
     static private com.gu.typesafe.config.impl.AbstractConfigValue findOrNull(AbstractConfigObject self, Path path,
                                                                               com.gu.typesafe.config.ConfigValueType expected, Path originalPath) {
         try {
@@ -165,9 +269,14 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
             if (next == null) {
                 return findKeyOrNull(self, key, expected, originalPath);
             } else {
-                AbstractConfigObject o = (AbstractConfigObject) findKey(self, key,
-                        com.gu.typesafe.config.ConfigValueType.OBJECT,
-                        originalPath.subPath(0, originalPath.length() - next.length()));
+                AbstractConfigObject o = peekObject(self, key);
+                if (o == null) {
+                    // not an object after all, so go the long way round to
+                    // convert it or get the right exception
+                    o = (AbstractConfigObject) findKey(self, key,
+                            com.gu.typesafe.config.ConfigValueType.OBJECT,
+                            originalPath.subPath(0, originalPath.length() - next.length()));
+                }
                 assert (o != null); // missing was supposed to throw
                 return findOrNull(o, next, expected, originalPath);
             }
@@ -181,7 +290,7 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
     }
 
     com.gu.typesafe.config.impl.AbstractConfigValue find(String pathExpression, com.gu.typesafe.config.ConfigValueType expected) {
-        Path path = Path.newPath(pathExpression);
+        Path path = PathCache.get(pathExpression);
         return find(path, expected, path);
     }
 
@@ -189,8 +298,13 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
         return findOrNull(object, pathExpression, expected, originalPath);
     }
 
+    private com.gu.typesafe.config.impl.AbstractConfigValue find(com.gu.typesafe.config.ConfigPath pathExpression, com.gu.typesafe.config.ConfigValueType expected) {
+        Path path = ((SimpleConfigPath) pathExpression).path();
+        return find(path, expected, path);
+    }
+
     private com.gu.typesafe.config.impl.AbstractConfigValue findOrNull(String pathExpression, com.gu.typesafe.config.ConfigValueType expected) {
-        Path path = Path.newPath(pathExpression);
+        Path path = PathCache.get(pathExpression);
         return findOrNull(path, expected, path);
     }
 
@@ -274,16 +388,20 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
 
     @Override
     public Long getBytes(String path) {
-        BigInteger bytes = getBytesBigInteger(path);
-        com.gu.typesafe.config.ConfigValue v = find(path, com.gu.typesafe.config.ConfigValueType.STRING);
+        return memoized(TypedValueCache.Kind.BYTES, path, SimpleConfig::convertBytes);
+    }
+
+    private Long convertBytes(Path parsedPath, String path) {
+        BigInteger bytes = getBytesBigInteger(parsedPath, path);
+        com.gu.typesafe.config.ConfigValue v = find(parsedPath, com.gu.typesafe.config.ConfigValueType.STRING, parsedPath);
         return toLong(bytes, v.origin(), path);
     }
 
-    private BigInteger getBytesBigInteger(String path) {
+    private BigInteger getBytesBigInteger(Path parsedPath, String path) {
         BigInteger bytes;
-        com.gu.typesafe.config.ConfigValue v = find(path, com.gu.typesafe.config.ConfigValueType.STRING);
+        com.gu.typesafe.config.ConfigValue v = find(parsedPath, com.gu.typesafe.config.ConfigValueType.STRING, parsedPath);
         try {
-            bytes = BigInteger.valueOf(getLong(path));
+            bytes = BigInteger.valueOf(((Number) find(parsedPath, com.gu.typesafe.config.ConfigValueType.NUMBER, parsedPath).unwrapped()).longValue());
         } catch (com.gu.typesafe.config.ConfigException.WrongType e) {
             bytes = parseBytes((String) v.unwrapped(),
                 v.origin(), path);
@@ -294,9 +412,10 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
         return bytes;
     }
 
-    private List<BigInteger> getBytesListBigInteger(String path){
+    private List<BigInteger> getBytesListBigInteger(Path parsedPath, String path){
         List<BigInteger> result = new ArrayList<>();
-        List<? extends com.gu.typesafe.config.ConfigValue> list = getList(path);
+        List<? extends com.gu.typesafe.config.ConfigValue> list = (ConfigList) find(parsedPath,
+                com.gu.typesafe.config.ConfigValueType.LIST, parsedPath);
 
         for (com.gu.typesafe.config.ConfigValue v : list) {
             BigInteger bytes;
@@ -321,7 +440,8 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
 
     @Override
     public com.gu.typesafe.config.ConfigMemorySize getMemorySize(String path) {
-        return com.gu.typesafe.config.ConfigMemorySize.ofBytes(getBytesBigInteger(path));
+        return memoized(TypedValueCache.Kind.MEMORY_SIZE, path,
+                (config, parsed, p) -> com.gu.typesafe.config.ConfigMemorySize.ofBytes(config.getBytesBigInteger(parsed, p)));
     }
 
     @Deprecated
@@ -338,23 +458,27 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
 
     @Override
     public long getDuration(String path, TimeUnit unit) {
-        com.gu.typesafe.config.ConfigValue v = find(path, com.gu.typesafe.config.ConfigValueType.STRING);
-        long result = unit.convert(
-                       parseDuration((String) v.unwrapped(), v.origin(), path),
-                       TimeUnit.NANOSECONDS);
-        return result;
+        return unit.convert(getDuration(path).toNanos(), TimeUnit.NANOSECONDS);
     }
 
     @Override
     public Duration getDuration(String path) {
-        com.gu.typesafe.config.ConfigValue v = find(path, com.gu.typesafe.config.ConfigValueType.STRING);
+        return memoized(TypedValueCache.Kind.DURATION, path, SimpleConfig::convertDuration);
+    }
+
+    private Duration convertDuration(Path parsedPath, String path) {
+        com.gu.typesafe.config.ConfigValue v = find(parsedPath, com.gu.typesafe.config.ConfigValueType.STRING, parsedPath);
         long nanos = parseDuration((String) v.unwrapped(), v.origin(), path);
         return Duration.ofNanos(nanos);
     }
 
     @Override
     public Period getPeriod(String path){
-        com.gu.typesafe.config.ConfigValue v = find(path, com.gu.typesafe.config.ConfigValueType.STRING);
+        return memoized(TypedValueCache.Kind.PERIOD, path, SimpleConfig::convertPeriod);
+    }
+
+    private Period convertPeriod(Path parsedPath, String path) {
+        com.gu.typesafe.config.ConfigValue v = find(parsedPath, com.gu.typesafe.config.ConfigValueType.STRING, parsedPath);
         return parsePeriod((String) v.unwrapped(), v.origin(), path);
     }
 
@@ -368,10 +492,11 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
     }
 
     @SuppressWarnings("unchecked")
-    private <T> List<T> getHomogeneousUnwrappedList(String path,
+    private <T> List<T> getHomogeneousUnwrappedList(Path parsedPath, String path,
             com.gu.typesafe.config.ConfigValueType expected) {
         List<T> l = new ArrayList<T>();
-        List<? extends com.gu.typesafe.config.ConfigValue> list = getList(path);
+        List<? extends com.gu.typesafe.config.ConfigValue> list = (ConfigList) find(parsedPath,
+                com.gu.typesafe.config.ConfigValueType.LIST, parsedPath);
         for (com.gu.typesafe.config.ConfigValue cv : list) {
             // variance would be nice, but stupid cast will do
             com.gu.typesafe.config.impl.AbstractConfigValue v = (com.gu.typesafe.config.impl.AbstractConfigValue) cv;
@@ -389,18 +514,28 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
 
     @Override
     public List<Boolean> getBooleanList(String path) {
-        return getHomogeneousUnwrappedList(path, com.gu.typesafe.config.ConfigValueType.BOOLEAN);
+        return memoizedList(TypedValueCache.Kind.BOOLEAN_LIST, path,
+                (config, parsed, p) -> config.getHomogeneousUnwrappedList(parsed, p, com.gu.typesafe.config.ConfigValueType.BOOLEAN));
     }
 
     @Override
     public List<Number> getNumberList(String path) {
-        return getHomogeneousUnwrappedList(path, com.gu.typesafe.config.ConfigValueType.NUMBER);
+        return memoizedList(TypedValueCache.Kind.NUMBER_LIST, path, SimpleConfig::convertNumberList);
+    }
+
+    private List<Number> convertNumberList(Path parsedPath, String path) {
+        return getHomogeneousUnwrappedList(parsedPath, path, com.gu.typesafe.config.ConfigValueType.NUMBER);
     }
 
     @Override
     public List<Integer> getIntList(String path) {
+        return memoizedList(TypedValueCache.Kind.INT_LIST, path, SimpleConfig::convertIntList);
+    }
+
+    private List<Integer> convertIntList(Path parsedPath, String path) {
         List<Integer> l = new ArrayList<Integer>();
-        List<com.gu.typesafe.config.impl.AbstractConfigValue> numbers = getHomogeneousWrappedList(path, com.gu.typesafe.config.ConfigValueType.NUMBER);
+        List<com.gu.typesafe.config.impl.AbstractConfigValue> numbers = getHomogeneousWrappedList(parsedPath, path,
+                com.gu.typesafe.config.ConfigValueType.NUMBER);
         for (com.gu.typesafe.config.impl.AbstractConfigValue v : numbers) {
             l.add(((com.gu.typesafe.config.impl.ConfigNumber) v).intValueRangeChecked(path));
         }
@@ -409,8 +544,12 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
 
     @Override
     public List<Long> getLongList(String path) {
+        return memoizedList(TypedValueCache.Kind.LONG_LIST, path, SimpleConfig::convertLongList);
+    }
+
+    private List<Long> convertLongList(Path parsedPath, String path) {
         List<Long> l = new ArrayList<Long>();
-        List<Number> numbers = getNumberList(path);
+        List<Number> numbers = convertNumberList(parsedPath, path);
         for (Number n : numbers) {
             l.add(n.longValue());
         }
@@ -419,8 +558,12 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
 
     @Override
     public List<Double> getDoubleList(String path) {
+        return memoizedList(TypedValueCache.Kind.DOUBLE_LIST, path, SimpleConfig::convertDoubleList);
+    }
+
+    private List<Double> convertDoubleList(Path parsedPath, String path) {
         List<Double> l = new ArrayList<Double>();
-        List<Number> numbers = getNumberList(path);
+        List<Number> numbers = convertNumberList(parsedPath, path);
         for (Number n : numbers) {
             l.add(n.doubleValue());
         }
@@ -429,7 +572,8 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
 
     @Override
     public List<String> getStringList(String path) {
-        return getHomogeneousUnwrappedList(path, com.gu.typesafe.config.ConfigValueType.STRING);
+        return memoizedList(TypedValueCache.Kind.STRING_LIST, path,
+                (config, parsed, p) -> config.getHomogeneousUnwrappedList(parsed, p, com.gu.typesafe.config.ConfigValueType.STRING));
     }
 
     @Override
@@ -461,11 +605,17 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
         }
     }
 
-    @SuppressWarnings("unchecked")
     private <T extends com.gu.typesafe.config.ConfigValue> List<T> getHomogeneousWrappedList(
             String path, com.gu.typesafe.config.ConfigValueType expected) {
+        return getHomogeneousWrappedList(PathCache.get(path), path, expected);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends com.gu.typesafe.config.ConfigValue> List<T> getHomogeneousWrappedList(
+            Path parsedPath, String path, com.gu.typesafe.config.ConfigValueType expected) {
         List<T> l = new ArrayList<T>();
-        List<? extends com.gu.typesafe.config.ConfigValue> list = getList(path);
+        List<? extends com.gu.typesafe.config.ConfigValue> list = (ConfigList) find(parsedPath,
+                com.gu.typesafe.config.ConfigValueType.LIST, parsedPath);
         for (com.gu.typesafe.config.ConfigValue cv : list) {
             // variance would be nice, but stupid cast will do
             com.gu.typesafe.config.impl.AbstractConfigValue v = (com.gu.typesafe.config.impl.AbstractConfigValue) cv;
@@ -488,7 +638,12 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
 
     @Override
     public List<? extends com.gu.typesafe.config.Config> getConfigList(String path) {
-        List<com.gu.typesafe.config.ConfigObject> objects = getObjectList(path);
+        return memoizedList(TypedValueCache.Kind.CONFIG_LIST, path, SimpleConfig::convertConfigList);
+    }
+
+    private List<com.gu.typesafe.config.Config> convertConfigList(Path parsedPath, String path) {
+        List<com.gu.typesafe.config.ConfigObject> objects = getHomogeneousWrappedList(parsedPath, path,
+                com.gu.typesafe.config.ConfigValueType.OBJECT);
         List<com.gu.typesafe.config.Config> l = new ArrayList<com.gu.typesafe.config.Config>();
         for (ConfigObject o : objects) {
             l.add(o.toConfig());
@@ -508,8 +663,12 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
 
     @Override
     public List<Long> getBytesList(String path) {
-        com.gu.typesafe.config.ConfigValue v = find(path, com.gu.typesafe.config.ConfigValueType.LIST);
-        return getBytesListBigInteger(path).stream()
+        return memoizedList(TypedValueCache.Kind.BYTES_LIST, path, SimpleConfig::convertBytesList);
+    }
+
+    private List<Long> convertBytesList(Path parsedPath, String path) {
+        com.gu.typesafe.config.ConfigValue v = find(parsedPath, com.gu.typesafe.config.ConfigValueType.LIST, parsedPath);
+        return getBytesListBigInteger(parsedPath, path).stream()
             .map(bytes -> toLong(bytes, v.origin(), path))
             .collect(Collectors.toList());
     }
@@ -526,15 +685,21 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
 
     @Override
     public List<com.gu.typesafe.config.ConfigMemorySize> getMemorySizeList(String path) {
-        return getBytesListBigInteger(path).stream()
-            .map(ConfigMemorySize::ofBytes)
-            .collect(Collectors.toList());
+        return memoizedList(TypedValueCache.Kind.MEMORY_SIZE_LIST, path,
+                (config, parsed, p) -> config.getBytesListBigInteger(parsed, p).stream()
+                        .map(ConfigMemorySize::ofBytes)
+                        .collect(Collectors.toList()));
     }
 
     @Override
     public List<Long> getDurationList(String path, TimeUnit unit) {
+        return getDurationList(PathCache.get(path), path, unit);
+    }
+
+    private List<Long> getDurationList(Path parsedPath, String path, TimeUnit unit) {
         List<Long> l = new ArrayList<Long>();
-        List<? extends com.gu.typesafe.config.ConfigValue> list = getList(path);
+        List<? extends com.gu.typesafe.config.ConfigValue> list = (ConfigList) find(parsedPath,
+                com.gu.typesafe.config.ConfigValueType.LIST, parsedPath);
         for (com.gu.typesafe.config.ConfigValue v : list) {
             if (v.valueType() == com.gu.typesafe.config.ConfigValueType.NUMBER) {
                 Long n = unit.convert(
@@ -558,7 +723,11 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
 
     @Override
     public List<Duration> getDurationList(String path) {
-        List<Long> l = getDurationList(path, TimeUnit.NANOSECONDS);
+        return memoizedList(TypedValueCache.Kind.DURATION_LIST, path, SimpleConfig::convertDurationList);
+    }
+
+    private List<Duration> convertDurationList(Path parsedPath, String path) {
+        List<Long> l = getDurationList(parsedPath, path, TimeUnit.NANOSECONDS);
         List<Duration> builder = new ArrayList<Duration>(l.size());
         for (Long value : l) {
             builder.add(Duration.ofNanos(value));
@@ -566,6 +735,70 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
         return builder;
     }
 
+    @Override
+    public boolean hasPath(com.gu.typesafe.config.ConfigPath path) {
+        com.gu.typesafe.config.ConfigValue peeked = hasPathPeek(((SimpleConfigPath) path).path());
+        return peeked != null && peeked.valueType() != com.gu.typesafe.config.ConfigValueType.NULL;
+    }
+
+    @Override
+    public com.gu.typesafe.config.impl.AbstractConfigValue getValue(com.gu.typesafe.config.ConfigPath path) {
+        return find(path, null);
+    }
+
+    @Override
+    public boolean getBoolean(com.gu.typesafe.config.ConfigPath path) {
+        return (Boolean) find(path, com.gu.typesafe.config.ConfigValueType.BOOLEAN).unwrapped();
+    }
+
+    @Override
+    public int getInt(com.gu.typesafe.config.ConfigPath path) {
+        com.gu.typesafe.config.impl.ConfigNumber n = (com.gu.typesafe.config.impl.ConfigNumber) find(path,
+                com.gu.typesafe.config.ConfigValueType.NUMBER);
+        return n.intValueRangeChecked(path.expression());
+    }
+
+    @Override
+    public long getLong(com.gu.typesafe.config.ConfigPath path) {
+        return ((Number) find(path, com.gu.typesafe.config.ConfigValueType.NUMBER).unwrapped()).longValue();
+    }
+
+    @Override
+    public double getDouble(com.gu.typesafe.config.ConfigPath path) {
+        return ((Number) find(path, com.gu.typesafe.config.ConfigValueType.NUMBER).unwrapped()).doubleValue();
+    }
+
+    @Override
+    public String getString(com.gu.typesafe.config.ConfigPath path) {
+        return (String) find(path, com.gu.typesafe.config.ConfigValueType.STRING).unwrapped();
+    }
+
+    @Override
+    public SimpleConfig getConfig(com.gu.typesafe.config.ConfigPath path) {
+        return ((AbstractConfigObject) find(path, com.gu.typesafe.config.ConfigValueType.OBJECT)).toConfig();
+    }
+
+    @Override
+    public Long getBytes(com.gu.typesafe.config.ConfigPath path) {
+        return memoized(TypedValueCache.Kind.BYTES, path, SimpleConfig::convertBytes);
+    }
+
+    @Override
+    public long getDuration(com.gu.typesafe.config.ConfigPath path, TimeUnit unit) {
+        return unit.convert(getDuration(path).toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Duration getDuration(com.gu.typesafe.config.ConfigPath path) {
+        return memoized(TypedValueCache.Kind.DURATION, path, SimpleConfig::convertDuration);
+    }
+
+    @Override
+    public List<String> getStringList(com.gu.typesafe.config.ConfigPath path) {
+        return memoizedList(TypedValueCache.Kind.STRING_LIST, path,
+                (config, parsed, p) -> config.getHomogeneousUnwrappedList(parsed, p, com.gu.typesafe.config.ConfigValueType.STRING));
+    }
+
     @Deprecated
     @Override
     public List<Long> getMillisecondsList(String path) {
@@ -587,7 +820,15 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
     public SimpleConfig withFallback(ConfigMergeable other) {
         // this can return "this" if the withFallback doesn't need a new
         // ConfigObject
-        return object.withFallback(other).toConfig();
+        AbstractConfigObject merged = object.withFallback(other);
+        if (merged == object)
+            return this;
+
+        ResolveLineage from = lineage();
+        if (from != null && merged.resolveStatus() != ResolveStatus.RESOLVED && other instanceof MergeableValue)
+            return new SimpleConfig(merged, from.withFallback(object, ((MergeableValue) other).toFallbackValue()));
+        else
+            return merged.toConfig();
     }
 
     @Override
@@ -1155,13 +1396,13 @@ final class SimpleConfig implements com.gu.typesafe.config.Config, MergeableValu
     @Override
     public SimpleConfig withoutPath(String pathExpression) {
         Path path = Path.newPath(pathExpression);
-        return new SimpleConfig(root().withoutPath(path));
+        return derived(root().withoutPath(path), path);
     }
 
     @Override
     public SimpleConfig withValue(String pathExpression, ConfigValue v) {
         Path path = Path.newPath(pathExpression);
-        return new SimpleConfig(root().withValue(path, v));
+        return derived(root().withValue(path, v), path);
     }
 
     SimpleConfig atKey(ConfigOrigin origin, String key) {
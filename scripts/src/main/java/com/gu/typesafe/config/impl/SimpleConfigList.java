@@ -198,14 +198,23 @@ final class SimpleConfigList extends com.gu.typesafe.config.impl.AbstractConfigV
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderWriter sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         if (value.isEmpty()) {
             sb.append("[]");
         } else {
             sb.append("[");
             if (options.getFormatted())
                 sb.append('\n');
+            boolean first = true;
             for (com.gu.typesafe.config.impl.AbstractConfigValue v : value) {
+                // separate from the previous element before starting this
+                // one, rather than chopping a trailing separator off the end
+                if (!first) {
+                    sb.append(",");
+                    if (options.getFormatted())
+                        sb.append('\n');
+                }
+                first = false;
                 if (options.getOriginComments()) {
                     String[] lines = v.origin().description().split("\n");
                     for (String l : lines) {
@@ -228,13 +237,8 @@ final class SimpleConfigList extends com.gu.typesafe.config.impl.AbstractConfigV
                 indent(sb, indent + 1, options);
 
                 v.render(sb, indent + 1, atRoot, options);
-                sb.append(",");
-                if (options.getFormatted())
-                    sb.append('\n');
             }
-            sb.setLength(sb.length() - 1); // chop or newline
             if (options.getFormatted()) {
-                sb.setLength(sb.length() - 1); // also chop comma
                 sb.append('\n');
                 indent(sb, indent, options);
             }
@@ -24,9 +24,13 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
 
     private static final long serialVersionUID = 2L;
 
-    // this map should never be modified - assume immutable
+    // this map should never be modified - assume immutable. Objects made by
+    // editing or merging others hold a HashTrieMap, so that the next edit can
+    // share most of it rather than copying the lot.
     final private Map<String, com.gu.typesafe.config.impl.AbstractConfigValue> value;
-    final private boolean resolved;
+    // how many of the values are unresolved, so that an edit can work out the
+    // new resolve status without looking at every value
+    final private int unresolvedChildren;
     final private boolean ignoresFallbacks;
 
     SimpleConfigObject(com.gu.typesafe.config.ConfigOrigin origin,
@@ -37,19 +41,62 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
             throw new com.gu.typesafe.config.ConfigException.BugOrBroken(
                     "creating config object with null map");
         this.value = value;
-        this.resolved = status == ResolveStatus.RESOLVED;
+        this.unresolvedChildren = countUnresolved(value.values());
         this.ignoresFallbacks = ignoresFallbacks;
 
         // Kind of an expensive debug check. Comment out?
-        if (status != ResolveStatus.fromValues(value.values()))
+        if (status != resolveStatus())
             throw new com.gu.typesafe.config.ConfigException.BugOrBroken("Wrong resolved status on " + this);
     }
 
+    // for maps we've built ourselves and already counted
+    private SimpleConfigObject(com.gu.typesafe.config.ConfigOrigin origin, Map<String, AbstractConfigValue> value,
+                               int unresolvedChildren, boolean ignoresFallbacks) {
+        super(origin);
+        this.value = value;
+        this.unresolvedChildren = unresolvedChildren;
+        this.ignoresFallbacks = ignoresFallbacks;
+    }
+
     SimpleConfigObject(com.gu.typesafe.config.ConfigOrigin origin,
                        Map<String, com.gu.typesafe.config.impl.AbstractConfigValue> value) {
         this(origin, value, ResolveStatus.fromValues(value.values()), false /* ignoresFallbacks */);
     }
 
+    // an object whose text hasn't been parsed yet; only objects that will
+    // parse to resolved values are put off, so asking for the status
+    // doesn't have to parse it
+    static SimpleConfigObject lazy(com.gu.typesafe.config.ConfigOrigin origin, LazyObjectMap value) {
+        return new SimpleConfigObject(origin, value, 0, false /* ignoresFallbacks */);
+    }
+
+    private static int countUnresolved(Collection<? extends AbstractConfigValue> values) {
+        int count = 0;
+        for (AbstractConfigValue v : values) {
+            if (v.resolveStatus() == ResolveStatus.UNRESOLVED)
+                count += 1;
+        }
+        return count;
+    }
+
+    private static int unresolved(AbstractConfigValue v) {
+        return v != null && v.resolveStatus() == ResolveStatus.UNRESOLVED ? 1 : 0;
+    }
+
+    private HashTrieMap<String, AbstractConfigValue> trie() {
+        return HashTrieMap.copyOf(value);
+    }
+
+    // this object with the key mapped to v, or removed if v is null
+    private SimpleConfigObject withChild(String key, AbstractConfigValue v) {
+        AbstractConfigValue old = value.get(key);
+        if (old == v)
+            return this;
+        HashTrieMap<String, AbstractConfigValue> updated = v == null ? trie().minus(key) : trie().plus(key, v);
+        return new SimpleConfigObject(origin(), updated, unresolvedChildren - unresolved(old) + unresolved(v),
+                ignoresFallbacks);
+    }
+
     @Override
     public SimpleConfigObject withOnlyKey(String key) {
         return withOnlyPath(Path.newKey(key));
@@ -108,24 +155,12 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
         com.gu.typesafe.config.impl.AbstractConfigValue v = value.get(key);
 
         if (v != null && next != null && v instanceof AbstractConfigObject) {
-            v = ((AbstractConfigObject) v).withoutPath(next);
-            Map<String, com.gu.typesafe.config.impl.AbstractConfigValue> updated = new HashMap<String, com.gu.typesafe.config.impl.AbstractConfigValue>(
-                    value);
-            updated.put(key, v);
-            return new SimpleConfigObject(origin(), updated, ResolveStatus.fromValues(updated
-                    .values()), ignoresFallbacks);
+            return withChild(key, ((AbstractConfigObject) v).withoutPath(next));
         } else if (next != null || v == null) {
             // can't descend, nothing to remove
             return this;
         } else {
-            Map<String, com.gu.typesafe.config.impl.AbstractConfigValue> smaller = new HashMap<String, com.gu.typesafe.config.impl.AbstractConfigValue>(
-                    value.size() - 1);
-            for (Map.Entry<String, com.gu.typesafe.config.impl.AbstractConfigValue> old : value.entrySet()) {
-                if (!old.getKey().equals(key))
-                    smaller.put(old.getKey(), old.getValue());
-            }
-            return new SimpleConfigObject(origin(), smaller, ResolveStatus.fromValues(smaller
-                    .values()), ignoresFallbacks);
+            return withChild(key, null);
         }
     }
 
@@ -135,16 +170,7 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
             throw new com.gu.typesafe.config.ConfigException.BugOrBroken(
                     "Trying to store null ConfigValue in a ConfigObject");
 
-        Map<String, com.gu.typesafe.config.impl.AbstractConfigValue> newMap;
-        if (value.isEmpty()) {
-            newMap = Collections.singletonMap(key, (com.gu.typesafe.config.impl.AbstractConfigValue) v);
-        } else {
-            newMap = new HashMap<String, com.gu.typesafe.config.impl.AbstractConfigValue>(value);
-            newMap.put(key, (com.gu.typesafe.config.impl.AbstractConfigValue) v);
-        }
-
-        return new SimpleConfigObject(origin(), newMap, ResolveStatus.fromValues(newMap.values()),
-                ignoresFallbacks);
+        return withChild(key, (com.gu.typesafe.config.impl.AbstractConfigValue) v);
     }
 
     @Override
@@ -175,7 +201,9 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
 
     private SimpleConfigObject newCopy(ResolveStatus newStatus, com.gu.typesafe.config.ConfigOrigin newOrigin,
             boolean newIgnoresFallbacks) {
-        return new SimpleConfigObject(newOrigin, value, newStatus, newIgnoresFallbacks);
+        if (newStatus != resolveStatus())
+            throw new com.gu.typesafe.config.ConfigException.BugOrBroken("Wrong resolved status on copy of " + this);
+        return new SimpleConfigObject(newOrigin, value, unresolvedChildren, newIgnoresFallbacks);
     }
 
     @Override
@@ -193,22 +221,14 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
 
     @Override
     ResolveStatus resolveStatus() {
-        return ResolveStatus.fromBoolean(resolved);
+        return ResolveStatus.fromBoolean(unresolvedChildren == 0);
     }
 
     @Override
     public SimpleConfigObject replaceChild(com.gu.typesafe.config.impl.AbstractConfigValue child, com.gu.typesafe.config.impl.AbstractConfigValue replacement) {
-        HashMap<String, com.gu.typesafe.config.impl.AbstractConfigValue> newChildren = new HashMap<String, com.gu.typesafe.config.impl.AbstractConfigValue>(value);
-        for (Map.Entry<String, com.gu.typesafe.config.impl.AbstractConfigValue> old : newChildren.entrySet()) {
-            if (old.getValue() == child) {
-                if (replacement != null)
-                    old.setValue(replacement);
-                else
-                    newChildren.remove(old.getKey());
-
-                return new SimpleConfigObject(origin(), newChildren, ResolveStatus.fromValues(newChildren.values()),
-                        ignoresFallbacks);
-            }
+        for (Map.Entry<String, com.gu.typesafe.config.impl.AbstractConfigValue> old : value.entrySet()) {
+            if (old.getValue() == child)
+                return withChild(old.getKey(), replacement);
         }
         throw new com.gu.typesafe.config.ConfigException.BugOrBroken("SimpleConfigObject.replaceChild did not find " + child + " in " + this);
     }
@@ -253,37 +273,45 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
 
         SimpleConfigObject fallback = (SimpleConfigObject) abstractFallback;
 
+        // start from whichever map is bigger and only visit the keys of the
+        // other one, so layering a small config over a big one is cheap
         boolean changed = false;
-        boolean allResolved = true;
-        Map<String, com.gu.typesafe.config.impl.AbstractConfigValue> merged = new HashMap<String, com.gu.typesafe.config.impl.AbstractConfigValue>();
-        Set<String> allKeys = new HashSet<String>();
-        allKeys.addAll(this.keySet());
-        allKeys.addAll(fallback.keySet());
-        for (String key : allKeys) {
-            com.gu.typesafe.config.impl.AbstractConfigValue first = this.value.get(key);
-            com.gu.typesafe.config.impl.AbstractConfigValue second = fallback.value.get(key);
-            com.gu.typesafe.config.impl.AbstractConfigValue kept;
-            if (first == null)
-                kept = second;
-            else if (second == null)
-                kept = first;
-            else
-                kept = first.withFallback(second);
-
-            merged.put(key, kept);
-
-            if (first != kept)
-                changed = true;
-
-            if (kept.resolveStatus() == ResolveStatus.UNRESOLVED)
-                allResolved = false;
+        HashTrieMap<String, com.gu.typesafe.config.impl.AbstractConfigValue> merged;
+        int unresolvedCount;
+        if (fallback.size() > size()) {
+            // the fallback must have a key we don't
+            changed = true;
+            merged = fallback.trie();
+            unresolvedCount = fallback.unresolvedChildren;
+            for (Map.Entry<String, com.gu.typesafe.config.impl.AbstractConfigValue> e : value.entrySet()) {
+                com.gu.typesafe.config.impl.AbstractConfigValue first = e.getValue();
+                com.gu.typesafe.config.impl.AbstractConfigValue second = merged.get(e.getKey());
+                com.gu.typesafe.config.impl.AbstractConfigValue kept = second == null ? first : first
+                        .withFallback(second);
+                merged = merged.plus(e.getKey(), kept);
+                unresolvedCount += unresolved(kept) - unresolved(second);
+            }
+        } else {
+            merged = trie();
+            unresolvedCount = unresolvedChildren;
+            for (Map.Entry<String, com.gu.typesafe.config.impl.AbstractConfigValue> e : fallback.value.entrySet()) {
+                com.gu.typesafe.config.impl.AbstractConfigValue first = merged.get(e.getKey());
+                com.gu.typesafe.config.impl.AbstractConfigValue second = e.getValue();
+                com.gu.typesafe.config.impl.AbstractConfigValue kept = first == null ? second : first
+                        .withFallback(second);
+                if (first != kept) {
+                    changed = true;
+                    merged = merged.plus(e.getKey(), kept);
+                    unresolvedCount += unresolved(kept) - unresolved(first);
+                }
+            }
         }
 
-        ResolveStatus newResolveStatus = ResolveStatus.fromBoolean(allResolved);
+        ResolveStatus newResolveStatus = ResolveStatus.fromBoolean(unresolvedCount == 0);
         boolean newIgnoresFallbacks = fallback.ignoresFallbacks();
 
         if (changed)
-            return new SimpleConfigObject(mergeOrigins(this, fallback), merged, newResolveStatus,
+            return new SimpleConfigObject(mergeOrigins(this, fallback), merged, unresolvedCount,
                     newIgnoresFallbacks);
         else if (newResolveStatus != resolveStatus() || newIgnoresFallbacks != ignoresFallbacks())
             return newCopy(newResolveStatus, origin(), newIgnoresFallbacks);
@@ -317,28 +345,16 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
         if (changes == null) {
             return this;
         } else {
-            Map<String, com.gu.typesafe.config.impl.AbstractConfigValue> modified = new HashMap<String, com.gu.typesafe.config.impl.AbstractConfigValue>();
-            boolean sawUnresolved = false;
-            for (String k : keySet()) {
-                if (changes.containsKey(k)) {
-                    com.gu.typesafe.config.impl.AbstractConfigValue newValue = changes.get(k);
-                    if (newValue != null) {
-                        modified.put(k, newValue);
-                        if (newValue.resolveStatus() == ResolveStatus.UNRESOLVED)
-                            sawUnresolved = true;
-                    } else {
-                        // remove this child; don't put it in the new map.
-                    }
-                } else {
-                    com.gu.typesafe.config.impl.AbstractConfigValue newValue = value.get(k);
-                    modified.put(k, newValue);
-                    if (newValue.resolveStatus() == ResolveStatus.UNRESOLVED)
-                        sawUnresolved = true;
-                }
+            HashTrieMap<String, com.gu.typesafe.config.impl.AbstractConfigValue> modified = trie();
+            int unresolvedCount = unresolvedChildren;
+            for (Map.Entry<String, com.gu.typesafe.config.impl.AbstractConfigValue> change : changes.entrySet()) {
+                String k = change.getKey();
+                com.gu.typesafe.config.impl.AbstractConfigValue newValue = change.getValue();
+                unresolvedCount += unresolved(newValue) - unresolved(value.get(k));
+                // a null value means remove this child
+                modified = newValue == null ? modified.minus(k) : modified.plus(k, newValue);
             }
-            return new SimpleConfigObject(origin(), modified,
-                    sawUnresolved ? ResolveStatus.UNRESOLVED : ResolveStatus.RESOLVED,
-                    ignoresFallbacks());
+            return new SimpleConfigObject(origin(), modified, unresolvedCount, ignoresFallbacks());
         }
     }
 
@@ -458,7 +474,7 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderWriter sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         if (isEmpty()) {
             sb.append("{}");
         } else {
@@ -478,12 +494,25 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
                 innerIndent = indent;
             }
 
-            int separatorCount = 0;
+            boolean first = true;
             Arrays.sort(keys, new RenderComparator());
             for (String k : keys) {
                 com.gu.typesafe.config.impl.AbstractConfigValue v;
                 v = value.get(k);
 
+                // separate from the previous key before starting this one,
+                // rather than chopping a trailing separator off the end
+                if (!first) {
+                    if (options.getFormatted()) {
+                        if (options.getJson())
+                            sb.append(",");
+                        sb.append('\n');
+                    } else {
+                        sb.append(",");
+                    }
+                }
+                first = false;
+
                 if (options.getOriginComments()) {
                     String[] lines = v.origin().description().split("\n");
                     for (String l : lines) {
@@ -511,26 +540,11 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
                   indent(sb, innerIndent, options);
                 }
                 v.render(sb, innerIndent, false /* atRoot */, k, options);
-
-                if (options.getFormatted()) {
-                    if (options.getJson()) {
-                        sb.append(",");
-                        separatorCount = 2;
-                    } else {
-                        separatorCount = 1;
-                    }
-                    sb.append('\n');
-                } else {
-                    sb.append(",");
-                    separatorCount = 1;
-                }
             }
-            // chop last commas/newlines
-            sb.setLength(sb.length() - separatorCount);
 
             if (outerBraces) {
                 if (options.getFormatted()) {
-                    sb.append('\n'); // put a newline back
+                    sb.append('\n');
                     if (outerBraces)
                         indent(sb, indent, options);
                 }
@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
@@ -21,31 +22,116 @@ import com.gu.typesafe.config.impl.SerializedConfigValue.SerializedField;
 
 // it would be cleaner to have a class hierarchy for various origin types,
 // but was hoping this would be enough simpler to be a little messy. eh.
-final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
-
-    final private String description;
+//
+// A parse creates an origin for nearly every token and value, so origins are
+// kept small. What origins from the same file, URL or resource have in common
+// (description, type, URL, resource) lives once in a shared Source, and each
+// origin holds only what differs: its line numbers. This is the same trick
+// SerializedConfigValue uses on the wire, where an origin is written as a
+// delta against its parent's. Origins for a single line are interned per
+// Source, so every token and value on a line shares one object. Comments are
+// rare, so they're kept out of line, in a subclass only commented origins
+// pay for.
+class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
+
+    final private Source source;
     final private int lineNumber;
     final private int endLineNumber;
-    final private OriginType originType;
-    final private String urlOrNull;
-    final private String resourceOrNull;
-    final private List<String> commentsOrNull;
-
-    protected SimpleConfigOrigin(String description, int lineNumber, int endLineNumber, OriginType originType,
-            String urlOrNull, String resourceOrNull, List<String> commentsOrNull) {
-        if (description == null)
-            throw new com.gu.typesafe.config.ConfigException.BugOrBroken("description may not be null");
-        this.description = description;
+
+    private SimpleConfigOrigin(Source source, int lineNumber, int endLineNumber) {
+        this.source = source;
         this.lineNumber = lineNumber;
         this.endLineNumber = endLineNumber;
-        this.originType = originType;
-        this.urlOrNull = urlOrNull;
-        this.resourceOrNull = resourceOrNull;
-        this.commentsOrNull = commentsOrNull;
+    }
+
+    // the fields shared by every origin from one file, URL or resource
+    static final private class Source {
+        final private String description;
+        final private OriginType originType;
+        final private String urlOrNull;
+        final private String resourceOrNull;
+
+        // the origin with no line number
+        final private SimpleConfigOrigin origin;
+        // interned single-line origins, indexed by line number
+        private SimpleConfigOrigin[] lines;
+
+        Source(String description, OriginType originType, String urlOrNull, String resourceOrNull) {
+            if (description == null)
+                throw new com.gu.typesafe.config.ConfigException.BugOrBroken("description may not be null");
+            this.description = description;
+            this.originType = originType;
+            this.urlOrNull = urlOrNull;
+            this.resourceOrNull = resourceOrNull;
+            this.origin = new SimpleConfigOrigin(this, -1, -1);
+            this.lines = new SimpleConfigOrigin[16];
+        }
+
+        boolean sameFields(String description, OriginType originType, String urlOrNull, String resourceOrNull) {
+            return this.description.equals(description) && this.originType == originType
+                    && ConfigImplUtil.equalsHandlingNull(this.urlOrNull, urlOrNull)
+                    && ConfigImplUtil.equalsHandlingNull(this.resourceOrNull, resourceOrNull);
+        }
+
+        // parallel includes can share a Source between threads, hence the lock;
+        // it's taken about once per line, by the tokenizer
+        // lines are interned as the tokenizer reaches them, so the table grows
+        // a little at a time; a line number far past the end (which can only
+        // come from a caller of withLineNumber) gets an origin of its own
+        synchronized SimpleConfigOrigin line(int lineNumber) {
+            if (lineNumber >= lines.length * 4)
+                return new SimpleConfigOrigin(this, lineNumber, lineNumber);
+            if (lineNumber >= lines.length)
+                lines = Arrays.copyOf(lines, Math.max(lineNumber + 1, lines.length * 2));
+            SimpleConfigOrigin o = lines[lineNumber];
+            if (o == null) {
+                o = new SimpleConfigOrigin(this, lineNumber, lineNumber);
+                lines[lineNumber] = o;
+            }
+            return o;
+        }
+
+        SimpleConfigOrigin lines(int lineNumber, int endLineNumber, List<String> commentsOrNull) {
+            SimpleConfigOrigin o;
+            if (lineNumber < 0 && endLineNumber < 0)
+                o = origin;
+            else if (lineNumber == endLineNumber && lineNumber >= 0)
+                o = line(lineNumber);
+            else
+                o = new SimpleConfigOrigin(this, lineNumber, endLineNumber);
+            if (commentsOrNull != null)
+                return new Commented(o.source, o.lineNumber, o.endLineNumber, commentsOrNull);
+            else
+                return o;
+        }
+    }
+
+    static final private class Commented extends SimpleConfigOrigin {
+        final private List<String> comments;
+
+        Commented(Source source, int lineNumber, int endLineNumber, List<String> comments) {
+            super(source, lineNumber, endLineNumber);
+            this.comments = comments;
+        }
+
+        @Override
+        List<String> commentsOrNull() {
+            return comments;
+        }
+    }
+
+    private static SimpleConfigOrigin make(String description, int lineNumber, int endLineNumber,
+            OriginType originType, String urlOrNull, String resourceOrNull, List<String> commentsOrNull) {
+        return new Source(description, originType, urlOrNull, resourceOrNull).lines(lineNumber, endLineNumber,
+                commentsOrNull);
+    }
+
+    List<String> commentsOrNull() {
+        return null;
     }
 
     static SimpleConfigOrigin newSimple(String description) {
-        return new SimpleConfigOrigin(description, -1, -1, OriginType.GENERIC, null, null, null);
+        return make(description, -1, -1, OriginType.GENERIC, null, null, null);
     }
 
     static SimpleConfigOrigin newFile(String filename) {
@@ -55,12 +141,12 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
         } catch (MalformedURLException e) {
             url = null;
         }
-        return new SimpleConfigOrigin(filename, -1, -1, OriginType.FILE, url, null, null);
+        return make(filename, -1, -1, OriginType.FILE, url, null, null);
     }
 
     static SimpleConfigOrigin newURL(URL url) {
         String u = url.toExternalForm();
-        return new SimpleConfigOrigin(u, -1, -1, OriginType.URL, u, null, null);
+        return make(u, -1, -1, OriginType.URL, u, null, null);
     }
 
     static SimpleConfigOrigin newResource(String resource, URL url) {
@@ -69,7 +155,7 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
             desc = resource + " @ " + url.toExternalForm();
         else
             desc = resource;
-        return new SimpleConfigOrigin(desc, -1, -1, OriginType.RESOURCE, url != null ? url.toExternalForm() : null,
+        return make(desc, -1, -1, OriginType.RESOURCE, url != null ? url.toExternalForm() : null,
                 resource, null);
     }
 
@@ -82,47 +168,49 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
         if (lineNumber == this.lineNumber && lineNumber == this.endLineNumber) {
             return this;
         } else {
-            return new SimpleConfigOrigin(this.description, lineNumber, lineNumber, this.originType, this.urlOrNull,
-                    this.resourceOrNull, this.commentsOrNull);
+            return source.lines(lineNumber, lineNumber, commentsOrNull());
         }
     }
 
     SimpleConfigOrigin addURL(URL url) {
-        return new SimpleConfigOrigin(this.description, this.lineNumber, this.endLineNumber, this.originType,
-                url != null ? url.toExternalForm() : null, this.resourceOrNull, this.commentsOrNull);
+        return make(source.description, this.lineNumber, this.endLineNumber, source.originType,
+                url != null ? url.toExternalForm() : null, source.resourceOrNull, commentsOrNull());
     }
 
     @Override
     public SimpleConfigOrigin withComments(List<String> comments) {
-        if (ConfigImplUtil.equalsHandlingNull(comments, this.commentsOrNull)) {
+        if (ConfigImplUtil.equalsHandlingNull(comments, commentsOrNull())) {
             return this;
         } else {
-            return new SimpleConfigOrigin(this.description, this.lineNumber, this.endLineNumber, this.originType,
-                    this.urlOrNull, this.resourceOrNull, comments);
+            return source.lines(this.lineNumber, this.endLineNumber, comments);
         }
     }
 
+    // the parser adds the comments it's seen, usually none; adding none
+    // mustn't turn a shared line origin into a commented copy of it
     SimpleConfigOrigin prependComments(List<String> comments) {
-        if (ConfigImplUtil.equalsHandlingNull(comments, this.commentsOrNull) || comments == null) {
+        List<String> commentsOrNull = commentsOrNull();
+        if (comments == null || comments.isEmpty() || ConfigImplUtil.equalsHandlingNull(comments, commentsOrNull)) {
             return this;
-        } else if (this.commentsOrNull == null) {
+        } else if (commentsOrNull == null) {
             return withComments(comments);
         } else {
-            List<String> merged = new ArrayList<String>(comments.size() + this.commentsOrNull.size());
+            List<String> merged = new ArrayList<String>(comments.size() + commentsOrNull.size());
             merged.addAll(comments);
-            merged.addAll(this.commentsOrNull);
+            merged.addAll(commentsOrNull);
             return withComments(merged);
         }
     }
 
     SimpleConfigOrigin appendComments(List<String> comments) {
-        if (ConfigImplUtil.equalsHandlingNull(comments, this.commentsOrNull) || comments == null) {
+        List<String> commentsOrNull = commentsOrNull();
+        if (comments == null || comments.isEmpty() || ConfigImplUtil.equalsHandlingNull(comments, commentsOrNull)) {
             return this;
-        } else if (this.commentsOrNull == null) {
+        } else if (commentsOrNull == null) {
             return withComments(comments);
         } else {
-            List<String> merged = new ArrayList<String>(comments.size() + this.commentsOrNull.size());
-            merged.addAll(this.commentsOrNull);
+            List<String> merged = new ArrayList<String>(comments.size() + commentsOrNull.size());
+            merged.addAll(commentsOrNull);
             merged.addAll(comments);
             return withComments(merged);
         }
@@ -131,11 +219,11 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
     @Override
     public String description() {
         if (lineNumber < 0) {
-            return description;
+            return source.description;
         } else if (endLineNumber == lineNumber) {
-            return description + ": " + lineNumber;
+            return source.description + ": " + lineNumber;
         } else {
-            return description + ": " + lineNumber + "-" + endLineNumber;
+            return source.description + ": " + lineNumber + "-" + endLineNumber;
         }
     }
 
@@ -144,10 +232,8 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
         if (other instanceof SimpleConfigOrigin) {
             SimpleConfigOrigin otherOrigin = (SimpleConfigOrigin) other;
 
-            return this.description.equals(otherOrigin.description) && this.lineNumber == otherOrigin.lineNumber
-                    && this.endLineNumber == otherOrigin.endLineNumber && this.originType == otherOrigin.originType
-                    && ConfigImplUtil.equalsHandlingNull(this.urlOrNull, otherOrigin.urlOrNull)
-                    && ConfigImplUtil.equalsHandlingNull(this.resourceOrNull, otherOrigin.resourceOrNull);
+            return this.lineNumber == otherOrigin.lineNumber && this.endLineNumber == otherOrigin.endLineNumber
+                    && sameSource(this, otherOrigin);
         } else {
             return false;
         }
@@ -155,30 +241,30 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
 
     @Override
     public int hashCode() {
-        int h = 41 * (41 + description.hashCode());
+        int h = 41 * (41 + source.description.hashCode());
         h = 41 * (h + lineNumber);
         h = 41 * (h + endLineNumber);
-        h = 41 * (h + originType.hashCode());
-        if (urlOrNull != null)
-            h = 41 * (h + urlOrNull.hashCode());
-        if (resourceOrNull != null)
-            h = 41 * (h + resourceOrNull.hashCode());
+        h = 41 * (h + source.originType.hashCode());
+        if (source.urlOrNull != null)
+            h = 41 * (h + source.urlOrNull.hashCode());
+        if (source.resourceOrNull != null)
+            h = 41 * (h + source.resourceOrNull.hashCode());
         return h;
     }
 
     @Override
     public String toString() {
-        return "ConfigOrigin(" + description + ")";
+        return "ConfigOrigin(" + source.description + ")";
     }
 
     @Override
     public String filename() {
-        if (originType == OriginType.FILE) {
-            return description;
-        } else if (urlOrNull != null) {
+        if (source.originType == OriginType.FILE) {
+            return source.description;
+        } else if (source.urlOrNull != null) {
             URL url;
             try {
-                url = new URL(urlOrNull);
+                url = new URL(source.urlOrNull);
             } catch (MalformedURLException e) {
                 return null;
             }
@@ -194,11 +280,11 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
 
     @Override
     public URL url() {
-        if (urlOrNull == null) {
+        if (source.urlOrNull == null) {
             return null;
         } else {
             try {
-                return new URL(urlOrNull);
+                return new URL(source.urlOrNull);
             } catch (MalformedURLException e) {
                 return null;
             }
@@ -207,7 +293,7 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
 
     @Override
     public String resource() {
-        return resourceOrNull;
+        return source.resourceOrNull;
     }
 
     @Override
@@ -217,6 +303,7 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
 
     @Override
     public List<String> comments() {
+        List<String> commentsOrNull = commentsOrNull();
         if (commentsOrNull != null) {
             return Collections.unmodifiableList(commentsOrNull);
         } else {
@@ -224,6 +311,11 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
         }
     }
 
+    private static boolean sameSource(SimpleConfigOrigin a, SimpleConfigOrigin b) {
+        return a.source == b.source || a.source.sameFields(b.source.description, b.source.originType,
+                b.source.urlOrNull, b.source.resourceOrNull);
+    }
+
     static final String MERGE_OF_PREFIX = "merge of ";
 
     private static SimpleConfigOrigin mergeTwo(SimpleConfigOrigin a, SimpleConfigOrigin b) {
@@ -233,16 +325,16 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
         List<String> mergedComments;
 
         OriginType mergedType;
-        if (a.originType == b.originType) {
-            mergedType = a.originType;
+        if (a.source.originType == b.source.originType) {
+            mergedType = a.source.originType;
         } else {
             mergedType = OriginType.GENERIC;
         }
 
         // first use the "description" field which has no line numbers
         // cluttering it.
-        String aDesc = a.description;
-        String bDesc = b.description;
+        String aDesc = a.source.description;
+        String bDesc = b.source.description;
         if (aDesc.startsWith(MERGE_OF_PREFIX))
             aDesc = aDesc.substring(MERGE_OF_PREFIX.length());
         if (bDesc.startsWith(MERGE_OF_PREFIX))
@@ -280,40 +372,50 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
         }
 
         String mergedURL;
-        if (ConfigImplUtil.equalsHandlingNull(a.urlOrNull, b.urlOrNull)) {
-            mergedURL = a.urlOrNull;
+        if (ConfigImplUtil.equalsHandlingNull(a.source.urlOrNull, b.source.urlOrNull)) {
+            mergedURL = a.source.urlOrNull;
         } else {
             mergedURL = null;
         }
 
         String mergedResource;
-        if (ConfigImplUtil.equalsHandlingNull(a.resourceOrNull, b.resourceOrNull)) {
-            mergedResource = a.resourceOrNull;
+        if (ConfigImplUtil.equalsHandlingNull(a.source.resourceOrNull, b.source.resourceOrNull)) {
+            mergedResource = a.source.resourceOrNull;
         } else {
             mergedResource = null;
         }
 
-        if (ConfigImplUtil.equalsHandlingNull(a.commentsOrNull, b.commentsOrNull)) {
-            mergedComments = a.commentsOrNull;
+        List<String> aComments = a.commentsOrNull();
+        List<String> bComments = b.commentsOrNull();
+        if (ConfigImplUtil.equalsHandlingNull(aComments, bComments)) {
+            mergedComments = aComments;
         } else {
             mergedComments = new ArrayList<String>();
-            if (a.commentsOrNull != null)
-                mergedComments.addAll(a.commentsOrNull);
-            if (b.commentsOrNull != null)
-                mergedComments.addAll(b.commentsOrNull);
+            if (aComments != null)
+                mergedComments.addAll(aComments);
+            if (bComments != null)
+                mergedComments.addAll(bComments);
         }
 
-        return new SimpleConfigOrigin(mergedDesc, mergedStartLine, mergedEndLine, mergedType, mergedURL,
-                mergedResource, mergedComments);
+        // merging origins from the same file is by far the common case, and
+        // then there's no need for a new Source
+        Source source;
+        if (a.source.sameFields(mergedDesc, mergedType, mergedURL, mergedResource))
+            source = a.source;
+        else if (b.source.sameFields(mergedDesc, mergedType, mergedURL, mergedResource))
+            source = b.source;
+        else
+            source = new Source(mergedDesc, mergedType, mergedURL, mergedResource);
+        return source.lines(mergedStartLine, mergedEndLine, mergedComments);
     }
 
     private static int similarity(SimpleConfigOrigin a, SimpleConfigOrigin b) {
         int count = 0;
 
-        if (a.originType == b.originType)
+        if (a.source.originType == b.source.originType)
             count += 1;
 
-        if (a.description.equals(b.description)) {
+        if (a.source.description.equals(b.source.description)) {
             count += 1;
 
             // only count these if the description field (which is the file
@@ -322,9 +424,9 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
                 count += 1;
             if (a.endLineNumber == b.endLineNumber)
                 count += 1;
-            if (ConfigImplUtil.equalsHandlingNull(a.urlOrNull, b.urlOrNull))
+            if (ConfigImplUtil.equalsHandlingNull(a.source.urlOrNull, b.source.urlOrNull))
                 count += 1;
-            if (ConfigImplUtil.equalsHandlingNull(a.resourceOrNull, b.resourceOrNull))
+            if (ConfigImplUtil.equalsHandlingNull(a.source.resourceOrNull, b.source.resourceOrNull))
                 count += 1;
         }
 
@@ -389,19 +491,20 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
     Map<SerializedField, Object> toFields() {
         Map<SerializedField, Object> m = new EnumMap<SerializedField, Object>(SerializedField.class);
 
-        m.put(SerializedField.ORIGIN_DESCRIPTION, description);
+        m.put(SerializedField.ORIGIN_DESCRIPTION, source.description);
 
         if (lineNumber >= 0)
             m.put(SerializedField.ORIGIN_LINE_NUMBER, lineNumber);
         if (endLineNumber >= 0)
             m.put(SerializedField.ORIGIN_END_LINE_NUMBER, endLineNumber);
 
-        m.put(SerializedField.ORIGIN_TYPE, originType.ordinal());
+        m.put(SerializedField.ORIGIN_TYPE, source.originType.ordinal());
 
-        if (urlOrNull != null)
-            m.put(SerializedField.ORIGIN_URL, urlOrNull);
-        if (resourceOrNull != null)
-            m.put(SerializedField.ORIGIN_RESOURCE, resourceOrNull);
+        if (source.urlOrNull != null)
+            m.put(SerializedField.ORIGIN_URL, source.urlOrNull);
+        if (source.resourceOrNull != null)
+            m.put(SerializedField.ORIGIN_RESOURCE, source.resourceOrNull);
+        List<String> commentsOrNull = commentsOrNull();
         if (commentsOrNull != null)
             m.put(SerializedField.ORIGIN_COMMENTS, commentsOrNull);
 
@@ -474,6 +577,13 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
     }
 
     static SimpleConfigOrigin fromFields(Map<SerializedField, Object> m) throws IOException {
+        return fromFields(m, null);
+    }
+
+    // a delta that leaves the description, type, URL and resource alone can
+    // share the base origin's Source
+    private static SimpleConfigOrigin fromFields(Map<SerializedField, Object> m, SimpleConfigOrigin baseOrigin)
+            throws IOException {
         // we represent a null origin as one with no fields at all
         if (m.isEmpty())
             return null;
@@ -494,8 +604,13 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
         if (originType == OriginType.RESOURCE && resourceOrNull == null) {
             resourceOrNull = description;
         }
-        return new SimpleConfigOrigin(description, lineNumber != null ? lineNumber : -1,
-                endLineNumber != null ? endLineNumber : -1, originType, urlOrNull, resourceOrNull, commentsOrNull);
+        Source source;
+        if (baseOrigin != null && baseOrigin.source.sameFields(description, originType, urlOrNull, resourceOrNull))
+            source = baseOrigin.source;
+        else
+            source = new Source(description, originType, urlOrNull, resourceOrNull);
+        return source.lines(lineNumber != null ? lineNumber : -1, endLineNumber != null ? endLineNumber : -1,
+                commentsOrNull);
     }
 
     static Map<SerializedField, Object> applyFieldsDelta(Map<SerializedField, Object> base,
@@ -570,6 +685,6 @@ final class SimpleConfigOrigin implements com.gu.typesafe.config.ConfigOrigin {
         else
             baseFields = Collections.<SerializedField, Object> emptyMap();
         Map<SerializedField, Object> fields = applyFieldsDelta(baseFields, delta);
-        return fromFields(fields);
+        return fromFields(fields, baseOrigin);
     }
 }
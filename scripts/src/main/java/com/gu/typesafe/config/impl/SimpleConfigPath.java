@@ -0,0 +1,55 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.gu.typesafe.config.ConfigPath;
+
+// keeps the expression alongside the parsed path so error messages can show
+// what the caller wrote without rendering the path on every lookup
+final class SimpleConfigPath implements ConfigPath {
+    final private Path path;
+    final private String expression;
+
+    SimpleConfigPath(Path path, String expression) {
+        this.path = path;
+        this.expression = expression;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    @Override
+    public String expression() {
+        return expression;
+    }
+
+    @Override
+    public List<String> elements() {
+        List<String> elements = new ArrayList<String>();
+        for (Path p = path; p != null; p = p.remainder()) {
+            elements.add(p.first());
+        }
+        return Collections.unmodifiableList(elements);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SimpleConfigPath && ((SimpleConfigPath) other).path.equals(path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigPath(" + path.render() + ")";
+    }
+}
@@ -0,0 +1,288 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.gu.typesafe.config.Config;
+import com.gu.typesafe.config.ConfigException;
+import com.gu.typesafe.config.ConfigParseOptions;
+import com.gu.typesafe.config.ConfigResolveOptions;
+import com.gu.typesafe.config.ReloadingConfig;
+
+/**
+ * Watches the directories of every file a parse read (the file itself and
+ * its includes, including optional ones that were missing) and parses again
+ * when one of those files is created, modified or deleted. The set of files
+ * is recorded again on every reload, so adding an include starts watching it.
+ * A reload that fails, for whatever reason, leaves the previous config
+ * current and the files still watched.
+ */
+final class SimpleReloadingConfig implements ReloadingConfig {
+    // editors often write a file in several steps, so wait for things to go
+    // quiet before reloading
+    private static final long QUIET_MILLIS = 100;
+
+    private static final class Subscriber implements Subscription {
+        final private Path path; // null for the whole config
+        final private Listener listener;
+        final private CopyOnWriteArrayList<Subscriber> owner;
+
+        Subscriber(Path path, Listener listener, CopyOnWriteArrayList<Subscriber> owner) {
+            this.path = path;
+            this.listener = listener;
+            this.owner = owner;
+        }
+
+        boolean isAffected(SimpleConfig previous, SimpleConfig next) {
+            if (path == null)
+                return !previous.root().equals(next.root());
+            AbstractConfigValue before = previous.root().peekPath(path);
+            AbstractConfigValue after = next.root().peekPath(path);
+            return before == null ? after != null : !before.equals(after);
+        }
+
+        @Override
+        public void close() {
+            owner.remove(this);
+        }
+    }
+
+    final private Parseable source;
+    final private ConfigResolveOptions resolveOptions;
+    final private CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<Subscriber>();
+    final private WatchService watcher;
+    final private Thread thread;
+
+    // guards everything below, and makes reloads and notifications happen
+    // one at a time
+    final private Object lock = new Object();
+    private volatile SimpleConfig current;
+    private final Map<java.nio.file.Path, WatchKey> watchedDirectories = new HashMap<java.nio.file.Path, WatchKey>();
+    private Set<java.nio.file.Path> watchedFiles = new HashSet<java.nio.file.Path>();
+    private boolean closed = false;
+
+    SimpleReloadingConfig(File file, ConfigParseOptions parseOptions, ConfigResolveOptions resolveOptions) {
+        this.source = Parseable.newFile(file, parseOptions);
+        this.resolveOptions = resolveOptions;
+        try {
+            this.watcher = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            throw new ConfigException.IO(SimpleConfigOrigin.newFile(file.getPath()),
+                    "Could not watch config file: " + e.getMessage(), e);
+        }
+
+        synchronized (lock) {
+            try {
+                load();
+            } catch (RuntimeException e) {
+                closeWatcher();
+                throw e;
+            }
+        }
+
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "config-reloader-" + file.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public SimpleConfig current() {
+        return current;
+    }
+
+    @Override
+    public Subscription subscribe(String path, Listener listener) {
+        return subscribe(Path.newPath(path), listener);
+    }
+
+    @Override
+    public Subscription subscribe(Listener listener) {
+        return subscribe((Path) null, listener);
+    }
+
+    private Subscription subscribe(Path path, Listener listener) {
+        if (listener == null)
+            throw new ConfigException.BugOrBroken("null listener");
+        Subscriber subscriber = new Subscriber(path, listener, subscribers);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    @Override
+    public SimpleConfig reload() {
+        synchronized (lock) {
+            if (!closed)
+                load();
+            return current;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            closeWatcher();
+        }
+        subscribers.clear();
+        if (Thread.currentThread() != thread)
+            thread.interrupt();
+    }
+
+    // must hold the lock
+    private void load() {
+        ConfigSnapshot.Sources sources = new ConfigSnapshot.Sources();
+        ConfigSnapshot.Sources previousSources = Parseable.recordSources(sources);
+        SimpleConfig loaded;
+        try {
+            loaded = ((SimpleConfig) source.parse().toConfig()).resolve(resolveOptions);
+        } finally {
+            Parseable.recordSources(previousSources);
+        }
+
+        SimpleConfig previous = current;
+        current = loaded;
+        updateWatches(sources);
+        if (ConfigImpl.traceLoadsEnabled())
+            ConfigImpl.trace("Reloaded " + source + ", now watching " + watchedFiles.size() + " files");
+
+        if (previous != null)
+            notifySubscribers(previous, loaded);
+    }
+
+    private void notifySubscribers(SimpleConfig previous, SimpleConfig next) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.isAffected(previous, next))
+                continue;
+            try {
+                subscriber.listener.configChanged(next);
+            } catch (RuntimeException e) {
+                // one broken listener shouldn't keep the others from hearing
+                // about the change
+                Thread t = Thread.currentThread();
+                t.getUncaughtExceptionHandler().uncaughtException(t, e);
+            }
+        }
+    }
+
+    private void updateWatches(ConfigSnapshot.Sources sources) {
+        Set<java.nio.file.Path> files = new HashSet<java.nio.file.Path>();
+        Set<java.nio.file.Path> directories = new HashSet<java.nio.file.Path>();
+        for (File f : sources.files()) {
+            java.nio.file.Path file = f.toPath().toAbsolutePath().normalize();
+            files.add(file);
+            if (file.getParent() != null)
+                directories.add(file.getParent());
+        }
+
+        Iterator<Map.Entry<java.nio.file.Path, WatchKey>> i = watchedDirectories.entrySet().iterator();
+        while (i.hasNext()) {
+            Map.Entry<java.nio.file.Path, WatchKey> e = i.next();
+            if (!directories.contains(e.getKey())) {
+                e.getValue().cancel();
+                i.remove();
+            }
+        }
+        for (java.nio.file.Path dir : directories) {
+            if (watchedDirectories.containsKey(dir))
+                continue;
+            try {
+                watchedDirectories.put(dir, dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+            } catch (IOException e) {
+                // most likely the directory of an optional include doesn't
+                // exist; there's nothing to watch until it does
+                if (ConfigImpl.traceLoadsEnabled())
+                    ConfigImpl.trace("Not watching " + dir + ": " + e.getMessage());
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+        }
+        watchedFiles = files;
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                boolean changed = drain(watcher.take());
+                // keep collecting events until things have been quiet for a
+                // moment, then reload once
+                WatchKey key;
+                while ((key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null)
+                    changed |= drain(key);
+                if (!changed)
+                    continue;
+
+                synchronized (lock) {
+                    if (closed)
+                        return;
+                    try {
+                        load();
+                    } catch (ConfigException e) {
+                        if (ConfigImpl.traceLoadsEnabled())
+                            ConfigImpl.trace("Keeping previous config, could not reload " + source + ": "
+                                    + e.getMessage());
+                    } catch (RuntimeException e) {
+                        // a bug, or an includer that threw something else;
+                        // report it, keep the previous config and keep
+                        // watching, since the next change may load fine
+                        Thread t = Thread.currentThread();
+                        t.getUncaughtExceptionHandler().uncaughtException(t, e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    // returns true if the events were about a file we read
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        java.nio.file.Path dir = (java.nio.file.Path) key.watchable();
+        synchronized (lock) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    changed = true;
+                } else {
+                    java.nio.file.Path name = (java.nio.file.Path) event.context();
+                    if (watchedFiles.contains(dir.resolve(name)))
+                        changed = true;
+                }
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void closeWatcher() {
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            if (ConfigImpl.traceLoadsEnabled())
+                ConfigImpl.trace("Error closing config watcher: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.gu.typesafe.config.ConfigValue;
+
+/**
+ * The substitutions in an unresolved tree, what each of them refers to, and
+ * what each resolved to the last time the tree was resolved.
+ *
+ * <p>
+ * A "site" is the topmost unresolved value along a path that isn't a plain
+ * object: a reference, a concatenation, a delayed merge or a list containing
+ * any of those. A site depends on its own path and on every path it
+ * substitutes; dependencies on objects are followed by prefix, so a site
+ * that substitutes <code>a</code> depends on <code>a.b</code> and vice
+ * versa. Sites depend on each other through those paths, which is how a
+ * change propagates through a chain of substitutions.
+ *
+ * <p>
+ * Sites that depend on each other in a cycle can only have resolved because
+ * one of them fell back to an earlier value, and which one falls back depends
+ * on where the resolver happened to start. We don't try to reproduce that, so
+ * a graph with a cycle can't be reused at all.
+ */
+final class SubstitutionGraph {
+
+    private static final class Site {
+        final Path path;
+        final AbstractConfigValue unresolved;
+        // null if the site resolved to nothing, e.g. ${?missing}
+        final AbstractConfigValue resolved;
+        // the paths it substitutes
+        final List<Path> substitutions = new ArrayList<Path>(1);
+
+        Site(Path path, AbstractConfigValue unresolved, AbstractConfigValue resolved) {
+            this.path = path;
+            this.unresolved = unresolved;
+            this.resolved = resolved;
+        }
+    }
+
+    final private List<Site> sites;
+    // sites by every path they depend on
+    final private Map<Path, List<Site>> byDependency;
+    // sites by every proper prefix of a path they depend on
+    final private Map<Path, List<Site>> byDependencyPrefix;
+
+    private SubstitutionGraph(List<Site> sites, Map<Path, List<Site>> byDependency,
+            Map<Path, List<Site>> byDependencyPrefix) {
+        this.sites = sites;
+        this.byDependency = byDependency;
+        this.byDependencyPrefix = byDependencyPrefix;
+    }
+
+    static SubstitutionGraph build(SimpleConfigObject unresolved, AbstractConfigObject resolved) {
+        List<Site> sites = new ArrayList<Site>();
+        Map<Path, List<Site>> byDependency = new HashMap<Path, List<Site>>();
+        Map<Path, List<Site>> byDependencyPrefix = new HashMap<Path, List<Site>>();
+
+        findSites(unresolved, null, resolved, sites);
+        for (Site site : sites) {
+            findSubstitutions(site.unresolved, site.substitutions);
+            index(site.path, site, byDependency, byDependencyPrefix);
+            for (Path dependency : site.substitutions)
+                index(dependency, site, byDependency, byDependencyPrefix);
+        }
+
+        if (hasCycle(sites)) {
+            if (ConfigImpl.traceSubstitutionsEnabled())
+                ConfigImpl.trace("substitutions depend on each other in a cycle, will always resolve from scratch");
+            return null;
+        }
+
+        if (ConfigImpl.traceSubstitutionsEnabled())
+            ConfigImpl.trace("substitution graph has " + sites.size() + " sites and " + byDependency.size()
+                    + " dependencies");
+        return new SubstitutionGraph(sites, byDependency, byDependencyPrefix);
+    }
+
+    private static void findSites(SimpleConfigObject obj, Path prefix, AbstractConfigObject resolvedRoot,
+            List<Site> sites) {
+        for (String key : obj.keySet()) {
+            AbstractConfigValue v = obj.attemptPeekWithPartialResolve(key);
+            if (v.resolveStatus() == ResolveStatus.RESOLVED)
+                continue;
+
+            Path path = prefix == null ? Path.newKey(key) : Path.newKey(key).prepend(prefix);
+            if (v instanceof SimpleConfigObject) {
+                findSites((SimpleConfigObject) v, path, resolvedRoot, sites);
+            } else {
+                sites.add(new Site(path, v, resolvedRoot.peekPath(path)));
+            }
+        }
+    }
+
+    private static void findSubstitutions(AbstractConfigValue v, List<Path> dependencies) {
+        if (v.resolveStatus() == ResolveStatus.RESOLVED)
+            return;
+
+        if (v instanceof ConfigReference) {
+            ConfigReference reference = (ConfigReference) v;
+            Path path = reference.expression().path();
+            dependencies.add(path);
+            // a reference from an included file is also looked up relative
+            // to the including file
+            if (reference.prefixLength() > 0)
+                dependencies.add(path.subPath(reference.prefixLength()));
+        } else if (v instanceof ConfigConcatenation) {
+            for (AbstractConfigValue piece : ((ConfigConcatenation) v).pieces())
+                findSubstitutions(piece, dependencies);
+        } else if (v instanceof Unmergeable) {
+            for (AbstractConfigValue merged : ((Unmergeable) v).unmergedValues())
+                findSubstitutions(merged, dependencies);
+        } else if (v instanceof SimpleConfigList) {
+            for (ConfigValue element : (SimpleConfigList) v)
+                findSubstitutions((AbstractConfigValue) element, dependencies);
+        } else if (v instanceof SimpleConfigObject) {
+            SimpleConfigObject obj = (SimpleConfigObject) v;
+            for (String key : obj.keySet())
+                findSubstitutions(obj.attemptPeekWithPartialResolve(key), dependencies);
+        }
+    }
+
+    private static void index(Path dependency, Site site, Map<Path, List<Site>> byDependency,
+            Map<Path, List<Site>> byDependencyPrefix) {
+        index(byDependency, dependency, site);
+        for (Path prefix = dependency.parent(); prefix != null; prefix = prefix.parent())
+            index(byDependencyPrefix, prefix, site);
+    }
+
+    private static void index(Map<Path, List<Site>> index, Path path, Site site) {
+        List<Site> list = index.get(path);
+        if (list == null) {
+            list = new ArrayList<Site>(1);
+            index.put(path, list);
+        }
+        // a site may depend on the same path twice
+        if (list.isEmpty() || list.get(list.size() - 1) != site)
+            list.add(site);
+    }
+
+    // depth-first search over "substitutes something at or around the path
+    // of" edges, ignoring a site substituting its own path
+    private static boolean hasCycle(List<Site> sites) {
+        Map<Path, Site> byPath = new HashMap<Path, Site>();
+        Map<Path, List<Site>> byPathPrefix = new HashMap<Path, List<Site>>();
+        for (Site site : sites) {
+            byPath.put(site.path, site);
+            for (Path prefix = site.path.parent(); prefix != null; prefix = prefix.parent())
+                index(byPathPrefix, prefix, site);
+        }
+
+        // sites we're still visiting map to true, finished ones to false
+        Map<Site, Boolean> visiting = new IdentityHashMap<Site, Boolean>();
+        ArrayDeque<Site> stack = new ArrayDeque<Site>();
+        ArrayDeque<Iterator<Site>> edges = new ArrayDeque<Iterator<Site>>();
+        for (Site start : sites) {
+            if (visiting.containsKey(start))
+                continue;
+            visiting.put(start, true);
+            stack.push(start);
+            edges.push(dependedOn(start, byPath, byPathPrefix).iterator());
+            while (!stack.isEmpty()) {
+                if (edges.peek().hasNext()) {
+                    Site next = edges.peek().next();
+                    Boolean state = visiting.get(next);
+                    if (state == null) {
+                        visiting.put(next, true);
+                        stack.push(next);
+                        edges.push(dependedOn(next, byPath, byPathPrefix).iterator());
+                    } else if (state) {
+                        return true;
+                    }
+                } else {
+                    visiting.put(stack.pop(), false);
+                    edges.pop();
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<Site> dependedOn(Site site, Map<Path, Site> byPath, Map<Path, List<Site>> byPathPrefix) {
+        List<Site> result = new ArrayList<Site>();
+        for (Path dependency : site.substitutions) {
+            Site exact = byPath.get(dependency);
+            if (exact != null)
+                result.add(exact);
+            List<Site> inside = byPathPrefix.get(dependency);
+            if (inside != null)
+                result.addAll(inside);
+            for (Path prefix = dependency.parent(); prefix != null; prefix = prefix.parent()) {
+                Site around = byPath.get(prefix);
+                if (around != null)
+                    result.add(around);
+            }
+        }
+        while (result.remove(site)) {
+        }
+        return result;
+    }
+
+    /**
+     * Works out which sites the given changes could have affected, directly
+     * or through other sites, and returns what every other site resolved to
+     * last time, keyed the way {@link ResolveMemos} expects.
+     */
+    Map<MemoKey, AbstractConfigValue> resolutionsUnaffectedBy(Iterable<Path> changes) {
+        Set<Site> affected = Collections.newSetFromMap(new IdentityHashMap<Site, Boolean>());
+        Set<Path> dirty = new HashSet<Path>();
+        ArrayDeque<Path> queue = new ArrayDeque<Path>();
+        for (Path change : changes)
+            queue.add(change);
+
+        while (!queue.isEmpty()) {
+            Path path = queue.poll();
+            if (!dirty.add(path))
+                continue;
+            // sites depending on the path itself, on something inside it, or
+            // on an object containing it
+            markAffected(byDependency.get(path), affected, queue);
+            markAffected(byDependencyPrefix.get(path), affected, queue);
+            for (Path prefix = path.parent(); prefix != null; prefix = prefix.parent())
+                markAffected(byDependency.get(prefix), affected, queue);
+        }
+
+        if (ConfigImpl.traceSubstitutionsEnabled())
+            ConfigImpl.trace(affected.size() + " of " + sites.size() + " substitution sites need resolving again");
+
+        Map<MemoKey, AbstractConfigValue> unaffected = new HashMap<MemoKey, AbstractConfigValue>(
+                (sites.size() - affected.size()) * 2);
+        for (Site site : sites) {
+            if (site.resolved != null && !affected.contains(site))
+                unaffected.put(new MemoKey(site.unresolved, null), site.resolved);
+        }
+        return unaffected;
+    }
+
+    private static void markAffected(List<Site> candidates, Set<Site> affected, ArrayDeque<Path> queue) {
+        if (candidates == null)
+            return;
+        for (Site site : candidates) {
+            if (affected.add(site))
+                queue.add(site.path);
+        }
+    }
+}
@@ -5,11 +5,12 @@ package com.gu.typesafe.config.impl;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 
 import com.gu.typesafe.config.ConfigException;
 import com.gu.typesafe.config.ConfigOrigin;
@@ -52,6 +53,22 @@ final class Tokenizer {
         return new TokenIterator(origin, input, flavor != ConfigSyntax.JSON);
     }
 
+    /**
+     * Tokenizes a CharBuffer in place, slicing tokens out of it by offset
+     * instead of reading it a char at a time. The original text of quoted
+     * strings is only copied out of the buffer when the token is rendered, so
+     * the buffer's contents must not change while the tokens are in use.
+     */
+    static Iterator<com.gu.typesafe.config.impl.Token> tokenize(com.gu.typesafe.config.ConfigOrigin origin, CharBuffer input, com.gu.typesafe.config.ConfigSyntax flavor) {
+        return tokenize(origin, input, flavor, 1);
+    }
+
+    // for a piece of a larger text which starts on firstLine of it
+    static Iterator<com.gu.typesafe.config.impl.Token> tokenize(com.gu.typesafe.config.ConfigOrigin origin, CharBuffer input, com.gu.typesafe.config.ConfigSyntax flavor,
+                                                                int firstLine) {
+        return new BufferTokenIterator(origin, input, flavor != ConfigSyntax.JSON, firstLine);
+    }
+
     static String render(Iterator<com.gu.typesafe.config.impl.Token> tokens) {
         StringBuilder renderedText = new StringBuilder();
         while (tokens.hasNext()) {
@@ -60,308 +77,161 @@ final class Tokenizer {
         return renderedText.toString();
     }
 
-    private static class TokenIterator implements Iterator<com.gu.typesafe.config.impl.Token> {
+    static boolean isWhitespace(int c) {
+        return com.gu.typesafe.config.impl.ConfigImplUtil.isWhitespace(c);
+    }
 
-        private static class WhitespaceSaver {
-            // has to be saved inside value concatenations
-            private StringBuilder whitespace;
-            // may need to value-concat with next value
-            private boolean lastTokenWasSimpleValue;
+    static boolean isWhitespaceNotNewline(int c) {
+        return c != '\n' && com.gu.typesafe.config.impl.ConfigImplUtil.isWhitespace(c);
+    }
 
-            WhitespaceSaver() {
-                whitespace = new StringBuilder();
-                lastTokenWasSimpleValue = false;
-            }
+    // chars JSON allows a number to start with
+    static final String firstNumberChars = "0123456789-";
+    // chars JSON allows to be part of a number
+    static final String numberChars = "0123456789eE+-.";
+    // chars that stop an unquoted string
+    static final String notInUnquotedText = "$\"{}[]:=,+#`^?!@*&\\";
+
+    private static boolean isSimpleValue(com.gu.typesafe.config.impl.Token t) {
+        if (com.gu.typesafe.config.impl.Tokens.isSubstitution(t) || com.gu.typesafe.config.impl.Tokens.isUnquotedText(t)
+                || com.gu.typesafe.config.impl.Tokens.isValue(t)) {
+            return true;
+        } else {
+            return false;
+        }
+    }
 
-            void add(int c) {
-                whitespace.appendCodePoint(c);
-            }
+    private static ProblemException problem(com.gu.typesafe.config.ConfigOrigin origin, String what,
+                                            String message,
+                                            Throwable cause) {
+        return problem(origin, what, message, false, cause);
+    }
 
-            com.gu.typesafe.config.impl.Token check(com.gu.typesafe.config.impl.Token t, com.gu.typesafe.config.ConfigOrigin baseOrigin, int lineNumber) {
-                if (isSimpleValue(t)) {
-                    return nextIsASimpleValue(baseOrigin, lineNumber);
-                } else {
-                    return nextIsNotASimpleValue(baseOrigin, lineNumber);
-                }
-            }
+    private static ProblemException problem(com.gu.typesafe.config.ConfigOrigin origin, String what, String message,
+                                            boolean suggestQuotes, Throwable cause) {
+        if (what == null || message == null)
+            throw new com.gu.typesafe.config.ConfigException.BugOrBroken(
+                    "internal error, creating bad ProblemException");
+        return new ProblemException(com.gu.typesafe.config.impl.Tokens.newProblem(origin, what, message, suggestQuotes,
+                cause));
+    }
 
-            // called if the next token is not a simple value;
-            // discards any whitespace we were saving between
-            // simple values.
-            private com.gu.typesafe.config.impl.Token nextIsNotASimpleValue(com.gu.typesafe.config.ConfigOrigin baseOrigin, int lineNumber) {
-                lastTokenWasSimpleValue = false;
-                return createWhitespaceTokenFromSaver(baseOrigin, lineNumber);
-            }
+    private static ProblemException problem(com.gu.typesafe.config.ConfigOrigin origin, String message) {
+        return problem(origin, "", message, null);
+    }
 
-            // called if the next token IS a simple value,
-            // so creates a whitespace token if the previous
-            // token also was.
-            private com.gu.typesafe.config.impl.Token nextIsASimpleValue(com.gu.typesafe.config.ConfigOrigin baseOrigin,
-                                                                         int lineNumber) {
-                com.gu.typesafe.config.impl.Token t = createWhitespaceTokenFromSaver(baseOrigin, lineNumber);
-                if (!lastTokenWasSimpleValue) {
-                    lastTokenWasSimpleValue = true;
-                }
-                return t;
-            }
+    private static com.gu.typesafe.config.ConfigOrigin lineOrigin(com.gu.typesafe.config.ConfigOrigin baseOrigin,
+                                                                  int lineNumber) {
+        return ((com.gu.typesafe.config.impl.SimpleConfigOrigin) baseOrigin).withLineNumber(lineNumber);
+    }
 
-            private com.gu.typesafe.config.impl.Token createWhitespaceTokenFromSaver(com.gu.typesafe.config.ConfigOrigin baseOrigin,
-                                                                                     int lineNumber) {
-                if (whitespace.length() > 0) {
-                    com.gu.typesafe.config.impl.Token t;
-                    if (lastTokenWasSimpleValue) {
-                        t = com.gu.typesafe.config.impl.Tokens.newUnquotedText(
-                            lineOrigin(baseOrigin, lineNumber),
-                            whitespace.toString());
-                    } else {
-                        t = com.gu.typesafe.config.impl.Tokens.newIgnoredWhitespace(lineOrigin(baseOrigin, lineNumber),
-                                                        whitespace.toString());
-                    }
-                    whitespace.setLength(0); // reset
-                    return t;
-                }
-                return null;
+    // the whitespace skipped before a token, which becomes a token of its
+    // own; how it's saved up depends on what it's read from
+    private static abstract class WhitespaceSaver {
+        // may need to value-concat with next value
+        private boolean lastTokenWasSimpleValue;
+
+        WhitespaceSaver() {
+            lastTokenWasSimpleValue = false;
+        }
+
+        // the whitespace saved since the last token, or null if there's
+        // none; forgets it
+        abstract String take();
+
+        com.gu.typesafe.config.impl.Token check(com.gu.typesafe.config.impl.Token t, com.gu.typesafe.config.ConfigOrigin baseOrigin, int lineNumber) {
+            boolean simpleValue = isSimpleValue(t);
+            com.gu.typesafe.config.impl.Token whitespace = null;
+            String s = take();
+            if (s != null) {
+                // whitespace between two simple values is part of their
+                // concatenation
+                if (simpleValue && lastTokenWasSimpleValue)
+                    whitespace = com.gu.typesafe.config.impl.Tokens.newUnquotedText(
+                            lineOrigin(baseOrigin, lineNumber), s);
+                else
+                    whitespace = com.gu.typesafe.config.impl.Tokens.newIgnoredWhitespace(
+                            lineOrigin(baseOrigin, lineNumber), s);
             }
+            lastTokenWasSimpleValue = simpleValue;
+            return whitespace;
         }
+    }
 
-        final private com.gu.typesafe.config.impl.SimpleConfigOrigin origin;
-        final private Reader input;
-        final private LinkedList<Integer> buffer;
-        private int lineNumber;
-        private com.gu.typesafe.config.ConfigOrigin lineOrigin;
-        final private Queue<com.gu.typesafe.config.impl.Token> tokens;
-        final private WhitespaceSaver whitespaceSaver;
-        final private boolean allowComments;
+    // The grammar above the level of single chars, and the token queue, for
+    // both of the ways of reading the input; the subclasses say how chars
+    // are read and how the tokens made of runs of them are cut out.
+    private static abstract class AbstractTokenIterator<S extends WhitespaceSaver>
+            implements Iterator<com.gu.typesafe.config.impl.Token> {
 
-        TokenIterator(com.gu.typesafe.config.ConfigOrigin origin, Reader input, boolean allowComments) {
+        final protected com.gu.typesafe.config.impl.SimpleConfigOrigin origin;
+        final protected boolean allowComments;
+        protected int lineNumber;
+        protected com.gu.typesafe.config.ConfigOrigin lineOrigin;
+        final private ArrayDeque<com.gu.typesafe.config.impl.Token> tokens;
+        final private S whitespaceSaver;
+
+        AbstractTokenIterator(com.gu.typesafe.config.ConfigOrigin origin, boolean allowComments, int firstLine) {
             this.origin = (com.gu.typesafe.config.impl.SimpleConfigOrigin) origin;
-            this.input = input;
             this.allowComments = allowComments;
-            this.buffer = new LinkedList<Integer>();
-            lineNumber = 1;
+            lineNumber = firstLine;
             lineOrigin = this.origin.withLineNumber(lineNumber);
-            tokens = new LinkedList<com.gu.typesafe.config.impl.Token>();
+            tokens = new ArrayDeque<com.gu.typesafe.config.impl.Token>();
             tokens.add(com.gu.typesafe.config.impl.Tokens.START);
-            whitespaceSaver = new WhitespaceSaver();
+            whitespaceSaver = newWhitespaceSaver();
         }
 
+        abstract S newWhitespaceSaver();
 
         // this should ONLY be called from nextCharSkippingComments
         // or when inside a quoted string, or when parsing a sequence
         // like ${ or +=, everything else should use
         // nextCharSkippingComments().
-        private int nextCharRaw() {
-            if (buffer.isEmpty()) {
-                try {
-                    return input.read();
-                } catch (IOException e) {
-                    throw new com.gu.typesafe.config.ConfigException.IO(origin, "read error: "
-                            + e.getMessage(), e);
-                }
-            } else {
-                int c = buffer.pop();
-                return c;
-            }
-        }
+        abstract int nextCharRaw();
 
-        private void putBack(int c) {
-            if (buffer.size() > 2) {
-                throw new com.gu.typesafe.config.ConfigException.BugOrBroken(
-                        "bug: putBack() three times, undesirable look-ahead");
-            }
-            buffer.push(c);
-        }
+        abstract void putBack(int c);
 
-        static boolean isWhitespace(int c) {
-            return com.gu.typesafe.config.impl.ConfigImplUtil.isWhitespace(c);
-        }
+        abstract boolean startOfComment(int c);
 
-        static boolean isWhitespaceNotNewline(int c) {
-            return c != '\n' && com.gu.typesafe.config.impl.ConfigImplUtil.isWhitespace(c);
-        }
+        // get next char, skipping non-newline whitespace
+        abstract int nextCharAfterWhitespace(S saver);
 
-        private boolean startOfComment(int c) {
-            if (c == -1) {
-                return false;
-            } else {
-                if (allowComments) {
-                    if (c == '#') {
-                        return true;
-                    } else if (c == '/') {
-                        int maybeSecondSlash = nextCharRaw();
-                        // we want to predictably NOT consume any chars
-                        putBack(maybeSecondSlash);
-                        if (maybeSecondSlash == '/') {
-                            return true;
-                        } else {
-                            return false;
-                        }
-                    } else {
-                        return false;
-                    }
-                } else {
-                    return false;
-                }
-            }
-        }
+        abstract boolean notInUnquotedText(int c);
 
-        // get next char, skipping non-newline whitespace
-        private int nextCharAfterWhitespace(WhitespaceSaver saver) {
-            for (;;) {
-                int c = nextCharRaw();
+        // ONE char has always been consumed, either the # or the first /, but
+        // not both slashes
+        abstract com.gu.typesafe.config.impl.Token pullComment(int firstChar);
 
-                if (c == -1) {
-                    return -1;
-                } else {
-                    if (isWhitespaceNotNewline(c)) {
-                        saver.add(c);
-                        continue;
-                    } else {
-                        return c;
-                    }
-                }
-            }
-        }
+        abstract com.gu.typesafe.config.impl.Token pullUnquotedText();
 
-        private ProblemException problem(String message) {
+        abstract com.gu.typesafe.config.impl.Token pullNumber(int firstChar) throws ProblemException;
+
+        // the open quote has already been consumed
+        abstract com.gu.typesafe.config.impl.Token pullQuotedString() throws ProblemException;
+
+        ProblemException problem(String message) {
             return problem("", message, null);
         }
 
-        private ProblemException problem(String what, String message) {
+        ProblemException problem(String what, String message) {
             return problem(what, message, null);
         }
 
-        private ProblemException problem(String what, String message, boolean suggestQuotes) {
+        ProblemException problem(String what, String message, boolean suggestQuotes) {
             return problem(what, message, suggestQuotes, null);
         }
 
-        private ProblemException problem(String what, String message, Throwable cause) {
-            return problem(lineOrigin, what, message, cause);
+        ProblemException problem(String what, String message, Throwable cause) {
+            return Tokenizer.problem(lineOrigin, what, message, cause);
         }
 
-        private ProblemException problem(String what, String message, boolean suggestQuotes,
+        ProblemException problem(String what, String message, boolean suggestQuotes,
                 Throwable cause) {
-            return problem(lineOrigin, what, message, suggestQuotes, cause);
-        }
-
-        private static ProblemException problem(com.gu.typesafe.config.ConfigOrigin origin, String what,
-                                                String message,
-                                                Throwable cause) {
-            return problem(origin, what, message, false, cause);
-        }
-
-        private static ProblemException problem(com.gu.typesafe.config.ConfigOrigin origin, String what, String message,
-                                                boolean suggestQuotes, Throwable cause) {
-            if (what == null || message == null)
-                throw new com.gu.typesafe.config.ConfigException.BugOrBroken(
-                        "internal error, creating bad ProblemException");
-            return new ProblemException(com.gu.typesafe.config.impl.Tokens.newProblem(origin, what, message, suggestQuotes,
-                    cause));
-        }
-
-        private static ProblemException problem(com.gu.typesafe.config.ConfigOrigin origin, String message) {
-            return problem(origin, "", message, null);
-        }
-
-        private static com.gu.typesafe.config.ConfigOrigin lineOrigin(com.gu.typesafe.config.ConfigOrigin baseOrigin,
-                                                                      int lineNumber) {
-            return ((com.gu.typesafe.config.impl.SimpleConfigOrigin) baseOrigin).withLineNumber(lineNumber);
-        }
-
-        // ONE char has always been consumed, either the # or the first /, but
-        // not both slashes
-        private com.gu.typesafe.config.impl.Token pullComment(int firstChar) {
-            boolean doubleSlash = false;
-            if (firstChar == '/') {
-                int discard = nextCharRaw();
-                if (discard != '/')
-                    throw new com.gu.typesafe.config.ConfigException.BugOrBroken("called pullComment but // not seen");
-                doubleSlash = true;
-            }
-
-            StringBuilder sb = new StringBuilder();
-            for (;;) {
-                int c = nextCharRaw();
-                if (c == -1 || c == '\n') {
-                    putBack(c);
-                    if (doubleSlash)
-                        return com.gu.typesafe.config.impl.Tokens.newCommentDoubleSlash(lineOrigin, sb.toString());
-                    else
-                        return com.gu.typesafe.config.impl.Tokens.newCommentHash(lineOrigin, sb.toString());
-                } else {
-                    sb.appendCodePoint(c);
-                }
-            }
-        }
-
-        // chars JSON allows a number to start with
-        static final String firstNumberChars = "0123456789-";
-        // chars JSON allows to be part of a number
-        static final String numberChars = "0123456789eE+-.";
-        // chars that stop an unquoted string
-        static final String notInUnquotedText = "$\"{}[]:=,+#`^?!@*&\\";
-
-        // The rules here are intended to maximize convenience while
-        // avoiding confusion with real valid JSON. Basically anything
-        // that parses as JSON is treated the JSON way and otherwise
-        // we assume it's a string and let the parser sort it out.
-        private com.gu.typesafe.config.impl.Token pullUnquotedText() {
-            com.gu.typesafe.config.ConfigOrigin origin = lineOrigin;
-            StringBuilder sb = new StringBuilder();
-            int c = nextCharRaw();
-            while (true) {
-                if (c == -1) {
-                    break;
-                } else if (notInUnquotedText.indexOf(c) >= 0) {
-                    break;
-                } else if (isWhitespace(c)) {
-                    break;
-                } else if (startOfComment(c)) {
-                    break;
-                } else {
-                    sb.appendCodePoint(c);
-                }
-
-                // we parse true/false/null tokens as such no matter
-                // what is after them, as long as they are at the
-                // start of the unquoted token.
-                if (sb.length() == 4) {
-                    String s = sb.toString();
-                    if (s.equals("true"))
-                        return com.gu.typesafe.config.impl.Tokens.newBoolean(origin, true);
-                    else if (s.equals("null"))
-                        return com.gu.typesafe.config.impl.Tokens.newNull(origin);
-                } else if (sb.length() == 5) {
-                    String s = sb.toString();
-                    if (s.equals("false"))
-                        return com.gu.typesafe.config.impl.Tokens.newBoolean(origin, false);
-                }
-
-                c = nextCharRaw();
-            }
-
-            // put back the char that ended the unquoted text
-            putBack(c);
-
-            String s = sb.toString();
-            return com.gu.typesafe.config.impl.Tokens.newUnquotedText(origin, s);
+            return Tokenizer.problem(lineOrigin, what, message, suggestQuotes, cause);
         }
 
-        private com.gu.typesafe.config.impl.Token pullNumber(int firstChar) throws ProblemException {
-            StringBuilder sb = new StringBuilder();
-            sb.appendCodePoint(firstChar);
-            boolean containedDecimalOrE = false;
-            int c = nextCharRaw();
-            while (c != -1 && numberChars.indexOf(c) >= 0) {
-                if (c == '.' || c == 'e' || c == 'E')
-                    containedDecimalOrE = true;
-                sb.appendCodePoint(c);
-                c = nextCharRaw();
-            }
-            // the last character we looked at wasn't part of the number, put it
-            // back
-            putBack(c);
-            String s = sb.toString();
+        // the text of a number, once it's been read
+        com.gu.typesafe.config.impl.Token number(String s, boolean containedDecimalOrE) throws ProblemException {
             try {
                 if (containedDecimalOrE) {
                     // force floating point representation
@@ -372,8 +242,9 @@ final class Tokenizer {
                 }
             } catch (NumberFormatException e) {
                 // not a number after all, see if it's an unquoted string.
-                for (char u : s.toCharArray()) {
-                    if (notInUnquotedText.indexOf(u) >= 0)
+                for (int i = 0; i < s.length(); ++i) {
+                    char u = s.charAt(i);
+                    if (notInUnquotedText(u))
                         throw problem(asString(u), "Reserved character '" + asString(u)
                                       + "' is not allowed outside quotes", true /* suggestQuotes */);
                 }
@@ -383,15 +254,19 @@ final class Tokenizer {
             }
         }
 
-        private void pullEscapeSequence(StringBuilder sb, StringBuilder sbOrig) throws ProblemException {
+        // the escape goes into sb, and, if it's given one, as it was written
+        // into sbOrig
+        void pullEscapeSequence(StringBuilder sb, StringBuilder sbOrig) throws ProblemException {
             int escaped = nextCharRaw();
             if (escaped == -1)
                 throw problem("End of input but backslash in string had nothing after it");
 
             // This is needed so we return the unescaped escape characters back out when rendering
             // the token
-            sbOrig.appendCodePoint('\\');
-            sbOrig.appendCodePoint(escaped);
+            if (sbOrig != null) {
+                sbOrig.appendCodePoint('\\');
+                sbOrig.appendCodePoint(escaped);
+            }
 
             switch (escaped) {
             case '"':
@@ -428,7 +303,8 @@ final class Tokenizer {
                     a[i] = (char) c;
                 }
                 String digits = new String(a);
-                sbOrig.append(a);
+                if (sbOrig != null)
+                    sbOrig.append(a);
                 try {
                     sb.appendCodePoint(Integer.parseInt(digits, 16));
                 } catch (NumberFormatException e) {
@@ -446,109 +322,34 @@ final class Tokenizer {
             }
         }
 
-        private void appendTripleQuotedString(StringBuilder sb, StringBuilder sbOrig) throws ProblemException {
-            // we are after the opening triple quote and need to consume the
-            // close triple
-            int consecutiveQuotes = 0;
-            for (;;) {
-                int c = nextCharRaw();
-
-                if (c == '"') {
-                    consecutiveQuotes += 1;
-                } else if (consecutiveQuotes >= 3) {
-                    // the last three quotes end the string and the others are
-                    // kept.
-                    sb.setLength(sb.length() - 3);
-                    putBack(c);
-                    break;
-                } else {
-                    consecutiveQuotes = 0;
-                    if (c == -1)
-                        throw problem("End of input but triple-quoted string was still open");
-                    else if (c == '\n') {
-                        // keep the line number accurate
-                        lineNumber += 1;
-                        lineOrigin = origin.withLineNumber(lineNumber);
-                    }
-                }
-
-                sb.appendCodePoint(c);
-                sbOrig.appendCodePoint(c);
+        private com.gu.typesafe.config.impl.Token pullPlusEquals() throws ProblemException {
+            // the initial '+' has already been consumed
+            int c = nextCharRaw();
+            if (c != '=') {
+                throw problem(asString(c), "'+' not followed by =, '" + asString(c)
+                        + "' not allowed after '+'", true /* suggestQuotes */);
             }
+            return com.gu.typesafe.config.impl.Tokens.PLUS_EQUALS;
         }
 
-        private com.gu.typesafe.config.impl.Token pullQuotedString() throws ProblemException {
-            // the open quote has already been consumed
-            StringBuilder sb = new StringBuilder();
+        private com.gu.typesafe.config.impl.Token pullSubstitution() throws ProblemException {
+            // the initial '$' has already been consumed
+            ConfigOrigin origin = lineOrigin;
+            int c = nextCharRaw();
+            if (c != '{') {
+                throw problem(asString(c), "'$' not followed by {, '" + asString(c)
+                        + "' not allowed after '$'", true /* suggestQuotes */);
+            }
 
-            // We need a second string builder to keep track of escape characters.
-            // We want to return them exactly as they appeared in the original text,
-            // which means we will need a new StringBuilder to escape escape characters
-            // so we can also keep the actual value of the string. This is gross.
-            StringBuilder sbOrig = new StringBuilder();
-            sbOrig.appendCodePoint('"');
+            boolean optional = false;
+            c = nextCharRaw();
+            if (c == '?') {
+                optional = true;
+            } else {
+                putBack(c);
+            }
 
-            while (true) {
-                int c = nextCharRaw();
-                if (c == -1)
-                    throw problem("End of input but string quote was still open");
-
-                if (c == '\\') {
-                    pullEscapeSequence(sb, sbOrig);
-                } else if (c == '"') {
-                    sbOrig.appendCodePoint(c);
-                    break;
-                } else if (ConfigImplUtil.isC0Control(c)) {
-                    throw problem(asString(c), "JSON does not allow unescaped " + asString(c)
-                            + " in quoted strings, use a backslash escape");
-                } else {
-                    sb.appendCodePoint(c);
-                    sbOrig.appendCodePoint(c);
-                }
-            }
-
-            // maybe switch to triple-quoted string, sort of hacky...
-            if (sb.length() == 0) {
-                int third = nextCharRaw();
-                if (third == '"') {
-                    sbOrig.appendCodePoint(third);
-                    appendTripleQuotedString(sb, sbOrig);
-                } else {
-                    putBack(third);
-                }
-
-            }
-            return com.gu.typesafe.config.impl.Tokens.newString(lineOrigin, sb.toString(), sbOrig.toString());
-        }
-
-        private com.gu.typesafe.config.impl.Token pullPlusEquals() throws ProblemException {
-            // the initial '+' has already been consumed
-            int c = nextCharRaw();
-            if (c != '=') {
-                throw problem(asString(c), "'+' not followed by =, '" + asString(c)
-                        + "' not allowed after '+'", true /* suggestQuotes */);
-            }
-            return com.gu.typesafe.config.impl.Tokens.PLUS_EQUALS;
-        }
-
-        private com.gu.typesafe.config.impl.Token pullSubstitution() throws ProblemException {
-            // the initial '$' has already been consumed
-            ConfigOrigin origin = lineOrigin;
-            int c = nextCharRaw();
-            if (c != '{') {
-                throw problem(asString(c), "'$' not followed by {, '" + asString(c)
-                        + "' not allowed after '$'", true /* suggestQuotes */);
-            }
-
-            boolean optional = false;
-            c = nextCharRaw();
-            if (c == '?') {
-                optional = true;
-            } else {
-                putBack(c);
-            }
-
-            WhitespaceSaver saver = new WhitespaceSaver();
+            S saver = newWhitespaceSaver();
             List<com.gu.typesafe.config.impl.Token> expression = new ArrayList<com.gu.typesafe.config.impl.Token>();
 
             com.gu.typesafe.config.impl.Token t;
@@ -562,7 +363,7 @@ final class Tokenizer {
                     // end the loop, done!
                     break;
                 } else if (t == com.gu.typesafe.config.impl.Tokens.END) {
-                    throw problem(origin,
+                    throw Tokenizer.problem(origin,
                             "Substitution ${ was not closed with a }");
                 } else {
                     com.gu.typesafe.config.impl.Token whitespace = saver.check(t, origin, lineNumber);
@@ -575,7 +376,7 @@ final class Tokenizer {
             return com.gu.typesafe.config.impl.Tokens.newSubstitution(origin, optional, expression);
         }
 
-        private com.gu.typesafe.config.impl.Token pullNextToken(WhitespaceSaver saver) throws ProblemException {
+        private com.gu.typesafe.config.impl.Token pullNextToken(S saver) throws ProblemException {
             int c = nextCharAfterWhitespace(saver);
             if (c == -1) {
                 return com.gu.typesafe.config.impl.Tokens.END;
@@ -629,7 +430,7 @@ final class Tokenizer {
                     if (t == null) {
                         if (firstNumberChars.indexOf(c) >= 0) {
                             t = pullNumber(c);
-                        } else if (notInUnquotedText.indexOf(c) >= 0) {
+                        } else if (notInUnquotedText(c)) {
                             throw problem(asString(c), "Reserved character '" + asString(c)
                                     + "' is not allowed outside quotes", true /* suggestQuotes */);
                         } else {
@@ -647,15 +448,6 @@ final class Tokenizer {
             }
         }
 
-        private static boolean isSimpleValue(com.gu.typesafe.config.impl.Token t) {
-            if (com.gu.typesafe.config.impl.Tokens.isSubstitution(t) || com.gu.typesafe.config.impl.Tokens.isUnquotedText(t)
-                    || com.gu.typesafe.config.impl.Tokens.isValue(t)) {
-                return true;
-            } else {
-                return false;
-            }
-        }
-
         private void queueNextToken() throws ProblemException {
             com.gu.typesafe.config.impl.Token t = pullNextToken(whitespaceSaver);
             com.gu.typesafe.config.impl.Token whitespace = whitespaceSaver.check(t, origin, lineNumber);
@@ -692,4 +484,548 @@ final class Tokenizer {
                     "Does not make sense to remove items from token stream");
         }
     }
+
+    private static class TokenIterator extends AbstractTokenIterator<TokenIterator.CharWhitespaceSaver> {
+
+        static final class CharWhitespaceSaver extends WhitespaceSaver {
+            // has to be saved inside value concatenations
+            final private StringBuilder whitespace = new StringBuilder();
+
+            void add(int c) {
+                whitespace.appendCodePoint(c);
+            }
+
+            @Override
+            String take() {
+                if (whitespace.length() == 0)
+                    return null;
+                String s = whitespace.toString();
+                whitespace.setLength(0); // reset
+                return s;
+            }
+        }
+
+        final private Reader input;
+        final private LinkedList<Integer> buffer;
+
+        TokenIterator(com.gu.typesafe.config.ConfigOrigin origin, Reader input, boolean allowComments) {
+            super(origin, allowComments, 1);
+            this.input = input;
+            this.buffer = new LinkedList<Integer>();
+        }
+
+        @Override
+        CharWhitespaceSaver newWhitespaceSaver() {
+            return new CharWhitespaceSaver();
+        }
+
+        @Override
+        int nextCharRaw() {
+            if (buffer.isEmpty()) {
+                try {
+                    return input.read();
+                } catch (IOException e) {
+                    throw new com.gu.typesafe.config.ConfigException.IO(origin, "read error: "
+                            + e.getMessage(), e);
+                }
+            } else {
+                int c = buffer.pop();
+                return c;
+            }
+        }
+
+        @Override
+        void putBack(int c) {
+            if (buffer.size() > 2) {
+                throw new com.gu.typesafe.config.ConfigException.BugOrBroken(
+                        "bug: putBack() three times, undesirable look-ahead");
+            }
+            buffer.push(c);
+        }
+
+        @Override
+        boolean startOfComment(int c) {
+            if (c == -1) {
+                return false;
+            } else {
+                if (allowComments) {
+                    if (c == '#') {
+                        return true;
+                    } else if (c == '/') {
+                        int maybeSecondSlash = nextCharRaw();
+                        // we want to predictably NOT consume any chars
+                        putBack(maybeSecondSlash);
+                        if (maybeSecondSlash == '/') {
+                            return true;
+                        } else {
+                            return false;
+                        }
+                    } else {
+                        return false;
+                    }
+                } else {
+                    return false;
+                }
+            }
+        }
+
+        @Override
+        int nextCharAfterWhitespace(CharWhitespaceSaver saver) {
+            for (;;) {
+                int c = nextCharRaw();
+
+                if (c == -1) {
+                    return -1;
+                } else {
+                    if (isWhitespaceNotNewline(c)) {
+                        saver.add(c);
+                        continue;
+                    } else {
+                        return c;
+                    }
+                }
+            }
+        }
+
+        @Override
+        boolean notInUnquotedText(int c) {
+            return notInUnquotedText.indexOf(c) >= 0;
+        }
+
+        @Override
+        com.gu.typesafe.config.impl.Token pullComment(int firstChar) {
+            boolean doubleSlash = false;
+            if (firstChar == '/') {
+                int discard = nextCharRaw();
+                if (discard != '/')
+                    throw new com.gu.typesafe.config.ConfigException.BugOrBroken("called pullComment but // not seen");
+                doubleSlash = true;
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for (;;) {
+                int c = nextCharRaw();
+                if (c == -1 || c == '\n') {
+                    putBack(c);
+                    if (doubleSlash)
+                        return com.gu.typesafe.config.impl.Tokens.newCommentDoubleSlash(lineOrigin, sb.toString());
+                    else
+                        return com.gu.typesafe.config.impl.Tokens.newCommentHash(lineOrigin, sb.toString());
+                } else {
+                    sb.appendCodePoint(c);
+                }
+            }
+        }
+
+        // The rules here are intended to maximize convenience while
+        // avoiding confusion with real valid JSON. Basically anything
+        // that parses as JSON is treated the JSON way and otherwise
+        // we assume it's a string and let the parser sort it out.
+        @Override
+        com.gu.typesafe.config.impl.Token pullUnquotedText() {
+            com.gu.typesafe.config.ConfigOrigin origin = lineOrigin;
+            StringBuilder sb = new StringBuilder();
+            int c = nextCharRaw();
+            while (true) {
+                if (c == -1) {
+                    break;
+                } else if (notInUnquotedText(c)) {
+                    break;
+                } else if (isWhitespace(c)) {
+                    break;
+                } else if (startOfComment(c)) {
+                    break;
+                } else {
+                    sb.appendCodePoint(c);
+                }
+
+                // we parse true/false/null tokens as such no matter
+                // what is after them, as long as they are at the
+                // start of the unquoted token.
+                if (sb.length() == 4) {
+                    String s = sb.toString();
+                    if (s.equals("true"))
+                        return com.gu.typesafe.config.impl.Tokens.newBoolean(origin, true);
+                    else if (s.equals("null"))
+                        return com.gu.typesafe.config.impl.Tokens.newNull(origin);
+                } else if (sb.length() == 5) {
+                    String s = sb.toString();
+                    if (s.equals("false"))
+                        return com.gu.typesafe.config.impl.Tokens.newBoolean(origin, false);
+                }
+
+                c = nextCharRaw();
+            }
+
+            // put back the char that ended the unquoted text
+            putBack(c);
+
+            String s = sb.toString();
+            return com.gu.typesafe.config.impl.Tokens.newUnquotedText(origin, s);
+        }
+
+        @Override
+        com.gu.typesafe.config.impl.Token pullNumber(int firstChar) throws ProblemException {
+            StringBuilder sb = new StringBuilder();
+            sb.appendCodePoint(firstChar);
+            boolean containedDecimalOrE = false;
+            int c = nextCharRaw();
+            while (c != -1 && numberChars.indexOf(c) >= 0) {
+                if (c == '.' || c == 'e' || c == 'E')
+                    containedDecimalOrE = true;
+                sb.appendCodePoint(c);
+                c = nextCharRaw();
+            }
+            // the last character we looked at wasn't part of the number, put it
+            // back
+            putBack(c);
+            return number(sb.toString(), containedDecimalOrE);
+        }
+
+        private void appendTripleQuotedString(StringBuilder sb, StringBuilder sbOrig) throws ProblemException {
+            // we are after the opening triple quote and need to consume the
+            // close triple
+            int consecutiveQuotes = 0;
+            for (;;) {
+                int c = nextCharRaw();
+
+                if (c == '"') {
+                    consecutiveQuotes += 1;
+                } else if (consecutiveQuotes >= 3) {
+                    // the last three quotes end the string and the others are
+                    // kept.
+                    sb.setLength(sb.length() - 3);
+                    putBack(c);
+                    break;
+                } else {
+                    consecutiveQuotes = 0;
+                    if (c == -1)
+                        throw problem("End of input but triple-quoted string was still open");
+                    else if (c == '\n') {
+                        // keep the line number accurate
+                        lineNumber += 1;
+                        lineOrigin = origin.withLineNumber(lineNumber);
+                    }
+                }
+
+                sb.appendCodePoint(c);
+                sbOrig.appendCodePoint(c);
+            }
+        }
+
+        @Override
+        com.gu.typesafe.config.impl.Token pullQuotedString() throws ProblemException {
+            StringBuilder sb = new StringBuilder();
+
+            // We need a second string builder to keep track of escape characters.
+            // We want to return them exactly as they appeared in the original text,
+            // which means we will need a new StringBuilder to escape escape characters
+            // so we can also keep the actual value of the string. This is gross.
+            StringBuilder sbOrig = new StringBuilder();
+            sbOrig.appendCodePoint('"');
+
+            while (true) {
+                int c = nextCharRaw();
+                if (c == -1)
+                    throw problem("End of input but string quote was still open");
+
+                if (c == '\\') {
+                    pullEscapeSequence(sb, sbOrig);
+                } else if (c == '"') {
+                    sbOrig.appendCodePoint(c);
+                    break;
+                } else if (ConfigImplUtil.isC0Control(c)) {
+                    throw problem(asString(c), "JSON does not allow unescaped " + asString(c)
+                            + " in quoted strings, use a backslash escape");
+                } else {
+                    sb.appendCodePoint(c);
+                    sbOrig.appendCodePoint(c);
+                }
+            }
+
+            // maybe switch to triple-quoted string, sort of hacky...
+            if (sb.length() == 0) {
+                int third = nextCharRaw();
+                if (third == '"') {
+                    sbOrig.appendCodePoint(third);
+                    appendTripleQuotedString(sb, sbOrig);
+                } else {
+                    putBack(third);
+                }
+
+            }
+            return com.gu.typesafe.config.impl.Tokens.newString(lineOrigin, sb.toString(), sbOrig.toString());
+        }
+    }
+
+    // The same grammar as TokenIterator, but over a char array we can index
+    // into, so that lookahead is just moving an offset and tokens are cut out
+    // of the input in one go rather than built up in StringBuilders.
+    private static class BufferTokenIterator extends AbstractTokenIterator<BufferTokenIterator.OffsetWhitespaceSaver> {
+
+        // remembers where the whitespace skipped before a token starts and
+        // ends, so there's nothing to copy until we know we need a token for
+        // it. It's one contiguous run unless a problem came between two runs,
+        // as the problem doesn't take the whitespace before it.
+        final class OffsetWhitespaceSaver extends WhitespaceSaver {
+            private int start = -1;
+            private int end;
+            // the runs before this one, when they weren't contiguous
+            private String earlier;
+
+            void add(int offset) {
+                if (start < 0) {
+                    start = offset;
+                } else if (offset != end) {
+                    earlier = take();
+                    start = offset;
+                }
+                end = offset + 1;
+            }
+
+            @Override
+            String take() {
+                if (start < 0)
+                    return null;
+                String s = new String(chars, start, end - start);
+                if (earlier != null) {
+                    s = earlier + s;
+                    earlier = null;
+                }
+                start = -1;
+                return s;
+            }
+        }
+
+        // ASCII lookup for notInUnquotedText, which is checked for every
+        // char of unquoted text
+        private static final boolean[] notInUnquotedTable = new boolean[128];
+
+        static {
+            for (int i = 0; i < notInUnquotedText.length(); ++i)
+                notInUnquotedTable[notInUnquotedText.charAt(i)] = true;
+        }
+
+        final private char[] chars;
+        final private int end;
+        private int pos;
+
+        BufferTokenIterator(com.gu.typesafe.config.ConfigOrigin origin, CharBuffer input, boolean allowComments, int firstLine) {
+            super(origin, allowComments, firstLine);
+            if (input.hasArray()) {
+                this.chars = input.array();
+                this.pos = input.arrayOffset() + input.position();
+                this.end = input.arrayOffset() + input.limit();
+            } else {
+                this.chars = new char[input.remaining()];
+                input.duplicate().get(this.chars);
+                this.pos = 0;
+                this.end = this.chars.length;
+            }
+        }
+
+        // only reads chars when it's asked for the whitespace, after the
+        // constructor has set them
+        @Override
+        OffsetWhitespaceSaver newWhitespaceSaver() {
+            return new OffsetWhitespaceSaver();
+        }
+
+        @Override
+        int nextCharRaw() {
+            return pos < end ? chars[pos++] : -1;
+        }
+
+        // can only put back the char we just read, which is always what
+        // the grammar wants
+        @Override
+        void putBack(int c) {
+            if (c != -1)
+                pos -= 1;
+        }
+
+        private boolean regionEquals(int start, String s) {
+            for (int i = 0; i < s.length(); ++i) {
+                if (chars[start + i] != s.charAt(i))
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        boolean notInUnquotedText(int c) {
+            return c < notInUnquotedTable.length && notInUnquotedTable[c];
+        }
+
+        @Override
+        boolean startOfComment(int c) {
+            if (allowComments) {
+                if (c == '#')
+                    return true;
+                else if (c == '/')
+                    return pos < end && chars[pos] == '/';
+            }
+            return false;
+        }
+
+        @Override
+        int nextCharAfterWhitespace(OffsetWhitespaceSaver saver) {
+            for (;;) {
+                int c = nextCharRaw();
+
+                if (c == -1) {
+                    return -1;
+                } else if (isWhitespaceNotNewline(c)) {
+                    saver.add(pos - 1);
+                } else {
+                    return c;
+                }
+            }
+        }
+
+        @Override
+        com.gu.typesafe.config.impl.Token pullComment(int firstChar) {
+            boolean doubleSlash = false;
+            if (firstChar == '/') {
+                int discard = nextCharRaw();
+                if (discard != '/')
+                    throw new com.gu.typesafe.config.ConfigException.BugOrBroken("called pullComment but // not seen");
+                doubleSlash = true;
+            }
+
+            int start = pos;
+            while (pos < end && chars[pos] != '\n')
+                pos += 1;
+            String text = new String(chars, start, pos - start);
+            if (doubleSlash)
+                return com.gu.typesafe.config.impl.Tokens.newCommentDoubleSlash(lineOrigin, text);
+            else
+                return com.gu.typesafe.config.impl.Tokens.newCommentHash(lineOrigin, text);
+        }
+
+        @Override
+        com.gu.typesafe.config.impl.Token pullUnquotedText() {
+            com.gu.typesafe.config.ConfigOrigin origin = lineOrigin;
+            int start = pos;
+            int c = nextCharRaw();
+            while (true) {
+                if (c == -1 || notInUnquotedText(c) || isWhitespace(c) || startOfComment(c))
+                    break;
+
+                // we parse true/false/null tokens as such no matter
+                // what is after them, as long as they are at the
+                // start of the unquoted token.
+                int length = pos - start;
+                if (length == 4) {
+                    if (regionEquals(start, "true"))
+                        return com.gu.typesafe.config.impl.Tokens.newBoolean(origin, true);
+                    else if (regionEquals(start, "null"))
+                        return com.gu.typesafe.config.impl.Tokens.newNull(origin);
+                } else if (length == 5) {
+                    if (regionEquals(start, "false"))
+                        return com.gu.typesafe.config.impl.Tokens.newBoolean(origin, false);
+                }
+
+                c = nextCharRaw();
+            }
+
+            // put back the char that ended the unquoted text
+            putBack(c);
+
+            return com.gu.typesafe.config.impl.Tokens.newUnquotedText(origin, new String(chars, start, pos - start));
+        }
+
+        @Override
+        com.gu.typesafe.config.impl.Token pullNumber(int firstChar) throws ProblemException {
+            int start = pos - 1;
+            boolean containedDecimalOrE = false;
+            int c = nextCharRaw();
+            while (c != -1 && numberChars.indexOf(c) >= 0) {
+                if (c == '.' || c == 'e' || c == 'E')
+                    containedDecimalOrE = true;
+                c = nextCharRaw();
+            }
+            // the last character we looked at wasn't part of the number, put it
+            // back
+            putBack(c);
+            return number(new String(chars, start, pos - start), containedDecimalOrE);
+        }
+
+        // we are after the opening triple quote and need to consume the
+        // close triple
+        private String pullTripleQuotedString() throws ProblemException {
+            int start = pos;
+            int consecutiveQuotes = 0;
+            for (;;) {
+                int c = nextCharRaw();
+
+                if (c == '"') {
+                    consecutiveQuotes += 1;
+                } else if (consecutiveQuotes >= 3) {
+                    // the last three quotes end the string and the others are
+                    // kept.
+                    putBack(c);
+                    return new String(chars, start, pos - 3 - start);
+                } else {
+                    consecutiveQuotes = 0;
+                    if (c == -1)
+                        throw problem("End of input but triple-quoted string was still open");
+                    else if (c == '\n') {
+                        // keep the line number accurate
+                        lineNumber += 1;
+                        lineOrigin = origin.withLineNumber(lineNumber);
+                    }
+                }
+            }
+        }
+
+        @Override
+        com.gu.typesafe.config.impl.Token pullQuotedString() throws ProblemException {
+            int quote = pos - 1;
+            int start = pos;
+
+            // only needed once there's an escape; up to then the value is
+            // just a slice of the input
+            StringBuilder sb = null;
+
+            while (true) {
+                int c = nextCharRaw();
+                if (c == -1)
+                    throw problem("End of input but string quote was still open");
+
+                if (c == '\\') {
+                    if (sb == null) {
+                        sb = new StringBuilder();
+                        sb.append(chars, start, pos - 1 - start);
+                    }
+                    // the original text is sliced out of the buffer
+                    pullEscapeSequence(sb, null);
+                } else if (c == '"') {
+                    break;
+                } else if (ConfigImplUtil.isC0Control(c)) {
+                    throw problem(asString(c), "JSON does not allow unescaped " + asString(c)
+                            + " in quoted strings, use a backslash escape");
+                } else if (sb != null) {
+                    sb.append((char) c);
+                }
+            }
+
+            String value;
+            if (sb != null) {
+                value = sb.toString();
+            } else if (pos - 1 == start) {
+                // maybe switch to triple-quoted string, sort of hacky...
+                int third = nextCharRaw();
+                if (third == '"') {
+                    value = pullTripleQuotedString();
+                } else {
+                    putBack(third);
+                    value = "";
+                }
+            } else {
+                value = new String(chars, start, pos - 1 - start);
+            }
+            return com.gu.typesafe.config.impl.Tokens.newString(lineOrigin, value, chars, quote, pos);
+        }
+    }
 }
@@ -52,6 +52,26 @@ final class Tokens {
         }
     }
 
+    // A quoted string cut out of a char buffer by the buffer tokenizer. Its
+    // original text is only copied out of the buffer if the token is rendered.
+    static private class SlicedString extends Value {
+        final private char[] source;
+        final private int start;
+        final private int end;
+
+        SlicedString(com.gu.typesafe.config.impl.AbstractConfigValue value, char[] source, int start, int end) {
+            super(value);
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String tokenText() {
+            return new String(source, start, end - start);
+        }
+    }
+
     static private class Line extends Token {
         Line(com.gu.typesafe.config.ConfigOrigin origin) {
             super(com.gu.typesafe.config.impl.TokenType.NEWLINE, origin);
@@ -495,6 +515,11 @@ final class Tokens {
         return newValue(new ConfigString.Quoted(origin, value), origText);
     }
 
+    static Token newString(com.gu.typesafe.config.ConfigOrigin origin, String value, char[] source, int start,
+                           int end) {
+        return new SlicedString(new ConfigString.Quoted(origin, value), source, start, end);
+    }
+
     static Token newInt(com.gu.typesafe.config.ConfigOrigin origin, int value, String origText) {
         return newValue(com.gu.typesafe.config.impl.ConfigNumber.newNumber(origin, value,
                 origText), origText);
@@ -0,0 +1,88 @@
+/**
+ *   Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ */
+package com.gu.typesafe.config.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The typed conversions (durations, memory sizes, lists) already made on one
+ * resolved SimpleConfig, by path expression, so that reading the same
+ * setting again is a map lookup rather than another parse of its unit
+ * string. A resolved config never changes, so an entry never goes stale.
+ *
+ * <p>
+ * A config derived with withValue or withoutPath differs from its parent
+ * only at and below the changed path, so its table starts out able to borrow
+ * its parent's entries for every other path. Only the parent's own entries
+ * are borrowed, never anything the parent borrowed in turn, so a long chain
+ * of edits doesn't keep every earlier config's table reachable.
+ */
+final class TypedValueCache {
+
+    // what's cached; one getter's result each, so a hit needs no further work
+    enum Kind {
+        DURATION, PERIOD, BYTES, MEMORY_SIZE, BOOLEAN_LIST, NUMBER_LIST, INT_LIST, LONG_LIST, DOUBLE_LIST,
+        STRING_LIST, DURATION_LIST, BYTES_LIST, MEMORY_SIZE_LIST, CONFIG_LIST
+    }
+
+    private static final int KINDS = Kind.values().length;
+
+    // by path expression, then by kind; an atomic array so that a list put
+    // by one thread is seen fully built by another
+    final private ConcurrentHashMap<String, AtomicReferenceArray<Object>> entries;
+
+    // the parent's entries, and the path where this config differs from it;
+    // both null if there's no parent
+    final private ConcurrentHashMap<String, AtomicReferenceArray<Object>> parentEntries;
+    final private Path changed;
+
+    TypedValueCache() {
+        this(null, null);
+    }
+
+    private TypedValueCache(ConcurrentHashMap<String, AtomicReferenceArray<Object>> parentEntries, Path changed) {
+        this.entries = new ConcurrentHashMap<String, AtomicReferenceArray<Object>>();
+        this.parentEntries = parentEntries;
+        this.changed = changed;
+    }
+
+    // parsedPath is the path parsed, or null if it hasn't been yet
+    Object get(Kind kind, String path, Path parsedPath) {
+        AtomicReferenceArray<Object> forPath = entries.get(path);
+        Object value = forPath != null ? forPath.get(kind.ordinal()) : null;
+        if (value == null && parentEntries != null) {
+            AtomicReferenceArray<Object> inParent = parentEntries.get(path);
+            value = inParent != null ? inParent.get(kind.ordinal()) : null;
+            if (value != null) {
+                if (affected(parsedPath != null ? parsedPath : PathCache.get(path)))
+                    return null;
+                put(kind, path, value);
+            }
+        }
+        return value;
+    }
+
+    void put(Kind kind, String path, Object value) {
+        AtomicReferenceArray<Object> forPath = entries.get(path);
+        if (forPath == null) {
+            AtomicReferenceArray<Object> fresh = new AtomicReferenceArray<Object>(KINDS);
+            forPath = entries.putIfAbsent(path, fresh);
+            if (forPath == null)
+                forPath = fresh;
+        }
+        forPath.compareAndSet(kind.ordinal(), null, value);
+    }
+
+    // the table for a config that differs from this one's at changed: the
+    // value at changed replaced or removed, and so also everything above
+    // and below it
+    TypedValueCache derive(Path changed) {
+        return new TypedValueCache(entries, changed);
+    }
+
+    private boolean affected(Path path) {
+        return path.startsWith(changed) || changed.startsWith(path);
+    }
+}
@@ -4,7 +4,7 @@ import java.io.File
 import java.nio.charset.StandardCharsets
 import java.nio.file.{Files, Path, Paths}
 
-import com.gu.typesafe.config.{ConfigFactory, ConfigRenderOptions}
+import com.gu.typesafe.config.{ConfigFactory, ConfigRenderOptions, ConfigValue}
 
 import scala.util.Try
 
@@ -51,15 +51,16 @@ object ConvertConfig {
     for {
       config <- Try(ConfigFactory.parseFile(conversion.input)).toEither
       options = ConfigRenderOptions.defaults().setOriginComments(false).setJson(false).setCompactKeys(true)
-      hoconStr = config.root().render(options)
-      _ <- writeToFile(conversion.output, hoconStr)
+      _ <- writeToFile(conversion.output, config.root(), options)
     } yield ()
   }
 
-  private def writeToFile(file: File, str: String): Either[Throwable, Path] = {
+  private def writeToFile(file: File, value: ConfigValue, options: ConfigRenderOptions): Either[Throwable, Path] = {
     Try{
       System.err.println(s"Writing config to $file")
-      Files.write(file.toPath, str.getBytes(StandardCharsets.UTF_8))
+      val writer = Files.newBufferedWriter(file.toPath, StandardCharsets.UTF_8)
+      try value.render(writer, options) finally writer.close()
+      file.toPath
     }.toEither
   }
 }
@@ -0,0 +1,132 @@
+package com.gu.typesafe.config.impl;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.gu.typesafe.config.ConfigMemorySize;
+import com.gu.typesafe.config.Optional;
+
+/**
+ * Beans for binding configs to in tests, with equals so that the beans two
+ * ways of binding the same config make can be compared.
+ */
+public final class TestBeans {
+
+    private TestBeans() {
+    }
+
+    public enum Mode {
+        PRIMARY, REPLICA
+    }
+
+    public static class Server {
+        private String host;
+        private int port;
+        private Duration connectTimeout;
+        private Mode mode;
+        @Optional
+        private List<String> tags;
+
+        public String getHost() { return host; }
+        public void setHost(String host) { this.host = host; }
+        public int getPort() { return port; }
+        public void setPort(int port) { this.port = port; }
+        public Duration getConnectTimeout() { return connectTimeout; }
+        public void setConnectTimeout(Duration connectTimeout) { this.connectTimeout = connectTimeout; }
+        public Mode getMode() { return mode; }
+        public void setMode(Mode mode) { this.mode = mode; }
+        public List<String> getTags() { return tags; }
+        public void setTags(List<String> tags) { this.tags = tags; }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Server))
+                return false;
+            Server that = (Server) other;
+            return Objects.equals(host, that.host) && port == that.port && Objects.equals(connectTimeout, that.connectTimeout)
+                    && mode == that.mode && Objects.equals(tags, that.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, port, connectTimeout, mode, tags);
+        }
+    }
+
+    public static class Cluster {
+        private String name;
+        private Server primary;
+        private List<Server> replicas;
+        @Optional
+        private Server backup;
+        @Optional
+        private String description;
+        @Optional
+        private Boolean enabled;
+        private Set<Integer> shards;
+        private List<Mode> modes;
+        private ConfigMemorySize heap;
+        @Optional
+        private Map<String, Object> extra;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public Server getPrimary() { return primary; }
+        public void setPrimary(Server primary) { this.primary = primary; }
+        public List<Server> getReplicas() { return replicas; }
+        public void setReplicas(List<Server> replicas) { this.replicas = replicas; }
+        public Server getBackup() { return backup; }
+        public void setBackup(Server backup) { this.backup = backup; }
+        public String getDescription() { return description; }
+        public void setDescription(String description) { this.description = description; }
+        public Boolean getEnabled() { return enabled; }
+        public void setEnabled(Boolean enabled) { this.enabled = enabled; }
+        public Set<Integer> getShards() { return shards; }
+        public void setShards(Set<Integer> shards) { this.shards = shards; }
+        public List<Mode> getModes() { return modes; }
+        public void setModes(List<Mode> modes) { this.modes = modes; }
+        public ConfigMemorySize getHeap() { return heap; }
+        public void setHeap(ConfigMemorySize heap) { this.heap = heap; }
+        public Map<String, Object> getExtra() { return extra; }
+        public void setExtra(Map<String, Object> extra) { this.extra = extra; }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Cluster))
+                return false;
+            Cluster that = (Cluster) other;
+            return Objects.equals(name, that.name) && Objects.equals(primary, that.primary)
+                    && Objects.equals(replicas, that.replicas) && Objects.equals(backup, that.backup)
+                    && Objects.equals(description, that.description) && Objects.equals(enabled, that.enabled)
+                    && Objects.equals(shards, that.shards) && Objects.equals(modes, that.modes)
+                    && Objects.equals(heap, that.heap) && Objects.equals(extra, that.extra);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, primary, replicas, backup, description, enabled, shards, modes, heap, extra);
+        }
+    }
+
+    // a property type beans don't support
+    public static class Unsupported {
+        @Optional
+        private StringBuilder builder;
+
+        public StringBuilder getBuilder() { return builder; }
+        public void setBuilder(StringBuilder builder) { this.builder = builder; }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Unsupported && Objects.equals(builder, ((Unsupported) other).builder);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(builder);
+        }
+    }
+}
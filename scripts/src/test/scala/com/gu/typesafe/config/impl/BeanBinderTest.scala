@@ -0,0 +1,150 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.{Config, ConfigException, ConfigFactory}
+import com.gu.typesafe.config.impl.TestBeans.{Cluster, Mode, Server, Unsupported}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import scala.jdk.CollectionConverters._
+import scala.util.{Failure, Success, Try}
+
+// BeanBinder against the reflective binding it replaced: the same beans for
+// the same configs, and the same exceptions, in the same words, for bad ones
+class BeanBinderTest extends AnyFunSpec with Matchers {
+
+  private val server =
+    """{ host = db1, port = 5432, connect-timeout = 2s, mode = PRIMARY, tags = [fast, "eu-west-1"] }"""
+
+  private val cluster =
+    s"""
+       |name = main
+       |primary = $server
+       |replicas = [
+       |  { host = db2, port = 5432, connect-timeout = 500ms, mode = REPLICA },
+       |  { host = db3, port = "5433", connect-timeout = 1m, mode = REPLICA, tags = [] }
+       |]
+       |shards = [1, 2, 2, 3]
+       |modes = [PRIMARY, REPLICA]
+       |heap = 512M
+       |""".stripMargin
+
+  private def config(text: String): Config = ConfigFactory.parseString(text).resolve()
+
+  private def bindBothWays[T](config: Config, clazz: Class[T]): (Try[T], Try[T]) =
+    (Try(ConfigBeanImpl.createReflectively(config, clazz)), Try(BeanBinder.forClass(clazz).bind(config)))
+
+  private def bindsTheSame[T](text: String, clazz: Class[T]): T = bindsTheSame(config(text), clazz)
+
+  private def bindsTheSame[T](config: Config, clazz: Class[T]): T = bindBothWays(config, clazz) match {
+    case (Success(reflective), Success(bound)) =>
+      bound shouldBe reflective
+      bound
+    case (reflective, bound) =>
+      fail(s"bound to $bound, but reflectively to $reflective")
+  }
+
+  private def failsTheSame[T](text: String, clazz: Class[T]): ConfigException = bindBothWays(config(text), clazz) match {
+    case (Failure(reflective: ConfigException), Failure(bound: ConfigException)) =>
+      bound.getClass shouldBe reflective.getClass
+      bound.getMessage shouldBe reflective.getMessage
+      bound
+    case (reflective, bound) =>
+      fail(s"bound to $bound, but reflectively to $reflective")
+  }
+
+  describe("binding a bean") {
+    it("should bind the properties of a flat bean") {
+      val bound = bindsTheSame(server, classOf[Server])
+      bound.getPort shouldBe 5432
+      bound.getMode shouldBe Mode.PRIMARY
+      bound.getTags.asScala shouldBe List("fast", "eu-west-1")
+    }
+
+    it("should bind nested beans and lists of beans") {
+      val bound = bindsTheSame(cluster, classOf[Cluster])
+      bound.getPrimary.getHost shouldBe "db1"
+      bound.getReplicas.asScala.map(_.getHost) shouldBe List("db2", "db3")
+      bound.getReplicas.get(1).getPort shouldBe 5433
+      bound.getShards.asScala shouldBe Set(1, 2, 3)
+      bound.getModes.asScala shouldBe List(Mode.PRIMARY, Mode.REPLICA)
+    }
+
+    it("should leave optional properties that aren't set unset") {
+      val bound = bindsTheSame(cluster, classOf[Cluster])
+      bound.getBackup shouldBe null
+      bound.getDescription shouldBe null
+      bound.getEnabled shouldBe null
+      bound.getExtra shouldBe null
+      bound.getReplicas.get(0).getTags shouldBe null
+    }
+
+    it("should bind optional properties that are set") {
+      val bound = bindsTheSame(
+        cluster + s"""backup = $server, description = "the main one", enabled = "yes", extra { a = 1, b = [x] }""",
+        classOf[Cluster]
+      )
+      bound.getBackup.getHost shouldBe "db1"
+      bound.getEnabled shouldBe true
+      bound.getExtra.get("a") shouldBe 1
+    }
+
+    it("should take hyphenated keys, and the camel case key over them") {
+      bindsTheSame("""{ host = db1, port = 1, connect-timeout = 1s, mode = PRIMARY }""", classOf[Server])
+        .getConnectTimeout.getSeconds shouldBe 1
+      bindsTheSame("""{ host = db1, port = 1, connect-timeout = 1s, connectTimeout = 2s, mode = PRIMARY }""", classOf[Server])
+        .getConnectTimeout.getSeconds shouldBe 2
+    }
+
+    it("should bind a config it has already bound a different one with") {
+      bindsTheSame(cluster, classOf[Cluster])
+      bindsTheSame(cluster.replace("main", "other"), classOf[Cluster]).getName shouldBe "other"
+    }
+  }
+
+  describe("binding a bad config") {
+    it("should report every property that's missing") {
+      failsTheSame("port = 1, mode = PRIMARY", classOf[Server]) shouldBe a[ConfigException.ValidationFailed]
+    }
+
+    it("should report a missing nested bean") {
+      failsTheSame(cluster.replace("primary =", "secondary ="), classOf[Cluster])
+    }
+
+    it("should report a property of the wrong type") {
+      failsTheSame(
+        """{ host = [db1], port = lots, connect-timeout = 1s, mode = PRIMARY }""",
+        classOf[Server]
+      )
+    }
+
+    it("should report an invalid property in a nested bean") {
+      failsTheSame(cluster.replace("connect-timeout = 2s", "connect-timeout = soon"), classOf[Cluster])
+    }
+
+    it("should report an invalid property in a list of beans") {
+      failsTheSame(cluster.replace("\"5433\"", "\"many\""), classOf[Cluster])
+    }
+
+    it("should report a value that isn't one of the enum's") {
+      failsTheSame(server.replace("PRIMARY", "SECONDARY"), classOf[Server]) shouldBe a[ConfigException.BadValue]
+    }
+
+    it("should report a list where it wants a bean") {
+      failsTheSame(cluster.replace("primary =", "primary = [],\nunused ="), classOf[Cluster])
+    }
+
+    it("should only report an unsupported property type when it's set") {
+      bindsTheSame("{}", classOf[Unsupported]).getBuilder shouldBe null
+      failsTheSame("builder = text", classOf[Unsupported]) shouldBe a[ConfigException.BadBean]
+    }
+
+    it("should refuse an unresolved config") {
+      bindBothWays(ConfigFactory.parseString("host = ${h}"), classOf[Server]) match {
+        case (Failure(reflective), Failure(bound)) =>
+          bound.getClass shouldBe reflective.getClass
+          bound shouldBe a[ConfigException.NotResolved]
+        case other => fail(s"expected both to fail, got $other")
+      }
+    }
+  }
+}
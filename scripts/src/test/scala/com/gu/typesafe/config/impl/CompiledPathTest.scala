@@ -0,0 +1,75 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.{Config, ConfigFactory, ConfigPath, ConfigUtil}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import java.util.concurrent.{ConcurrentHashMap, TimeUnit}
+import scala.util.{Failure, Success, Try}
+
+// the typed getters for a compiled path, against the same getters for its
+// expression
+class CompiledPathTest extends AnyFunSpec with Matchers {
+
+  private val text =
+    """
+      |a.size = 512K, a.timeout = 2s, a.hosts = [db1, db2], a.count = 3
+      |bad { size = lots, timeout = soon, hosts = [[x]] }
+      |"quoted.key" { timeout = 5ms }
+      |""".stripMargin
+
+  private def config(): Config = ConfigFactory.parseString(text).resolve()
+
+  private def outcome[T](get: => T): Either[(Class[_], String), T] = Try(get) match {
+    case Success(value) => Right(value)
+    case Failure(e) => Left((e.getClass, e.getMessage))
+  }
+
+  private val getters: Seq[(String, (Config, String) => Any, (Config, ConfigPath) => Any)] = Seq(
+    ("getBytes", _.getBytes(_), _.getBytes(_)),
+    ("getDuration", _.getDuration(_), _.getDuration(_)),
+    ("getDuration in millis", _.getDuration(_, TimeUnit.MILLISECONDS), _.getDuration(_, TimeUnit.MILLISECONDS)),
+    ("getStringList", _.getStringList(_), _.getStringList(_))
+  )
+
+  private val expressions = Seq("size", "timeout", "hosts", "count", "missing").flatMap(key => Seq(s"a.$key", s"bad.$key")) ++
+    Seq("\"quoted.key\".timeout", "a.count.deeper")
+
+  // what's parsed, so that the test can see nothing is
+  private def parsedPaths: ConcurrentHashMap[String, Path] = {
+    val field = classOf[PathCache].getDeclaredField("paths")
+    field.setAccessible(true)
+    field.get(null).asInstanceOf[ConcurrentHashMap[String, Path]]
+  }
+
+  describe("a compiled path") {
+    it("should get what its expression gets, and fail the same way") {
+      for ((name, byExpression, byPath) <- getters; expression <- expressions) {
+        withClue(s"$name of $expression: ") {
+          outcome(byPath(config(), ConfigUtil.compilePath(expression))) shouldBe outcome(byExpression(config(), expression))
+        }
+      }
+    }
+
+    it("should share what's memoized with its expression") {
+      val c = config()
+      val timeout = c.getDuration(ConfigUtil.compilePath("a.timeout"))
+      c.getDuration("a.timeout") should be theSameInstanceAs timeout
+      val size = c.getBytes("a.size")
+      c.getBytes(ConfigUtil.compilePath("a.size")) should be theSameInstanceAs size
+    }
+
+    it("should not parse its expression again to convert the value") {
+      val paths = getters.map(_ => ConfigUtil.compilePath("a.timeout")) ++
+        Seq(ConfigUtil.compilePath("a.size"), ConfigUtil.compilePath("a.hosts"), ConfigUtil.compilePath("\"quoted.key\".timeout"))
+      parsedPaths.clear()
+      val c = config()
+      c.getDuration(paths.head)
+      c.getDuration(paths(1), TimeUnit.SECONDS)
+      c.getBytes(paths(getters.length))
+      c.getStringList(paths(getters.length + 1))
+      c.getDuration(paths.last)
+      parsedPaths shouldBe empty
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.{Config, ConfigException, ConfigFactory, ConfigParseOptions, ConfigResolveOptions, ConfigSyntax}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import java.io.File
+import java.net.{URL, URLClassLoader}
+import java.nio.file.attribute.FileTime
+import java.nio.file.{Files, Path => FilePath}
+
+// when a compiled snapshot is used, and when it has to be parsed again
+class ConfigSnapshotTest extends AnyFunSpec with Matchers {
+
+  private def write(file: FilePath, text: String): FilePath = {
+    Files.createDirectories(file.getParent)
+    Files.write(file, text.getBytes)
+  }
+
+  private def load(file: FilePath, snapshot: FilePath, options: ConfigParseOptions = ConfigParseOptions.defaults()): Config =
+    ConfigFactory.parseFileWithSnapshot(file.toFile, options, snapshot.toFile, ConfigResolveOptions.defaults())
+
+  // a load that uses the snapshot leaves it alone, anything else rewrites it
+  private def reused(snapshot: FilePath)(load: => Config): (Config, Boolean) = {
+    Files.setLastModifiedTime(snapshot, FileTime.fromMillis(0))
+    val config = load
+    config -> (Files.getLastModifiedTime(snapshot).toMillis == 0)
+  }
+
+  describe("a config snapshot") {
+    it("should be used while nothing has changed") {
+      val dir = Files.createTempDirectory("snapshot")
+      val file = write(dir.resolve("application.conf"), "a = 1, b = ${a}")
+      val snapshot = dir.resolve("application.snapshot")
+      load(file, snapshot).getInt("b") shouldBe 1
+
+      val (config, wasReused) = reused(snapshot)(load(file, snapshot))
+      config.getInt("b") shouldBe 1
+      wasReused shouldBe true
+    }
+
+    it("should not be used for another file") {
+      val dir = Files.createTempDirectory("snapshot")
+      val snapshot = dir.resolve("shared.snapshot")
+      load(write(dir.resolve("a.conf"), "name = a"), snapshot).getString("name") shouldBe "a"
+
+      val (config, wasReused) = reused(snapshot)(load(write(dir.resolve("b.conf"), "name = b"), snapshot))
+      config.getString("name") shouldBe "b"
+      wasReused shouldBe false
+    }
+
+    it("should be used for the same file by another path") {
+      val dir = Files.createTempDirectory("snapshot")
+      val file = write(dir.resolve("conf/application.conf"), "a = 1")
+      val snapshot = dir.resolve("application.snapshot")
+      load(file, snapshot)
+
+      val (_, wasReused) = reused(snapshot)(load(dir.resolve("conf/../conf/./application.conf"), snapshot))
+      wasReused shouldBe true
+    }
+
+    it("should not be used once an included symlink points at another file") {
+      val dir = Files.createTempDirectory("snapshot")
+      val file = write(dir.resolve("application.conf"), "include \"current.conf\"")
+      write(dir.resolve("v1/settings.conf"), "a = 1")
+      write(dir.resolve("v2/settings.conf"), "a = 1")
+      val link = dir.resolve("current.conf")
+      Files.createSymbolicLink(link, dir.resolve("v1/settings.conf"))
+      val snapshot = dir.resolve("application.snapshot")
+      load(file, snapshot)
+
+      Files.delete(link)
+      Files.createSymbolicLink(link, dir.resolve("v2/settings.conf"))
+      val (_, wasReused) = reused(snapshot)(load(file, snapshot))
+      wasReused shouldBe false
+    }
+
+    it("should not be used with a different syntax") {
+      val dir = Files.createTempDirectory("snapshot")
+      val file = write(dir.resolve("settings.txt"), "a = 1")
+      val snapshot = dir.resolve("settings.snapshot")
+      load(file, snapshot, ConfigParseOptions.defaults().setSyntax(ConfigSyntax.CONF)).getInt("a") shouldBe 1
+
+      an[ConfigException.Parse] should be thrownBy load(file, snapshot, ConfigParseOptions.defaults().setSyntax(ConfigSyntax.JSON))
+    }
+
+    it("should not be used with a different allowMissing") {
+      val dir = Files.createTempDirectory("snapshot")
+      val missing = dir.resolve("missing.conf")
+      val snapshot = dir.resolve("missing.snapshot")
+      load(missing, snapshot, ConfigParseOptions.defaults().setAllowMissing(true)).isEmpty shouldBe true
+
+      an[ConfigException.IO] should be thrownBy load(missing, snapshot, ConfigParseOptions.defaults().setAllowMissing(false))
+    }
+
+    it("should not be used with a different origin description") {
+      val dir = Files.createTempDirectory("snapshot")
+      val file = write(dir.resolve("application.conf"), "a = 1")
+      val snapshot = dir.resolve("application.snapshot")
+      load(file, snapshot, ConfigParseOptions.defaults().setOriginDescription("first"))
+
+      val config = load(file, snapshot, ConfigParseOptions.defaults().setOriginDescription("second"))
+      config.getValue("a").origin.description should startWith("second")
+    }
+
+    it("should not be used with a class loader that finds other resources") {
+      val dir = Files.createTempDirectory("snapshot")
+      val file = write(dir.resolve("application.conf"), "include classpath(\"resource.conf\")")
+      def loaderOf(name: String, text: String): ClassLoader = {
+        write(dir.resolve(s"$name/resource.conf"), text)
+        new URLClassLoader(Array[URL](dir.resolve(name).toUri.toURL), null)
+      }
+      val first = loaderOf("first", "from = first")
+      val second = loaderOf("second", "from = second")
+      val snapshot = dir.resolve("application.snapshot")
+
+      load(file, snapshot, ConfigParseOptions.defaults().setClassLoader(first)).getString("from") shouldBe "first"
+      load(file, snapshot, ConfigParseOptions.defaults().setClassLoader(second)).getString("from") shouldBe "second"
+      val (config, wasReused) = reused(snapshot)(load(file, snapshot, ConfigParseOptions.defaults().setClassLoader(second)))
+      config.getString("from") shouldBe "second"
+      wasReused shouldBe true
+    }
+
+    it("should not be used with a custom includer") {
+      val dir = Files.createTempDirectory("snapshot")
+      val file = write(dir.resolve("application.conf"), "a = 1")
+      val snapshot = dir.resolve("application.snapshot")
+      val includer = new SimpleIncluder(null)
+      load(file, snapshot, ConfigParseOptions.defaults().setIncluder(includer)).getInt("a") shouldBe 1
+      new File(snapshot.toString).exists shouldBe false
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.parser.{ConfigDocument, ConfigDocumentFactory}
+import com.gu.typesafe.config.{Config, ConfigFactory, ConfigValueFactory}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import scala.jdk.CollectionConverters._
+import scala.util.Random
+
+// runs of edits to one ConfigDocument, against making the same edits to a
+// Config, and against making each edit to a fresh parse of the document so
+// far. A fresh parse can split whitespace into tokens differently, which
+// can change the whitespace an edit adds, so renders are compared by what
+// they parse to.
+class DocumentEditTest extends AnyFunSpec with Matchers {
+
+  private val valueTexts = Vector("1", "\"text\"", "[1, 2]", "{ a = 1, b { c = 2 } }", "true", "null", "2s")
+
+  private def section(random: Random, s: Int): String = {
+    val fields = (0 until 1 + random.nextInt(5)).map { k =>
+      val value = random.nextInt(4) match {
+        case 0 => s"{ n0 = $k, n1 = [$k] }"
+        case 1 => s"\"s$s k$k\""
+        case 2 => s"[$s, $k]"
+        case _ => s"$k"
+      }
+      s"  # field $k\n  k$k = $value"
+    }
+    random.nextInt(3) match {
+      case 0 => s"s$s.k9 = $s"
+      case _ => s"s$s {\n${fields.mkString("\n")}\n}"
+    }
+  }
+
+  private def generated(random: Random): String =
+    (0 until 1 + random.nextInt(6)).map(section(random, _)).mkString("top = 1\n", "\n", "\n")
+
+  // paths that are there, aren't, or go through a value that isn't an object
+  private def randomPath(random: Random): String = random.nextInt(4) match {
+    case 0 => s"s${random.nextInt(7)}"
+    case 1 => s"s${random.nextInt(7)}.k${random.nextInt(6)}"
+    case 2 => s"s${random.nextInt(7)}.k${random.nextInt(6)}.n${random.nextInt(2)}"
+    case _ => if (random.nextBoolean()) "top" else "top.below"
+  }
+
+  private sealed trait Edit {
+    def apply(document: ConfigDocument): ConfigDocument
+    def apply(config: Config): Config
+  }
+
+  private case class SetText(path: String, text: String) extends Edit {
+    def apply(document: ConfigDocument): ConfigDocument = document.withValueText(path, text)
+    def apply(config: Config): Config = config.withValue(path, ConfigFactory.parseString(s"v = $text").root().get("v"))
+  }
+
+  private case class SetValue(path: String, value: Int) extends Edit {
+    def apply(document: ConfigDocument): ConfigDocument = document.withValue(path, ConfigValueFactory.fromAnyRef(value))
+    def apply(config: Config): Config = config.withValue(path, ConfigValueFactory.fromAnyRef(value))
+  }
+
+  private case class Remove(path: String) extends Edit {
+    def apply(document: ConfigDocument): ConfigDocument = document.withoutPath(path)
+    def apply(config: Config): Config = config.withoutPath(path)
+  }
+
+  private def randomEdit(random: Random): Edit = random.nextInt(3) match {
+    case 0 => SetText(randomPath(random), valueTexts(random.nextInt(valueTexts.length)))
+    case 1 => SetValue(randomPath(random), random.nextInt(100))
+    case _ => Remove(randomPath(random))
+  }
+
+  private def paths(config: Config): Seq[String] = {
+    val leaves = config.entrySet().asScala.map(_.getKey).toSeq
+    (leaves ++ leaves.flatMap(path => path.split('.').inits.filter(_.nonEmpty).map(_.mkString("."))) ++
+      (0 until 7).map(s => s"s$s") ++ (0 until 7).map(s => s"s$s.k0")).distinct
+  }
+
+  describe("editing a ConfigDocument") {
+    it("should render and find paths the same as editing a Config, and as editing a fresh parse each time") {
+      val random = new Random(20261018)
+      for (run <- 0 until 100) {
+        val text = generated(random)
+        var document = ConfigDocumentFactory.parseString(text)
+        var config = ConfigFactory.parseString(text)
+        val edits = List.fill(25)(randomEdit(random))
+
+        for ((edit, i) <- edits.zipWithIndex) {
+          val fresh = edit(ConfigDocumentFactory.parseString(document.render()))
+          document = edit(document)
+          config = edit(config)
+
+          withClue(s"run $run, edits ${edits.take(i + 1).mkString(", ")} on:\n$text\n") {
+            ConfigFactory.parseString(document.render()) shouldBe config
+            ConfigFactory.parseString(fresh.render()) shouldBe config
+            for (path <- paths(config) ++ edits.map {
+              case SetText(p, _) => p
+              case SetValue(p, _) => p
+              case Remove(p) => p
+            }) {
+              withClue(s"hasPath($path): ") {
+                document.hasPath(path) shouldBe fresh.hasPath(path)
+                document.hasPath(path) shouldBe config.hasPathOrNull(path)
+              }
+            }
+          }
+        }
+      }
+    }
+
+    it("should add a separator when an object written without one becomes something else") {
+      val document = ConfigDocumentFactory.parseString("a {\n  b = 1\n}\nc.d = 2\n")
+      document.withValueText("a", "\"text\"").render() shouldBe "a : \"text\"\nc.d = 2\n"
+      document.withValueText("a", "{ e = 3 }").render() shouldBe "a { e = 3 }\nc.d = 2\n"
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.gu.typesafe.config.impl
+
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import java.util.{HashMap => JHashMap, NoSuchElementException}
+import scala.jdk.CollectionConverters._
+import scala.util.Random
+
+// HashTrieMap op for op against a HashMap, with keys chosen to collide
+class HashTrieMapTest extends AnyFunSpec with Matchers {
+
+  // a key with whatever hash we like, so that keys can share some or all of
+  // their hash bits
+  case class Key(name: String, hash: Int) {
+    override def hashCode: Int = hash
+  }
+
+  // hashes that agree on their low bits, their high bits or entirely, so
+  // that the trie gets deep, and gets collision nodes
+  private def randomKey(random: Random): Key = {
+    val name = s"k${random.nextInt(64)}"
+    val hash = random.nextInt(4) match {
+      case 0 => random.nextInt(8)
+      case 1 => random.nextInt(4) << 25
+      case 2 => 42
+      case _ => name.hashCode
+    }
+    Key(name, hash)
+  }
+
+  private def sameAs(trie: HashTrieMap[Key, String], expected: JHashMap[Key, String]): Unit = {
+    trie.size shouldBe expected.size
+    trie.isEmpty shouldBe expected.isEmpty
+    trie.asScala.toMap shouldBe expected.asScala.toMap
+    trie.entrySet.asScala.toList.map(_.getKey) should have size expected.size.toLong
+    expected.asScala.foreach { case (k, v) => trie.get(k) shouldBe v }
+    trie shouldBe expected
+    trie.hashCode shouldBe expected.hashCode
+  }
+
+  describe("HashTrieMap") {
+    it("should behave as a HashMap through random updates, and leave every earlier version as it was") {
+      val random = new Random(20261018)
+      for (_ <- 0 until 20) {
+        var trie = HashTrieMap.empty[Key, String]()
+        val expected = new JHashMap[Key, String]()
+        val versions = List.newBuilder[(HashTrieMap[Key, String], Map[Key, String])]
+
+        for (op <- 0 until 400) {
+          val key = randomKey(random)
+          if (random.nextInt(3) == 0) {
+            trie = trie.minus(key)
+            expected.remove(key)
+          } else {
+            val value = s"v$op"
+            trie = trie.plus(key, value)
+            expected.put(key, value)
+          }
+          withClue(s"after op $op on $key: ") {
+            trie.get(key) shouldBe expected.get(key)
+            trie.containsKey(key) shouldBe expected.containsKey(key)
+            trie.size shouldBe expected.size
+          }
+          versions += trie -> expected.asScala.toMap
+        }
+
+        sameAs(trie, expected)
+        for (((version, then), i) <- versions.result().zipWithIndex) {
+          withClue(s"version $i: ") {
+            version.asScala.toMap shouldBe then
+          }
+        }
+      }
+    }
+
+    it("should build the same map with copyOf as with plus") {
+      val random = new Random(42)
+      for (size <- Seq(0, 1, 2, 31, 32, 33, 200)) {
+        val expected = new JHashMap[Key, String]()
+        while (expected.size < size) expected.put(randomKey(random).copy(name = s"k${random.nextInt()}"), s"v${expected.size}")
+        val copied = HashTrieMap.copyOf(expected)
+        withClue(s"$size entries: ") {
+          sameAs(copied, expected)
+          expected.asScala.foldLeft(HashTrieMap.empty[Key, String]()) { case (m, (k, v)) => m.plus(k, v) } shouldBe copied
+          HashTrieMap.copyOf(copied) should be theSameInstanceAs copied
+          // and it can still be updated like one built with plus
+          expected.keySet.asScala.foldLeft(copied)(_.minus(_)) shouldBe empty
+        }
+      }
+    }
+
+    it("should keep keys that collide entirely apart, down to the last one") {
+      val keys = (0 until 4).map(i => Key(s"c$i", 7))
+      val full = keys.foldLeft(HashTrieMap.empty[Key, String]())((m, k) => m.plus(k, k.name))
+      full.size shouldBe 4
+      keys.foreach(k => full.get(k) shouldBe k.name)
+      full.get(Key("other", 7)) shouldBe null
+
+      val one = keys.drop(1).foldLeft(full)(_.minus(_))
+      one.asScala.toMap shouldBe Map(keys.head -> "c0")
+      // a key next to the collision, which has to live alongside it
+      val beside = one.plus(Key("beside", 7 | (1 << 5)), "b")
+      beside.asScala.toMap shouldBe Map(keys.head -> "c0", Key("beside", 7 | (1 << 5)) -> "b")
+      beside.minus(keys.head).asScala.toMap shouldBe Map(Key("beside", 7 | (1 << 5)) -> "b")
+      one.minus(keys.head) shouldBe empty
+      full.size shouldBe 4
+    }
+
+    it("should return the same map for updates that change nothing") {
+      val value = "v"
+      val m = HashTrieMap.empty[Key, String]().plus(Key("a", 1), value)
+      m.plus(Key("a", 1), value) should be theSameInstanceAs m
+      m.minus(Key("b", 1)) should be theSameInstanceAs m
+      m.minus(Key("b", 2)) should be theSameInstanceAs m
+    }
+
+    it("should not hold nulls, or be changed through its iterator") {
+      val m = HashTrieMap.empty[Key, String]().plus(Key("a", 1), "v")
+      a[com.gu.typesafe.config.ConfigException.BugOrBroken] should be thrownBy m.plus(null, "v")
+      a[com.gu.typesafe.config.ConfigException.BugOrBroken] should be thrownBy m.plus(Key("b", 1), null)
+      m.get(null) shouldBe null
+
+      val iterator = m.entrySet.iterator
+      iterator.next().getKey shouldBe Key("a", 1)
+      an[UnsupportedOperationException] should be thrownBy iterator.remove()
+      iterator.hasNext shouldBe false
+      a[NoSuchElementException] should be thrownBy iterator.next()
+      an[UnsupportedOperationException] should be thrownBy m.put(Key("b", 1), "v")
+      an[UnsupportedOperationException] should be thrownBy m.entrySet.iterator.next().setValue("w")
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.{Config, ConfigFactory, ConfigObject, ConfigValue, ConfigValueFactory}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import scala.util.{Failure, Random, Success, Try}
+
+// Re-resolving a config derived from one that's been resolved, which reuses
+// what the edits can't have affected, against resolving it from scratch
+class IncrementalResolveTest extends AnyFunSpec with Matchers {
+
+  private def parse(text: String): Config = ConfigFactory.parseString(text)
+
+  private def value(text: String): ConfigValue = parse(s"v = $text").root().get("v")
+
+  // the resolved root, or how resolving failed
+  private def outcome(resolve: => Config): Either[(Class[_], String), ConfigObject] = Try(resolve) match {
+    case Success(resolved) => Right(resolved.root())
+    case Failure(e) => Left((e.getClass, e.getMessage))
+  }
+
+  private def fromScratch(config: Config): Config =
+    new SimpleConfig(config.root().asInstanceOf[AbstractConfigObject]).resolve()
+
+  private def hasLineage(config: Config): Boolean = {
+    val field = classOf[SimpleConfig].getDeclaredField("lineage")
+    field.setAccessible(true)
+    field.get(config) != null
+  }
+
+  // resolves the config, then each edit of it in turn, checking each against
+  // a resolve from scratch; returns the last outcome
+  private def resolvesTheSame(text: String)(edits: (Config => Config)*): Either[(Class[_], String), ConfigObject] = {
+    val base = parse(text)
+    base.resolve()
+    val edited = edits.foldLeft(base) { (config, edit) =>
+      val edited = edit(config)
+      // an edit that leaves nothing to resolve has nothing to reuse
+      if (edited.root().asInstanceOf[AbstractConfigObject].resolveStatus() != ResolveStatus.RESOLVED)
+        hasLineage(edited) shouldBe true
+      outcome(edited.resolve()) shouldBe outcome(fromScratch(edited))
+      edited
+    }
+    outcome(edited.resolve())
+  }
+
+  describe("resolving an edited config") {
+    it("should follow a change along a chain of substitutions") {
+      val resolved = resolvesTheSame("a = 1, b = ${a}, c = ${b}, d = ${c}, e = 2, f = ${e}")(
+        _.withValue("a", ConfigValueFactory.fromAnyRef(5)),
+        _.withValue("e", ConfigValueFactory.fromAnyRef(6))
+      )
+      resolved.map(_.unwrapped.get("d")) shouldBe Right(5)
+      resolved.map(_.unwrapped.get("f")) shouldBe Right(6)
+    }
+
+    it("should fail the same way when an edit removes what's substituted") {
+      resolvesTheSame("a = 1, b = ${a}, c = ${b}")(_.withoutPath("a")).isLeft shouldBe true
+    }
+
+    it("should follow changes into and out of objects") {
+      resolvesTheSame("o { a = 1, b = ${o.a} }, p = ${o}, q = ${p.b}")(
+        _.withValue("o.a", ConfigValueFactory.fromAnyRef(2)),
+        _.withValue("o", value("{ a = 3, b = 4 }")),
+        _.withoutPath("o.b")
+      )
+    }
+
+    it("should add and drop optional substitutions") {
+      val resolved = resolvesTheSame("a = 1, b = ${?a}, c = ${?missing}, d = [${?a}, ${?missing}]")(
+        _.withoutPath("a"),
+        _.withValue("missing", ConfigValueFactory.fromAnyRef(3))
+      )
+      resolved.map(_.unwrapped.containsKey("b")) shouldBe Right(false)
+      resolved.map(_.unwrapped.get("c")) shouldBe Right(3)
+    }
+
+    it("should re-resolve appends") {
+      resolvesTheSame("a = 2, list = [1], list += ${a}, list += 3, other = ${list}")(
+        _.withValue("a", ConfigValueFactory.fromAnyRef(5)),
+        _.withValue("list", value("[9]")),
+        _.withoutPath("a")
+      )
+    }
+
+    it("should re-resolve self-references") {
+      resolvesTheSame("""path = "x", path = ${path}":y", obj = { a = 1 }, obj = ${obj} { b = ${n} }, n = 2""")(
+        _.withValue("n", ConfigValueFactory.fromAnyRef(3)),
+        _.withValue("obj.a", ConfigValueFactory.fromAnyRef(4)),
+        _.withValue("path", ConfigValueFactory.fromAnyRef("z"))
+      )
+    }
+
+    it("should resolve a config with cycles the same as from scratch") {
+      resolvesTheSame("a = 1, a = ${?b}, b = ${?a}, c = ${a}")(
+        _.withValue("c", value("${b}")),
+        _.withoutPath("b")
+      )
+      resolvesTheSame("x = { y = 1 }, z = ${x}, x = ${z} { w = ${x.y} }")(
+        _.withValue("x.y", ConfigValueFactory.fromAnyRef(2))
+      )
+    }
+
+    it("should take in what a fallback adds") {
+      resolvesTheSame("a = ${?fallback}, b = ${?o.x}, o { y = 1 }")(
+        _.withFallback(parse("fallback = 1, o { x = ${o.y} }")),
+        _.withFallback(parse("o { y = 2, z = 3 }"))
+      )
+    }
+  }
+
+  describe("resolving randomly edited configs") {
+    val keys = Vector("a", "b", "c", "d", "o.a", "o.b", "p")
+
+    def literal(random: Random): String = random.nextInt(4) match {
+      case 0 => random.nextInt(10).toString
+      case 1 => s"[${random.nextInt(10)}]"
+      case 2 => s"{ x = ${random.nextInt(10)} }"
+      case _ => "\"s\""
+    }
+
+    def expression(random: Random): String = {
+      val other = keys(random.nextInt(keys.length))
+      random.nextInt(6) match {
+        case 0 => literal(random)
+        case 1 => "${" + other + "}"
+        case 2 => "${?" + other + "}"
+        case 3 => "\"s\"${?" + other + "}"
+        case 4 => "[1, ${?" + other + "}]"
+        case _ => "${?" + other + "} " + literal(random)
+      }
+    }
+
+    def config(random: Random): String = (0 until 3 + random.nextInt(8)).map { _ =>
+      val key = keys(random.nextInt(keys.length))
+      random.nextInt(5) match {
+        case 0 => s"$key += ${random.nextInt(10)}"
+        case 1 => s"$key = $${?$key} ${literal(random)}"
+        case _ => s"$key = ${expression(random)}"
+      }
+    }.mkString("\n")
+
+    def edit(random: Random): Config => Config = {
+      val key = keys(random.nextInt(keys.length))
+      random.nextInt(4) match {
+        case 0 => _.withValue(key, ConfigValueFactory.fromAnyRef(random.nextInt(10)))
+        case 1 => val v = value(expression(random)); _.withValue(key, v)
+        case 2 => _.withoutPath(key)
+        case _ => val fallback = parse(s"$key = ${expression(random)}"); _.withFallback(fallback)
+      }
+    }
+
+    it("should come to the same as resolving from scratch") {
+      val random = new Random(20261018)
+      var incremental = 0
+      (0 until 3000).foreach { i =>
+        val text = config(random)
+        val base = parse(text)
+        if (Try(base.resolve()).isSuccess) {
+          (0 until 1 + random.nextInt(3)).foldLeft(base) { (config, _) =>
+            val edited = edit(random)(config)
+            if (hasLineage(edited)) incremental += 1
+            withClue(s"config $i:\n$text\nedited to ${edited.root().render()}\n") {
+              outcome(edited.resolve()) shouldBe outcome(fromScratch(edited))
+            }
+            edited
+          }
+        }
+      }
+      // enough of them took the incremental path to mean something
+      incremental should be > 1000
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.{Config, ConfigException, ConfigFactory, ConfigObject, ConfigParseOptions, ConfigRenderOptions, ConfigSyntax}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import scala.jdk.CollectionConverters._
+import scala.util.Random
+
+// parsing with setLazyObjects against parsing everything straight away
+class LazyParseTest extends AnyFunSpec with Matchers {
+
+  private val eager = ConfigParseOptions.defaults()
+  private val lazily = ConfigParseOptions.defaults().setLazyObjects(true)
+
+  // what makes the scan parse a section straight away, or not
+  private val kinds = Vector("plain", "nested", "substitution", "include", "plusEquals", "multiline", "duplicate", "dotted", "small")
+  private val deferredKinds = Set("plain", "nested")
+
+  // enough settings to take an object past LazyParser.MIN_LAZY_CHARS, with
+  // comments and strings that look like the things the scan looks for
+  private def settings(random: Random, name: String, count: Int): String =
+    (0 until count).map { i =>
+      val value = random.nextInt(6) match {
+        case 0 => s"\"$name value $i { with } [brackets], $${not} a substitution\""
+        case 1 => s"${random.nextInt(1000)}"
+        case 2 => s"[${random.nextInt(10)}, \"x\", { inList = true }]"
+        case 3 => s"${random.nextInt(100)}s"
+        case 4 => "null"
+        case _ => s"unquoted words $i"
+      }
+      val comment = random.nextInt(4) match {
+        case 0 => s"  # an include or += in a comment\n"
+        case 1 => s"  // $${comment} { braces\n"
+        case _ => ""
+      }
+      s"$comment  setting$i = $value"
+    }.mkString("\n")
+
+  private def section(random: Random, kind: String, name: String): String = {
+    val body = settings(random, name, 10)
+    kind match {
+      case "plain" => s"$name {\n$body\n}"
+      case "nested" => s"$name {\n$body\n  inner {\n${settings(random, name, 10)}\n    deeper { ${settings(random, name, 10)} }\n  }\n}"
+      case "substitution" => s"$name {\n$body\n  ref = $${base.value}\n}"
+      case "include" => s"$name {\n$body\n  include \"no-such-file\"\n}"
+      case "plusEquals" => s"$name {\n$body\n  appended = [1]\n  appended += 2\n}"
+      case "multiline" => s"$name {\n$body\n  text = \"\"\"across\nlines\"\"\"\n}"
+      case "duplicate" => s"$name {\n$body\n}\n$name { extra = 1 }"
+      case "dotted" => s"$name.inner {\n$body\n}"
+      case "small" => s"$name { setting = 1 }"
+    }
+  }
+
+  // a file of sections of random kinds, named for their kind
+  private def generated(random: Random): (String, Map[String, String]) = {
+    val names = (0 until 12).map { i => val kind = kinds(random.nextInt(kinds.length)); s"$kind$i" -> kind }
+    val text = "base { value = 1 }\n" + names.map { case (name, kind) => section(random, kind, name) }.mkString("\n", "\n", "\n")
+    text -> names.toMap
+  }
+
+  // the sections that were put off, looked at without parsing them
+  private def deferred(root: ConfigObject): Set[String] = {
+    val field = classOf[SimpleConfigObject].getDeclaredField("value")
+    field.setAccessible(true)
+    root.keySet().asScala.filter { key =>
+      root.get(key) match {
+        case o: SimpleConfigObject => field.get(o).isInstanceOf[LazyObjectMap]
+        case _ => false
+      }
+    }.toSet
+  }
+
+  // everything about a config, down to the lines values came from
+  private def described(config: Config): String = config.root().render(ConfigRenderOptions.defaults())
+
+  private def parsesTheSame(text: String, syntax: ConfigSyntax): Config = {
+    val lazyConfig = ConfigFactory.parseString(text, lazily.setSyntax(syntax))
+    val eagerConfig = ConfigFactory.parseString(text, eager.setSyntax(syntax))
+    described(lazyConfig) shouldBe described(eagerConfig)
+    lazyConfig shouldBe eagerConfig
+    described(lazyConfig.resolve()) shouldBe described(eagerConfig.resolve())
+    lazyConfig.resolve() shouldBe eagerConfig.resolve()
+    lazyConfig
+  }
+
+  describe("parsing lazily") {
+    it("should put off only the objects that can't depend on anything else, and parse them the same") {
+      val random = new Random(20261018)
+      for (run <- 0 until 100) {
+        val (text, kindOf) = generated(random)
+        withClue(s"run $run:\n$text\n") {
+          val root = ConfigFactory.parseString(text, lazily).root()
+          deferred(root) shouldBe kindOf.filter { case (_, kind) => deferredKinds(kind) }.keySet
+          parsesTheSame(text, ConfigSyntax.CONF)
+        }
+      }
+    }
+
+    it("should parse JSON the same") {
+      val random = new Random(7)
+      for (_ <- 0 until 20) {
+        val (text, kindOf) = generated(random)
+        val json = ConfigFactory.parseString(text).resolve().root()
+          .render(ConfigRenderOptions.defaults().setOriginComments(false).setComments(false).setJson(true))
+        withClue(s"$json\n") {
+          val lazyConfig = parsesTheSame(json, ConfigSyntax.JSON)
+          deferred(lazyConfig.root()) should contain allElementsOf kindOf.filter { case (_, kind) => deferredKinds(kind) }.keySet
+        }
+      }
+    }
+
+    it("should throw a syntax error in a deferred object when the object is first read") {
+      val random = new Random(1)
+      val text = s"good {\n${settings(random, "good", 10)}\n}\nbroken {\n${settings(random, "broken", 10)}\n  bad = `\n}\n"
+      val eagerError = the[ConfigException.Parse] thrownBy ConfigFactory.parseString(text, eager)
+
+      val config = ConfigFactory.parseString(text, lazily)
+      deferred(config.root()) shouldBe Set("good", "broken")
+      config.getConfig("good").entrySet() should not be empty
+      val lazyError = the[ConfigException.Parse] thrownBy config.getConfig("broken").getString("bad")
+      lazyError.getMessage shouldBe eagerError.getMessage
+      lazyError.origin.lineNumber shouldBe eagerError.origin.lineNumber
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.{Config, ConfigException, ConfigFactory}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import java.net.{URL, URLClassLoader}
+import java.util.UUID
+import java.util.concurrent.atomic.{AtomicBoolean, AtomicInteger}
+import java.util.concurrent.{ConcurrentHashMap, CountDownLatch, Executors, TimeUnit}
+import scala.concurrent.duration._
+import scala.concurrent.{Await, ExecutionContext, Future}
+import scala.jdk.CollectionConverters._
+import scala.util.Try
+
+// ConfigImpl's per-class-loader cache, from many threads at once
+class LoaderCacheTest extends AnyFunSpec with Matchers {
+
+  private val Threads = 16
+
+  // the cache is shared by everything in the JVM, so each test has keys and
+  // a system property of its own
+  private def uniqueKey(): String = s"loader-cache-test-${UUID.randomUUID()}"
+
+  private def newLoader(): ClassLoader = new URLClassLoader(Array.empty[URL], getClass.getClassLoader)
+
+  // runs the body on each of the threads, all starting together
+  private def onThreads[T](threads: Int)(body: Int => T): Seq[T] = {
+    val pool = Executors.newFixedThreadPool(threads)
+    implicit val ec: ExecutionContext = ExecutionContext.fromExecutor(pool)
+    val start = new CountDownLatch(1)
+    try {
+      val results = (0 until threads).map(i => Future { start.await(); body(i) })
+      start.countDown()
+      Await.result(Future.sequence(results), 30.seconds)
+    } finally {
+      pool.shutdown()
+      pool.awaitTermination(5, TimeUnit.SECONDS)
+    }
+  }
+
+  private def cached(loader: ClassLoader, key: String)(load: => Config): Config =
+    ConfigImpl.computeCachedConfig(loader, key, () => load)
+
+  // a config of the test's system property, read the way load() reads it
+  private def readProperty(property: String): Config =
+    ConfigFactory.parseString(s"value = ${ConfigImpl.systemPropertiesAsConfig().getInt(property)}")
+
+  private def withProperty[T](property: String, value: Int)(body: => T): T = {
+    System.setProperty(property, value.toString)
+    ConfigFactory.invalidateCaches()
+    try body finally {
+      System.clearProperty(property)
+      ConfigFactory.invalidateCaches()
+    }
+  }
+
+  describe("the loader cache") {
+    it("should compute each key once per class loader, however many threads ask for it") {
+      val key = uniqueKey()
+      val loaders = Vector.fill(4)(newLoader()) :+ null
+      val loads = new ConcurrentHashMap[Option[ClassLoader], AtomicInteger]()
+
+      val results = onThreads(Threads * loaders.length) { i =>
+        val loader = loaders(i % loaders.length)
+        loader -> cached(loader, key) {
+          loads.computeIfAbsent(Option(loader), _ => new AtomicInteger()).incrementAndGet()
+          // long enough for the other threads to arrive while it's computing
+          Thread.sleep(50)
+          ConfigFactory.parseString(s"loader = $i")
+        }
+      }
+
+      loads.asScala.view.mapValues(_.get).toMap shouldBe loaders.map(Option(_) -> 1).toMap
+      val byLoader = results.groupBy(_._1).view.mapValues(_.map(_._2)).toMap
+      byLoader.values.foreach(configs => configs.distinct.map(System.identityHashCode) should have size 1)
+      byLoader.values.map(configs => System.identityHashCode(configs.head)).toSet should have size loaders.length
+    }
+
+    it("should not hold up one key while another is computed") {
+      val slowKey = uniqueKey()
+      val loader = newLoader()
+      val computing = new CountDownLatch(1)
+      val release = new CountDownLatch(1)
+      val slow = Future {
+        cached(loader, slowKey) { computing.countDown(); release.await(); ConfigFactory.empty() }
+      }(ExecutionContext.global)
+      try {
+        computing.await(5, TimeUnit.SECONDS) shouldBe true
+        val fast = onThreads(Threads)(_ => cached(loader, uniqueKey())(ConfigFactory.parseString("fast = true")))
+        all(fast.map(_.getBoolean("fast"))) shouldBe true
+      } finally release.countDown()
+      Await.result(slow, 5.seconds)
+    }
+
+    it("should show every thread the reload after invalidateCaches()") {
+      val key = uniqueKey()
+      val property = uniqueKey()
+      val loader = newLoader()
+      val loads = new AtomicInteger()
+      def load(): Config = cached(loader, key) { loads.incrementAndGet(); readProperty(property) }
+
+      withProperty(property, 1) {
+        all(onThreads(Threads)(_ => load().getInt("value"))) shouldBe 1
+        loads.get shouldBe 1
+
+        System.setProperty(property, "2")
+        ConfigFactory.invalidateCaches()
+        all(onThreads(Threads)(_ => load().getInt("value"))) shouldBe 2
+        loads.get shouldBe 2
+      }
+    }
+
+    it("should never give a config from before an invalidation that's already happened") {
+      val key = uniqueKey()
+      val property = uniqueKey()
+      val loader = newLoader()
+      val invalidated = new AtomicInteger(0)
+      val stop = new AtomicBoolean(false)
+
+      withProperty(property, 0) {
+        val stale = onThreads(Threads + 1) { i =>
+          if (i == 0) {
+            // the property moves on, then the caches are told
+            (1 to 200).foreach { n =>
+              System.setProperty(property, n.toString)
+              ConfigFactory.invalidateCaches()
+              invalidated.set(n)
+              Thread.sleep(1)
+            }
+            stop.set(true)
+            Nil
+          } else {
+            Iterator.continually {
+              val before = invalidated.get
+              val seen = cached(loader, key) { val read = readProperty(property); Thread.sleep(1); read }.getInt("value")
+              before -> seen
+            }.takeWhile(_ => !stop.get).filter { case (before, seen) => seen < before }.toList
+          }
+        }
+        stale.flatten shouldBe empty
+      }
+    }
+
+    it("should keep an entry that didn't read the system properties across invalidation") {
+      val key = uniqueKey()
+      val dependentKey = uniqueKey()
+      val property = uniqueKey()
+      val loader = newLoader()
+      val loads = new AtomicInteger()
+      val dependentLoads = new AtomicInteger()
+
+      withProperty(property, 1) {
+        def plain(): Config = cached(loader, key) { loads.incrementAndGet(); ConfigFactory.parseString("plain = 1") }
+        // reads the property through another cached entry
+        val inner = uniqueKey()
+        def dependent(): Config = cached(loader, dependentKey) {
+          dependentLoads.incrementAndGet()
+          cached(loader, inner)(readProperty(property))
+        }
+
+        onThreads(Threads)(_ => (plain(), dependent()))
+        System.setProperty(property, "2")
+        ConfigFactory.invalidateCaches()
+        all(onThreads(Threads)(_ => dependent().getInt("value"))) shouldBe 2
+        plain()
+
+        loads.get shouldBe 1
+        dependentLoads.get shouldBe 2
+      }
+    }
+
+    it("should give the waiting threads the failure, and not keep it") {
+      val key = uniqueKey()
+      val loader = newLoader()
+      val loads = new AtomicInteger()
+      val failures = onThreads(Threads) { _ =>
+        Try(cached(loader, key) {
+          loads.incrementAndGet()
+          Thread.sleep(50)
+          throw new ConfigException.Generic("broken")
+        })
+      }
+      failures.map(_.failed.map(_.getMessage).toOption) shouldBe Seq.fill(Threads)(Some("broken"))
+      // a thread that came along after the failure tries for itself
+      loads.get should be < Threads
+
+      cached(loader, key)(ConfigFactory.parseString("fixed = true")).getBoolean("fixed") shouldBe true
+    }
+  }
+}
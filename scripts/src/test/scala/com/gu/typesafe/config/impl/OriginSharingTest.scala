@@ -0,0 +1,100 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.{ConfigFactory, ConfigList, ConfigObject, ConfigOrigin, ConfigValue}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import java.nio.file.Files
+import java.util.{Collections, IdentityHashMap}
+import scala.jdk.CollectionConverters._
+
+// what origins share with each other, so that a big config holds about one
+// origin per line rather than one per token and value
+class OriginSharingTest extends AnyFunSpec with Matchers {
+
+  // by key, since values() is a set and would drop equal values
+  private def children(o: ConfigObject): Seq[ConfigValue] = o.keySet().asScala.toSeq.map(o.get)
+
+  private def leaves(value: ConfigValue): Seq[ConfigValue] = value match {
+    case o: ConfigObject => children(o).flatMap(leaves)
+    case l: ConfigList => l.asScala.toSeq.flatMap(leaves)
+    case leaf => Seq(leaf)
+  }
+
+  private def everything(value: ConfigValue): Seq[ConfigValue] = value match {
+    case o: ConfigObject => o +: children(o).flatMap(everything)
+    case l: ConfigList => l +: l.asScala.toSeq.flatMap(everything)
+    case leaf => Seq(leaf)
+  }
+
+  private def distinct(origins: Seq[ConfigOrigin]): Int = {
+    val seen = Collections.newSetFromMap(new IdentityHashMap[ConfigOrigin, java.lang.Boolean]())
+    origins.foreach(seen.add)
+    seen.size
+  }
+
+  private def source(origin: ConfigOrigin): AnyRef = {
+    val field = classOf[SimpleConfigOrigin].getDeclaredField("source")
+    field.setAccessible(true)
+    field.get(origin)
+  }
+
+  // settings sections of `settings` lines each, with substitutions and
+  // comments, like the files we load
+  private def generated(sections: Int, settings: Int): String =
+    (0 until sections).map { s =>
+      val lines = (0 until settings).map { i =>
+        val value = i % 4 match {
+          case 0 => s"\"value $i\""
+          case 1 => s"${i}s"
+          case 2 => s"[$i, ${i + 1}]"
+          case _ => s"$${section$s.setting0}"
+        }
+        (if (i % 5 == 0) s"  # about setting $i\n" else "") + s"  setting$i = $value"
+      }
+      s"section$s {\n${lines.mkString("\n")}\n}"
+    }.mkString("\n")
+
+  describe("origins") {
+    it("should be the same object for every value on a line") {
+      val config = ConfigFactory.parseString("a = 1, b = \"x\", c = [1, 2], d { e = true }")
+      distinct(leaves(config.root()).map(_.origin)) shouldBe 1
+      leaves(config.root()).map(_.origin.lineNumber).distinct shouldBe Seq(1)
+    }
+
+    it("should share what a file has in common between its lines") {
+      val file = Files.createTempFile("origins", ".conf")
+      Files.write(file, "a = 1\nb = 2\nc { d = 3 }\nc { e = 4 }\n".getBytes)
+      val config = ConfigFactory.parseFile(file.toFile)
+      val origins = everything(config.root()).map(_.origin)
+      origins.map(source).distinct should have size 1
+      origins.map(_.filename).distinct shouldBe Seq(file.toString)
+      config.getValue("c.e").origin.lineNumber shouldBe 4
+      // merged from two lines of the same file
+      config.getValue("c").origin.description should endWith(": 3-4")
+    }
+
+    it("should only carry comments where there are some") {
+      val config = ConfigFactory.parseString("# about a\na = 1\nb = 2")
+      val commented = config.getValue("a").origin
+      val plain = config.getValue("b").origin
+      commented.comments.asScala shouldBe List(" about a")
+      plain.comments.asScala shouldBe empty
+      plain.getClass shouldBe classOf[SimpleConfigOrigin]
+      commented.getClass should not be classOf[SimpleConfigOrigin]
+      source(commented) should be theSameInstanceAs source(plain)
+    }
+
+    it("should keep a parsed and resolved config to about one origin per line") {
+      val (sections, settings) = (50, 40)
+      val parsed = ConfigFactory.parseString(generated(sections, settings))
+      val resolved = parsed.resolve()
+      val values = everything(parsed.root()) ++ everything(resolved.root())
+      // a commented value has an origin of its own besides its line's, and
+      // each section and the root have one spanning their lines
+      val commented = everything(parsed.root()).count(!_.origin.comments.isEmpty)
+      values.size should be > 2 * sections * settings
+      distinct(values.map(_.origin)) should be <= sections * settings + commented + sections + 1
+    }
+  }
+}
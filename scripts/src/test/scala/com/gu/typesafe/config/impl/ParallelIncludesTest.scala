@@ -0,0 +1,123 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.{Config, ConfigException, ConfigFactory, ConfigParseOptions, ConfigRenderOptions}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import java.nio.file.{Files, Path => FilePath}
+import scala.util.{Failure, Try}
+
+// parsing a tree of includes with setParallelIncludes against parsing it on
+// one thread
+class ParallelIncludesTest extends AnyFunSpec with Matchers {
+
+  private val serial = ConfigParseOptions.defaults()
+  private val parallel = ConfigParseOptions.defaults().setParallelIncludes(true)
+
+  private def write(dir: FilePath, name: String, text: String): FilePath =
+    Files.write(dir.resolve(name), text.getBytes)
+
+  private def parse(file: FilePath, options: ConfigParseOptions): Try[Config] =
+    Try(ConfigFactory.parseFile(file.toFile, options))
+
+  // everything about a config, down to which file and line each value came
+  // from
+  private def described(config: Config): String = config.root().render(ConfigRenderOptions.defaults())
+
+  private def parsesTheSame(file: FilePath): Config = {
+    val expected = parse(file, serial).get
+    // a few times over, since the includes may finish in any order
+    for (_ <- 0 until 10) {
+      val config = parse(file, parallel).get
+      described(config) shouldBe described(expected)
+      config shouldBe expected
+    }
+    expected
+  }
+
+  private def failsTheSame(file: FilePath): ConfigException = {
+    val expected = parse(file, serial) match {
+      case Failure(e: ConfigException) => e
+      case other => fail(s"expected a ConfigException parsing serially, got $other")
+    }
+    for (_ <- 0 until 10) {
+      parse(file, parallel) match {
+        case Failure(e: ConfigException) =>
+          e.getClass shouldBe expected.getClass
+          e.getMessage shouldBe expected.getMessage
+        case other => fail(s"expected $expected parsing in parallel, got $other")
+      }
+    }
+    expected
+  }
+
+  // a wide and deep tree of includes, every one of which sets the same keys,
+  // so that the result depends on the order they're merged in
+  private def includeTree(dir: FilePath, name: String, depth: Int, width: Int): FilePath = {
+    val children = if (depth == 0) Nil else (0 until width).map(i => includeTree(dir, s"$name-$i", depth - 1, width))
+    write(dir, s"$name.conf",
+      s"""winner = $name
+         |merged { $name = true, last = $name }
+         |${children.map(child => s"include \"${child.getFileName}\"").mkString("\n")}
+         |list = [$name]
+         |after { last = $name }
+         |""".stripMargin)
+  }
+
+  describe("parsing includes in parallel") {
+    it("should merge the includes in the same order as parsing them one at a time") {
+      val dir = Files.createTempDirectory("includes")
+      val root = includeTree(dir, "root", 3, 4)
+      val config = parsesTheSame(root)
+      // set before the includes, so the last one wins; set after, ours does
+      config.getString("winner") shouldBe "root-3-3-3"
+      config.getString("merged.last") shouldBe "root-3-3-3"
+      config.getString("after.last") shouldBe "root"
+      config.getBoolean("merged.root-3-3-3") shouldBe true
+    }
+
+    it("should report the failure of the first failing include, even if a later one fails sooner") {
+      val dir = Files.createTempDirectory("includes")
+      // slow to fail: a big tree to get through before the error at its end
+      val slow = includeTree(dir, "slow", 3, 4)
+      write(dir, "slow-broken.conf", s"include \"${slow.getFileName}\"\nbroken = = 1\n")
+      write(dir, "root.conf",
+        """include "slow-broken.conf"
+          |include required("not-there.conf")
+          |include "also-broken.conf"
+          |""".stripMargin)
+      write(dir, "also-broken.conf", "{")
+
+      val error = failsTheSame(dir.resolve("root.conf"))
+      error shouldBe a[ConfigException.Parse]
+      error.getMessage should include("slow-broken.conf")
+    }
+
+    it("should still stop an include cycle at the nesting limit") {
+      val dir = Files.createTempDirectory("includes")
+      write(dir, "a.conf", "include \"b.conf\"\ninclude \"c.conf\"\na = 1")
+      write(dir, "b.conf", "include \"a.conf\"\ninclude \"c.conf\"\nb = 1")
+      write(dir, "c.conf", "c = 1")
+
+      val error = failsTheSame(dir.resolve("a.conf"))
+      error shouldBe a[ConfigException.Parse]
+      error.getMessage should include("include statements nested more than 50 times")
+    }
+
+    it("should still skip an optional include that isn't there") {
+      val dir = Files.createTempDirectory("includes")
+      write(dir, "present.conf", "present = true")
+      val root = write(dir, "root.conf",
+        """include "missing.conf"
+          |include "present.conf"
+          |include file("also-missing.conf")
+          |own = true
+          |""".stripMargin)
+
+      val config = parsesTheSame(root)
+      config.getBoolean("present") shouldBe true
+      config.getBoolean("own") shouldBe true
+      config.root().keySet() should have size 2
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.{ConfigFactory, ConfigOrigin}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import java.util.Properties
+import scala.jdk.CollectionConverters._
+import scala.util.Random
+
+// building a tree from properties in one pass, against building it from a
+// map of parsed paths as it used to be
+class PropertiesParserTest extends AnyFunSpec with Matchers {
+
+  private val origin: ConfigOrigin = SimpleConfigOrigin.newSimple("properties")
+
+  // the old way: every key made into a Path, then the scopes built from
+  // the longest path down
+  private def byPaths(props: Properties): AbstractConfigObject = {
+    val pathMap = new java.util.HashMap[Path, AnyRef]()
+    props.entrySet().asScala.foreach { e =>
+      e.getKey match {
+        case key: String => pathMap.put(PropertiesParser.pathFromPropertyKey(key), e.getValue)
+        case _ =>
+      }
+    }
+    val fromPathMap = classOf[PropertiesParser].getDeclaredMethod("fromPathMap",
+      classOf[ConfigOrigin], classOf[java.util.Map[_, _]], java.lang.Boolean.TYPE)
+    fromPathMap.setAccessible(true)
+    fromPathMap.invoke(null, origin, pathMap, java.lang.Boolean.TRUE).asInstanceOf[AbstractConfigObject]
+  }
+
+  private def properties(entries: (AnyRef, AnyRef)*): Properties = {
+    val props = new Properties()
+    entries.foreach { case (k, v) => props.put(k, v) }
+    props
+  }
+
+  // every value with its origin, by key, since the two can hold their keys
+  // in different orders
+  private def described(value: AbstractConfigValue, path: String = ""): Seq[String] = value match {
+    case o: AbstractConfigObject =>
+      s"$path {} ${o.origin.description}" +: o.keySet().asScala.toSeq.sorted.flatMap(key => described(o.get(key), s"$path/$key"))
+    case leaf => Seq(s"$path = ${leaf.unwrapped} ${leaf.origin.description}")
+  }
+
+  private def buildsTheSame(props: Properties): AbstractConfigObject = {
+    val built = PropertiesParser.fromProperties(origin, props)
+    val expected = byPaths(props)
+    described(built) shouldBe described(expected)
+    built shouldBe expected
+    val strings = props.entrySet().asScala.map(e => (e.getKey, e.getValue)).collect { case (k: String, v: String) => k -> v }.toMap.asJava
+    PropertiesParser.fromStringMap(origin, strings) shouldBe byPaths(properties(strings.asScala.toSeq: _*))
+    built
+  }
+
+  describe("building a tree from properties") {
+    it("should let a key that is also a prefix of another become an object, either way round") {
+      val built = buildsTheSame(properties("a" -> "1", "a.b" -> "2", "c.d" -> "3", "c" -> "4", "c.d.e" -> "5"))
+      built.toConfig.getString("a.b") shouldBe "2"
+      built.toConfig.getString("c.d.e") shouldBe "5"
+      built.toConfig.hasPath("c.d") shouldBe true
+    }
+
+    it("should keep empty path elements as keys") {
+      val built = buildsTheSame(properties("" -> "empty", "a..b" -> "1", ".lead" -> "2", "trail." -> "3", "." -> "4", "x" -> "5"))
+      // "." makes the empty key an object, so its own value is dropped
+      built.get("").asInstanceOf[AbstractConfigObject].keySet().asScala shouldBe Set("", "lead")
+      built.get("a").asInstanceOf[AbstractConfigObject].get("").asInstanceOf[AbstractConfigObject].get("b").unwrapped shouldBe "1"
+      built.get("trail").asInstanceOf[AbstractConfigObject].get("").unwrapped shouldBe "3"
+    }
+
+    it("should keep keys that look like numbers as strings") {
+      val built = buildsTheSame(properties("list.0" -> "a", "list.1" -> "b", "list.10" -> "c", "n.01" -> "x", "n.-1" -> "y", "1.5" -> "z"))
+      built.toConfig.getStringList("list").asScala shouldBe List("a", "b", "c")
+      built.get("1").asInstanceOf[AbstractConfigObject].get("5").unwrapped shouldBe "z"
+    }
+
+    it("should drop what isn't a string") {
+      val built = buildsTheSame(properties("a" -> Integer.valueOf(1), "b.c" -> Integer.valueOf(2), Integer.valueOf(3) -> "d", "e" -> "f"))
+      built.keySet().asScala shouldBe Set("b", "e")
+    }
+
+    it("should build the same tree as before for random properties") {
+      val segments = Vector("a", "b", "c", "", "0", "1", "10", "01", "-1", " ", "x y", "é")
+      val random = new Random(20261018)
+      for (_ <- 0 until 3000) {
+        val entries = (0 until random.nextInt(20)).map { i =>
+          val key = (0 to random.nextInt(4)).map(_ => segments(random.nextInt(segments.length))).mkString(".")
+          val value: AnyRef = if (random.nextInt(10) == 0) Integer.valueOf(i) else s"v$i"
+          key -> value
+        }
+        val props = properties(entries: _*)
+        withClue(s"$props: ") {
+          buildsTheSame(props)
+          ConfigFactory.parseProperties(props).root() shouldBe byPaths(props)
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.{ConfigFactory, ConfigList, ConfigObject, ConfigRenderOptions, ConfigValue}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import java.io.{ByteArrayOutputStream, StringWriter}
+import java.nio.charset.StandardCharsets
+import scala.jdk.CollectionConverters._
+
+// rendering to an Appendable or a stream, against rendering to a string, for
+// every combination of options
+class RenderTest extends AnyFunSpec with Matchers {
+
+  private val allOptions: Seq[ConfigRenderOptions] = for {
+    comments <- Seq(false, true)
+    originComments <- Seq(false, true)
+    formatted <- Seq(false, true)
+    json <- Seq(false, true)
+    compactKeys <- Seq(false, true)
+  } yield ConfigRenderOptions.defaults()
+    .setComments(comments)
+    .setOriginComments(originComments)
+    .setFormatted(formatted)
+    .setJson(json)
+    .setCompactKeys(compactKeys)
+
+  private val resolved = ConfigFactory.parseString(
+    """
+      |# the service
+      |service {
+      |  name = "grid \"media\" api"
+      |  # where it listens
+      |  port = 9000
+      |  hosts = [a, "b.c", null, 1.5, true, [], {}]
+      |  "quoted.key" = é
+      |  nothing = null
+      |  empty {}
+      |  nested { deeper { deepest = [{ x = 1 }, { y = [2, 3] }] } }
+      |}
+      |list = [
+      |  # a commented element
+      |  1,
+      |  2
+      |]
+      |""".stripMargin).resolve()
+
+  private val unresolved = ConfigFactory.parseString(
+    """
+      |base { a = 1, b = 2 }
+      |merged = ${base} { c = 3 }
+      |concatenated = ${base.a} and ${?missing} more
+      |listed = [1] ${?extra} [2]
+      |appended = [1]
+      |appended += 2
+      |# the reference
+      |reference = ${base.b}
+      |selfReferential = { a = 1 }
+      |selfReferential = ${selfReferential} { b = 2 }
+      |""".stripMargin)
+
+  // an unresolved object merged under a resolved one, which can only be
+  // rendered as a delayed merge
+  private val delayedMerge = ConfigFactory.parseString("o = { x = 1 }").withFallback(
+    ConfigFactory.parseString("o = ${p}, p = { y = 2 }"))
+
+  // a rendering that is several times the writer's buffer
+  private val large = ConfigFactory.parseString(
+    (0 until 2000).map(i => s"section$i { setting = \"${"x" * (i % 50)}\", list = [$i, ${i + 1}] }").mkString("\n"))
+
+  private val configs = Seq("resolved" -> resolved, "unresolved" -> unresolved, "delayed merge" -> delayedMerge, "large" -> large)
+
+  // down to the values that can't be looked into until they're resolved
+  private def everything(value: ConfigValue): Seq[ConfigValue] = value match {
+    case merge: ConfigDelayedMergeObject => Seq(merge)
+    case o: ConfigObject => o +: o.keySet().asScala.toSeq.flatMap(key => everything(o.get(key)))
+    case l: ConfigList => l +: l.asScala.toSeq.flatMap(everything)
+    case leaf => Seq(leaf)
+  }
+
+  private def rendersTheSame(value: ConfigValue, options: ConfigRenderOptions): Unit = {
+    val rendered = value.render(options)
+
+    val writer = new StringWriter()
+    value.render(writer, options)
+    writer.toString shouldBe rendered
+
+    val bytes = new ByteArrayOutputStream()
+    value.renderUtf8(bytes, options)
+    new String(bytes.toByteArray, StandardCharsets.UTF_8) shouldBe rendered
+  }
+
+  describe("rendering to an Appendable or a stream") {
+    for ((name, config) <- configs) {
+      it(s"should render a $name config the same as to a string, with every option") {
+        for (options <- allOptions) {
+          withClue(s"$options: ") {
+            rendersTheSame(config.root(), options)
+          }
+        }
+      }
+    }
+
+    it("should render each value within a config the same as to a string") {
+      for ((name, config) <- configs.filterNot(_._1 == "large"); value <- everything(config.root()); options <- allOptions) {
+        withClue(s"$name, $options, ${value.origin.description}: ") {
+          rendersTheSame(value, options)
+        }
+      }
+    }
+
+    it("should have something longer than the buffer to render") {
+      large.root().render(ConfigRenderOptions.concise()).length should be > 8192 * 4
+    }
+  }
+}
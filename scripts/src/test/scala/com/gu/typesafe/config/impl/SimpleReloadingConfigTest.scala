@@ -0,0 +1,63 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.{Config, ConfigFactory, ConfigIncludeContext, ConfigIncluder, ConfigObject, ConfigParseOptions, ConfigResolveOptions}
+import org.scalatest.concurrent.Eventually
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.time.{Millis, Seconds, Span}
+
+import java.nio.file.Files
+import java.util.concurrent.ConcurrentLinkedQueue
+import scala.jdk.CollectionConverters._
+
+class SimpleReloadingConfigTest extends AnyFunSpec with Matchers with Eventually {
+
+  implicit override val patienceConfig: PatienceConfig = PatienceConfig(timeout = Span(10, Seconds), interval = Span(50, Millis))
+
+  // includes `b = 1`, or throws something other than a ConfigException
+  class FlakyIncluder extends ConfigIncluder {
+    @volatile var broken = false
+    def withFallback(fallback: ConfigIncluder): ConfigIncluder = this
+    def include(context: ConfigIncludeContext, what: String): ConfigObject =
+      if (broken) throw new IllegalStateException("includer broke")
+      else ConfigFactory.parseString("b = 1").root()
+  }
+
+  // what the reload thread reports, while the test runs
+  private def withUncaughtExceptions(test: ConcurrentLinkedQueue[Throwable] => Unit): Unit = {
+    val uncaught = new ConcurrentLinkedQueue[Throwable]()
+    val previous = Thread.getDefaultUncaughtExceptionHandler
+    Thread.setDefaultUncaughtExceptionHandler((_, e) => uncaught.add(e))
+    try test(uncaught) finally Thread.setDefaultUncaughtExceptionHandler(previous)
+  }
+
+  describe("SimpleReloadingConfig") {
+    it("should keep the last good config, and keep watching, when a reload throws") {
+      withUncaughtExceptions { uncaught =>
+        val file = Files.createTempDirectory("reloading").resolve("application.conf")
+        Files.write(file, "include \"flaky\"\na = 1".getBytes)
+        val includer = new FlakyIncluder
+        val reloading = ConfigFactory.parseFileReloading(
+          file.toFile,
+          ConfigParseOptions.defaults().setIncluder(includer),
+          ConfigResolveOptions.defaults()
+        )
+        try {
+          val changes = new ConcurrentLinkedQueue[Config]()
+          reloading.subscribe((config: Config) => { changes.add(config); () })
+
+          includer.broken = true
+          Files.write(file, "include \"flaky\"\na = 2".getBytes)
+          eventually { uncaught.asScala.map(_.getMessage).toList shouldBe List("includer broke") }
+          reloading.current().getInt("a") shouldBe 1
+          changes shouldBe empty
+
+          includer.broken = false
+          Files.write(file, "include \"flaky\"\na = 3".getBytes)
+          eventually { changes.asScala.map(_.getInt("a")).toList shouldBe List(3) }
+          reloading.current().getInt("b") shouldBe 1
+        } finally reloading.close()
+      }
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.gu.typesafe.config.impl
+
+import com.gu.typesafe.config.{ConfigOrigin, ConfigSyntax}
+import org.scalatest.funspec.AnyFunSpec
+import org.scalatest.matchers.should.Matchers
+
+import java.io.StringReader
+import java.nio.CharBuffer
+import scala.jdk.CollectionConverters._
+import scala.util.Random
+
+// Tokenizing a CharBuffer against tokenizing a Reader of the same text: the
+// same tokens, with the same text and lines, including the problems
+class TokenizerTest extends AnyFunSpec with Matchers {
+
+  private val origin: ConfigOrigin = SimpleConfigOrigin.newSimple("test")
+
+  // what tells one token from another, down to its line and original text
+  private def describe(token: Token): String =
+    s"${token.tokenType()} ${token.lineNumber()} $token [${token.tokenText()}]"
+
+  private def fromReader(text: String, syntax: ConfigSyntax): List[String] =
+    Tokenizer.tokenize(origin, new StringReader(text), syntax).asScala.map(describe).toList
+
+  private def fromBuffer(text: String, syntax: ConfigSyntax): List[String] =
+    Tokenizer.tokenize(origin, CharBuffer.wrap(text.toCharArray), syntax).asScala.map(describe).toList
+
+  private def tokenizesTheSame(text: String): Unit =
+    Seq(ConfigSyntax.CONF, ConfigSyntax.JSON).foreach { syntax =>
+      withClue(s"$syntax of ${text.map(c => if (c < ' ' || c > '~') f"\\u${c.toInt}%04x" else c.toString).mkString}:\n") {
+        fromBuffer(text, syntax) shouldBe fromReader(text, syntax)
+      }
+    }
+
+  describe("tokenizing a buffer") {
+    it("should tokenize values, objects and arrays the same as a reader") {
+      tokenizesTheSame("""{ "a" : 1, "b" : [true, false, null, -1.5e3, "x"] }""")
+      tokenizesTheSame("a.b = 1\nc : foo bar  baz\nd { e += 2 }\n")
+    }
+
+    it("should tokenize comments and whitespace the same") {
+      tokenizesTheSame("# hash\na = 1 // slashes\n\t b = 2 /not a comment\n  \n")
+    }
+
+    it("should tokenize quoted strings the same") {
+      tokenizesTheSame("\"plain\" \"with \\\"escapes\\\" \\\\ \\/ \\b\\f\\n\\r\\t \\u00e9\" \"\" x")
+      tokenizesTheSame("a = \"\"\"triple \"quoted\"\nacross lines\"\"\"\"\" b = 1")
+    }
+
+    it("should tokenize substitutions the same") {
+      tokenizesTheSame("a = ${b}, c = ${?d.e} f, g = ${ h }${i} j")
+    }
+
+    it("should report the same problems") {
+      Seq(
+        "a = \"open", "a = \"\"\"open", "a = \"\\", "a = \"\\u12", "a = \"\\uzzzz\"", "a = \"\\q\"",
+        "a = \"\u0001\"", "a = +", "a = $x", "a = ${b", "a = `", "a = 1.2.3", "a = 1-@", "a = 12345678901234567890"
+      ).foreach(tokenizesTheSame)
+    }
+
+    it("should tokenize random text the same") {
+      val fragments = Vector(
+        "{", "}", "[", "]", ":", "=", ",", "+", "+=", "$", "${", "${?", "\"", "\"\"\"", "\\", "\\u00", "\\u0041",
+        "\\n", "\\q", "\n", "\r\n", " ", "\t", "\u00a0", "#", "//", "/", "true", "false", "null", "tr", "nul",
+        "0", "12", "-", ".", "e", "E", "1e5", "abc", "a.b", "@", "`", "?", "\u0001", "\u00e9", "\ud83d\ude00"
+      )
+      val random = new Random(20261018)
+      (0 until 20000).foreach { _ =>
+        tokenizesTheSame((0 until random.nextInt(24)).map(_ => fragments(random.nextInt(fragments.length))).mkString)
+      }
+    }
+  }
+}